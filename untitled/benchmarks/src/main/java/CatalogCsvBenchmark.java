@@ -0,0 +1,150 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Catalog CSV benchmark: generates a catalog CSV, imports it in parallel into the inventory
+ * (columnar store unless -Dpos.store is given) through the bulk addProducts API, exports it again
+ * and checks the export is byte-identical to the source. Reports rows/s, the peak heap while
+ * importing (sampled) and the heap the imported catalog retains.
+ * Usage: java -Dpos.journal=off -Dpos.archive=off -Dpos.catalog=none CatalogCsvBenchmark [rows]
+ */
+public class CatalogCsvBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        if (System.getProperty("pos.store") == null) {
+            System.setProperty("pos.store", "columnar");
+        }
+
+        System.out.println("======================================");
+        System.out.println("  Catalog CSV: " + rows + " rows, " + Runtime.getRuntime().availableProcessors()
+                + " cores, store " + System.getProperty("pos.store"));
+        System.out.println("======================================");
+        Path source = Files.createTempFile("pos-catalog", ".csv");
+        Path exported = Files.createTempFile("pos-catalog-export", ".csv");
+        try {
+            long start = System.nanoTime();
+            CatalogCsv.write(generated(rows), source);
+            System.out.printf("generate: %.0f ms, %d MB%n", (System.nanoTime() - start) / 1e6, Files.size(source) >> 20);
+
+            Inventory inventory = Inventory.getInstance();
+            int before = inventory.getAllProducts().size();
+            HeapSampler sampler = new HeapSampler();
+            sampler.start();
+            start = System.nanoTime();
+            long imported = CatalogCsv.importFile(source, inventory);
+            double importMillis = (System.nanoTime() - start) / 1e6;
+            sampler.interrupt();
+            sampler.join();
+            System.gc();
+            long retained = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+            System.out.printf("import:   %.0f ms, %.2f M rows/s, heap: peak %d MB during import, %d MB retained (catalog)%n",
+                    importMillis, imported / importMillis / 1e3, sampler.peak >> 20, retained >> 20);
+
+            Product sample = inventory.getProductById(sku(rows / 2));
+            boolean sampleOk = sample != null && sample.getProductName().equals(name(rows / 2))
+                    && sample.getPrice() == price(rows / 2) && sample.getStockQuantity() == rows / 2 % 1000;
+
+            // Export only the generated rows (the inventory also holds its test products)
+            start = System.nanoTime();
+            long written = CatalogCsv.write(new AbstractCollection<Product>() {
+                @Override
+                public Iterator<Product> iterator() {
+                    Iterator<Product> all = generated(rows).iterator();
+                    return new Iterator<Product>() {
+                        @Override
+                        public boolean hasNext() {
+                            return all.hasNext();
+                        }
+
+                        @Override
+                        public Product next() {
+                            return inventory.getProductById(all.next().getProductId());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return rows;
+                }
+            }, exported);
+            double exportMillis = (System.nanoTime() - start) / 1e6;
+            System.out.printf("export:   %.0f ms, %.2f M rows/s%n", exportMillis, written / exportMillis / 1e3);
+            boolean identical = Files.mismatch(source, exported) == -1;
+            System.out.printf("products: %d imported, %d in inventory, export identical to source: %b%n",
+                    imported, inventory.getAllProducts().size() - before, identical);
+            System.out.println("--------------------------------------");
+            System.out.println(imported == rows && sampleOk && identical
+                    ? "✅ Catalog imported and exported losslessly" : "❌ Catalog import / export mismatch");
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(exported);
+        }
+    }
+
+    // Products generated on the fly (no list of rows in memory)
+    private static Collection<Product> generated(int rows) {
+        return new AbstractCollection<Product>() {
+            @Override
+            public Iterator<Product> iterator() {
+                return new Iterator<Product>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < rows;
+                    }
+
+                    @Override
+                    public Product next() {
+                        int i = next++;
+                        return new Product(sku(i), name(i), price(i), i % 1000);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        };
+    }
+
+    private static String sku(int i) {
+        return String.format("S%08d", i);
+    }
+
+    private static String name(int i) {
+        return i % 10 == 0 ? "Item " + i + ", \"special\"" : "Item " + i;
+    }
+
+    private static long price(int i) {
+        return 99 + i % 10_000;
+    }
+
+    // Samples the used heap every 10 ms until interrupted
+    private static final class HeapSampler extends Thread {
+        private volatile long peak;
+
+        HeapSampler() {
+            super("heap-sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (!isInterrupted()) {
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
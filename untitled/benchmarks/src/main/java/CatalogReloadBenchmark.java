@@ -0,0 +1,102 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Catalog reload benchmark: checkout lanes keep scanning and paying while a price delta file is
+ * applied in the background. Reports lane scan latency before and during the reload, the reload
+ * time, and checks that a cart started before the reload is charged at the old prices and a new
+ * cart at the new ones.
+ * Usage: java -Dpos.journal=off -Dpos.archive=off -Dpos.catalog=none CatalogReloadBenchmark [products] [price changes] [lanes]
+ */
+public class CatalogReloadBenchmark {
+    public static void main(String[] args) throws Exception {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int laneCount = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        System.out.println("======================================");
+        System.out.println("  Catalog reload: " + products + " products, " + changes + " price changes, " + laneCount + " lanes");
+        System.out.println("======================================");
+        Inventory inventory = Inventory.getInstance();
+        for (int i = 0; i < products; i++) {
+            inventory.addProduct(new Product(sku(i), "Item" + i, Money.of(1, 0), 1_000_000_000));
+        }
+        Path delta = Files.createTempFile("pos-prices", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(delta, StandardCharsets.UTF_8)) {
+            writer.write("# productId,price\n");
+            for (int i = 0; i < changes; i++) {
+                writer.write(sku(i) + "," + Money.format(Money.of(2, 0)) + "\n");  // 1.00 -> 2.00
+            }
+        }
+
+        // Cart started before the reload: one unit of a product whose price changes
+        Checkout inFlight = new Checkout("in-flight");
+        inFlight.addItem(sku(0), 1);
+
+        AtomicBoolean reloading = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+        LatencyHistogram before = new LatencyHistogram();
+        LatencyHistogram during = new LatencyHistogram();
+        Thread[] lanes = new Thread[laneCount];
+        for (int l = 0; l < laneCount; l++) {
+            Checkout checkout = new Checkout("reload-" + l);
+            Random random = new Random(l);
+            lanes[l] = new Thread(() -> {
+                while (!stop.get()) {
+                    for (int i = 0; i < 5; i++) {
+                        long start = System.nanoTime();
+                        checkout.addItem(sku(random.nextInt(products)), 1);
+                        (reloading.get() ? during : before).record(System.nanoTime() - start);
+                    }
+                    checkout.processPayment(checkout.calculateTotalAmount());
+                }
+            });
+            lanes[l].start();
+        }
+        Thread.sleep(2_000);  // Warm-up and baseline
+
+        reloading.set(true);
+        long start = System.nanoTime();
+        CompletableFuture<CatalogVersion> reload = inventory.reloadPrices(delta);
+        CatalogVersion version = reload.get();
+        double reloadMillis = (System.nanoTime() - start) / 1e6;
+        reloading.set(false);
+        Thread.sleep(200);
+        stop.set(true);
+        for (Thread lane : lanes) {
+            lane.join();
+        }
+
+        inFlight.addItem(sku(0), 1);  // Still priced with the version the cart started with
+        long oldTotal = inFlight.processPayment(Long.MAX_VALUE).getTotalAmount();
+        Checkout fresh = new Checkout("in-flight");
+        fresh.addItem(sku(0), 2);
+        long newTotal = fresh.processPayment(Long.MAX_VALUE).getTotalAmount();
+        Files.delete(delta);
+
+        report("scan before reload:", before.snapshot());
+        report("scan during reload:", during.snapshot());
+        System.out.printf("reload: version %d, %d changes in %.0f ms (read, build, swap)%n",
+                version.getNumber(), version.getLastChangeCount(), reloadMillis);
+        System.out.printf("cart started before reload: %s, cart started after: %s%n", Money.format(oldTotal), Money.format(newTotal));
+        System.out.println("--------------------------------------");
+        System.out.println(oldTotal == Money.of(2, 0) && newTotal == Money.of(4, 0) && version.getLastChangeCount() == changes
+                ? "✅ In-flight cart kept its prices, new carts use the new version" : "❌ Wrong prices after reload");
+    }
+
+    private static String sku(int i) {
+        return String.format("S%07d", i);
+    }
+
+    private static void report(String label, LatencyHistogram.Snapshot latency) {
+        System.out.printf("%-20s n=%-9d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n", label, latency.getCount(),
+                latency.getPercentile(0.5) / 1e3, latency.getPercentile(0.99) / 1e3, latency.getPercentile(0.999) / 1e3,
+                latency.getMax() / 1e3);
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Random;
+
+/**
+ * Checkout metrics benchmark: cost of recording one event (histogram only, and the full stage
+ * timing with its nanoTime pair) on one or many threads, and percentile accuracy against a known
+ * distribution. Usage: java CheckoutMetricsBenchmark [threads] [events per thread]
+ */
+public class CheckoutMetricsBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+
+        System.out.println("======================================");
+        System.out.println("  Checkout metrics: " + threads + " threads, " + events + " events each");
+        System.out.println("======================================");
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int round = 0; round < 2; round++) {  // First round = warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                histogram.record(i & 0xFFFFF);
+            }
+            if (round == 1) {
+                System.out.printf("histogram record:  %.1f ns/event (1 thread)%n", (double) (System.nanoTime() - start) / events);
+            }
+        }
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                System.nanoTime();
+            }
+            if (round == 1) {
+                System.out.printf("System.nanoTime:   %.1f ns/call (clock source of this machine)%n",
+                        (double) (System.nanoTime() - start) / events);
+            }
+        }
+        CheckoutMetrics.Lane lane = CheckoutMetrics.lane("benchmark");
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                lane.record(CheckoutMetrics.Stage.SCAN, System.nanoTime());
+            }
+            if (round == 1) {
+                System.out.printf("stage timing:      %.1f ns/event (nanoTime pair + record)%n", (double) (System.nanoTime() - start) / events);
+            }
+        }
+
+        // Lanes record concurrently, each into its own lane and into one shared lane
+        for (String mode : new String[]{"own lane", "shared lane"}) {
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                CheckoutMetrics.Lane target = CheckoutMetrics.lane(mode.equals("own lane") ? "benchmark-" + t : "benchmark-shared");
+                workers[t] = new Thread(() -> {
+                    for (int i = 0; i < events; i++) {
+                        target.record(CheckoutMetrics.Stage.PAYMENT, System.nanoTime());
+                    }
+                });
+            }
+            long start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            int cores = Math.min(threads, Runtime.getRuntime().availableProcessors());
+            System.out.printf("%-18s %.1f ns/event per core (%d threads on %d cores)%n", mode + ":",
+                    (double) (System.nanoTime() - start) * cores / threads / events, threads, cores);
+        }
+
+        // Accuracy: exponential latencies with a 100 µs mean have p50 = 69.3 µs, p99 = 460.5 µs
+        LatencyHistogram exponential = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < 1_000_000; i++) {
+            exponential.record((long) (-Math.log(1 - random.nextDouble()) * 100_000));
+        }
+        LatencyHistogram.Snapshot snapshot = exponential.snapshot();
+        double p50 = snapshot.getPercentile(0.5) / 1e3;
+        double p99 = snapshot.getPercentile(0.99) / 1e3;
+        System.out.printf("accuracy:          p50 %.1f us (exact 69.3), p99 %.1f us (exact 460.5), mean %.1f us%n",
+                p50, p99, snapshot.getMean() / 1e3);
+        System.out.println("--------------------------------------");
+        System.out.println(Math.abs(p50 / 69.3 - 1) < 0.0625 && Math.abs(p99 / 460.5 - 1) < 0.0625
+                ? "✅ Percentiles within the 6.25% bucket precision" : "❌ Percentiles out of precision");
+    }
+}
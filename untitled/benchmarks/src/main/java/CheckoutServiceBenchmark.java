@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkout service benchmark: starts an in-process CheckoutService and drives many lanes over the
+ * localhost HTTP API (add items, pay), reporting sales/sec and per-request latency percentiles.
+ * Usage: java CheckoutServiceBenchmark [lanes] [seconds] [itemsPerCart]
+ */
+public class CheckoutServiceBenchmark {
+    private static final int SKU_COUNT = 1_000;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int laneCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int itemsPerCart = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        // Journal to a scratch file unless configured otherwise
+        if (System.getProperty("pos.journal") == null) {
+            File journalFile = File.createTempFile("bench-", ".journal");
+            journalFile.deleteOnExit();
+            System.setProperty("pos.journal", journalFile.getPath());
+        }
+        if (System.getProperty("pos.archive") == null) {
+            System.setProperty("pos.archive", Files.createTempDirectory("bench-receipts").toString());
+        }
+        Inventory inventory = Inventory.getInstance();
+        for (int i = 0; i < SKU_COUNT; i++) {
+            inventory.addProduct(new Product(String.format("S%05d", i), "Svc-" + i, 100 + (i % 100) * 10L, Integer.MAX_VALUE / 2));
+        }
+
+        CheckoutService service = new CheckoutService(0, laneCount);
+        service.start();
+        String base = "http://127.0.0.1:" + service.getPort() + "/lanes/";
+        ExecutorService clients = CheckoutService.newRequestExecutor();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder sales = new LongAdder();
+        LongAdder errors = new LongAdder();
+        long[][] latencies = new long[laneCount][];
+        int[] counts = new int[laneCount];
+        CountDownLatch done = new CountDownLatch(laneCount);
+        for (int l = 0; l < laneCount; l++) {
+            int lane = l;
+            clients.execute(() -> {
+                long[] samples = new long[4096];
+                int n = 0;
+                try {
+                    while (running.get()) {
+                        for (int i = 0; i < itemsPerCart; i++) {
+                            String sku = String.format("S%05d", ThreadLocalRandom.current().nextInt(SKU_COUNT));
+                            samples = record(samples, n++, post(base + "lane" + lane + "/items?id=" + sku + "&qty=1", errors));
+                        }
+                        samples = record(samples, n++, post(base + "lane" + lane + "/pay", errors));
+                        sales.increment();
+                    }
+                } catch (IOException e) {
+                    errors.increment();
+                } finally {
+                    latencies[lane] = samples;
+                    counts[lane] = n;
+                    done.countDown();
+                }
+            });
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        service.stop();
+        clients.shutdown();
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int l = 0; l < laneCount; l++) {
+            System.arraycopy(latencies[l], 0, all, offset, counts[l]);
+            offset += counts[l];
+        }
+        Arrays.sort(all);
+        System.out.println("======================================");
+        System.out.println("  Checkout service: " + laneCount + " lanes, " + itemsPerCart + " items/cart, " + seconds + "s");
+        System.out.println("======================================");
+        System.out.printf("Sales/sec:     %.0f%n", sales.sum() / (double) seconds);
+        System.out.printf("Requests/sec:  %.0f%n", total / (double) seconds);
+        System.out.println("Errors:        " + errors.sum());
+        System.out.printf("Latency (us):  p50 %d  p99 %d  p99.9 %d  max %d%n",
+                at(all, 0.50), at(all, 0.99), at(all, 0.999), all.length == 0 ? 0 : all[all.length - 1] / 1000);
+    }
+
+    // POST and return the latency in nanoseconds (non-200 replies count as errors)
+    // HttpURLConnection keeps the connection alive between calls of the same thread
+    private static long post(String url, LongAdder errors) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        int status = connection.getResponseCode();
+        try (InputStream body = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            body.readAllBytes();  // Drain so the connection can be reused
+        }
+        if (status != 200) {
+            errors.increment();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long[] record(long[] samples, int index, long nanos) {
+        if (index == samples.length) {
+            samples = Arrays.copyOf(samples, samples.length * 2);
+        }
+        samples[index] = nanos;
+        return samples;
+    }
+
+    private static long at(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1000;
+    }
+}
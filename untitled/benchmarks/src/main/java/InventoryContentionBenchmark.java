@@ -0,0 +1,132 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inventory contention benchmark: measures committed transactions per second with 1 to 64
+ * concurrent checkout lanes sharing the singleton Inventory, then verifies nothing was oversold.
+ * Usage: java InventoryContentionBenchmark [skuCount] [secondsPerRun] [itemsPerCart]
+ */
+public class InventoryContentionBenchmark {
+    private static final int[] LANE_COUNTS = {1, 2, 4, 8, 16, 32, 64};
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int skuCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int itemsPerCart = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        // Journal to a scratch file unless configured otherwise (-Dpos.journal, -Dpos.journal.sync)
+        if (System.getProperty("pos.journal") == null) {
+            File journalFile = File.createTempFile("bench-", ".journal");
+            journalFile.deleteOnExit();
+            System.setProperty("pos.journal", journalFile.getPath());
+        }
+        if (System.getProperty("pos.archive") == null) {
+            System.setProperty("pos.archive", Files.createTempDirectory("bench-receipts").toString());
+        }
+
+        // Load benchmark catalog (large stock so lanes never run out)
+        Inventory inventory = Inventory.getInstance();
+        for (int i = 0; i < skuCount; i++) {
+            String id = String.format("B%07d", i);
+            inventory.addProduct(new Product(id, "Bench-" + i, 100 + (i % 100) * 100L, Integer.MAX_VALUE / 2));
+        }
+
+        System.out.println("======================================");
+        System.out.println("  Inventory contention benchmark");
+        System.out.println("  SKUs: " + skuCount + ", items/cart: " + itemsPerCart + ", " + seconds + "s per run");
+        System.out.println("  Journal: " + System.getProperty("pos.journal") + " (sync: " + System.getProperty("pos.journal.sync", "transaction") + ")");
+        System.out.println("======================================");
+        System.out.printf("%-8s %-15s %-15s%n", "Lanes", "Commits/sec", "Per lane");
+
+        // Warm-up run (JIT)
+        runLanes(4, skuCount, itemsPerCart, 1);
+        for (int lanes : LANE_COUNTS) {
+            double commitsPerSec = runLanes(lanes, skuCount, itemsPerCart, seconds);
+            System.out.printf("%-8d %-15.0f %-15.0f%n", lanes, commitsPerSec, commitsPerSec / lanes);
+        }
+
+        // Oversell check: all lanes race for one hot SKU with limited stock
+        verifyNoOversell(inventory, 64, 10_000);
+    }
+
+    // Run the given number of lanes for a fixed duration, return commits/sec
+    private static double runLanes(int lanes, int skuCount, int itemsPerCart, int seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder commits = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[lanes];
+        for (int l = 0; l < lanes; l++) {
+            final long seed = l;
+            threads[l] = new Thread(() -> {
+                Checkout checkout = new Checkout();  // One Checkout per lane
+                Random random = new Random(seed);
+                awaitQuietly(start);
+                while (running.get()) {
+                    for (int i = 0; i < itemsPerCart; i++) {
+                        checkout.addItem(String.format("B%07d", random.nextInt(skuCount)), 1);
+                    }
+                    checkout.processPayment(Long.MAX_VALUE);
+                    commits.increment();
+                }
+            }, "lane-" + l);
+            threads[l].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        for (Thread t : threads) {
+            t.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        return commits.sum() / elapsed;
+    }
+
+    // Many lanes buy one unit of the same SKU until it runs out; sold units must equal initial stock
+    private static void verifyNoOversell(Inventory inventory, int lanes, int initialStock) throws InterruptedException {
+        inventory.addProduct(new Product("HOT", "Hot item", 990, initialStock));
+        AtomicInteger sold = new AtomicInteger();
+        Thread[] threads = new Thread[lanes];
+        for (int l = 0; l < lanes; l++) {
+            threads[l] = new Thread(() -> {
+                Checkout checkout = new Checkout();
+                while (true) {
+                    try {
+                        checkout.addItem("HOT", 1);
+                        checkout.processPayment(Long.MAX_VALUE);
+                        sold.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        if (!checkout.getCurrentItems().isEmpty()) {
+                            checkout.voidItem("HOT");
+                        }
+                        if (inventory.getProductById("HOT").getStockQuantity() == 0) {
+                            return;
+                        }
+                    }
+                }
+            });
+            threads[l].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        int remaining = inventory.getProductById("HOT").getStockQuantity();
+        System.out.println("--------------------------------------");
+        System.out.println("Oversell check: sold " + sold.get() + " of " + initialStock + ", remaining " + remaining
+                + (sold.get() == initialStock && remaining == 0 ? "  [OK]" : "  [OVERSOLD!]"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Inventory event bus benchmark: publish cost per event from several lanes, with a fast subscriber
+ * and a deliberately slow one attached. The slow one must lose events, not slow the lanes down.
+ * Usage: java InventoryEventBenchmark [lanes] [eventsPerLane]
+ */
+public class InventoryEventBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int perLane = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+
+        InventoryEventBus bus = new InventoryEventBus(65536);
+        LongAdder fastSeen = new LongAdder();
+        LongAdder fastBatches = new LongAdder();
+        InventoryEventBus.Subscription fast = bus.subscribe("fast", (event, endOfBatch) -> {
+            fastSeen.increment();
+            if (endOfBatch) {
+                fastBatches.increment();
+            }
+        });
+        InventoryEventBus.Subscription slow = bus.subscribe("slow", (event, endOfBatch) -> {
+            if (endOfBatch) {
+                try {
+                    Thread.sleep(5);  // E.g. a UI repaint or a remote call per batch
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        for (int round = 0; round < 2; round++) {  // First round = warm-up
+            long start = System.nanoTime();
+            Thread[] threads = new Thread[lanes];
+            for (int l = 0; l < lanes; l++) {
+                String productId = "E" + l;
+                threads[l] = new Thread(() -> {
+                    for (int i = 0; i < perLane; i++) {
+                        bus.publish(InventoryEvent.Type.SOLD, productId, -1, i);
+                    }
+                });
+                threads[l].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.println("======================================");
+                System.out.println("  Inventory events: " + lanes + " lanes x " + perLane);
+                System.out.println("======================================");
+                System.out.printf("Publish:        %.1f ns/event per lane%n", (double) elapsed / perLane);
+            }
+        }
+        Thread.sleep(500);
+        System.out.println("Published:      " + bus.getPublishedCount());
+        System.out.printf("Fast consumer:  %d delivered, %d missed, avg batch %.1f%n", fast.getDeliveredCount(),
+                fast.getMissedCount(), fastSeen.sum() / (double) Math.max(1, fastBatches.sum()));
+        System.out.println("Slow consumer:  " + slow.getDeliveredCount() + " delivered, " + slow.getMissedCount() + " missed (overrun, lanes never waited)");
+        fast.close();
+        slow.close();
+    }
+}
@@ -0,0 +1,100 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Money benchmark: summing a 10k-line cart with long minor units vs the old double stream.
+ * Usage: java MoneyBenchmark [lines] [iterations]
+ */
+public class MoneyBenchmark {
+    // Old representation: ShoppingItem -> Product with a double price, summed with a DoubleStream
+    private static final class DoubleProduct {
+        private final String productId;
+        private final double price;
+
+        DoubleProduct(String productId, double price) {
+            this.productId = productId;
+            this.price = price;
+        }
+    }
+
+    private static final class DoubleLine {
+        private final DoubleProduct product;
+        private final int quantity;
+
+        DoubleLine(DoubleProduct product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        double calculateItemTotal() {
+            return product.price * quantity;
+        }
+    }
+
+    private static long sink;  // Keeps results alive
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        List<DoubleLine> doubleCart = new ArrayList<>(lines);
+        List<ShoppingItem> moneyCart = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            long price = 99 + (i % 1000) * 7L;  // 0.99 .. 70.92 CNY
+            int quantity = 1 + (i % 5);
+            doubleCart.add(new DoubleLine(new DoubleProduct("M" + i, price / 100.0), quantity));
+            moneyCart.add(new ShoppingItem(new Product("M" + i, "Item " + i, price, 100), quantity));
+        }
+
+        // Warm-up (JIT) then measure
+        for (int round = 0; round < 2; round++) {
+            long doubleNanos = timeDouble(doubleCart, iterations);
+            long moneyNanos = timeMoney(moneyCart, iterations);
+            if (round == 1) {
+                System.out.println("======================================");
+                System.out.println("  Cart total: " + lines + " lines, " + iterations + " iterations");
+                System.out.println("======================================");
+                System.out.printf("%-22s %-12s%n", "Method", "us/total");
+                System.out.printf("%-22s %-12.2f%n", "double stream (old)", doubleNanos / 1e3 / iterations);
+                System.out.printf("%-22s %-12.2f%n", "long Money loop", moneyNanos / 1e3 / iterations);
+            }
+        }
+
+        // Totals side by side (the double sum can drift with other prices, the Money sum is exact)
+        double doubleTotal = doubleCart.stream().mapToDouble(DoubleLine::calculateItemTotal).sum();
+        long moneyTotal = 0;
+        for (ShoppingItem item : moneyCart) {
+            moneyTotal += item.calculateItemTotal();
+        }
+        System.out.println("--------------------------------------");
+        System.out.println("double total: " + doubleTotal);
+        System.out.println("Money total:  " + Money.format(moneyTotal));
+        System.out.println("(checksum " + sink + ")");
+    }
+
+    private static long timeDouble(List<DoubleLine> cart, int iterations) {
+        long start = System.nanoTime();
+        double acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            acc += cart.stream().mapToDouble(DoubleLine::calculateItemTotal).sum();
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += (long) acc;
+        return elapsed;
+    }
+
+    private static long timeMoney(List<ShoppingItem> cart, int iterations) {
+        long start = System.nanoTime();
+        long acc = 0;
+        for (int i = 0; i < iterations; i++) {
+            long total = 0;
+            for (ShoppingItem item : cart) {
+                total += item.calculateItemTotal();
+            }
+            acc += total;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += acc;
+        return elapsed;
+    }
+}
@@ -0,0 +1,123 @@
+import pos.bench.PosDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * PosDriver implementation in the unnamed package, calling the POS classes directly
+ */
+public class PosDriverImpl implements PosDriver {
+    private final Inventory inventory;
+
+    public PosDriverImpl() {
+        // In-memory hot paths only: no journal, receipt archive or catalog snapshot unless configured explicitly
+        if (System.getProperty("pos.journal") == null) {
+            System.setProperty("pos.journal", "off");
+        }
+        if (System.getProperty("pos.archive") == null) {
+            System.setProperty("pos.archive", "off");
+        }
+        if (System.getProperty("pos.catalog") == null) {
+            System.setProperty("pos.catalog", "none");
+        }
+        inventory = Inventory.getInstance();
+    }
+
+    @Override
+    public void loadCatalog(int skuCount) {
+        for (int i = 0; i < skuCount; i++) {
+            inventory.addProduct(new Product(skuId(i), "Bench item " + i, 100 + (i % 1000) * 7L, Integer.MAX_VALUE / 2));
+        }
+    }
+
+    @Override
+    public String skuId(int index) {
+        return "B" + index;
+    }
+
+    @Override
+    public Object lookup(String productId) {
+        return inventory.getProductById(productId);
+    }
+
+    @Override
+    public Object search(String query, int limit) {
+        return inventory.searchProducts(query, limit);
+    }
+
+    @Override
+    public void loadPromotions(int count, int skuCount) {
+        // 90 categories by the first two digits of the benchmark product ID (B10..., B11..., ...)
+        PromotionPlan.Categories categories = new PromotionPlan.Categories();
+        for (int prefix = 10; prefix < 100; prefix++) {
+            categories.add("cat" + prefix, "B" + prefix + "*");
+        }
+        Random random = new Random(42);
+        List<Promotion> promotions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String sku = skuId(random.nextInt(skuCount));
+            String category = "cat" + (10 + random.nextInt(90));
+            switch (i % 4) {
+                case 0:
+                    promotions.add(Promotion.bundle("B" + i, Set.of(sku), Set.of(), 3, Money.of(10, 0), null));
+                    break;
+                case 1:
+                    promotions.add(Promotion.bundleFree("M" + i, Set.of(), Set.of(category), 3, 1, null));
+                    break;
+                case 2:
+                    promotions.add(Promotion.threshold("T" + i, Set.of(), Set.of(category), Money.of(50, 0), 0, 5, null));
+                    break;
+                default:
+                    promotions.add(Promotion.threshold("S" + i, Set.of(sku), Set.of(), Money.of(20, 0), Money.of(2, 0), 0, null));
+            }
+        }
+        inventory.getPromotions().setPromotions(promotions, categories);
+    }
+
+    @Override
+    public Lane newLane() {
+        return new CheckoutLane();
+    }
+
+    private static final class CheckoutLane implements Lane {
+        private final Checkout checkout = new Checkout();
+        private final ReceiptRenderer renderer = new ReceiptRenderer(ReceiptRenderer.DEFAULT_TEMPLATE);
+
+        @Override
+        public void addItem(String productId, int quantity) {
+            checkout.addItem(productId, quantity);
+        }
+
+        @Override
+        public long calculateTotalAmount() {
+            return checkout.calculateTotalAmount();
+        }
+
+        @Override
+        public Object pay() {
+            return checkout.processPayment(checkout.calculateTotalAmount());
+        }
+
+        @Override
+        public Object processReturn() {
+            return checkout.processReturn();
+        }
+
+        @Override
+        public void discard() {
+            checkout.discardTransaction();
+        }
+
+        @Override
+        public Object newReceipt(String transactionType) {
+            return new Receipt(checkout.getCurrentItems(), transactionType);
+        }
+
+        @Override
+        public int render(Object receipt) {
+            return renderer.render((Receipt) receipt);
+        }
+    }
+}
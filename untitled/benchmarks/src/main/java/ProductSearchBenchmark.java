@@ -0,0 +1,63 @@
+import java.util.List;
+
+/**
+ * Product search benchmark: index build time, incremental add cost and query latency (exact ID,
+ * ID prefix, name word prefix, typo) over a synthetic catalog held in a hash or columnar store.
+ * Usage: java ProductSearchBenchmark [products] [hash|columnar]
+ */
+public class ProductSearchBenchmark {
+    private static final String[] WORDS = {"Cola", "Chips", "Notebook", "Pencil", "Orange", "Juice", "Green", "Tea",
+            "Biscuit", "Noodles", "Soap", "Shampoo", "Battery", "Tissue", "Coffee", "Milk", "Bread", "Yogurt"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String kind = args.length > 1 ? args[1] : "hash";
+        ProductStore store = kind.equals("columnar") ? new ColumnarProductStore() : new HashProductStore();
+        for (int i = 0; i < count; i++) {
+            store.put(new Product(String.format("S%08d", i), name(i), 100 + (i % 500) * 10L, 100));
+        }
+
+        System.out.println("======================================");
+        System.out.println("  Product search: " + count + " products (" + kind + " store)");
+        System.out.println("======================================");
+        ProductSearchIndex index = new ProductSearchIndex(store::get);
+        long start = System.nanoTime();
+        index.addAll(store.values());
+        System.out.printf("bulk build:        %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        int added = 100_000;
+        start = System.nanoTime();
+        for (int i = 0; i < added; i++) {
+            Product product = store.put(new Product(String.format("N%08d", i), name(i * 7 + 3), 500, 10));
+            index.add(product);
+        }
+        System.out.printf("incremental add:   %.1f µs/product (%d added)%n", (System.nanoTime() - start) / 1000.0 / added, added);
+
+        String[][] queries = {
+                {"exact ID", "S00012345"},
+                {"ID prefix", "S0001"},
+                {"word prefix", "juic"},
+                {"two words", "green te"},
+                {"typo", "shampoi"},
+                {"typo (ID)", "S0001234x"}};
+        System.out.println("--------------------------------------");
+        for (String[] query : queries) {
+            int rounds = 2_000;
+            List<Product> result = null;
+            for (int i = 0; i < rounds * 5; i++) {  // Warm-up
+                result = index.search(query[1], 10);
+            }
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                result = index.search(query[1], 10);
+            }
+            double micros = (System.nanoTime() - start) / 1000.0 / rounds;
+            System.out.printf("%-12s %-12s %8.1f µs  %2d hits, first %s%n", query[0], "\"" + query[1] + "\"", micros,
+                    result.size(), result.isEmpty() ? "-" : result.get(0).getProductId() + " " + result.get(0).getProductName());
+        }
+    }
+
+    private static String name(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + (i % 997);
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.function.Supplier;
+
+/**
+ * Product store footprint comparison: retained heap of HashProductStore vs ColumnarProductStore
+ * at 100k, 1M and 10M SKUs. Run with a large heap, e.g. java -Xmx8g ProductStoreFootprint
+ * Usage: java ProductStoreFootprint [skuCount...]
+ */
+public class ProductStoreFootprint {
+    public static void main(String[] args) {
+        int[] counts = {100_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("======================================");
+        System.out.println("  Product store footprint (max heap " + Runtime.getRuntime().maxMemory() / (1024 * 1024) + " MB)");
+        System.out.println("======================================");
+        System.out.printf("%-12s %-10s %-14s %-12s%n", "SKUs", "Store", "Heap (MB)", "Bytes/SKU");
+        for (int count : counts) {
+            measure(count, "hash", HashProductStore::new);
+            measure(count, "columnar", ColumnarProductStore::new);
+        }
+    }
+
+    // Fill a fresh store and report the heap it retains
+    private static void measure(int count, String label, Supplier<ProductStore> factory) {
+        long before = usedHeap();
+        ProductStore store = factory.get();
+        try {
+            for (int i = 0; i < count; i++) {
+                store.put(new Product(String.format("S%08d", i), "Item " + i, 100 + (i % 500) * 10L, 100));
+            }
+        } catch (OutOfMemoryError e) {
+            System.out.printf("%-12d %-10s %-14s %-12s%n", count, label, "out of memory", "-");
+            return;
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%-12d %-10s %-14.1f %-12.1f%n", count, label, retained / (1024.0 * 1024.0), (double) retained / count);
+        if (store.size() != count) {
+            System.out.println("Unexpected store size: " + store.size());
+        }
+    }
+
+    // Used heap after forcing a few collections
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Promotion benchmark: cost of a scan on large carts with many promotions (incremental re-pricing
+ * of the SKU's rules, against no promotions and against re-evaluating every rule over the whole
+ * cart per scan), and a check that the incremental discount equals a full re-evaluation.
+ * Usage: java PromotionBenchmark [cart lines] [promotions]
+ */
+public class PromotionBenchmark {
+    private static final int CATALOG = 10_000;
+    private static final int CATEGORIES = 1000;
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int promotionCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        Random random = new Random(42);
+
+        // Catalog "C0017-00042": category by ID prefix
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < CATALOG; i++) {
+            catalog.add(new Product(String.format("C%04d-%05d", i % CATEGORIES, i), "Item" + i, 100 + random.nextInt(2000), 1_000_000));
+        }
+        PromotionPlan.Categories categories = new PromotionPlan.Categories();
+        for (int c = 0; c < CATEGORIES; c++) {
+            categories.add("cat" + c, String.format("C%04d-*", c));
+        }
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < promotionCount; i++) {
+            String sku = catalog.get(random.nextInt(CATALOG)).getProductId();
+            String category = "cat" + random.nextInt(CATEGORIES);
+            switch (i % 4) {
+                case 0:
+                    promotions.add(Promotion.bundle("B" + i, Set.of(sku), Set.of(), 3, Money.of(10, 0), null));
+                    break;
+                case 1:
+                    promotions.add(Promotion.bundleFree("M" + i, Set.of(), Set.of(category), 3, 1, null));
+                    break;
+                case 2:
+                    promotions.add(Promotion.threshold("T" + i, Set.of(), Set.of(category), Money.of(50, 0), 0, 5, null));
+                    break;
+                default:
+                    promotions.add(Promotion.threshold("S" + i, Set.of(sku), Set.of(), Money.of(20, 0), Money.of(2, 0), 0, null));
+            }
+        }
+        promotions.add(Promotion.threshold("CART", Set.of(), Set.of(), Money.of(100, 0), Money.of(10, 0), 0, null));
+        PromotionEngine engine = new PromotionEngine();
+        engine.setPromotions(promotions, categories);
+        PromotionPlan plan = engine.plan();
+
+        System.out.println("======================================");
+        System.out.println("  Promotions: " + lines + "-line carts, " + plan.size() + " rules");
+        System.out.println("======================================");
+        List<Product> products = new ArrayList<>(catalog.subList(0, lines));  // The cart's products
+        int scans = lines * 4;
+        int[] sequence = new int[scans];
+        for (int i = 0; i < scans; i++) {
+            sequence[i] = random.nextInt(lines);
+        }
+
+        Cart plain = new Cart();
+        Cart promoted = new Cart(engine);
+        long plainNanos = 0;
+        long promotedNanos = 0;
+        int rounds = 50;
+        for (int round = 0; round < rounds * 2; round++) {  // First half = warm-up
+            plain.clear();
+            promoted.clear();
+            long start = System.nanoTime();
+            for (int index : sequence) {
+                Product product = products.get(index);
+                plain.add(product.getProductId(), product, 1);
+            }
+            long middle = System.nanoTime();
+            for (int index : sequence) {
+                Product product = products.get(index);
+                promoted.add(product.getProductId(), product, 1);
+            }
+            if (round >= rounds) {
+                plainNanos += middle - start;
+                promotedNanos += System.nanoTime() - middle;
+            }
+        }
+        System.out.printf("%-28s %8.0f ns/scan%n", "no promotions:", (double) plainNanos / rounds / scans);
+        System.out.printf("%-28s %8.0f ns/scan%n", "incremental (SKU's rules):", (double) promotedNanos / rounds / scans);
+
+        // Naive: every scan re-evaluates every rule over the whole cart
+        int naiveScans = Math.min(scans, 200);
+        long start = System.nanoTime();
+        long naiveDiscount = 0;
+        for (int i = 0; i < naiveScans; i++) {
+            naiveDiscount = fullEvaluation(plan, categories, promoted.getItems());
+        }
+        double naiveNanos = (double) (System.nanoTime() - start) / naiveScans;
+        System.out.printf("%-28s %8.0f ns/scan%n", "full re-evaluation:", naiveNanos);
+        System.out.printf("speed-up: %.0fx, %d discounts, %s off %s%n", naiveNanos * rounds * scans / promotedNanos,
+                promoted.getDiscounts().size(), Money.format(promoted.getDiscountAmount()), Money.format(promoted.getGrossAmount()));
+        System.out.println("--------------------------------------");
+        System.out.println(naiveDiscount == promoted.getDiscountAmount()
+                ? "✅ Incremental discount matches a full re-evaluation" : "❌ Incremental discount " + promoted.getDiscountAmount() + " != " + naiveDiscount);
+    }
+
+    // Discount of a cart computed from scratch: every rule fed with every line in its scope
+    private static long fullEvaluation(PromotionPlan plan, PromotionPlan.Categories categories, List<ShoppingItem> items) {
+        Promotion.State[] states = new Promotion.State[plan.size()];
+        long gross = 0;
+        for (ShoppingItem item : items) {
+            String productId = item.getProduct().getProductId();
+            Set<String> productCategories = categories.of(productId);
+            gross += item.calculateItemTotal();
+            for (int rule = 0; rule < plan.size(); rule++) {
+                Promotion promotion = plan.get(rule);
+                if (promotion.isWholeCart() || promotion.getSkus().contains(productId)
+                        || !Collections.disjoint(promotion.getCategories(), productCategories)) {
+                    if (states[rule] == null) {
+                        states[rule] = promotion.newState();
+                    }
+                    states[rule].update(item.getProduct().getPrice(), 0, Math.max(item.getQuantity(), 0));
+                }
+            }
+        }
+        long discount = 0;
+        for (Promotion.State state : states) {
+            discount += state == null ? 0 : state.getDiscount();
+        }
+        return Math.min(discount, Math.max(gross, 0));
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Receipt archive benchmark: appends a year of receipts to a scratch archive, then measures
+ * reopening it and reprint lookups by receipt ID (random, cold and warm) and by product.
+ * Usage: java ReceiptArchiveBenchmark [receipts] [segmentMB]
+ */
+public class ReceiptArchiveBenchmark {
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3_650_000;  // 10k receipts a day
+        long segmentBytes = (args.length > 1 ? Long.parseLong(args[1]) : 64) << 20;
+        Path directory = Files.createTempDirectory("receipt-archive");
+        Receipt.setIdGenerator(new SnowflakeIdGenerator(1));
+
+        System.out.println("======================================");
+        System.out.println("  Receipt archive: " + count + " receipts, " + (segmentBytes >> 20) + " MB segments");
+        System.out.println("======================================");
+        long[] numbers = new long[count];
+        ReceiptArchive archive = new ReceiptArchive(directory, segmentBytes);
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            List<ShoppingItem> items = new ArrayList<>();
+            for (int line = 0; line < 3; line++) {
+                int sku = random.nextInt(50_000);
+                items.add(new ShoppingItem(new Product("S" + sku, "Item " + sku, 100 + sku % 900, 1), 1 + line));
+            }
+            Receipt receipt = new Receipt(items, "SALE");
+            archive.append(receipt);
+            numbers[i] = receipt.getReceiptNumber();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("append:            %.2f µs/receipt, %d segments%n", elapsed / 1000.0 / count, archive.getSegmentCount());
+        archive.close();
+
+        // Reopen (maps sealed segments, indexes only the active one) and look up random receipts
+        start = System.nanoTime();
+        archive = new ReceiptArchive(directory, segmentBytes);
+        System.out.printf("reopen:            %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        for (int round = 0; round < 2; round++) {
+            int lookups = 200_000;
+            start = System.nanoTime();
+            int found = 0;
+            for (int i = 0; i < lookups; i++) {
+                if (archive.find(ReceiptIdGenerator.format(numbers[random.nextInt(count)])) != null) {
+                    found++;
+                }
+            }
+            System.out.printf("find by ID (%s): %.2f µs, %d/%d found%n", round == 0 ? "cold" : "warm",
+                    (System.nanoTime() - start) / 1000.0 / lookups, found, lookups);
+        }
+        start = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < 1000; i++) {
+            hits += archive.findByProduct("S" + random.nextInt(50_000), 20).size();
+        }
+        System.out.printf("find by product:   %.1f µs for the latest 20 (%.1f hits)%n", (System.nanoTime() - start) / 1000.0 / 1000, hits / 1000.0);
+        System.out.println("--------------------------------------");
+        System.out.println(archive.getReceiptCount() == count && archive.find(numbers[count / 2]) != null
+                ? "✅ All receipts archived" : "❌ Receipt count mismatch: " + archive.getReceiptCount());
+        archive.close();
+    }
+}
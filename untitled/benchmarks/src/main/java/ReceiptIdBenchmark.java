@@ -0,0 +1,65 @@
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Receipt ID benchmark: IDs/sec from many lanes sharing one generator, plus a uniqueness
+ * and ordering check over every generated ID.
+ * Usage: java ReceiptIdBenchmark [lanes] [idsPerLane]
+ */
+public class ReceiptIdBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int idsPerLane = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+        ReceiptIdGenerator generator = new SnowflakeIdGenerator(1);
+        long[][] ids = new long[lanes][idsPerLane];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[lanes];
+        for (int l = 0; l < lanes; l++) {
+            final long[] laneIds = ids[l];
+            threads[l] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < laneIds.length; i++) {
+                    laneIds[i] = generator.nextId();
+                }
+            });
+            threads[l].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        // Each lane must see strictly increasing IDs; all IDs together must be unique
+        boolean ordered = true;
+        long[] all = new long[lanes * idsPerLane];
+        for (int l = 0; l < lanes; l++) {
+            for (int i = 1; i < idsPerLane; i++) {
+                ordered &= ids[l][i] > ids[l][i - 1];
+            }
+            System.arraycopy(ids[l], 0, all, l * idsPerLane, idsPerLane);
+        }
+        Arrays.sort(all);
+        int duplicates = 0;
+        for (int i = 1; i < all.length; i++) {
+            if (all[i] == all[i - 1]) {
+                duplicates++;
+            }
+        }
+
+        System.out.println("======================================");
+        System.out.println("  Receipt ID generator: " + lanes + " lanes x " + idsPerLane + " IDs");
+        System.out.println("======================================");
+        System.out.printf("Throughput: %.0f IDs/sec%n", all.length / seconds);
+        System.out.println("Duplicates: " + duplicates + ", per-lane order: " + (ordered ? "OK" : "BROKEN"));
+        System.out.println("Last ID: " + ReceiptIdGenerator.format(all[all.length - 1])
+                + " (lane " + SnowflakeIdGenerator.laneId(all[all.length - 1]) + ")");
+    }
+}
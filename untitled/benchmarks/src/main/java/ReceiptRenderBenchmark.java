@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receipt rendering benchmark: compiled ReceiptRenderer into a file channel vs the old
+ * String.format-per-line rendering, reporting receipts/sec and bytes allocated per receipt.
+ * Usage: java ReceiptRenderBenchmark [receipts] [linesPerReceipt]
+ */
+public class ReceiptRenderBenchmark {
+    public static void main(String[] args) throws IOException {
+        int receipts = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<ShoppingItem> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            items.add(new ShoppingItem(new Product(String.format("P%04d", i), "Item " + i, 199 + i * 10L, 100), 1 + i % 3));
+        }
+        Receipt receipt = new Receipt(items, "SALE");
+
+        Path file = Files.createTempFile("receipts-", ".txt");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelReceiptSink sink = new ChannelReceiptSink(channel);
+            ReceiptRenderer renderer = new ReceiptRenderer(ReceiptRenderer.DEFAULT_TEMPLATE);
+
+            System.out.println("======================================");
+            System.out.println("  Receipt rendering: " + receipts + " receipts x " + lines + " lines");
+            System.out.println("======================================");
+            System.out.printf("%-24s %-14s %-14s%n", "Renderer", "Receipts/sec", "Bytes alloc/receipt");
+            for (int round = 0; round < 2; round++) {  // Round 0 = warm-up
+                long allocBefore = allocatedBytes();
+                long start = System.nanoTime();
+                for (int i = 0; i < receipts; i++) {
+                    renderer.render(receipt, sink);
+                }
+                sink.flush();
+                report(round, "compiled template", receipts, System.nanoTime() - start, allocatedBytes() - allocBefore);
+
+                long legacyChars = 0;
+                allocBefore = allocatedBytes();
+                start = System.nanoTime();
+                for (int i = 0; i < receipts; i++) {
+                    legacyChars += legacyRender(receipt).length();
+                }
+                report(round, "String.format (old)", receipts, System.nanoTime() - start, allocatedBytes() - allocBefore);
+                if (legacyChars == 0) {
+                    System.out.println("(nothing rendered)");
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(int round, String label, int receipts, long nanos, long allocated) {
+        if (round > 0) {
+            System.out.printf("%-24s %-14.0f %-14d%n", label, receipts / (nanos / 1e9), allocated / receipts);
+        }
+    }
+
+    // The layout code previously duplicated in Receipt.printReceipt / ReceiptPreviewPanel.setReceipt
+    private static String legacyRender(Receipt receipt) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("======================================\n");
+        sb.append("        Supermarket POS - Receipt\n");
+        sb.append("======================================\n");
+        sb.append("Receipt ID: ").append(receipt.getReceiptId()).append("\n");
+        sb.append("Type: ").append(receipt.getTransactionType().equals("SALE") ? "Sale" : "Return").append("\n");
+        sb.append("Time: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(receipt.getTransactionTime())).append("\n");
+        sb.append("--------------------------------------\n");
+        sb.append(String.format("%-10s %-10s %-6s %-6s%n", "ID", "Name", "Price", "Qty"));
+        sb.append("--------------------------------------\n");
+        for (ShoppingItem item : receipt.getItems()) {
+            Product p = item.getProduct();
+            sb.append(String.format("%-10s %-10s %-6s %-6d%n",
+                    p.getProductId(), p.getProductName(), Money.format(p.getPrice()), item.getQuantity()));
+        }
+        sb.append("--------------------------------------\n");
+        sb.append("Total: ").append(Money.format(receipt.getTotalAmount())).append(" CNY\n");
+        sb.append("======================================\n");
+        sb.append("Thank you for shopping!\n");
+        return sb.toString();
+    }
+
+    // Bytes allocated by the current thread so far (HotSpot)
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
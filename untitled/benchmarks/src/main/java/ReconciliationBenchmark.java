@@ -0,0 +1,77 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reconciliation benchmark: writes a day's journal (receipts x 5 lines) over a synthetic opening
+ * catalog, derives the closing stock with a few planted discrepancies, and times the parallel
+ * end-of-day reconciliation, checking it finds exactly the planted ones.
+ * Usage: java ReconciliationBenchmark [receipts] [products]
+ */
+public class ReconciliationBenchmark {
+    public static void main(String[] args) throws IOException {
+        int receipts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int productCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path directory = Files.createTempDirectory("reconciliation");
+        Path journalPath = directory.resolve("day.journal");
+        Path openingPath = directory.resolve("opening.snapshot");
+        Receipt.setIdGenerator(new SnowflakeIdGenerator(1));
+
+        List<Product> opening = new ArrayList<>(productCount);
+        List<Product> closing = new ArrayList<>(productCount);
+        for (int i = 0; i < productCount; i++) {
+            opening.add(new Product(String.format("S%08d", i), "Item " + i, 100 + (i % 500) * 10L, 1_000_000));
+            closing.add(new Product(String.format("S%08d", i), "Item " + i, 100 + (i % 500) * 10L, 1_000_000));
+        }
+        CatalogSnapshot.write(openingPath, opening, 0);
+
+        Random random = new Random(42);
+        long expectedCash = 0;
+        long start = System.nanoTime();
+        try (TransactionJournal journal = new TransactionJournal(journalPath, TransactionJournal.SyncMode.EVERY_N_RECORDS, 1_000_000)) {
+            for (int i = 0; i < receipts; i++) {
+                boolean isReturn = i % 20 == 0;
+                List<ShoppingItem> items = new ArrayList<>(5);
+                for (int line = 0; line < 5; line++) {
+                    Product product = closing.get(random.nextInt(productCount));
+                    int quantity = (1 + random.nextInt(3)) * (isReturn ? -1 : 1);
+                    product.updateStock(-quantity);
+                    items.add(new ShoppingItem(product, quantity));
+                }
+                Receipt receipt = new Receipt(items, isReturn ? "RETURN" : "SALE");
+                journal.append(receipt);
+                expectedCash += receipt.getTotalAmount();
+            }
+        }
+        long written = System.nanoTime() - start;
+        // Plant discrepancies: two shrinkage cases and one overcount
+        closing.get(7).updateStock(-3);
+        closing.get(productCount / 2).updateStock(-1);
+        closing.get(productCount - 1).updateStock(5);
+
+        System.out.println("======================================");
+        System.out.println("  Reconciliation: " + receipts + " receipts, " + receipts * 5L + " lines, " + productCount + " products");
+        System.out.printf("  (journal %.0f MB written in %.1f s, %d cores)%n", Files.size(journalPath) / 1048576.0, written / 1e9,
+                Runtime.getRuntime().availableProcessors());
+        System.out.println("======================================");
+        CatalogSnapshot snapshot = CatalogSnapshot.open(openingPath);
+        EndOfDayReconciliation.Result result = null;
+        for (int round = 0; round < 3; round++) {  // First rounds warm up the JIT and the page cache
+            start = System.nanoTime();
+            result = EndOfDayReconciliation.reconcile(journalPath, snapshot, closing, Long.MAX_VALUE, expectedCash - 1000);
+            System.out.printf("round %d:           %.0f ms (%.0f ms scan, %.0f ms compare), %.1f M lines/s%n", round + 1,
+                    (System.nanoTime() - start) / 1e6, result.getScanNanos() / 1e6, result.getCompareNanos() / 1e6,
+                    result.getLineCount() / ((System.nanoTime() - start) / 1e9) / 1e6);
+        }
+        result.printSummary();
+        boolean found = result.getDiscrepancies().size() == 3 && result.getDiscrepancies().get(0).getDifference() == -3
+                && result.getCashDifference() == -1000 && result.getLineCount() == receipts * 5L;
+        System.out.println(found ? "✅ Found exactly the planted discrepancies" : "❌ Unexpected result");
+        for (Path file : List.of(journalPath, openingPath, directory)) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Reservation benchmark: cost of reserve + convert / release, and of letting a large number of
+ * reservations expire through the timer wheel. Checks that expiry returned every held unit.
+ * Usage: java ReservationBenchmark [reservations] [outstanding]
+ */
+public class ReservationBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int outstanding = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        Product product = new Product("R001", "Reserved item", 100, Integer.MAX_VALUE / 2);
+        int openingStock = product.getStockQuantity();
+        ReservationLedger ledger = new ReservationLedger(60_000);
+
+        System.out.println("======================================");
+        System.out.println("  Reservation ledger: " + count + " reservations");
+        System.out.println("======================================");
+        for (int round = 0; round < 2; round++) {  // First round = warm-up
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                ReservationLedger.Reservation reservation = ledger.reserve(product, 1);
+                if ((i & 1) == 0) {
+                    ledger.release(reservation);  // Cancelled / voided
+                } else {
+                    ledger.convert(reservation);  // Paid
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round == 1) {
+                System.out.printf("reserve + settle:  %.0f ns/op%n", (double) elapsed / count);
+            }
+        }
+
+        // Leave reservations open and let the wheel expire them
+        ReservationLedger shortLedger = new ReservationLedger(500);
+        Product expiring = new Product("R002", "Expiring item", 100, outstanding);
+        long start = System.nanoTime();
+        for (int i = 0; i < outstanding; i++) {
+            shortLedger.reserve(expiring, 1);
+        }
+        System.out.printf("reserve (open):    %.0f ns/op, %d held, stock left %d%n",
+                (double) (System.nanoTime() - start) / outstanding, shortLedger.getActiveCount(), expiring.getStockQuantity());
+        while (shortLedger.getActiveCount() > 0) {
+            Thread.sleep(100);
+        }
+        System.out.println("expired:           " + shortLedger.getExpiredCount() + ", stock back to " + expiring.getStockQuantity());
+        System.out.println("--------------------------------------");
+        System.out.println(expiring.getStockQuantity() == outstanding && ledger.getActiveCount() == 0
+                ? "✅ All held units returned" : "❌ Stock mismatch");
+        System.out.println("(settled stock " + (openingStock - product.getStockQuantity()) + " sold)");
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Sales analytics benchmark: cost of counting a receipt on the lane threads, then query latency
+ * and top-seller accuracy over two days of skewed (Zipf-like) sales against exact counts.
+ * Usage: java SalesAnalyticsBenchmark [lanes] [receiptsPerLane] [products]
+ */
+public class SalesAnalyticsBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int lanes = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int perLane = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        int productCount = args.length > 2 ? Integer.parseInt(args[2]) : 50_000;
+        Product[] products = new Product[productCount];
+        for (int i = 0; i < productCount; i++) {
+            products[i] = new Product(String.format("S%06d", i), "Item " + i, 100 + i % 900, 1_000_000);
+        }
+        Receipt.setIdGenerator(new SnowflakeIdGenerator(1));
+
+        System.out.println("======================================");
+        System.out.println("  Sales analytics: " + lanes + " lanes, " + productCount + " products");
+        System.out.println("======================================");
+        SalesAnalytics analytics = new SalesAnalytics(48, 256);
+        Thread[] threads = new Thread[lanes];
+        long[] nanos = new long[lanes];
+        for (int t = 0; t < lanes; t++) {
+            int lane = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(lane);
+                List<Receipt> receipts = new ArrayList<>(perLane);
+                for (int i = 0; i < perLane; i++) {
+                    receipts.add(new Receipt(basket(random, products), "SALE"));
+                }
+                long start = System.nanoTime();
+                for (Receipt receipt : receipts) {
+                    analytics.record(receipt);
+                }
+                nanos[lane] = System.nanoTime() - start;
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long slowest = 0;
+        for (int t = 0; t < lanes; t++) {
+            threads[t].join();
+            slowest = Math.max(slowest, nanos[t]);
+        }
+        System.out.printf("record:            %.0f ns/receipt (3 lines) on each lane, %.1f M receipts/s overall%n",
+                (double) slowest / perLane, (double) lanes * perLane / slowest * 1000);
+
+        // Two days of history, one receipt time per hour slot; the sketch is fed as the event bus would
+        SalesAnalytics history = new SalesAnalytics(48, 256);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        long firstHour = now / SalesAnalytics.HOUR_MILLIS - 47;
+        InventoryEvent event = new InventoryEvent();
+        int total = lanes * perLane;
+        for (int i = 0; i < total; i++) {
+            long time = (firstHour + (long) i * 48 / total) * SalesAnalytics.HOUR_MILLIS;
+            Receipt receipt = new Receipt(i, basket(random, products), List.of(), "SALE", new Date(time));
+            history.record(receipt);
+            for (ShoppingItem item : receipt.getItems()) {
+                event.set(InventoryEvent.Type.SOLD, item.getProduct().getProductId(), -item.getQuantity(), 0, time);
+                history.onEvent(event, true);
+                if (time >= (now / SalesAnalytics.HOUR_MILLIS - 24) * SalesAnalytics.HOUR_MILLIS) {
+                    exact.merge(item.getProduct().getProductId(), (long) item.getQuantity(), Long::sum);
+                }
+            }
+        }
+
+        long from = now - 24 * SalesAnalytics.HOUR_MILLIS;
+        int rounds = 2_000;
+        List<SalesAnalytics.Figures> top = null;
+        long start = 0;
+        for (int pass = 0; pass < 2; pass++) {  // First pass = warm-up
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                history.getTotals(from, now);
+            }
+        }
+        System.out.printf("totals (24 h):     %.1f µs%n", (System.nanoTime() - start) / 1000.0 / rounds);
+        for (int pass = 0; pass < 2; pass++) {
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                history.getProductTotals("S000123", from, now);
+            }
+        }
+        System.out.printf("product (24 h):    %.1f µs%n", (System.nanoTime() - start) / 1000.0 / rounds);
+        for (int pass = 0; pass < 2; pass++) {
+            start = System.nanoTime();
+            for (int i = 0; i < rounds / 10; i++) {
+                top = history.getTopSellers(10, from, now);
+            }
+        }
+        System.out.printf("top 10 (24 h):     %.1f µs%n", (System.nanoTime() - start) / 1000.0 / (rounds / 10));
+
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>(exact.entrySet());
+        ranked.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        int matched = 0;
+        boolean exactFigures = true;
+        for (int i = 0; i < 10; i++) {
+            SalesAnalytics.Figures figures = top.get(i);
+            matched += ranked.get(i).getKey().equals(figures.getProductId()) ? 1 : 0;
+            exactFigures &= exact.get(figures.getProductId()) == figures.getUnitsSold();
+        }
+        System.out.println("--------------------------------------");
+        System.out.println(matched == 10 && exactFigures ? "✅ Top 10 matches the exact ranking"
+                : "❌ Top 10: " + matched + "/10 in place, exact figures " + exactFigures);
+    }
+
+    // Three lines, products drawn with a skewed (roughly Zipf) distribution
+    private static List<ShoppingItem> basket(Random random, Product[] products) {
+        List<ShoppingItem> items = new ArrayList<>(3);
+        for (int line = 0; line < 3; line++) {
+            int index = (int) Math.min(products.length - 1, Math.pow(products.length, random.nextDouble()) - 1);
+            items.add(new ShoppingItem(products[index], 1 + random.nextInt(3)));
+        }
+        return items;
+    }
+}
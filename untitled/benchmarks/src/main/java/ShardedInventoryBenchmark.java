@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sharded inventory benchmark: starts N InventoryShard JVMs on this machine, runs checkout lanes
+ * in this JVM against them (pos.store=sharded) with carts spanning several shards, adds one more
+ * shard JVM while the lanes run (--join: rebalance under load), and checks that no unit of stock
+ * was lost or created: stock on all shards = initial stock - units sold.
+ * Usage: java ShardedInventoryBenchmark [shards] [products] [lanes] [seconds]
+ */
+public class ShardedInventoryBenchmark {
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int products = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int laneCount = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.println("======================================");
+        System.out.println("  Sharded inventory: " + shardCount + "+1 shard JVMs, " + products + " products, " + laneCount + " lanes");
+        System.out.println("======================================");
+        List<Process> processes = new ArrayList<>();
+        try {
+            List<String> shards = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                int port = freePort();
+                processes.add(startShard(String.valueOf(port)));
+                shards.add("127.0.0.1:" + port);
+            }
+            for (String shard : shards) {
+                awaitPort(shard);
+            }
+            System.setProperty("pos.store", "sharded");
+            System.setProperty("pos.shards", String.join(",", shards));
+            System.setProperty("pos.catalog", "none");
+            Inventory inventory = Inventory.getInstance();
+            ShardedProductStore store = new ShardedProductStore(shards);
+            List<Product> catalog = new ArrayList<>();
+            for (int i = 0; i < products; i++) {
+                catalog.add(new Product(sku(i), "Item" + i, Money.of(1, 0), INITIAL_STOCK));
+            }
+            store.putAll(catalog);
+            long initialStock = totalStock(store);  // Includes Inventory's test products
+            int catalogSize = store.size();
+            System.out.printf("loaded: %s%n", distribution(store));
+
+            AtomicBoolean stop = new AtomicBoolean();
+            AtomicLong unitsSold = new AtomicLong();
+            AtomicLong failures = new AtomicLong();
+            LatencyHistogram commits = new LatencyHistogram();
+            Thread[] lanes = new Thread[laneCount];
+            for (int l = 0; l < laneCount; l++) {
+                Checkout checkout = new Checkout("shard-lane-" + l);
+                Random random = new Random(l);
+                lanes[l] = new Thread(() -> {
+                    while (!stop.get()) {
+                        long start = System.nanoTime();
+                        try {
+                            int units = 0;
+                            for (int i = 0; i < 5; i++) {  // 5 random SKUs: usually on several shards
+                                checkout.addItem(sku(random.nextInt(products)), 1);
+                                units++;
+                            }
+                            checkout.processPayment(checkout.calculateTotalAmount());
+                            unitsSold.addAndGet(units);
+                            commits.record(System.nanoTime() - start);
+                        } catch (RuntimeException e) {
+                            if (failures.incrementAndGet() == 1) {
+                                System.out.println("first failed cart: " + e.getMessage());
+                            }
+                            checkout.discardTransaction();
+                        }
+                    }
+                });
+                lanes[l].start();
+            }
+
+            Thread.sleep(seconds * 500L);
+            int joinPort = freePort();
+            long joinStart = System.nanoTime();
+            Process joining = startShard(String.valueOf(joinPort), "--join", String.join(",", shards));
+            processes.add(joining);
+            awaitRing(store, "127.0.0.1:" + joinPort);
+            double joinMillis = (System.nanoTime() - joinStart) / 1e6;
+            Thread.sleep(seconds * 500L);
+            stop.set(true);
+            for (Thread lane : lanes) {
+                lane.join();
+            }
+
+            ShardRing ring = store.getRing();
+            LatencyHistogram.Snapshot latency = commits.snapshot();
+            long finalStock = totalStock(store);
+            System.out.printf("carts: %d committed (%.0f/s), %d failed; cart latency p50=%.2fms p99=%.2fms max=%.2fms%n",
+                    latency.getCount(), latency.getCount() / (double) seconds, failures.get(),
+                    latency.getPercentile(0.5) / 1e6, latency.getPercentile(0.99) / 1e6, latency.getMax() / 1e6);
+            System.out.printf("join + rebalance under load: %.0f ms (JVM start included), ring epoch %d%n", joinMillis, ring.getEpoch());
+            System.out.printf("after rebalance: %s%n", distribution(store));
+            System.out.printf("stock: initial %d - sold %d = %d, on shards %d%n",
+                    initialStock, unitsSold.get(), initialStock - unitsSold.get(), finalStock);
+            System.out.println("--------------------------------------");
+            System.out.println(finalStock == initialStock - unitsSold.get() && store.size() == catalogSize && ring.getShards().size() == shardCount + 1
+                    ? "✅ Stock conserved across shards and rebalance" : "❌ Stock or products lost");
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+                process.waitFor(5, TimeUnit.SECONDS);
+            }
+        }
+        System.exit(0);  // Inventory's background threads would keep the JVM alive
+    }
+
+    private static Process startShard(String... args) throws IOException {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Dfile.encoding=" + System.getProperty("file.encoding"), "-cp", System.getProperty("java.class.path"), "InventoryShard"));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitPort(String shard) throws InterruptedException {
+        int port = Integer.parseInt(shard.substring(shard.indexOf(':') + 1));
+        for (int attempt = 0; attempt < 600; attempt++) {
+            try {
+                new Socket("127.0.0.1", port).close();  // Connected: the shard is listening
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Shard " + shard + " did not start");
+    }
+
+    // Wait until the shard has joined (a lookup on any SKU refreshes the client's ring)
+    private static void awaitRing(ShardedProductStore store, String shard) throws InterruptedException {
+        for (int attempt = 0; attempt < 1200; attempt++) {
+            for (int i = 0; i < 64; i++) {
+                store.get(sku(i));
+            }
+            if (store.getRing().getShards().contains(shard)) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Shard " + shard + " did not join");
+    }
+
+    private static long totalStock(ShardedProductStore store) {
+        long total = 0;
+        for (Product product : store.values()) {
+            total += product.getStockQuantity();
+        }
+        return total;
+    }
+
+    private static String distribution(ShardedProductStore store) {
+        ShardRing ring = store.getRing();
+        Map<String, Integer> counts = new HashMap<>();
+        for (Product product : store.values()) {
+            counts.merge(ring.ownerOf(product.getProductId()), 1, Integer::sum);
+        }
+        StringBuilder text = new StringBuilder();
+        for (String shard : ring.getShards()) {
+            text.append(shard).append('=').append(counts.getOrDefault(shard, 0)).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    private static String sku(int i) {
+        return String.format("S%06d", i);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock replica benchmark: checkout lanes with lane-local PN-counter stock (pos.replica=true).
+ * Compares scan latency against lanes on the shared Inventory, cuts one lane off the central
+ * inventory and its peers while it keeps selling, and checks that after reconnecting every replica
+ * converges to the central stock and that central stock = initial stock - units sold.
+ * Finally two disconnected lanes sell the last units of one SKU twice over to show the oversold count.
+ * Usage: java -Dpos.journal=off -Dpos.archive=off -Dpos.catalog=none StockReplicaBenchmark [products] [lanes] [seconds]
+ */
+public class StockReplicaBenchmark {
+    private static final int INITIAL_STOCK = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int laneCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+
+        System.out.println("======================================");
+        System.out.println("  Stock replicas: " + products + " products, " + laneCount + " lanes, " + seconds + " s");
+        System.out.println("======================================");
+        Inventory inventory = Inventory.getInstance();
+        for (int i = 0; i < products; i++) {
+            inventory.addProduct(new Product(sku(i), "Item" + i, Money.of(1, 0), INITIAL_STOCK));
+        }
+        inventory.addProduct(new Product("LAST", "Last units", Money.of(1, 0), 10));
+
+        // 1. Shared inventory lanes vs replica lanes
+        LatencyHistogram.Snapshot shared = run(laneCount, products, 2, null);
+        System.setProperty("pos.replica", "true");
+        Checkout[] replicaLanes = new Checkout[laneCount];
+        for (int l = 0; l < laneCount; l++) {
+            replicaLanes[l] = new Checkout("replica-" + l);
+        }
+        AtomicLong sold = new AtomicLong();
+        LatencyHistogram.Snapshot replicated = run(laneCount, products, seconds, replicaLanes, sold, 0);
+        report("scan, shared stock:", shared);
+        report("scan, lane replica:", replicated);
+        long start = System.nanoTime();
+        int reads = 1_000_000;
+        Product local = replicaLanes[0].getReplica().getProductById(sku(0), inventory.getCatalogVersion());
+        long sum = 0;
+        for (int i = 0; i < reads; i++) {
+            sum += local.getStockQuantity();
+        }
+        System.out.printf("local stock read: %.0f ns (checksum %d)%n", (System.nanoTime() - start) / (double) reads, sum & 1);
+
+        // 2. Consistency after the run including the partition (lane 0 was cut off for the middle third)
+        StockReplicaHub hub = inventory.getReplicaHub();
+        waitForSync(replicaLanes);
+        long central = 0;
+        int diverged = 0;
+        for (int i = 0; i < products; i++) {
+            int stock = inventory.getProductById(sku(i)).getStockQuantity();
+            central += stock;
+            for (Checkout lane : replicaLanes) {
+                Product replica = lane.getReplica().getProductById(sku(i), inventory.getCatalogVersion());
+                diverged += replica.getStockQuantity() == stock ? 0 : 1;
+            }
+        }
+        long expected = (long) products * INITIAL_STOCK - sold.get() - SHARED_SOLD.get();
+        System.out.printf("stock: initial %d - sold %d = %d, central %d, replica entries differing from central %d%n",
+                (long) products * INITIAL_STOCK, sold.get() + SHARED_SOLD.get(), expected, central, diverged);
+
+        // 3. Two disconnected lanes sell the same last units
+        StockReplica a = replicaLanes[0].getReplica();
+        StockReplica b = replicaLanes[1].getReplica();
+        replicaLanes[0].addItem("LAST", 1);  // Both lanes hold the SKU before the partition
+        replicaLanes[1].addItem("LAST", 1);
+        replicaLanes[0].discardTransaction();
+        replicaLanes[1].discardTransaction();
+        waitForSync(replicaLanes);
+        a.setConnected(false);
+        b.setConnected(false);
+        replicaLanes[0].addItem("LAST", 8);
+        replicaLanes[0].processPayment(Long.MAX_VALUE);
+        replicaLanes[1].addItem("LAST", 7);
+        replicaLanes[1].processPayment(Long.MAX_VALUE);
+        a.setConnected(true);
+        b.setConnected(true);
+        waitForSync(replicaLanes);
+        int lastCentral = inventory.getProductById("LAST").getStockQuantity();
+        int lastA = a.getProductById("LAST", inventory.getCatalogVersion()).getStockQuantity();
+        System.out.printf("partitioned sale of 10 units as 8 + 7: central %d, lane 0 sees %d, oversold %d%n",
+                lastCentral, lastA, hub.getOversoldUnits());
+        System.out.println("--------------------------------------");
+        System.out.println(central == expected && diverged == 0 && lastCentral == 0 && lastA == 0 && hub.getOversoldUnits() == 5
+                ? "✅ Replicas converged, no units lost, overselling counted" : "❌ Replicas diverged or units lost");
+        System.exit(0);
+    }
+
+    private static final AtomicLong SHARED_SOLD = new AtomicLong();
+
+    private static LatencyHistogram.Snapshot run(int laneCount, int products, int seconds, Checkout[] checkouts) throws InterruptedException {
+        Checkout[] lanes = new Checkout[laneCount];
+        for (int l = 0; l < laneCount; l++) {
+            lanes[l] = new Checkout("shared-" + l);
+        }
+        return run(laneCount, products, seconds, lanes, SHARED_SOLD, -1);
+    }
+
+    // Lanes scan 5 random SKUs (hot set: 10% of the catalog) and pay; lane `partitioned` is cut off for the middle third
+    private static LatencyHistogram.Snapshot run(int laneCount, int products, int seconds, Checkout[] lanes,
+                                                 AtomicLong sold, int partitioned) throws InterruptedException {
+        AtomicBoolean stop = new AtomicBoolean();
+        LatencyHistogram scans = new LatencyHistogram();
+        Thread[] threads = new Thread[laneCount];
+        for (int l = 0; l < laneCount; l++) {
+            Checkout checkout = lanes[l];
+            Random random = new Random(l);
+            threads[l] = new Thread(() -> {
+                while (!stop.get()) {
+                    for (int i = 0; i < 5; i++) {
+                        long start = System.nanoTime();
+                        checkout.addItem(sku(random.nextInt(Math.max(1, products / 10))), 1);
+                        scans.record(System.nanoTime() - start);
+                    }
+                    checkout.processPayment(checkout.calculateTotalAmount());
+                    sold.addAndGet(5);
+                }
+            });
+            threads[l].start();
+        }
+        if (partitioned >= 0) {
+            StockReplica cutOff = lanes[partitioned].getReplica();
+            Thread.sleep(seconds * 1000L / 3);
+            cutOff.setConnected(false);
+            Thread.sleep(seconds * 1000L / 3);
+            System.out.printf("lane %s disconnected for %d ms, %d SKUs with unsent changes%n",
+                    cutOff.getLaneName(), seconds * 1000L / 3, cutOff.getUnsentCount());
+            cutOff.setConnected(true);
+            Thread.sleep(seconds * 1000L / 3);
+        } else {
+            Thread.sleep(seconds * 1000L);
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return scans.snapshot();
+    }
+
+    // Let the sync thread run until no lane has unsent changes, plus rounds for rebases and gossip
+    private static void waitForSync(Checkout[] lanes) throws InterruptedException {
+        StockReplicaHub hub = Inventory.getInstance().getReplicaHub();
+        for (int attempt = 0; attempt < 100; attempt++) {
+            boolean pending = false;
+            for (Checkout lane : lanes) {
+                pending |= lane.getReplica().getUnsentCount() > 0;
+            }
+            if (!pending) {
+                break;
+            }
+            hub.syncNow();
+        }
+        for (int round = 0; round < lanes.length + 1; round++) {
+            hub.syncNow();
+        }
+    }
+
+    private static String sku(int i) {
+        return String.format("S%06d", i);
+    }
+
+    private static void report(String label, LatencyHistogram.Snapshot latency) {
+        System.out.printf("%-20s n=%-9d p50=%.2fus p99=%.2fus p99.9=%.2fus%n", label, latency.getCount(),
+                latency.getPercentile(0.5) / 1e3, latency.getPercentile(0.99) / 1e3, latency.getPercentile(0.999) / 1e3);
+    }
+}
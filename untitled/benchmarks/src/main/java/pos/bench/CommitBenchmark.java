@@ -0,0 +1,71 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transaction commit paths: processPayment and processReturn of a cartSize-line cart.
+ * The cart is rebuilt before every invocation (Level.Invocation), which is fine here because
+ * a commit of 10+ lines is far longer than the setup timing overhead.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommitBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"10", "100", "1000"})
+    public int cartSize;
+
+    private PosDriver.Lane saleLane;
+    private PosDriver.Lane returnLane;
+    private String[] cartSkus;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        PosDriver driver = PosDriver.load();
+        driver.loadCatalog(catalogSize);
+        saleLane = driver.newLane();
+        returnLane = driver.newLane();
+        cartSkus = new String[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            cartSkus[i] = driver.skuId((int) ((i * 7919L) % catalogSize));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillCarts() {
+        saleLane.discard();
+        returnLane.discard();
+        for (String sku : cartSkus) {
+            saleLane.addItem(sku, 1);
+            returnLane.addItem(sku, -1);
+        }
+    }
+
+    @Benchmark
+    public Object processPayment() {
+        return saleLane.pay();
+    }
+
+    @Benchmark
+    public Object processReturn() {
+        return returnLane.processReturn();
+    }
+}
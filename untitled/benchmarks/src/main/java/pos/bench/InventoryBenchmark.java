@@ -0,0 +1,62 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory.getProductById single-threaded and under contention (all threads share one Inventory).
+ * cartSize is the number of distinct hot SKUs the lookups cycle through.
+ * Run with -Dpos.store=columnar (jvmArgsAppend / -jvmArgs) to measure the columnar store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InventoryBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"10", "100", "1000"})
+    public int cartSize;
+
+    private PosDriver driver;
+    private String[] hotSkus;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        driver = PosDriver.load();
+        driver.loadCatalog(catalogSize);
+        hotSkus = new String[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            hotSkus[i] = driver.skuId((int) ((i * 7919L) % catalogSize));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getProductByIdSingleThread() {
+        return driver.lookup(hotSkus[ThreadLocalRandom.current().nextInt(hotSkus.length)]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getProductByIdContended() {
+        return driver.lookup(hotSkus[ThreadLocalRandom.current().nextInt(hotSkus.length)]);
+    }
+}
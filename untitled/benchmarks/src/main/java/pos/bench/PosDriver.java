@@ -0,0 +1,59 @@
+package pos.bench;
+
+/**
+ * Bridge to the POS classes, which live in the unnamed package. JMH requires benchmarks to be in a
+ * named package, and named packages cannot reference the unnamed one, so benchmarks call the POS
+ * code through this interface. The implementation (PosDriverImpl, unnamed package) is loaded once
+ * per trial; calls are monomorphic and inlined by the JIT, so the bridge adds no measurable cost.
+ */
+public interface PosDriver {
+    // Add skuCount benchmark products (IDs from skuId) with effectively unlimited stock
+    void loadCatalog(int skuCount);
+
+    // Product ID of the n-th benchmark product
+    String skuId(int index);
+
+    // Inventory.getProductById
+    Object lookup(String productId);
+
+    // Inventory.searchProducts (ID / name prefix, then fuzzy), returns the matches
+    Object search(String query, int limit);
+
+    // Install `count` promotions over the first skuCount benchmark products; lanes created afterwards price them
+    void loadPromotions(int count, int skuCount);
+
+    // A new checkout lane (one Checkout instance)
+    Lane newLane();
+
+    /**
+     * One checkout lane (wraps Checkout).
+     */
+    interface Lane {
+        void addItem(String productId, int quantity);
+
+        long calculateTotalAmount();
+
+        // processPayment with exact cash, returns the Receipt
+        Object pay();
+
+        // processReturn, returns the Receipt
+        Object processReturn();
+
+        void discard();
+
+        // new Receipt(current items, type) without committing
+        Object newReceipt(String transactionType);
+
+        // Render a receipt with the default template, returns the rendered length
+        int render(Object receipt);
+    }
+
+    // Load the implementation from the unnamed package
+    static PosDriver load() {
+        try {
+            return (PosDriver) Class.forName("PosDriverImpl").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("PosDriverImpl not on the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addItem on a cartSize-line cart with and without promotions: each scan re-prices the rules of
+ * the scanned SKU (bundles, buy-n-get-free, thresholds; see PosDriverImpl.loadPromotions).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionScanBenchmark {
+    private static final int CATALOG_SIZE = 10_000;
+
+    @Param({"0", "2000"})
+    public int promotions;
+
+    @Param({"100", "500"})
+    public int cartSize;
+
+    private PosDriver.Lane lane;
+    private String[] cartSkus;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        PosDriver driver = PosDriver.load();
+        driver.loadCatalog(CATALOG_SIZE);
+        driver.loadPromotions(promotions, CATALOG_SIZE);
+        lane = driver.newLane();
+        cartSkus = new String[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            cartSkus[i] = driver.skuId((int) ((i * 7919L) % CATALOG_SIZE));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillCart() {
+        lane.discard();
+        for (String sku : cartSkus) {
+            lane.addItem(sku, 1);
+        }
+        next = 0;
+    }
+
+    @Benchmark
+    public void addItemWithPromotions() {
+        lane.addItem(cartSkus[next], 1);
+        if (++next == cartSize) {
+            next = 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receipt construction (ID generation, item copy, total) and rendering with the default template.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    @Param({"10", "100", "1000"})
+    public int cartSize;
+
+    private PosDriver.Lane lane;
+    private Object receipt;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        PosDriver driver = PosDriver.load();
+        driver.loadCatalog(catalogSize);
+        lane = driver.newLane();
+        for (int i = 0; i < cartSize; i++) {
+            lane.addItem(driver.skuId((int) ((i * 7919L) % catalogSize)), 1 + i % 3);
+        }
+        receipt = lane.newReceipt("SALE");
+    }
+
+    @Benchmark
+    public Object constructReceipt() {
+        return lane.newReceipt("SALE");
+    }
+
+    @Benchmark
+    public int renderReceipt() {
+        return lane.render(receipt);
+    }
+}
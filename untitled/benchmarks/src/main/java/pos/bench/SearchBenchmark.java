@@ -0,0 +1,48 @@
+package pos.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inventory.searchProducts over the benchmark catalog ("Bench item <n>", IDs B<n>): exact ID,
+ * ID prefix, name word prefixes and a typo (fuzzy fallback). The index is built during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"B77777", "B777", "item 77", "itme"})
+    public String query;
+
+    private PosDriver driver;
+
+    @Setup(Level.Trial)
+    public void loadCatalog() {
+        driver = PosDriver.load();
+        driver.loadCatalog(catalogSize);
+        driver.search("B1", 10);  // Builds the index
+    }
+
+    @Benchmark
+    public Object search() {
+        return driver.search(query, 10);
+    }
+}
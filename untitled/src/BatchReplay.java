@@ -0,0 +1,200 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Batch replay: headless, non-interactive mode that streams a transaction file through Checkout
+ * (load testing, migration of recorded transactions). Receipts go to a sink, and throughput,
+ * error counts and latency percentiles are reported at the end.
+ *
+ * File format (one transaction per block, '#' starts a comment):
+ *   SALE [cash]      sale; cash is optional (default: exact total)
+ *   P001,2           product ID and quantity (comma or whitespace separated)
+ *   END
+ *   RETURN
+ *   P002,1
+ *   END
+ *
+ * Usage: java Main --batch <file> [--out <receipts file> | --out none | --out console]
+ */
+public class BatchReplay implements AutoCloseable {
+    private final Checkout checkout = new Checkout("batch");
+    private final ReceiptRenderer renderer = new ReceiptRenderer(ReceiptRenderer.DEFAULT_TEMPLATE);
+    private final ReceiptSink sink;  // null = discard receipts
+
+    // Statistics
+    private long transactions;
+    private long lines;
+    private long errors;
+    private long[] latencies = new long[1024];  // Nanoseconds per committed transaction
+
+    public BatchReplay(ReceiptSink sink) {
+        this.sink = sink;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java Main --batch <file> [--out <receipts file> | --out none | --out console]");
+            return;
+        }
+        Path input = Path.of(args[0]);
+        String out = args.length > 2 && "--out".equals(args[1]) ? args[2] : "none";
+
+        if ("none".equals(out)) {
+            try (BatchReplay replay = new BatchReplay(null)) {
+                replay.run(input);
+            }
+        } else if ("console".equals(out)) {
+            try (BatchReplay replay = new BatchReplay(new ConsoleReceiptSink())) {
+                replay.run(input);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(Path.of(out), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ChannelReceiptSink fileSink = new ChannelReceiptSink(channel);
+                try (BatchReplay replay = new BatchReplay(fileSink)) {
+                    replay.run(input);
+                }
+                fileSink.flush();
+            }
+        }
+    }
+
+    // Stream the whole file through Checkout and print the report
+    public void run(Path input) throws IOException {
+        long start = System.nanoTime();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String type = null;      // SALE / RETURN of the open transaction
+            long cash = -1;          // Tendered cash (-1 = exact total)
+            boolean failed = false;  // Transaction already rejected, skip to END
+            long txStart = 0;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    if (type == null) {
+                        // Expect a transaction header
+                        String[] header = line.split("\\s+");
+                        if (!"SALE".equals(header[0]) && !"RETURN".equals(header[0])) {
+                            throw new IllegalArgumentException("Expected SALE or RETURN");
+                        }
+                        type = header[0];
+                        cash = header.length > 1 ? Money.parse(header[1]) : -1;
+                        failed = false;
+                        txStart = System.nanoTime();
+                    } else if ("END".equals(line)) {
+                        String ended = type;
+                        type = null;  // The transaction ends here even if its commit fails
+                        if (!failed) {
+                            commit(ended, cash, txStart);
+                        }
+                    } else if (!failed) {
+                        addLine(type, line);
+                    }
+                } catch (RuntimeException e) {  // Rejected input (incl. NumberFormatException), journal / archive failure
+                    errors++;
+                    System.err.println("Line " + lineNumber + ": " + e.getMessage());
+                    checkout.discardTransaction();
+                    failed = type != null;
+                }
+            }
+            if (type != null) {
+                errors++;
+                System.err.println("Unterminated " + type + " transaction at end of file");
+                checkout.discardTransaction();
+            }
+        }
+        report(System.nanoTime() - start);
+    }
+
+    private void addLine(String type, String line) {
+        int separator = line.indexOf(',');
+        if (separator < 0) {
+            separator = line.indexOf(' ');
+        }
+        if (separator < 0) {
+            throw new IllegalArgumentException("Expected <product ID>,<quantity>: " + line);
+        }
+        String productId = line.substring(0, separator).trim();
+        int quantity = Integer.parseInt(line.substring(separator + 1).trim());
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than 0: " + line);
+        }
+        checkout.addItem(productId, "RETURN".equals(type) ? -quantity : quantity);
+        lines++;
+    }
+
+    private void commit(String type, long cash, long txStart) throws IOException {
+        Receipt receipt = "RETURN".equals(type)
+                ? checkout.processReturn()
+                : checkout.processPayment(cash < 0 ? checkout.calculateTotalAmount() : cash);
+        if (sink != null) {
+            long renderStart = System.nanoTime();
+            renderer.render(receipt, sink);
+            checkout.getMetrics().record(CheckoutMetrics.Stage.PRINT, renderStart);
+        }
+        recordLatency(System.nanoTime() - txStart);
+        transactions++;
+    }
+
+    private void recordLatency(long nanos) {
+        if (transactions == latencies.length) {
+            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+        }
+        latencies[(int) transactions] = nanos;
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long[] sorted = Arrays.copyOf(latencies, (int) transactions);
+        Arrays.sort(sorted);
+        System.out.println("======================================");
+        System.out.println("        Batch replay report");
+        System.out.println("======================================");
+        System.out.println("Transactions committed: " + transactions);
+        System.out.println("Item lines:             " + lines);
+        System.out.println("Errors:                 " + errors);
+        System.out.printf("Elapsed:                %.3f s%n", seconds);
+        System.out.printf("Throughput:             %.0f tx/s, %.0f lines/s%n", transactions / seconds, lines / seconds);
+        System.out.println("--------------------------------------");
+        System.out.println("Latency per transaction (us):");
+        System.out.printf("  p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e3);
+        System.out.println("======================================");
+    }
+
+    // Close the batch lane (its stock replica, if any)
+    @Override
+    public void close() {
+        checkout.close();
+    }
+
+    // Committed transactions so far
+    long getTransactions() {
+        return transactions;
+    }
+
+    // Rejected lines and transactions so far
+    long getErrors() {
+        return errors;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e3;
+    }
+}
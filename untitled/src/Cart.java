@@ -0,0 +1,161 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cart class: shopping items of the current transaction with a SKU -> line index
+ * and an incrementally maintained running total.
+ * add, merge, void and total are O(1); merging into an existing line allocates nothing.
+ *
+ * Promotions: the cart takes the promotion plan current at its first scan and keeps it for the
+ * whole transaction. A line change re-prices only the rules of that SKU (plan.rulesFor), each
+ * rule state updated with the change of that line, so the discount total stays incremental too.
+ */
+public class Cart {
+    private final List<ShoppingItem> lines = new ArrayList<>();         // Cart lines (scan order, until a void)
+    private final Map<String, ShoppingItem> lineIndex = new HashMap<>(); // Product ID -> cart line
+    private final List<ShoppingItem> readOnlyLines = Collections.unmodifiableList(lines);
+    private long totalAmount;  // Running total in minor units (sale = positive, return = negative)
+
+    private final PromotionEngine promotions;  // null = no promotions
+    private PromotionPlan plan;                // Plan of the current transaction (null until the first scan)
+    private Promotion.State[] ruleStates = new Promotion.State[0];  // By rule number of the plan
+    private int[] touchedRules = new int[8];   // Rule numbers with a state, in order of first use
+    private int touchedCount;
+    private long discountAmount;               // Sum of the rule discounts
+
+    public Cart() {
+        this(null);
+    }
+
+    public Cart(PromotionEngine promotions) {
+        this.promotions = promotions;
+    }
+
+    // Add quantity of a product (merged into the existing line for the same product ID)
+    public void add(String productId, Product product, int quantity) {
+        ShoppingItem line = lineIndex.get(productId);
+        int oldQuantity = 0;
+        if (line == null) {
+            line = new ShoppingItem(product, quantity);
+            line.setLineIndex(lines.size());
+            lines.add(line);
+            lineIndex.put(productId, line);
+        } else {
+            oldQuantity = line.getQuantity();
+            line.addQuantity(quantity);
+        }
+        totalAmount += Money.times(product.getPrice(), quantity);
+        reprice(productId, line.getProduct().getPrice(), oldQuantity, line.getQuantity());
+    }
+
+    // Remove the whole line of a product; returns the removed line (null if not in cart)
+    // The last line is moved into the gap, so voiding does not shift the remaining lines
+    public ShoppingItem voidLine(String productId) {
+        ShoppingItem line = lineIndex.remove(productId);
+        if (line == null) {
+            return null;
+        }
+        int index = line.getLineIndex();
+        ShoppingItem last = lines.remove(lines.size() - 1);
+        if (last != line) {
+            lines.set(index, last);
+            last.setLineIndex(index);
+        }
+        totalAmount -= line.calculateItemTotal();
+        reprice(productId, line.getProduct().getPrice(), line.getQuantity(), 0);
+        return line;
+    }
+
+    // Update the rules of one SKU for a line quantity change (only sale units earn discounts)
+    private void reprice(String productId, long unitPrice, int oldQuantity, int newQuantity) {
+        if (promotions == null) {
+            return;
+        }
+        if (plan == null) {
+            plan = promotions.plan();
+            if (ruleStates.length < plan.size()) {
+                ruleStates = new Promotion.State[plan.size()];
+            }
+        }
+        for (int rule : plan.rulesFor(productId)) {
+            Promotion.State state = ruleStates[rule];
+            if (state == null) {
+                state = plan.get(rule).newState();
+                ruleStates[rule] = state;
+                if (touchedCount == touchedRules.length) {
+                    touchedRules = Arrays.copyOf(touchedRules, touchedCount * 2);
+                }
+                touchedRules[touchedCount++] = rule;
+            }
+            long before = state.getDiscount();
+            state.update(unitPrice, Math.max(oldQuantity, 0), Math.max(newQuantity, 0));
+            discountAmount += state.getDiscount() - before;
+        }
+    }
+
+    // Line of a product (null if not in cart)
+    public ShoppingItem getLine(String productId) {
+        return lineIndex.get(productId);
+    }
+
+    // Running total of the cart, net of promotion discounts
+    public long getTotalAmount() {
+        return totalAmount - getDiscountAmount();
+    }
+
+    // Running total at shelf prices
+    public long getGrossAmount() {
+        return totalAmount;
+    }
+
+    // Sum of the promotion discounts (never more than the amount being sold)
+    public long getDiscountAmount() {
+        return Math.min(discountAmount, Math.max(totalAmount, 0));
+    }
+
+    // Discount breakdown, one entry per promotion that applies (plan order), capped like getDiscountAmount
+    public List<Discount> getDiscounts() {
+        if (discountAmount == 0) {
+            return List.of();
+        }
+        int[] rules = Arrays.copyOf(touchedRules, touchedCount);
+        Arrays.sort(rules);
+        List<Discount> discounts = new ArrayList<>();
+        long remaining = getDiscountAmount();
+        for (int rule : rules) {
+            long amount = Math.min(ruleStates[rule].getDiscount(), remaining);
+            if (amount > 0) {
+                Promotion promotion = plan.get(rule);
+                discounts.add(new Discount(promotion.getId(), promotion.getDescription(), amount));
+                remaining -= amount;
+            }
+        }
+        return discounts;
+    }
+
+    // Read-only view of the cart lines
+    public List<ShoppingItem> getItems() {
+        return readOnlyLines;
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    // Remove all lines
+    public void clear() {
+        lines.clear();
+        lineIndex.clear();
+        totalAmount = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            ruleStates[touchedRules[i]] = null;
+        }
+        touchedCount = 0;
+        discountAmount = 0;
+        plan = null;
+    }
+}
@@ -0,0 +1,322 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Catalog CSV class: streaming import and export of the product catalog.
+ *
+ * Format (UTF-8, one product per line, header optional, blank and '#' lines skipped):
+ *   productId,name,price,stock       e.g.  P001,"Cola, 330ml",3.50,100
+ * ID and name may be quoted ("" inside quotes is a quote); a field never spans lines.
+ *
+ * Import memory-maps the file in chunks cut at line ends, parses the chunks on all cores straight
+ * from the mapped bytes (numbers are parsed in place, only the ID and name become Strings) and
+ * hands each chunk's products to Inventory.addProducts in file order, so later lines win as with
+ * addProduct. At most two chunks per core are in flight: memory use does not grow with the file.
+ */
+public final class CatalogCsv {
+    public static final String HEADER = "productId,name,price,stock";
+    private static final int CHUNK_BYTES = 1 << 20;  // Bytes per parallel parse task (cut at the next line end)
+    private static final int MAX_LINE = 1 << 16;     // Longest accepted line (bytes)
+
+    private CatalogCsv() {
+    }
+
+    // Import into the inventory; returns the number of products read
+    public static long importFile(Path file, Inventory inventory) throws IOException {
+        return read(file, inventory::addProducts);
+    }
+
+    /**
+     * Parse a catalog file in parallel and pass the products to the sink in file order, one batch
+     * per chunk (the sink is called by one thread at a time). Malformed lines throw
+     * IllegalArgumentException with the byte offset of the line.
+     */
+    public static long read(Path file, Consumer<List<Product>> sink) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "catalog-import-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore window = new Semaphore(2 * parallelism);
+        AtomicLong rows = new AtomicLong();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            CompletableFuture<Void> inserted = CompletableFuture.completedFuture(null);
+            long start = 0;
+            while (start < size && !inserted.isCompletedExceptionally()) {
+                long end = lineEnd(channel, Math.min(size, start + CHUNK_BYTES), size);
+                long from = start;
+                window.acquireUninterruptibly();
+                CompletableFuture<List<Product>> parsed = CompletableFuture.supplyAsync(() -> parse(channel, from, end), parsers);
+                inserted = parsed.thenAcceptBoth(inserted, (batch, previous) -> {
+                    sink.accept(batch);
+                    rows.addAndGet(batch.size());
+                }).whenComplete((ignored, failure) -> window.release());
+                start = end;
+            }
+            inserted.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } finally {
+            parsers.shutdown();
+        }
+        return rows.get();
+    }
+
+    // Position just after the first line end at or after `from` (or the end of the file)
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Parse the whole lines in [start, end) of the file
+    private static List<Product> parse(FileChannel channel, long start, long end) {
+        MappedByteBuffer chunk;
+        try {
+            chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Product> products = new ArrayList<>(chunk.capacity() / 32);
+        Parser parser = new Parser(chunk, start);
+        while (parser.position < chunk.capacity()) {
+            Product product = parser.line();
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Parser over one mapped chunk; text fields are unquoted into a reused scratch buffer.
+     */
+    private static final class Parser {
+        private final MappedByteBuffer chunk;
+        private final long offset;  // File position of the chunk
+        private final byte[] scratch = new byte[MAX_LINE];
+        private int position;
+        private int lineStart;
+
+        Parser(MappedByteBuffer chunk, long offset) {
+            this.chunk = chunk;
+            this.offset = offset;
+        }
+
+        // One line: the product, or null for blank / comment / header lines
+        Product line() {
+            lineStart = position;
+            int end = position;
+            while (end < chunk.capacity() && chunk.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > lineStart && chunk.get(end - 1) == '\r') {
+                end--;
+            }
+            try {
+                if (end == lineStart || chunk.get(lineStart) == '#' || (offset == 0 && lineStart == 0 && isHeader(end))) {
+                    return null;
+                }
+                if (end - lineStart > MAX_LINE) {
+                    throw fail("Line longer than " + MAX_LINE + " bytes");
+                }
+                String productId = text(end);
+                expect(end, ',');
+                String name = text(end);
+                expect(end, ',');
+                long price = number(end, Money.FRACTION_DIGITS);
+                expect(end, ',');
+                long stock = number(end, 0);
+                if (position != end) {
+                    throw fail("Expected productId,name,price,stock");
+                }
+                if (productId.isEmpty()) {
+                    throw fail("Empty product ID");
+                }
+                if (stock > Integer.MAX_VALUE) {
+                    throw fail("Stock out of range");
+                }
+                return new Product(productId, name, price, (int) stock);
+            } finally {
+                position = next;
+            }
+        }
+
+        private boolean isHeader(int end) {
+            byte[] header = HEADER.getBytes(StandardCharsets.US_ASCII);
+            for (int i = 0; i < header.length; i++) {
+                if (lineStart + i >= end || chunk.get(lineStart + i) != header[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Plain or quoted text field up to the next comma
+        private String text(int end) {
+            int length = 0;
+            if (position < end && chunk.get(position) == '"') {
+                position++;
+                while (true) {
+                    if (position >= end) {
+                        throw fail("Unterminated quoted field");
+                    }
+                    byte b = chunk.get(position++);
+                    if (b == '"') {
+                        if (position < end && chunk.get(position) == '"') {
+                            position++;
+                        } else {
+                            break;
+                        }
+                    }
+                    scratch[length++] = b;
+                }
+            } else {
+                while (position < end && chunk.get(position) != ',') {
+                    scratch[length++] = chunk.get(position++);
+                }
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        // Non-negative decimal scaled to `decimals` digits ("3.5" -> 350); extra decimals must be zeros
+        private long number(int end, int decimals) {
+            long value = 0;
+            int digits = 0;
+            int fraction = -1;  // -1 = no decimal point yet
+            for (; position < end && chunk.get(position) != ','; position++) {
+                byte b = chunk.get(position);
+                if (b == '.' && fraction < 0 && decimals > 0) {
+                    fraction = 0;
+                } else if (b >= '0' && b <= '9') {
+                    digits++;
+                    if (fraction < 0 || fraction < decimals) {
+                        if (value > (Long.MAX_VALUE - 9) / 10) {
+                            throw fail("Number out of range");
+                        }
+                        value = value * 10 + (b - '0');
+                        if (fraction >= 0) {
+                            fraction++;
+                        }
+                    } else if (b != '0') {
+                        throw fail("More than " + decimals + " decimals");
+                    }
+                } else {
+                    throw fail(decimals > 0 ? "Invalid price" : "Invalid stock");
+                }
+            }
+            if (digits == 0) {
+                throw fail(decimals > 0 ? "Missing price" : "Missing stock");
+            }
+            for (int f = Math.max(fraction, 0); f < decimals; f++) {
+                value *= 10;
+            }
+            return value;
+        }
+
+        private void expect(int end, char c) {
+            if (position >= end || chunk.get(position) != c) {
+                throw fail("Expected productId,name,price,stock");
+            }
+            position++;
+        }
+
+        private IllegalArgumentException fail(String message) {
+            return new IllegalArgumentException("Catalog line at byte " + (offset + lineStart) + ": " + message);
+        }
+    }
+
+    // Export the inventory's catalog at current prices; returns the number of products written
+    public static long exportFile(Inventory inventory, Path file) throws IOException {
+        return write(inventory.getAllProducts(), file);
+    }
+
+    /**
+     * Write products as catalog CSV, streaming (one reused line buffer, no per-field Strings for
+     * numbers). The file is written next to the target and moved into place when complete.
+     * Line breaks inside names are written as spaces (a field never spans lines).
+     */
+    public static long write(Collection<Product> products, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(256);
+            writer.write(HEADER);
+            writer.write('\n');
+            for (Product product : products) {
+                line.setLength(0);
+                appendText(line, product.getProductId()).append(',');
+                appendText(line, product.getProductName()).append(',');
+                Money.appendTo(line, product.getPrice()).append(',').append(product.getStockQuantity()).append('\n');
+                writer.append(line);
+                rows++;
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
+    }
+
+    // Append a field, quoted if it holds a comma, a quote or starts / ends with a space
+    private static StringBuilder appendText(StringBuilder line, String text) {
+        boolean quote = !text.isEmpty() && (text.charAt(0) == ' ' || text.charAt(text.length() - 1) == ' ' || text.charAt(0) == '#');
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"';
+        }
+        if (quote) {
+            line.append('"');
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append("\"\"");
+            } else {
+                line.append(c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        if (quote) {
+            line.append('"');
+        }
+        return line;
+    }
+}
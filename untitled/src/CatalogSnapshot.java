@@ -0,0 +1,242 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Catalog snapshot class: compact binary file of the catalog and stock levels.
+ * The file is memory-mapped on open and products are decoded lazily on lookup,
+ * so startup cost does not grow with the catalog size.
+ *
+ * Layout (big-endian):
+ *   header: magic(int) version(int) productCount(int) tableSize(int) journalPosition(long)
+ *   hash table: tableSize x int (record offset + 1, 0 = empty slot), open addressing, linear probing
+ *   records: idLen(short) id(UTF-8) nameLen(short) name(UTF-8) price(long, minor units) stock(int)
+ * journalPosition is the journal offset already included in the stock levels; replay continues from there.
+ */
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x504F5343;  // "POSC"
+    private static final int VERSION = 2;  // 2: price stored as long minor units
+    private static final int HEADER_SIZE = 24;
+
+    private final MappedByteBuffer buffer;
+    private final int productCount;
+    private final int tableSize;
+    private final long journalPosition;
+    private final int recordsStart;
+
+    private CatalogSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a catalog snapshot (or unsupported version)");
+        }
+        this.productCount = buffer.getInt(8);
+        this.tableSize = buffer.getInt(12);
+        this.journalPosition = buffer.getLong(16);
+        this.recordsStart = HEADER_SIZE + tableSize * 4;
+    }
+
+    // Memory-map an existing snapshot (nothing is parsed until products are looked up)
+    public static CatalogSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new CatalogSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Getter methods
+    public int getProductCount() {
+        return productCount;
+    }
+
+    public long getJournalPosition() {
+        return journalPosition;
+    }
+
+    // Look up one product by ID, decoding only its record (null if not in the snapshot)
+    public Product find(String productId) {
+        byte[] key = productId.getBytes(StandardCharsets.UTF_8);
+        int mask = tableSize - 1;
+        for (int slot = hash(key, key.length) & mask; ; slot = (slot + 1) & mask) {
+            int entry = buffer.getInt(HEADER_SIZE + slot * 4);
+            if (entry == 0) {
+                return null;
+            }
+            int offset = recordsStart + entry - 1;
+            if (keyEquals(offset, key)) {
+                return decode(offset);
+            }
+        }
+    }
+
+    // Decode every product in file order (used when the full catalog is needed)
+    public void forEach(Consumer<Product> action) {
+        int offset = recordsStart;
+        for (int i = 0; i < productCount; i++) {
+            action.accept(decode(offset));
+            offset = nextRecord(offset);
+        }
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+        int length = buffer.getShort(offset) & 0xFFFF;
+        if (length != key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Product decode(int offset) {
+        String id = readString(offset);
+        offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        String name = readString(offset);
+        offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        long price = buffer.getLong(offset);
+        int stock = buffer.getInt(offset + 8);
+        return new Product(id, name, price, stock);
+    }
+
+    private int nextRecord(int offset) {
+        offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        offset += 2 + (buffer.getShort(offset) & 0xFFFF);
+        return offset + 12;
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[buffer.getShort(offset) & 0xFFFF];
+        buffer.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // FNV-1a over the UTF-8 bytes of the product ID (same function for writer and reader)
+    private static int hash(byte[] bytes, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ (bytes[i] & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Write a snapshot of the given products (end of day). The file is written next to the target
+     * and moved into place atomically, so a running loader never sees a half-written snapshot.
+     * Must run while lanes are closed, so that stock levels match journalPosition.
+     */
+    public static void write(Path path, Collection<Product> products, long journalPosition) throws IOException {
+        int count = products.size();
+        int tableSize = Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;  // Load factor <= 0.5
+        int[] table = new int[tableSize];
+        int mask = tableSize - 1;
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            // 1. Records (after header + table), filling the hash table as we go
+            channel.position(HEADER_SIZE + (long) tableSize * 4);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(uncloseable(channel), 1 << 16));
+            int offset = 0;
+            for (Product product : products) {
+                byte[] id = product.getProductId().getBytes(StandardCharsets.UTF_8);
+                byte[] name = product.getProductName().getBytes(StandardCharsets.UTF_8);
+                int slot = hash(id, id.length) & mask;
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot] = offset + 1;
+                out.writeShort(id.length);
+                out.write(id);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeLong(product.getPrice());
+                out.writeInt(product.getStockQuantity());
+                offset += 2 + id.length + 2 + name.length + 12;
+            }
+            out.flush();
+
+            // 2. Header + hash table at the start of the file
+            ByteBuffer head = ByteBuffer.allocate(HEADER_SIZE + tableSize * 4);
+            head.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(tableSize).putLong(journalPosition);
+            head.asIntBuffer().put(table);
+            head.position(0);
+            channel.position(0);
+            while (head.hasRemaining()) {
+                channel.write(head);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Stream over the channel's current position that leaves the channel open
+    private static OutputStream uncloseable(FileChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+        };
+    }
+
+    /**
+     * Command line tool:
+     *   java CatalogSnapshot write [file]            end-of-day snapshot of the current Inventory
+     *   java CatalogSnapshot generate <file> <count>  synthetic catalog for load testing
+     *   java CatalogSnapshot open <file> [id]         measure cold open + first lookup
+     */
+    public static void main(String[] args) throws IOException {
+        String command = args.length > 0 ? args[0] : "write";
+        switch (command) {
+            case "write": {
+                Path path = Path.of(args.length > 1 ? args[1] : Inventory.catalogPath());
+                Inventory.getInstance().writeSnapshot(path);
+                System.out.println("Snapshot written: " + path);
+                break;
+            }
+            case "generate": {
+                int count = Integer.parseInt(args[2]);
+                List<Product> products = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    products.add(new Product(String.format("S%08d", i), "Item " + i, 100 + (i % 500) * 10L, 100));
+                }
+                write(Path.of(args[1]), products, 0);
+                System.out.println("Generated " + count + " products: " + args[1]);
+                break;
+            }
+            case "open": {
+                long start = System.nanoTime();
+                CatalogSnapshot snapshot = open(Path.of(args[1]));
+                Product first = snapshot.find(args.length > 2 ? args[2] : "S00000000");
+                long elapsed = System.nanoTime() - start;
+                System.out.printf("Opened %d products, first lookup %s, ready in %.2f ms%n",
+                        snapshot.getProductCount(), first == null ? "(not found)" : first.getProductName(), elapsed / 1e6);
+                break;
+            }
+            default:
+                System.out.println("Unknown command: " + command);
+        }
+    }
+}
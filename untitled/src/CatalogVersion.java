@@ -0,0 +1,144 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Catalog version class: one immutable state of the catalog prices. A version holds every product
+ * repriced since startup (copies sharing the stock counter of the stored product); all other
+ * products are priced as stored. Versions are never modified: a price change builds the next
+ * version (copy-on-write) and Inventory swaps it in with one volatile write, so readers never
+ * lock and never see a half-applied change. Checkout keeps the version its transaction started with.
+ *
+ * Price delta file (one change per line, '#' comment): productId,price   e.g. P001,3.80
+ */
+public final class CatalogVersion {
+    private final long number;                 // 0 = prices as stored, +1 per applied delta
+    private final Map<String, Product> repriced;  // Product ID -> product at its price in this version
+    private final long createdMillis;
+    private final int lastChangeCount;         // Changes applied by the delta that built this version
+    private final int lastSkipped;             // Unknown products in that delta
+
+    private CatalogVersion(long number, Map<String, Product> repriced, int lastChangeCount, int lastSkipped) {
+        this.number = number;
+        this.repriced = repriced;
+        this.createdMillis = System.currentTimeMillis();
+        this.lastChangeCount = lastChangeCount;
+        this.lastSkipped = lastSkipped;
+    }
+
+    // Version with every product at its stored price
+    static CatalogVersion initial() {
+        return new CatalogVersion(0, Map.of(), 0, 0);
+    }
+
+    // Product as priced in this version (stored = the product from the product store, may be null)
+    public Product resolve(String productId, Product stored) {
+        if (stored == null || repriced.isEmpty()) {
+            return stored;
+        }
+        Product product = repriced.get(productId);
+        return product == null ? stored : product;
+    }
+
+    // Product repriced in this version (null = priced as stored)
+    Product getRepriced(String productId) {
+        return repriced.get(productId);
+    }
+
+    // Next version: this one plus the price changes (product ID -> price); unknown products are skipped
+    CatalogVersion apply(Map<String, Long> prices, Function<String, Product> storedProducts) {
+        Map<String, Product> next = new HashMap<>(Math.max(16, (int) ((repriced.size() + prices.size()) / 0.75f) + 1));
+        next.putAll(repriced);
+        int skipped = 0;
+        for (Map.Entry<String, Long> change : prices.entrySet()) {
+            Product stored = storedProducts.apply(change.getKey());
+            if (stored == null) {
+                skipped++;
+            } else {
+                next.put(change.getKey(), stored.withPrice(change.getValue()));
+            }
+        }
+        return new CatalogVersion(number + 1, next, prices.size() - skipped, skipped);
+    }
+
+    // Next version without the price override of one product (the product was replaced in the store)
+    CatalogVersion without(String productId) {
+        if (!repriced.containsKey(productId)) {
+            return this;
+        }
+        Map<String, Product> next = new HashMap<>(repriced);
+        next.remove(productId);
+        return new CatalogVersion(number + 1, next, 0, 0);
+    }
+
+    // Next version without the price overrides of the given products (bulk replace in the store)
+    CatalogVersion without(Collection<Product> products) {
+        if (repriced.isEmpty()) {
+            return this;
+        }
+        Map<String, Product> next = new HashMap<>(repriced);
+        for (Product product : products) {
+            next.remove(product.getProductId());
+        }
+        return next.size() == repriced.size() ? this : new CatalogVersion(number + 1, next, 0, 0);
+    }
+
+    // Read a price delta file (later lines win)
+    public static Map<String, Long> readPriceDelta(Path file) throws IOException {
+        Map<String, Long> prices = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                String entry = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int comma = entry.indexOf(',');
+                try {
+                    if (comma <= 0) {
+                        throw new IllegalArgumentException("Expected productId,price");
+                    }
+                    long price = Money.parse(entry.substring(comma + 1).trim());
+                    if (price < 0) {
+                        throw new IllegalArgumentException("Negative price");
+                    }
+                    prices.put(entry.substring(0, comma).trim(), price);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return prices;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    // Products priced differently from the store in this version
+    public int getRepricedCount() {
+        return repriced.size();
+    }
+
+    public int getLastChangeCount() {
+        return lastChangeCount;
+    }
+
+    public int getLastSkipped() {
+        return lastSkipped;
+    }
+}
@@ -0,0 +1,72 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Channel receipt sink: encodes receipts as UTF-8 into a reusable byte buffer and appends them
+ * to a channel (e.g. a FileChannel for reprint/archive jobs). Output is batched until the buffer
+ * fills or flush() is called.
+ */
+public class ChannelReceiptSink implements ReceiptSink {
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes;
+
+    public ChannelReceiptSink(WritableByteChannel channel) {
+        this(channel, 64 * 1024);
+    }
+
+    public ChannelReceiptSink(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.bytes = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public void write(char[] text, int length) throws IOException {
+        writeBytes(text, length);
+    }
+
+    // Hook for subclasses that add framing around the text (see EscPosReceiptSink)
+    protected void writeRaw(byte[] raw) throws IOException {
+        if (bytes.remaining() < raw.length) {
+            drain();
+        }
+        bytes.put(raw);
+    }
+
+    protected void writeBytes(char[] text, int length) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text, 0, length);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isOverflow()) {
+                drain();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
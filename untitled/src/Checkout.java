@@ -1,106 +1,222 @@
-import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Checkout class: core business logic (handles sales/returns)
+ * Close a lane that is no longer used: with -Dpos.replica=true its stock replica is synced until then.
  */
-public class Checkout {
+public class Checkout implements AutoCloseable {
     private Inventory inventory;  // Depends on inventory management class
-    private List<ShoppingItem> currentItems;  // Shopping items in current transaction
+    private Cart cart;  // Shopping items in current transaction (indexed by product ID, running total)
+    private CatalogVersion catalog;  // Prices of the current transaction (the version current at its first scan)
+    private final CheckoutMetrics.Lane metrics;  // Stage latencies and rejections of this lane
+    private final StockReplica replica;  // Lane-local stock (-Dpos.replica=true), null = stock of the shared Inventory
 
     public Checkout() {
+        this("default");
+    }
+
+    // Checkout of a named lane (metrics are kept per lane name)
+    public Checkout(String laneName) {
         this.inventory = Inventory.getInstance();  // Dependency injection (singleton)
-        this.currentItems = new ArrayList<>();
+        this.cart = new Cart(inventory.getPromotions());
+        this.metrics = CheckoutMetrics.lane(laneName);
+        this.replica = Inventory.replicasEnabled() ? inventory.getReplicaHub().open(laneName) : null;
     }
 
     // Add product to current transaction (sale: quantity positive; return: quantity negative)
     public void addItem(String productId, int quantity) {
-        // 1. Validate product exists
-        Product product = inventory.getProductById(productId);
+        long start = System.nanoTime();
+        try {
+            scan(productId, quantity);
+        } catch (RuntimeException e) {
+            metrics.failed(CheckoutMetrics.Stage.SCAN);
+            throw e;
+        }
+        metrics.record(CheckoutMetrics.Stage.SCAN, start);
+    }
+
+    private void scan(String productId, int quantity) {
+        // 1. Validate product exists (priced as in this transaction's catalog version)
+        if (cart.isEmpty()) {
+            catalog = inventory.getCatalogVersion();
+        }
+        Product product = replica != null ? replica.getProductById(productId, catalog) : inventory.getProductById(productId, catalog);
         if (product == null) {
             throw new IllegalArgumentException("Product ID not found: " + productId);
         }
 
-        // 2. Validate stock (sale: stock ≥ purchase qty; return: qty ≥ 0)
-        if (quantity > 0) {  // Sale scenario
-            if (product.getStockQuantity() < quantity) {
-                throw new IllegalArgumentException("Product \u300c" + product.getProductName() + "\u300d out of stock, current stock: " + product.getStockQuantity());
+        // 2. Hold stock for sale lines (sale: reserve the units now; return: qty ≥ 0)
+        //    The reservation covers the whole line and is resized when the line changes
+        ShoppingItem line = cart.getLine(productId);
+        int lineQuantity = (line == null ? 0 : line.getQuantity()) + quantity;
+        ReservationLedger.Reservation reservation = line == null ? null : line.getReservation();
+        if (lineQuantity > 0 && quantity != 0) {  // Sale scenario (throws if not enough stock is available)
+            try {
+                if (reservation == null) {
+                    reservation = inventory.reserve(product, lineQuantity);
+                } else {
+                    inventory.getReservations().resize(reservation, lineQuantity);
+                }
+            } catch (IllegalArgumentException e) {
+                metrics.outOfStock();
+                throw e;
             }
         } else if (quantity < 0) {  // Return scenario (quantity negative, take absolute value)
             if (Math.abs(quantity) <= 0) {
                 throw new IllegalArgumentException("Return quantity must be greater than 0");
             }
-        }
-
-        // 3. Add to shopping list (update quantity if product already exists)
-        boolean exists = false;
-        for (int i = 0; i < currentItems.size(); i++) {
-            ShoppingItem item = currentItems.get(i);
-            if (item.getProduct().getProductId().equals(productId)) {
-                currentItems.set(i, new ShoppingItem(product, item.getQuantity() + quantity));
-                exists = true;
-                break;
+            if (reservation != null) {
+                inventory.getReservations().release(reservation);  // Line no longer sells anything
+                reservation = null;
             }
         }
-        if (!exists) {
-            currentItems.add(new ShoppingItem(product, quantity));
+
+        // 3. Add to shopping list (merged into the existing line if the product is already in the cart)
+        cart.add(productId, product, quantity);
+        cart.getLine(productId).setReservation(reservation);
+    }
+
+    // Void a whole cart line (e.g. item scanned by mistake)
+    public void voidItem(String productId) {
+        long start = System.nanoTime();
+        ShoppingItem line = cart.voidLine(productId);
+        if (line == null) {
+            metrics.failed(CheckoutMetrics.Stage.VOID);
+            throw new IllegalArgumentException("Product not in current transaction: " + productId);
         }
+        releaseReservation(line);
+        metrics.record(CheckoutMetrics.Stage.VOID, start);
     }
 
-    // Process payment (cash only, validate cashAmount ≥ total)
-    public Receipt processPayment(double cashAmount) {
-        double total = calculateTotalAmount();
+    // Process payment (cash only, validate cashAmount ≥ total; amounts in minor units, see Money)
+    public Receipt processPayment(long cashAmount) {
+        long start = System.nanoTime();
+        long total = calculateTotalAmount();
         if (cashAmount < total) {
-            throw new IllegalArgumentException("Insufficient payment! Due: " + total + " CNY, paid: " + cashAmount + " CNY");
+            metrics.insufficientPayment();
+            metrics.failed(CheckoutMetrics.Stage.PAYMENT);
+            throw new IllegalArgumentException("Insufficient payment! Due: " + Money.format(total) + " CNY, paid: " + Money.format(cashAmount) + " CNY");
         }
 
-        // 1. Update stock (sale: decrease; return: increase)
-        for (ShoppingItem item : currentItems) {
-            Product product = item.getProduct();
-            product.updateStock(-item.getQuantity());  // Sale: stock - qty; Return: stock - (negative) = +qty
-        }
+        // 1. Update stock atomically per SKU (sale: decrease; return: increase)
+        commitStockChanges(CheckoutMetrics.Stage.PAYMENT);  // Sale: stock - qty; Return: stock - (negative) = +qty
 
-        // 2. Generate sale receipt
-        Receipt receipt = new Receipt(currentItems, "SALE");
+        // 2. Generate sale receipt (stock changes are rolled back if it cannot be journaled)
+        Receipt receipt = issueReceipt("SALE", CheckoutMetrics.Stage.PAYMENT);
         // 3. Clear current transaction
-        currentItems.clear();
+        cart.clear();
+        metrics.record(CheckoutMetrics.Stage.PAYMENT, start);
         return receipt;
     }
 
     // Process return (generate return receipt and update stock)
     public Receipt processReturn() {
-        double totalRefund = calculateTotalAmount();  // Negative value, abs() is refund amount
+        long start = System.nanoTime();
+        long totalRefund = calculateTotalAmount();  // Negative value, abs() is refund amount
         if (totalRefund >= 0) {
+            metrics.failed(CheckoutMetrics.Stage.RETURN);
             throw new IllegalArgumentException("Return item quantity must be negative!");
         }
 
         // 1. Update stock (return: increase)
-        for (ShoppingItem item : currentItems) {
-            Product product = item.getProduct();
-            product.updateStock(-item.getQuantity());  // Quantity negative, -quantity positive => stock increases
-        }
+        commitStockChanges(CheckoutMetrics.Stage.RETURN);  // Quantity negative, -quantity positive => stock increases
 
-        // 2. Generate return receipt
-        Receipt receipt = new Receipt(currentItems, "RETURN");
+        // 2. Generate return receipt (stock changes are rolled back if it cannot be journaled)
+        Receipt receipt = issueReceipt("RETURN", CheckoutMetrics.Stage.RETURN);
         // 3. Clear current transaction
-        currentItems.clear();
+        cart.clear();
+        metrics.record(CheckoutMetrics.Stage.RETURN, start);
         return receipt;
     }
 
-    // Calculate total amount of current transaction
-    public double calculateTotalAmount() {
-        return currentItems.stream()
-                .mapToDouble(ShoppingItem::calculateItemTotal)
-                .sum();
+    // Commit the cart's stock changes, counting a stock conflict as an out-of-stock rejection
+    private void commitStockChanges(CheckoutMetrics.Stage stage) {
+        try {
+            inventory.commitStockChanges(cart.getItems());
+        } catch (IllegalArgumentException e) {
+            metrics.outOfStock();
+            metrics.failed(stage);
+            throw e;
+        } catch (RuntimeException e) {
+            metrics.failed(stage);  // Store failure (e.g. shard unreachable): nothing was committed
+            throw e;
+        }
     }
+
+    // Build the receipt and record it (write-ahead journal: durable before the receipt is handed out).
+    // If the journal append fails the transaction did not happen: its stock changes are undone and
+    // the cart is kept, so paying again deducts once (reservations are held again, not lost)
+    private Receipt issueReceipt(String transactionType, CheckoutMetrics.Stage stage) {
+        long start = System.nanoTime();
+        Receipt receipt = new Receipt(cart.getItems(), transactionType, cart.getDiscounts());
+        try {
+            inventory.recordTransaction(receipt);
+        } catch (RuntimeException e) {
+            inventory.rollbackStockChanges(cart.getItems());
+            metrics.failed(stage);
+            throw e;
+        }
+        metrics.record(CheckoutMetrics.Stage.RECEIPT, start);
+        return receipt;
+    }
+
+    // Print a receipt to the console (timed as this lane's PRINT stage)
+    public void printReceipt(Receipt receipt) {
+        long start = System.nanoTime();
+        receipt.printReceipt();
+        metrics.record(CheckoutMetrics.Stage.PRINT, start);
+    }
+
+    // Metrics of this lane (e.g. to time receipt rendering done by the caller)
+    public CheckoutMetrics.Lane getMetrics() {
+        return metrics;
+    }
+
+    // Calculate total amount of current transaction (minor units, net of promotion discounts)
+    public long calculateTotalAmount() {
+        return cart.getTotalAmount();  // Maintained incrementally by the cart
+    }
+
+    // Promotion discounts of the current transaction (included in calculateTotalAmount)
+    public List<Discount> getDiscounts() {
+        return cart.getDiscounts();
+    }
+    // This lane's stock replica (null unless -Dpos.replica=true)
+    public StockReplica getReplica() {
+        return replica;
+    }
+
+    // Close the lane: its stock replica pushes its last changes and stops syncing (no-op without replica)
+    @Override
+    public void close() {
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
     // Get shopping items (for GUI to display item details)
     public List<ShoppingItem> getCurrentItems() {
-        return currentItems;
+        return cart.getItems();
     }
 
     // Cancel current transaction
     public void cancelTransaction() {
-        currentItems.clear();
+        discardTransaction();
         System.out.println("Transaction cancelled!");
     }
+
+    // Drop the current transaction without console output (batch / service use), releasing held stock
+    public void discardTransaction() {
+        for (ShoppingItem item : cart.getItems()) {
+            releaseReservation(item);
+        }
+        cart.clear();
+    }
+
+    private void releaseReservation(ShoppingItem line) {
+        if (line.getReservation() != null) {
+            inventory.getReservations().release(line.getReservation());
+            line.setReservation(null);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,268 @@
+import javax.management.ConstructorParameters;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checkout metrics class: latency histograms and failure counts per checkout stage, plus rejection
+ * counters, kept per lane (one Checkout = one lane name) and summed over lanes only when read.
+ *
+ * Recording is a nanoTime pair around the stage and a few uncontended atomic increments; nothing
+ * is locked or allocated on a lane. Every lane is exposed as a JMX MXBean
+ * (pos:type=CheckoutLane,name=&lt;lane&gt;), all lanes together as pos:type=Checkout,name=all, and
+ * startLogging prints a snapshot of every lane at a fixed interval.
+ * System properties: pos.metrics.jmx (default true), pos.metrics.log (seconds, see startLogging)
+ */
+public class CheckoutMetrics {
+    public enum Stage {
+        SCAN,     // Checkout.addItem (reservation included)
+        VOID,     // Checkout.voidItem
+        PAYMENT,  // Checkout.processPayment (stock commit, receipt, journal)
+        RETURN,   // Checkout.processReturn
+        RECEIPT,  // Receipt generation and journal append (part of PAYMENT / RETURN)
+        PRINT     // Rendering / printing a receipt
+    }
+
+    private static final Map<String, Lane> LANES = new ConcurrentHashMap<>();
+    private static final boolean JMX = Boolean.parseBoolean(System.getProperty("pos.metrics.jmx", "true"));
+    private static ScheduledExecutorService logTimer;  // Guarded by CheckoutMetrics.class
+
+    static {
+        register("pos:type=Checkout,name=all", new View("all", LANES.values()));
+    }
+
+    private CheckoutMetrics() {
+    }
+
+    // Metrics of a lane, created (and registered with JMX) on first use
+    public static Lane lane(String name) {
+        Lane lane = LANES.get(name);
+        if (lane != null) {
+            return lane;
+        }
+        return LANES.computeIfAbsent(name, key -> {
+            Lane created = new Lane(key);
+            register("pos:type=CheckoutLane,name=" + ObjectName.quote(key), new View(key, List.of(created)));
+            return created;
+        });
+    }
+
+    // Metrics of all lanes together
+    public static CheckoutMetricsMXBean all() {
+        return new View("all", LANES.values());
+    }
+
+    private static void register(String name, View view) {
+        if (!JMX) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(view, new ObjectName(name));
+        } catch (JMException e) {
+            // Metrics must never stop a lane: run without the MBean
+            System.err.println("Cannot register MBean " + name + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Print a snapshot of every lane every intervalSeconds (0 = -Dpos.metrics.log, off if unset).
+     * Runs on a daemon thread; calling it again changes nothing.
+     */
+    public static synchronized void startLogging(long intervalSeconds) {
+        long interval = intervalSeconds > 0 ? intervalSeconds : Long.getLong("pos.metrics.log", 0);
+        if (interval <= 0 || logTimer != null) {
+            return;
+        }
+        logTimer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "checkout-metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logTimer.scheduleAtFixedRate(() -> System.out.print(report()), interval, interval, TimeUnit.SECONDS);
+    }
+
+    // Text snapshot: one line of counters per lane, one line per stage with activity
+    public static String report() {
+        StringBuilder text = new StringBuilder();
+        List<View> views = new ArrayList<>();
+        LANES.keySet().stream().sorted().forEach(name -> views.add(new View(name, List.of(LANES.get(name)))));
+        if (views.size() > 1) {
+            views.add(new View("all", LANES.values()));
+        }
+        for (View view : views) {
+            text.append(String.format("[metrics] lane=%s scans=%d commits=%d returns=%d outOfStock=%d insufficientPayment=%d%n",
+                    view.getName(), view.getScans(), view.getCommits(), view.getReturns(),
+                    view.getOutOfStockRejections(), view.getInsufficientPaymentRejections()));
+            for (StageStatistics stage : view.getStages()) {
+                if (stage.getCount() > 0 || stage.getFailures() > 0) {
+                    text.append(String.format("[metrics] lane=%s %s n=%d fail=%d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                            view.getName(), stage.getStage(), stage.getCount(), stage.getFailures(), stage.getMeanMicros(),
+                            stage.getP50Micros(), stage.getP99Micros(), stage.getP999Micros(), stage.getMaxMicros()));
+                }
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Recording side of one lane. Successful stages record their latency, failed ones a failure.
+     */
+    public static final class Lane {
+        private final String name;
+        private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+        private final LongAdder[] failures = new LongAdder[Stage.values().length];
+        private final LongAdder outOfStock = new LongAdder();
+        private final LongAdder insufficientPayment = new LongAdder();
+
+        private Lane(String name) {
+            this.name = name;
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+                failures[i] = new LongAdder();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Stage completed: latency since startNanos (System.nanoTime() taken before the stage)
+        public void record(Stage stage, long startNanos) {
+            latencies[stage.ordinal()].record(System.nanoTime() - startNanos);
+        }
+
+        public void failed(Stage stage) {
+            failures[stage.ordinal()].increment();
+        }
+
+        public void outOfStock() {
+            outOfStock.increment();
+        }
+
+        public void insufficientPayment() {
+            insufficientPayment.increment();
+        }
+    }
+
+    /**
+     * Statistics of one stage (MXBean composite data), latencies in microseconds.
+     */
+    public static final class StageStatistics {
+        private final String stage;
+        private final long count;
+        private final long failures;
+        private final double meanMicros;
+        private final double p50Micros;
+        private final double p99Micros;
+        private final double p999Micros;
+        private final double maxMicros;
+
+        @ConstructorParameters({"stage", "count", "failures", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"})
+        public StageStatistics(String stage, long count, long failures, double meanMicros, double p50Micros,
+                               double p99Micros, double p999Micros, double maxMicros) {
+            this.stage = stage;
+            this.count = count;
+            this.failures = failures;
+            this.meanMicros = meanMicros;
+            this.p50Micros = p50Micros;
+            this.p99Micros = p99Micros;
+            this.p999Micros = p999Micros;
+            this.maxMicros = maxMicros;
+        }
+
+        public String getStage() { return stage; }
+        public long getCount() { return count; }
+        public long getFailures() { return failures; }
+        public double getMeanMicros() { return meanMicros; }
+        public double getP50Micros() { return p50Micros; }
+        public double getP99Micros() { return p99Micros; }
+        public double getP999Micros() { return p999Micros; }
+        public double getMaxMicros() { return maxMicros; }
+    }
+
+    // Read side: one lane, or every lane summed (the collection is live, new lanes are included)
+    private static final class View implements CheckoutMetricsMXBean {
+        private final String name;
+        private final Collection<Lane> lanes;
+
+        View(String name, Collection<Lane> lanes) {
+            this.name = name;
+            this.lanes = lanes;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getScans() {
+            return count(Stage.SCAN);
+        }
+
+        @Override
+        public long getCommits() {
+            return count(Stage.PAYMENT);
+        }
+
+        @Override
+        public long getReturns() {
+            return count(Stage.RETURN);
+        }
+
+        @Override
+        public long getOutOfStockRejections() {
+            long total = 0;
+            for (Lane lane : lanes) {
+                total += lane.outOfStock.sum();
+            }
+            return total;
+        }
+
+        @Override
+        public long getInsufficientPaymentRejections() {
+            long total = 0;
+            for (Lane lane : lanes) {
+                total += lane.insufficientPayment.sum();
+            }
+            return total;
+        }
+
+        @Override
+        public List<StageStatistics> getStages() {
+            List<StageStatistics> stages = new ArrayList<>();
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram.Snapshot latency = snapshot(stage);
+                long failed = 0;
+                for (Lane lane : lanes) {
+                    failed += lane.failures[stage.ordinal()].sum();
+                }
+                stages.add(new StageStatistics(stage.name(), latency.getCount(), failed, latency.getMean() / 1e3,
+                        latency.getPercentile(0.50) / 1e3, latency.getPercentile(0.99) / 1e3,
+                        latency.getPercentile(0.999) / 1e3, latency.getMax() / 1e3));
+            }
+            return stages;
+        }
+
+        private long count(Stage stage) {
+            return snapshot(stage).getCount();
+        }
+
+        private LatencyHistogram.Snapshot snapshot(Stage stage) {
+            LatencyHistogram.Snapshot merged = LatencyHistogram.Snapshot.empty();
+            for (Lane lane : lanes) {
+                merged.add(lane.latencies[stage.ordinal()].snapshot());
+            }
+            return merged;
+        }
+    }
+}
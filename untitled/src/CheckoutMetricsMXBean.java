@@ -0,0 +1,22 @@
+import java.util.List;
+
+/**
+ * JMX view of the checkout metrics of one lane (pos:type=CheckoutLane,name=...) or of all lanes
+ * together (pos:type=Checkout,name=all). Counts are cumulative since startup, latencies in microseconds.
+ */
+public interface CheckoutMetricsMXBean {
+    String getName();
+
+    long getScans();
+
+    long getCommits();
+
+    long getReturns();
+
+    long getOutOfStockRejections();
+
+    long getInsufficientPaymentRejections();
+
+    // One entry per checkout stage: count, failures, mean and percentiles
+    List<CheckoutMetrics.StageStatistics> getStages();
+}
@@ -0,0 +1,234 @@
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Checkout pipeline class: runs all Checkout calls of the GUI on one worker thread, off the EDT.
+ * Scans are queued as they arrive (a scanner burst never waits for the previous scan), applied
+ * in order, and the resulting cart state is published as an immutable CartView. Views are pushed
+ * to the panels at most once per frame; errors become inline status text instead of dialogs.
+ * Payment and return (stock commit + journal fsync) also run on the worker.
+ * The cart part of the view is written only by the worker and the status line is replaced as a
+ * whole by either thread, so a status set on the EDT never overwrites a newer cart.
+ */
+public class CheckoutPipeline {
+    private static final int FRAME_MILLIS = 16;  // At most one UI refresh per ~60 Hz frame
+    private static final String CART_HEADER = String.format("%-10s %-10s %-8s %-6s %-8s%n", "Product ID", "Name", "Price", "Qty", "Subtotal")
+            + "--------------------------------------------\n";
+
+    /**
+     * Snapshot of the cart for display (built on the worker, read on the EDT).
+     */
+    public static final class CartView {
+        public static final CartView EMPTY = new CartView("", 0, 0, "", false);
+
+        private final String cartText;
+        private final long totalAmount;
+        private final int lineCount;
+        private final String status;
+        private final boolean error;
+
+        CartView(String cartText, long totalAmount, int lineCount, String status, boolean error) {
+            this.cartText = cartText;
+            this.totalAmount = totalAmount;
+            this.lineCount = lineCount;
+            this.status = status;
+            this.error = error;
+        }
+
+        public String getCartText() {
+            return cartText;
+        }
+
+        public long getTotalAmount() {
+            return totalAmount;
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+    }
+
+    private final Checkout checkout;  // Worker thread only
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "checkout-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger queued = new AtomicInteger();  // Submitted, not yet applied
+    private String burstError;  // First failed scan of the current burst (worker thread only)
+    private final StringBuilder cartText = new StringBuilder(1024);  // Reused for every cart view (worker thread only)
+    private final List<Consumer<CartView>> views = new CopyOnWriteArrayList<>();
+
+    // Frame-coalesced publication: the latest cart (worker) and status line (worker or EDT), picked up once per frame
+    private volatile CartView cart = CartView.EMPTY;
+    private volatile CartView status = CartView.EMPTY;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final Timer frameTimer;
+
+    public CheckoutPipeline(Checkout checkout) {
+        this.checkout = checkout;
+        this.frameTimer = new Timer(FRAME_MILLIS, e -> {
+            framePending.set(false);
+            CartView view = getLatest();
+            for (Consumer<CartView> listener : views) {
+                listener.accept(view);
+            }
+        });
+        frameTimer.setRepeats(false);
+    }
+
+    // Register a panel refresh callback (called on the EDT)
+    public void addView(Consumer<CartView> view) {
+        views.add(view);
+        view.accept(getLatest());
+    }
+
+    // Latest published cart state with the latest status (EDT)
+    public CartView getLatest() {
+        CartView current = cart;
+        CartView line = status;
+        return new CartView(current.cartText, current.totalAmount, current.lineCount, line.status, line.error);
+    }
+
+    // Queue a scan (sale: quantity positive; return: quantity negative)
+    public void scan(String productId, int quantity) {
+        queued.incrementAndGet();
+        worker.execute(() -> {
+            String status = null;
+            boolean last;
+            try {
+                checkout.addItem(productId, quantity);
+                status = (quantity > 0 ? "Added " : "Return item ") + productId + " x" + Math.abs(quantity);
+            } catch (RuntimeException e) {  // Rejected scan, or the stock store / replica failing
+                if (burstError == null) {
+                    burstError = message(e);
+                }
+            } finally {
+                last = queued.decrementAndGet() == 0;
+            }
+            // Only the last scan of a burst builds the cart view; a failure in the burst stays visible
+            if (last) {
+                publish(burstError != null ? burstError : status, burstError != null);
+                burstError = null;
+            }
+        });
+    }
+
+    // Commit a sale on the worker; onReceipt runs on the EDT after the journal accepted it
+    public void pay(long cashAmount, Consumer<Receipt> onReceipt) {
+        commit(() -> {
+            if (checkout.calculateTotalAmount() <= 0) {
+                throw new IllegalArgumentException("Cart is empty, cannot pay!");
+            }
+            return checkout.processPayment(cashAmount);
+        }, "Payment successful", onReceipt);
+    }
+
+    // Commit a return on the worker; onReceipt runs on the EDT
+    public void processReturn(Consumer<Receipt> onReceipt) {
+        commit(checkout::processReturn, "Return successful", onReceipt);
+    }
+
+    // Drop the current transaction (releases reserved stock)
+    public void cancel() {
+        queued.incrementAndGet();
+        worker.execute(() -> {
+            try {
+                checkout.discardTransaction();
+            } finally {
+                queued.decrementAndGet();
+            }
+            publish("Transaction cancelled", false);
+        });
+    }
+
+    // Set an inline status without touching the cart (e.g. input validation on the EDT)
+    public void showStatus(String status, boolean error) {
+        this.status = new CartView("", 0, 0, status, error);
+        requestFrame();
+    }
+
+    private interface Commit {
+        Receipt run();
+    }
+
+    private void commit(Commit commit, String success, Consumer<Receipt> onReceipt) {
+        queued.incrementAndGet();
+        worker.execute(() -> {
+            queued.decrementAndGet();
+            try {
+                Receipt receipt = commit.run();
+                publish(success + ", receipt " + receipt.getReceiptId(), false);
+                SwingUtilities.invokeLater(() -> onReceipt.accept(receipt));
+            } catch (RuntimeException e) {  // Rejected payment, or journal / stock store failure
+                publish(message(e), true);
+            }
+        });
+    }
+
+    // Status text of a failure (some exceptions carry no message)
+    private static String message(RuntimeException e) {
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    // Build the cart view on the worker and schedule a frame (columns padded by hand: no String.format per line)
+    private void publish(String status, boolean error) {
+        StringBuilder sb = cartText;
+        sb.setLength(0);
+        sb.append(CART_HEADER);
+        List<ShoppingItem> items = checkout.getCurrentItems();
+        for (ShoppingItem item : items) {
+            Product product = item.getProduct();
+            int start = sb.length();
+            pad(sb.append(product.getProductId()), start + 10).append(' ');
+            start = sb.length();
+            pad(sb.append(product.getProductName()), start + 10).append(' ');
+            start = sb.length();
+            pad(Money.appendTo(sb, product.getPrice()), start + 8).append(' ');
+            start = sb.length();
+            pad(sb.append(item.getQuantity()), start + 6).append(' ');
+            start = sb.length();
+            pad(Money.appendTo(sb, item.calculateItemTotal()), start + 8).append(System.lineSeparator());
+        }
+        for (Discount discount : checkout.getDiscounts()) {
+            int start = sb.length();
+            pad(sb.append("Promo"), start + 10).append(' ');
+            start = sb.length();
+            pad(sb.append(discount.getDescription()), start + 26).append(" -");
+            start = sb.length();
+            pad(Money.appendTo(sb, discount.getAmount()), start + 8).append(System.lineSeparator());
+        }
+        cart = new CartView(sb.toString(), checkout.calculateTotalAmount(), items.size(), "", false);
+        this.status = new CartView("", 0, 0, status, error);
+        requestFrame();
+    }
+
+    // Spaces up to column end (left-aligned field, as %-Ns)
+    private static StringBuilder pad(StringBuilder sb, int end) {
+        while (sb.length() < end) {
+            sb.append(' ');
+        }
+        return sb;
+    }
+
+    private void requestFrame() {
+        if (framePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(frameTimer::restart);
+        }
+    }
+}
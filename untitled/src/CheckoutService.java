@@ -0,0 +1,418 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Checkout service class: hosts many independent checkout lanes (one Checkout each) against the
+ * shared Inventory and exposes them over a plain-text HTTP API bound to localhost.
+ * Every request runs on its own virtual thread (platform threads before Java 21); requests of the
+ * same lane are serialized by the lane lock, different lanes never wait for each other.
+ *
+ * API (lane = any lane name, created on first use; amounts as in Money.parse / Money.format):
+ *   POST /lanes/{lane}/items?id=P001&qty=2    add item (qty &lt; 0 = return item), replies total
+ *   POST /lanes/{lane}/void?id=P001           void a cart line
+ *   POST /lanes/{lane}/pay?cash=20.00         commit a sale (cash optional = exact), replies receipt
+ *   POST /lanes/{lane}/return                 commit a return, replies receipt
+ *   POST /lanes/{lane}/cancel                 drop the current transaction
+ *   GET  /lanes/{lane}                        current cart
+ *   GET  /lanes                               lane names
+ *   GET  /receipts/{receiptId}                reprint an archived receipt
+ *   GET  /receipts?product=P001&limit=20      receipts containing a product, newest first
+ *   GET  /receipts?from=..&to=..&limit=100    receipts issued in [from, to) (epoch milliseconds)
+ *   GET  /analytics?hours=24                  store sales / returns over the last hours
+ *   GET  /analytics/top?n=10&hours=24         best sellers by units
+ *   GET  /analytics/products/{id}?hours=24    one product, hour by hour
+ *   GET  /metrics                             stage latencies and rejections per lane (also over JMX)
+ *   GET  /catalog                             current catalog price version
+ *   POST /catalog/prices?file=prices.csv      apply a price delta file (built in the background), replies the new version
+ *   POST /catalog/import?file=catalog.csv     bulk-load products from catalog CSV (see CatalogCsv), replies rows
+ *   POST /catalog/export?file=catalog.csv     write the catalog at current prices as CSV, replies rows
+ *   (catalog files are relative names inside pos.service.catalogDir, default "catalog-files")
+ * Errors: 400 business error, 404 unknown path, 405 wrong method, 503 lane busy / lane limit.
+ *
+ * Usage: java Main --serve [port]   (system properties: pos.service.port, pos.service.maxLanes, pos.service.catalogDir,
+ *        pos.metrics.log)
+ */
+public class CheckoutService {
+    public static final int DEFAULT_PORT = 8420;
+
+    private static final long LANE_LOCK_TIMEOUT_MILLIS = 2_000;  // Bound on waiting behind the same lane
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int maxLanes;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    // One checkout lane: its own Checkout (metrics under the lane name) and renderer, used only while holding the lock
+    private static final class Lane {
+        private final ReentrantLock lock = new ReentrantLock();  // Not synchronized: would pin virtual threads
+        private final Checkout checkout;
+        private final ReceiptRenderer renderer = new ReceiptRenderer(ReceiptRenderer.DEFAULT_TEMPLATE);
+
+        Lane(String name) {
+            this.checkout = new Checkout(name);
+        }
+
+        // Render a committed receipt, timed as the lane's PRINT stage
+        String render(Receipt receipt) {
+            long start = System.nanoTime();
+            String text = renderer.renderToString(receipt);
+            checkout.getMetrics().record(CheckoutMetrics.Stage.PRINT, start);
+            return text;
+        }
+    }
+
+    public CheckoutService(int port, int maxLanes) throws IOException {
+        this.maxLanes = maxLanes;
+        // Small replies on keep-alive connections: without TCP_NODELAY each one waits for a delayed ACK (~40 ms)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        server.createContext("/lanes", this::handle);
+        server.createContext("/receipts", this::handle);
+        server.createContext("/analytics", this::handle);
+        server.createContext("/metrics", this::handle);
+        server.createContext("/catalog", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("pos.service.port", DEFAULT_PORT);
+        CheckoutService service = new CheckoutService(port, Integer.getInteger("pos.service.maxLanes", 256));
+        service.start();
+        LowStockAlert.install(Inventory.getInstance());
+        CheckoutMetrics.startLogging(Long.getLong("pos.metrics.log", 60));  // Metrics snapshot every minute by default
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop, "checkout-service-shutdown"));
+        System.out.println("✅ Checkout service listening on http://localhost:" + service.getPort() + "/lanes");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stop accepting requests, give in-flight ones a second to finish, then close the lanes
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Lane lane : lanes.values()) {
+            lane.checkout.close();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Virtual thread per request when the runtime has them (Java 21+), otherwise a cached pool
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "checkout-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");  // "", "lanes", lane, action
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            if (path.length >= 2 && path[1].equals("receipts")) {
+                requireMethod(method, "GET");
+                String body = receipts(path, query);
+                reply(exchange, body == null ? 404 : 200, body == null ? "Receipt not found\n" : body);
+            } else if (path.length == 2 && path[1].equals("metrics")) {
+                requireMethod(method, "GET");
+                reply(exchange, 200, CheckoutMetrics.report());
+            } else if (path.length >= 2 && path[1].equals("catalog")) {
+                String body = catalog(path, method, query);
+                reply(exchange, body == null ? 404 : 200, body == null ? "Unknown path\n" : body);
+            } else if (path.length >= 2 && path[1].equals("analytics")) {
+                requireMethod(method, "GET");
+                String body = analytics(path, query);
+                reply(exchange, body == null ? 404 : 200, body == null ? "Unknown path\n" : body);
+            } else if (path.length == 2) {
+                requireMethod(method, "GET");
+                reply(exchange, 200, String.join("\n", lanes.keySet()) + "\n");
+            } else if (path.length == 3 || path.length == 4) {
+                String action = path.length == 4 ? path[3] : "";
+                requireMethod(method, action.isEmpty() ? "GET" : "POST");
+                Lane lane = lane(path[2]);
+                if (!lane.lock.tryLock(LANE_LOCK_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    reply(exchange, 503, "Lane busy: " + path[2] + "\n");
+                    return;
+                }
+                String body;
+                try {
+                    body = execute(lane, action, query);
+                } finally {
+                    lane.lock.unlock();
+                }
+                if (body == null) {
+                    reply(exchange, 404, "Unknown action: " + action + "\n");
+                } else {
+                    reply(exchange, 200, body);
+                }
+            } else {
+                reply(exchange, 404, "Unknown path\n");
+            }
+        } catch (LaneLimitException e) {
+            reply(exchange, 503, e.getMessage() + "\n");
+        } catch (MethodNotAllowedException e) {
+            reply(exchange, 405, e.getMessage() + "\n");
+        } catch (IllegalArgumentException e) {  // Business errors, including NumberFormatException
+            reply(exchange, 400, e.getMessage() + "\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply(exchange, 503, "Interrupted\n");
+        } catch (RuntimeException e) {
+            reply(exchange, 500, "System error: " + e.getMessage() + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Run one lane operation (lane lock held); null = unknown action
+    private String execute(Lane lane, String action, Map<String, String> query) {
+        Checkout checkout = lane.checkout;
+        switch (action) {
+            case "":
+                return cartText(checkout);
+            case "items":
+                checkout.addItem(required(query, "id"), Integer.parseInt(required(query, "qty")));
+                return "total=" + Money.format(checkout.calculateTotalAmount()) + "\n";
+            case "void":
+                checkout.voidItem(required(query, "id"));
+                return "total=" + Money.format(checkout.calculateTotalAmount()) + "\n";
+            case "pay": {
+                // A failed commit (short cash, stock conflict) leaves the cart intact: void lines or cancel
+                String cash = query.get("cash");
+                long cashAmount = cash == null ? checkout.calculateTotalAmount() : Money.parse(cash);
+                return lane.render(checkout.processPayment(cashAmount));
+            }
+            case "return":
+                return lane.render(checkout.processReturn());
+            case "cancel":
+                checkout.discardTransaction();
+                return "cancelled\n";
+            default:
+                return null;
+        }
+    }
+
+    // Archived receipts: one receipt rendered for reprint, or a listing; null = not found
+    private static String receipts(String[] path, Map<String, String> query) {
+        ReceiptArchive archive = Inventory.getInstance().getReceiptArchive();
+        if (archive == null) {
+            throw new IllegalArgumentException("Receipt archive is disabled");
+        }
+        if (path.length == 3) {
+            Receipt receipt = archive.find(path[2]);
+            return receipt == null ? null : ReceiptRenderer.defaultRenderer().renderToString(receipt);
+        }
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : 100;
+        List<Receipt> receipts;
+        if (query.containsKey("product")) {
+            receipts = archive.findByProduct(query.get("product"), limit);
+        } else {
+            receipts = archive.findByTime(Long.parseLong(required(query, "from")), Long.parseLong(required(query, "to")), limit);
+        }
+        StringBuilder text = new StringBuilder();
+        for (Receipt receipt : receipts) {
+            text.append(receipt.getReceiptId()).append(',').append(receipt.getTransactionType()).append(',')
+                    .append(receipt.getTransactionTime().getTime()).append(',');
+            Money.appendTo(text, receipt.getTotalAmount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Catalog price version, or apply a price delta file and wait for its version; null = unknown path
+    private static String catalog(String[] path, String method, Map<String, String> query) throws InterruptedException {
+        Inventory inventory = Inventory.getInstance();
+        CatalogVersion version;
+        if (path.length == 2) {
+            requireMethod(method, "GET");
+            version = inventory.getCatalogVersion();
+        } else if (path.length == 3 && path[2].equals("prices")) {
+            requireMethod(method, "POST");
+            try {
+                version = inventory.reloadPrices(catalogFile(query)).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IllegalArgumentException
+                        ? (IllegalArgumentException) e.getCause() : new IllegalArgumentException(e.getCause().getMessage(), e.getCause());
+            }
+        } else if (path.length == 3 && (path[2].equals("import") || path[2].equals("export"))) {
+            requireMethod(method, "POST");
+            Path file = catalogFile(query);
+            long start = System.nanoTime();
+            try {
+                long rows = path[2].equals("import") ? CatalogCsv.importFile(file, inventory) : CatalogCsv.exportFile(inventory, file);
+                return "rows=" + rows + "\nmillis=" + (System.nanoTime() - start) / 1_000_000 + "\n";
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot " + path[2] + " catalog " + file + ": " + e.getMessage(), e);
+            }
+        } else {
+            return null;
+        }
+        return "version=" + version.getNumber() + "\nrepriced=" + version.getRepricedCount() + "\nchanged="
+                + version.getLastChangeCount() + "\nskipped=" + version.getLastSkipped() + "\ncreated=" + version.getCreatedMillis() + "\n";
+    }
+
+    // The ?file= of a catalog request inside the catalog directory: absolute names and ".." are rejected,
+    // so a client can neither read nor overwrite files elsewhere (journal, snapshots, ...)
+    static Path catalogFile(Map<String, String> query) {
+        String name = required(query, "file");
+        Path directory = Path.of(System.getProperty("pos.service.catalogDir", "catalog-files")).toAbsolutePath().normalize();
+        Path relative;
+        try {
+            relative = Path.of(name);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid catalog file name: " + name);
+        }
+        for (Path part : relative) {
+            if (part.toString().equals("..")) {
+                throw new IllegalArgumentException("Catalog file must not contain '..': " + name);
+            }
+        }
+        Path file = directory.resolve(relative).normalize();
+        if (relative.isAbsolute() || relative.getRoot() != null || !file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("Catalog file must be a relative name inside the catalog directory: " + name);
+        }
+        return file;
+    }
+
+    // Sales figures: store totals, top sellers or one product hour by hour; null = unknown path
+    private static String analytics(String[] path, Map<String, String> query) {
+        SalesAnalytics analytics = Inventory.getInstance().getSalesAnalytics();
+        if (analytics == null) {
+            throw new IllegalArgumentException("Sales analytics are disabled");
+        }
+        long to = System.currentTimeMillis();
+        long from = to - (query.containsKey("hours") ? Long.parseLong(query.get("hours")) : 24) * SalesAnalytics.HOUR_MILLIS;
+        StringBuilder text = new StringBuilder();
+        if (path.length == 2) {
+            SalesAnalytics.Figures totals = analytics.getTotals(from, to);
+            text.append("sales=").append(totals.getSales()).append("\nreturns=").append(totals.getReturns())
+                    .append("\nunits=").append(totals.getUnitsSold()).append("\nrevenue=");
+            Money.appendTo(text, totals.getRevenue()).append("\nreturned=").append(totals.getUnitsReturned()).append("\nrefunds=");
+            Money.appendTo(text, totals.getRefunds()).append(String.format("\nreturnRate=%.4f%n", totals.getReturnRate()));
+        } else if (path.length == 3 && path[2].equals("top")) {
+            int count = query.containsKey("n") ? Integer.parseInt(query.get("n")) : 10;
+            for (SalesAnalytics.Figures figures : analytics.getTopSellers(count, from, to)) {
+                text.append(figures.getProductId()).append(',').append(figures.getUnitsSold()).append(',');
+                Money.appendTo(text, figures.getRevenue()).append('\n');
+            }
+        } else if (path.length == 4 && path[2].equals("products")) {
+            for (SalesAnalytics.Figures figures : analytics.getHourly(path[3], from, to)) {
+                text.append(figures.getFromMillis()).append(',').append(figures.getUnitsSold()).append(',');
+                Money.appendTo(text, figures.getRevenue()).append(',').append(figures.getUnitsReturned()).append(',');
+                Money.appendTo(text, figures.getRefunds()).append('\n');
+            }
+        } else {
+            return null;
+        }
+        return text.toString();
+    }
+
+    private Lane lane(String name) {
+        Lane lane = lanes.get(name);
+        if (lane != null) {
+            return lane;
+        }
+        if (lanes.size() >= maxLanes) {
+            throw new LaneLimitException("Lane limit reached: " + maxLanes);
+        }
+        return lanes.computeIfAbsent(name, Lane::new);
+    }
+
+    private static String cartText(Checkout checkout) {
+        StringBuilder text = new StringBuilder();
+        for (ShoppingItem item : checkout.getCurrentItems()) {
+            text.append(item.getProduct().getProductId()).append(',').append(item.getQuantity()).append(',');
+            Money.appendTo(text, item.calculateItemTotal()).append('\n');
+        }
+        for (Discount discount : checkout.getDiscounts()) {
+            text.append("discount=").append(discount.getPromotionId()).append(',');
+            Money.appendTo(text, discount.getAmount()).append('\n');
+        }
+        text.append("total=");
+        return Money.appendTo(text, checkout.calculateTotalAmount()).append('\n').toString();
+    }
+
+    private static void requireMethod(String method, String expected) {
+        if (!expected.equals(method)) {
+            throw new MethodNotAllowedException("Use " + expected);
+        }
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class LaneLimitException extends RuntimeException {
+        LaneLimitException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class MethodNotAllowedException extends RuntimeException {
+        MethodNotAllowedException(String message) {
+            super(message);
+        }
+    }
+}
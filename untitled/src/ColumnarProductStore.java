@@ -0,0 +1,270 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Columnar product store: compact primitive storage for very large catalogs (-Dpos.store=columnar)
+ * - Product IDs are interned to dense int indexes (0, 1, 2, ...)
+ * - ID lookup uses an open-addressing int hash table (index + 1, 0 = empty), no boxing
+ * - Price and stock live in parallel primitive arrays, IDs and names as UTF-8 in shared byte pages
+ * - Product objects are lightweight views created on lookup
+ *
+ * All arrays are paged and pages never move, so stock CAS updates from lanes are never lost to a resize.
+ * Writers (adding products) are serialized; readers and stock updates are lock-free.
+ */
+public class ColumnarProductStore implements ProductStore {
+    private static final int PAGE_BITS = 16;                     // 65536 products per page
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int TEXT_PAGE_BITS = 20;                // 1 MB text pages
+    private static final int TEXT_PAGE_SIZE = 1 << TEXT_PAGE_BITS;
+
+    private static final VarHandle INT_ARRAY = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONG_ARRAY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // Column pages (outer arrays are replaced when a page is added, published through volatile fields)
+    private volatile int[][] idAddress = new int[0][];     // Text address of product ID
+    private volatile int[][] nameAddress = new int[0][];   // Text address of product name
+    private volatile long[][] prices = new long[0][];      // Unit price (minor units)
+    private volatile int[][] stocks = new int[0][];        // Stock quantity (CAS per slot)
+
+    // UTF-8 text pages: each string is [length(2 bytes)][bytes], address = page << 20 | offset
+    private volatile byte[][] textPages = new byte[0][];
+    private int textUsed = TEXT_PAGE_SIZE;  // Bytes used in the last text page (forces first page allocation)
+
+    // Open-addressing hash table: product ID -> index + 1
+    private volatile int[] table = new int[1024];
+    private volatile int size;
+
+    // Getter methods (by dense index)
+    public String getProductId(int index) {
+        return readText(idAddress[index >>> PAGE_BITS][index & PAGE_MASK]);
+    }
+
+    public String getProductName(int index) {
+        return readText(nameAddress[index >>> PAGE_BITS][index & PAGE_MASK]);
+    }
+
+    public long getPrice(int index) {
+        return (long) LONG_ARRAY.getVolatile(prices[index >>> PAGE_BITS], index & PAGE_MASK);
+    }
+
+    public int getStock(int index) {
+        return (int) INT_ARRAY.getVolatile(stocks[index >>> PAGE_BITS], index & PAGE_MASK);
+    }
+
+    // Atomic check-and-update of one SKU's stock (same contract as Product.updateStock)
+    public void updateStock(int index, int quantity) {
+        int[] page = stocks[index >>> PAGE_BITS];
+        int slot = index & PAGE_MASK;
+        while (true) {
+            int current = (int) INT_ARRAY.getVolatile(page, slot);
+            if (current + quantity < 0) {
+                throw new IllegalArgumentException("Not enough stock to perform operation");
+            }
+            if (INT_ARRAY.compareAndSet(page, slot, current, current + quantity)) {
+                return;
+            }
+        }
+    }
+
+    // Dense index of a product ID (-1 if not stored)
+    public int indexOf(String productId) {
+        byte[] key = productId.getBytes(StandardCharsets.UTF_8);
+        int[] t = table;
+        int mask = t.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = (int) INT_ARRAY.getAcquire(t, slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int index = entry - 1;
+            if (textEquals(idAddress[index >>> PAGE_BITS][index & PAGE_MASK], key)) {
+                return index;
+            }
+        }
+    }
+
+    @Override
+    public Product get(String productId) {
+        int index = indexOf(productId);
+        return index < 0 ? null : new Product(this, index);
+    }
+
+    @Override
+    public synchronized Product put(Product product) {
+        int index = indexOf(product.getProductId());
+        if (index < 0) {
+            return new Product(this, append(product));
+        }
+        // Overwrite the existing slot in place
+        nameAddress[index >>> PAGE_BITS][index & PAGE_MASK] = writeText(product.getProductName().getBytes(StandardCharsets.UTF_8));
+        LONG_ARRAY.setVolatile(prices[index >>> PAGE_BITS], index & PAGE_MASK, product.getPrice());
+        INT_ARRAY.setVolatile(stocks[index >>> PAGE_BITS], index & PAGE_MASK, product.getStockQuantity());
+        return new Product(this, index);
+    }
+
+    @Override
+    public synchronized Product putIfAbsent(Product product) {
+        int index = indexOf(product.getProductId());
+        return new Product(this, index >= 0 ? index : append(product));
+    }
+
+    // Store many products under one lock; the hash table is grown at most once for the whole batch
+    @Override
+    public synchronized void putAll(Collection<Product> products) {
+        long needed = 2L * (size + products.size());  // 50% load
+        if (needed > table.length) {
+            if (needed > 1 << 30) {
+                throw new IllegalStateException("Product store full");
+            }
+            rehash(Integer.highestOneBit((int) needed - 1) << 1);
+        }
+        for (Product product : products) {
+            put(product);
+        }
+    }
+
+    @Override
+    public Collection<Product> values() {
+        return new AbstractCollection<Product>() {
+            @Override
+            public Iterator<Product> iterator() {
+                final int end = size;
+                return new Iterator<Product>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < end;
+                    }
+
+                    @Override
+                    public Product next() {
+                        if (next >= end) {
+                            throw new NoSuchElementException();
+                        }
+                        return new Product(ColumnarProductStore.this, next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Append a new product at the next dense index (caller holds the lock)
+    private int append(Product product) {
+        int index = size;
+        if ((index & PAGE_MASK) == 0) {
+            addColumnPage();
+        }
+        byte[] id = product.getProductId().getBytes(StandardCharsets.UTF_8);
+        int page = index >>> PAGE_BITS;
+        int slot = index & PAGE_MASK;
+        idAddress[page][slot] = writeText(id);
+        nameAddress[page][slot] = writeText(product.getProductName().getBytes(StandardCharsets.UTF_8));
+        prices[page][slot] = product.getPrice();
+        stocks[page][slot] = product.getStockQuantity();
+
+        // Grow the hash table at 50% load, then publish the slot (release: column data is visible first)
+        if ((index + 1) * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        insert(table, id, index);
+        size = index + 1;
+        return index;
+    }
+
+    private void addColumnPage() {
+        idAddress = appendPage(idAddress, new int[PAGE_SIZE]);
+        nameAddress = appendPage(nameAddress, new int[PAGE_SIZE]);
+        prices = appendPage(prices, new long[PAGE_SIZE]);
+        stocks = appendPage(stocks, new int[PAGE_SIZE]);
+    }
+
+    private static <T> T[] appendPage(T[] pages, T page) {
+        T[] grown = Arrays.copyOf(pages, pages.length + 1);
+        grown[pages.length] = page;
+        return grown;
+    }
+
+    private void rehash(int capacity) {
+        int[] grown = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(grown, readBytes(idAddress[i >>> PAGE_BITS][i & PAGE_MASK]), i);
+        }
+        table = grown;
+    }
+
+    private static void insert(int[] t, byte[] id, int index) {
+        int mask = t.length - 1;
+        int slot = hash(id) & mask;
+        while (t[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        INT_ARRAY.setRelease(t, slot, index + 1);
+    }
+
+    // Copy a length-prefixed string into the text pages, return its address
+    private int writeText(byte[] bytes) {
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Text too long for product store: " + bytes.length + " bytes");
+        }
+        if (textUsed + 2 + bytes.length > TEXT_PAGE_SIZE) {
+            textPages = appendPage(textPages, new byte[TEXT_PAGE_SIZE]);
+            textUsed = 0;
+        }
+        int pageIndex = textPages.length - 1;
+        byte[] page = textPages[pageIndex];
+        page[textUsed] = (byte) (bytes.length >>> 8);
+        page[textUsed + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, page, textUsed + 2, bytes.length);
+        int address = (pageIndex << TEXT_PAGE_BITS) | textUsed;
+        textUsed += 2 + bytes.length;
+        return address;
+    }
+
+    private String readText(int address) {
+        byte[] page = textPages[address >>> TEXT_PAGE_BITS];
+        int offset = address & (TEXT_PAGE_SIZE - 1);
+        int length = ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+        return new String(page, offset + 2, length, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readBytes(int address) {
+        byte[] page = textPages[address >>> TEXT_PAGE_BITS];
+        int offset = address & (TEXT_PAGE_SIZE - 1);
+        int length = ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+        return Arrays.copyOfRange(page, offset + 2, offset + 2 + length);
+    }
+
+    private boolean textEquals(int address, byte[] key) {
+        byte[] page = textPages[address >>> TEXT_PAGE_BITS];
+        int offset = address & (TEXT_PAGE_SIZE - 1);
+        int length = ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+        return length == key.length && Arrays.equals(page, offset + 2, offset + 2 + length, key, 0, length);
+    }
+
+    // FNV-1a over the UTF-8 bytes of the product ID
+    private static int hash(byte[] bytes) {
+        int h = 0x811C9DC5;
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,25 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Console receipt sink: writes receipts to standard output
+ */
+public class ConsoleReceiptSink implements ReceiptSink {
+    private final Writer writer;
+
+    public ConsoleReceiptSink() {
+        this(System.out);
+    }
+
+    public ConsoleReceiptSink(PrintStream out) {
+        this.writer = new OutputStreamWriter(out);
+    }
+
+    @Override
+    public void write(char[] text, int length) throws IOException {
+        writer.write(text, 0, length);
+        writer.flush();
+    }
+}
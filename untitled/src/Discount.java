@@ -0,0 +1,26 @@
+/**
+ * Discount class: one line of a receipt's discount breakdown (promotion and amount taken off)
+ */
+public class Discount {
+    private final String promotionId;  // Promotion that granted the discount
+    private final String description;  // e.g. "3 for 9.00"
+    private final long amount;         // Amount off in minor units (positive)
+
+    public Discount(String promotionId, String description, long amount) {
+        this.promotionId = promotionId;
+        this.description = description;
+        this.amount = amount;
+    }
+
+    public String getPromotionId() {
+        return promotionId;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+}
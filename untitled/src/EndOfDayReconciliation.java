@@ -0,0 +1,501 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * End-of-day reconciliation: checks that opening stock + returns - sales = closing stock for every
+ * SKU and that the counted cash matches the day's receipt totals, and writes a discrepancy report.
+ *
+ * The day's transactions are the journal records after the opening snapshot's journal position
+ * (up to the closing snapshot's position when one is given). One sequential pass over the record
+ * headers cuts them into chunks of whole records; fork/join tasks then map, verify (CRC) and decode
+ * the chunks on all cores into per-SKU deltas and cash totals, merged pairwise. As in replay, a
+ * corrupt record ends the journal: everything after it is left out of the merge and reported.
+ * The SKU comparison runs as a parallel stream over the closing catalog.
+ *
+ * Usage: java Main --reconcile [--cash <counted>] [--closing <snapshot>] [--report <file>]
+ *   opening snapshot = -Dpos.catalog, journal = -Dpos.journal; without --closing the closing
+ *   stock is the Inventory (opening snapshot + journal replay, i.e. this process' view).
+ */
+public class EndOfDayReconciliation {
+    public static final long NOT_COUNTED = Long.MIN_VALUE;  // No cash count given: cash check skipped
+
+    private static final int CHUNK_BYTES = 4 * 1024 * 1024;     // Journal bytes per parallel task
+    private static final int WINDOW_BYTES = 64 * 1024 * 1024;   // Mapped window of the boundary pass
+    private static final int SOLD = 0;      // Index in the {sold, returned} units of a SKU
+    private static final int RETURNED = 1;
+    private static final int MAX_ANOMALIES = 100;
+
+    /**
+     * Reconcile the journal range [opening position, journalEnd) against the closing stock.
+     * journalEnd = Long.MAX_VALUE reads to the end of the journal; countedCash in minor units or NOT_COUNTED.
+     */
+    public static Result reconcile(Path journal, CatalogSnapshot opening, Collection<Product> closing,
+                                   long journalEnd, long countedCash) throws IOException {
+        long start = System.nanoTime();
+        Totals day;
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long[] chunks = chunkBoundaries(channel, opening.getJournalPosition(), Math.min(journalEnd, channel.size()));
+            day = chunks.length < 2 ? new Totals() : new ChunkTask(channel, chunks, 0, chunks.length - 1).invoke();
+        }
+        Map<String, long[]> deltas = day.skus.toMap();
+        long scanned = System.nanoTime();
+
+        // Compare every SKU of the closing catalog, then SKUs only seen in the journal
+        List<Discrepancy> discrepancies = new ArrayList<>(closing).parallelStream()
+                .map(product -> compare(product.getProductId(), opening.find(product.getProductId()), deltas.get(product.getProductId()), product))
+                .filter(discrepancy -> discrepancy != null)
+                .collect(Collectors.toList());
+        Set<String> closingIds = closing.stream().map(Product::getProductId).collect(Collectors.toCollection(HashSet::new));
+        for (Map.Entry<String, long[]> sku : deltas.entrySet()) {
+            if (!closingIds.contains(sku.getKey())) {
+                discrepancies.add(compare(sku.getKey(), opening.find(sku.getKey()), sku.getValue(), null));
+            }
+        }
+        discrepancies.sort(Comparator.comparing(Discrepancy::getProductId));
+        return new Result(day, closingIds.size(), discrepancies, countedCash, scanned - start, System.nanoTime() - scanned);
+    }
+
+    // One SKU: opening + returned - sold must equal closing (null = balanced)
+    private static Discrepancy compare(String productId, Product opening, long[] deltas, Product closing) {
+        long sold = deltas == null ? 0 : deltas[SOLD];
+        long returned = deltas == null ? 0 : deltas[RETURNED];
+        if (opening == null && closing == null) {
+            return new Discrepancy(productId, 0, sold, returned, 0, "unknown product in journal");
+        }
+        if (opening == null) {
+            // Added during the day: its opening stock is not in the snapshot
+            return sold == 0 && returned == 0 ? null
+                    : new Discrepancy(productId, 0, sold, returned, closing.getStockQuantity(), "not in opening snapshot");
+        }
+        if (closing == null) {
+            return new Discrepancy(productId, opening.getStockQuantity(), sold, returned, 0, "missing from closing stock");
+        }
+        Discrepancy discrepancy = new Discrepancy(productId, opening.getStockQuantity(), sold, returned, closing.getStockQuantity(), "");
+        return discrepancy.getDifference() == 0 ? null : discrepancy;
+    }
+
+    /**
+     * Record-aligned chunk boundaries of [from, to): walks the length headers only (no decoding),
+     * stops at the end marker or a record running past the end. Last element = end of valid records.
+     */
+    static long[] chunkBoundaries(FileChannel channel, long from, long to) throws IOException {
+        long[] boundaries = new long[16];
+        int count = 0;
+        boundaries[count++] = from;
+        long position = from;
+        long chunkStart = from;
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        while (position + TransactionJournal.HEADER_SIZE <= to) {
+            if (window == null || position + TransactionJournal.HEADER_SIZE > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_BYTES, to - position));
+            }
+            int length = window.getInt((int) (position - windowStart));
+            if (length <= 0 || position + TransactionJournal.HEADER_SIZE + length > to) {
+                break;
+            }
+            position += TransactionJournal.HEADER_SIZE + length;
+            if (position - chunkStart >= CHUNK_BYTES) {
+                if (count == boundaries.length) {
+                    boundaries = Arrays.copyOf(boundaries, count * 2);
+                }
+                boundaries[count++] = chunkStart = position;
+            }
+        }
+        if (position > chunkStart) {
+            if (count == boundaries.length) {
+                boundaries = Arrays.copyOf(boundaries, count + 1);
+            }
+            boundaries[count++] = position;
+        }
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    // Decode chunks [first, last) of the boundaries, splitting in halves down to one chunk per task
+    private static final class ChunkTask extends RecursiveTask<Totals> {
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int first;
+        private final int last;
+
+        ChunkTask(FileChannel channel, long[] boundaries, int first, int last) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (last - first == 1) {
+                try {
+                    return decode(channel, boundaries[first], boundaries[last]);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot read journal: " + e.getMessage(), e);
+                }
+            }
+            int middle = (first + last) >>> 1;
+            ChunkTask right = new ChunkTask(channel, boundaries, middle, last);
+            right.fork();
+            Totals left = new ChunkTask(channel, boundaries, first, middle).compute();
+            return left.append(right.join());
+        }
+    }
+
+    // Decode the whole records of [start, end): per-SKU deltas, cash totals, anomalies
+    private static Totals decode(FileChannel channel, long start, long end) throws IOException {
+        Totals totals = new Totals();
+        MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CRC32 crc = new CRC32();
+        byte[] text = new byte[256];
+        int position = 0;
+        while (position < chunk.capacity()) {
+            int length = chunk.getInt(position);
+            int expectedCrc = chunk.getInt(position + 4);
+            int payload = position + TransactionJournal.HEADER_SIZE;
+            crc.reset();
+            crc.update(chunk.slice(payload, length));
+            if ((int) crc.getValue() != expectedCrc) {
+                totals.corruptAt = start + position;  // Torn / corrupt: the rest of the journal is not trusted
+                break;
+            }
+            chunk.position(payload);
+            byte type = chunk.get();
+            chunk.getLong();  // time
+            int receiptIdLength = chunk.getShort() & 0xFFFF;
+            chunk.position(chunk.position() + receiptIdLength);
+            long total = chunk.getLong();
+            int lines = chunk.getInt();
+            totals.records++;
+            totals.lines += lines;
+            if (type == TransactionJournal.TYPE_RETURN) {
+                totals.returns++;
+                totals.refunds -= total;
+            } else {
+                totals.sales++;
+                totals.revenue += total;
+            }
+            if (type == TransactionJournal.TYPE_RETURN ? total >= 0 : total < 0) {
+                totals.anomaly("record at " + (start + position) + ": " + (type == TransactionJournal.TYPE_RETURN ? "RETURN" : "SALE")
+                        + " with total " + Money.format(total));
+            }
+            for (int i = 0; i < lines; i++) {
+                int idLength = chunk.getShort() & 0xFFFF;
+                if (idLength > text.length) {
+                    text = new byte[idLength];
+                }
+                chunk.get(text, 0, idLength);
+                int delta = chunk.getInt();
+                totals.skus.add(text, idLength, hash(text, idLength), delta < 0 ? -delta : 0, delta > 0 ? delta : 0);
+            }
+            position = payload + length;
+        }
+        return totals;
+    }
+
+    // Partial result of one or more consecutive chunks
+    private static final class Totals {
+        private SkuTable skus = new SkuTable();
+        private long records;
+        private long lines;
+        private long sales;
+        private long returns;
+        private long revenue;   // Sale totals (minor units)
+        private long refunds;   // Return totals, positive
+        private long corruptAt = -1;
+        private final List<String> anomalies = new ArrayList<>();
+
+        private void anomaly(String text) {
+            if (anomalies.size() < MAX_ANOMALIES) {
+                anomalies.add(text);
+            }
+        }
+
+        // Merge the totals of the chunks that follow this one (dropped if this one ended on corruption)
+        private Totals append(Totals next) {
+            if (corruptAt >= 0) {
+                return this;
+            }
+            SkuTable smaller = skus.size >= next.skus.size ? next.skus : skus;
+            skus = smaller == skus ? next.skus : skus;
+            skus.addAll(smaller);
+            records += next.records;
+            lines += next.lines;
+            sales += next.sales;
+            returns += next.returns;
+            revenue += next.revenue;
+            refunds += next.refunds;
+            corruptAt = next.corruptAt;
+            for (String text : next.anomalies) {
+                anomaly(text);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Sold / returned units per SKU keyed by the UTF-8 bytes of the product ID (open addressing),
+     * so decoding a journal line creates no String; Strings are made once per SKU at the end.
+     */
+    private static final class SkuTable {
+        private byte[][] keys = new byte[1024][];
+        private int[] hashes = new int[1024];
+        private long[] sold = new long[1024];
+        private long[] returned = new long[1024];
+        private int size;
+
+        void add(byte[] key, int length, int hash, long soldUnits, long returnedUnits) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (keys[slot] != null) {
+                if (hashes[slot] == hash && Arrays.equals(keys[slot], 0, keys[slot].length, key, 0, length)) {
+                    sold[slot] += soldUnits;
+                    returned[slot] += returnedUnits;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = Arrays.copyOf(key, length);
+            hashes[slot] = hash;
+            sold[slot] = soldUnits;
+            returned[slot] = returnedUnits;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        void addAll(SkuTable other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] != null) {
+                    add(other.keys[i], other.keys[i].length, other.hashes[i], other.sold[i], other.returned[i]);
+                }
+            }
+        }
+
+        // {sold units, returned units} by product ID
+        Map<String, long[]> toMap() {
+            Map<String, long[]> map = new HashMap<>(size * 2);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    map.put(new String(keys[i], StandardCharsets.UTF_8), new long[]{sold[i], returned[i]});
+                }
+            }
+            return map;
+        }
+
+        private void grow() {
+            SkuTable larger = new SkuTable();
+            int capacity = keys.length * 2;
+            larger.keys = new byte[capacity][];
+            larger.hashes = new int[capacity];
+            larger.sold = new long[capacity];
+            larger.returned = new long[capacity];
+            larger.addAll(this);
+            keys = larger.keys;
+            hashes = larger.hashes;
+            sold = larger.sold;
+            returned = larger.returned;
+        }
+    }
+
+    // FNV-1a over the product ID bytes
+    private static int hash(byte[] bytes, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ (bytes[i] & 0xFF)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One SKU that does not balance: expected = opening + returned - sold.
+     */
+    public static final class Discrepancy {
+        private final String productId;
+        private final long opening;
+        private final long sold;
+        private final long returned;
+        private final long closing;
+        private final String note;
+
+        Discrepancy(String productId, long opening, long sold, long returned, long closing, String note) {
+            this.productId = productId;
+            this.opening = opening;
+            this.sold = sold;
+            this.returned = returned;
+            this.closing = closing;
+            this.note = note;
+        }
+
+        public String getProductId() { return productId; }
+        public long getOpening() { return opening; }
+        public long getSold() { return sold; }
+        public long getReturned() { return returned; }
+        public long getExpected() { return opening + returned - sold; }
+        public long getClosing() { return closing; }
+        public long getDifference() { return closing - getExpected(); }
+        public String getNote() { return note; }
+    }
+
+    /**
+     * Outcome of one reconciliation: day totals, SKU discrepancies and the cash check.
+     */
+    public static final class Result {
+        private final Totals day;
+        private final int productsChecked;
+        private final List<Discrepancy> discrepancies;
+        private final long countedCash;
+        private final long scanNanos;
+        private final long compareNanos;
+
+        private Result(Totals day, int productsChecked, List<Discrepancy> discrepancies, long countedCash,
+                       long scanNanos, long compareNanos) {
+            this.day = day;
+            this.productsChecked = productsChecked;
+            this.discrepancies = discrepancies;
+            this.countedCash = countedCash;
+            this.scanNanos = scanNanos;
+            this.compareNanos = compareNanos;
+        }
+
+        public long getTransactionCount() { return day.records; }
+        public long getLineCount() { return day.lines; }
+        public long getSalesCount() { return day.sales; }
+        public long getReturnsCount() { return day.returns; }
+        public long getRevenue() { return day.revenue; }
+        public long getRefunds() { return day.refunds; }
+        public int getProductsChecked() { return productsChecked; }
+        public List<Discrepancy> getDiscrepancies() { return discrepancies; }
+        public List<String> getAnomalies() { return day.anomalies; }
+        public long getScanNanos() { return scanNanos; }
+        public long getCompareNanos() { return compareNanos; }
+
+        // Journal offset of the first corrupt record (-1 if the journal is intact)
+        public long getCorruptAt() { return day.corruptAt; }
+
+        // Cash the drawer should hold from today's transactions (sales - refunds)
+        public long getExpectedCash() { return day.revenue - day.refunds; }
+
+        // Counted - expected (0 when no count was given)
+        public long getCashDifference() {
+            return countedCash == NOT_COUNTED ? 0 : countedCash - getExpectedCash();
+        }
+
+        public boolean isBalanced() {
+            return discrepancies.isEmpty() && day.anomalies.isEmpty() && day.corruptAt < 0 && getCashDifference() == 0;
+        }
+
+        // Discrepancy report: CSV of the SKUs that do not balance, summary and anomalies as '#' lines
+        public void writeReport(Path path) throws IOException {
+            try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                out.write("# transactions=" + getTransactionCount() + " lines=" + getLineCount() + " products=" + productsChecked + "\n");
+                out.write("# expectedCash=" + Money.format(getExpectedCash())
+                        + (countedCash == NOT_COUNTED ? "" : " countedCash=" + Money.format(countedCash)
+                        + " difference=" + Money.format(getCashDifference())) + "\n");
+                if (day.corruptAt >= 0) {
+                    out.write("# journal corrupt at offset " + day.corruptAt + ", later transactions not reconciled\n");
+                }
+                for (String anomaly : day.anomalies) {
+                    out.write("# " + anomaly + "\n");
+                }
+                out.write("productId,opening,sold,returned,expected,closing,difference,note\n");
+                for (Discrepancy d : discrepancies) {
+                    out.write(d.productId + "," + d.opening + "," + d.sold + "," + d.returned + "," + d.getExpected() + ","
+                            + d.closing + "," + d.getDifference() + "," + d.note + "\n");
+                }
+            }
+        }
+
+        public void printSummary() {
+            System.out.println("======================================");
+            System.out.println("     End-of-day reconciliation");
+            System.out.println("======================================");
+            System.out.println("Transactions:      " + getTransactionCount() + " (" + getSalesCount() + " sales, " + getReturnsCount() + " returns)");
+            System.out.println("Item lines:        " + getLineCount());
+            System.out.println("Products checked:  " + productsChecked);
+            System.out.println("Sales / refunds:   " + Money.format(getRevenue()) + " / " + Money.format(getRefunds()) + " CNY");
+            System.out.println("Expected cash:     " + Money.format(getExpectedCash()) + " CNY");
+            if (countedCash != NOT_COUNTED) {
+                System.out.println("Counted cash:      " + Money.format(countedCash) + " CNY (difference " + Money.format(getCashDifference()) + ")");
+            }
+            System.out.printf("Elapsed:           %.0f ms journal scan, %.0f ms stock comparison%n", scanNanos / 1e6, compareNanos / 1e6);
+            System.out.println("--------------------------------------");
+            if (day.corruptAt >= 0) {
+                System.out.println("❌ Journal corrupt at offset " + day.corruptAt + ", later transactions not reconciled");
+            }
+            if (!day.anomalies.isEmpty()) {
+                System.out.println("❌ " + day.anomalies.size() + " suspicious transaction(s), first: " + day.anomalies.get(0));
+            }
+            System.out.println(discrepancies.isEmpty() ? "✅ Every SKU balances" : "❌ " + discrepancies.size() + " SKU(s) do not balance");
+            if (getCashDifference() != 0) {
+                System.out.println("❌ Cash " + (getCashDifference() > 0 ? "over" : "short") + " by " + Money.format(Math.abs(getCashDifference())) + " CNY");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        long countedCash = NOT_COUNTED;
+        Path closingPath = null;
+        Path report = Path.of("pos-reconciliation.csv");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--cash":
+                    countedCash = Money.parse(args[i + 1]);
+                    break;
+                case "--closing":
+                    closingPath = Path.of(args[i + 1]);
+                    break;
+                case "--report":
+                    report = Path.of(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("Usage: java Main --reconcile [--cash <counted>] [--closing <snapshot>] [--report <file>]");
+                    return;
+            }
+        }
+        String journal = System.getProperty("pos.journal", "pos-transactions.journal");
+        Path openingPath = Path.of(Inventory.catalogPath());
+        if ("off".equalsIgnoreCase(journal) || !Files.exists(Path.of(journal)) || !Files.exists(openingPath)) {
+            throw new IllegalArgumentException("Reconciliation needs the journal and the opening catalog snapshot");
+        }
+        CatalogSnapshot opening = CatalogSnapshot.open(openingPath);
+        Collection<Product> closing;
+        long journalEnd = Long.MAX_VALUE;
+        if (closingPath != null) {
+            CatalogSnapshot snapshot = CatalogSnapshot.open(closingPath);
+            List<Product> products = new ArrayList<>(snapshot.getProductCount());
+            snapshot.forEach(products::add);
+            closing = products;
+            journalEnd = snapshot.getJournalPosition();  // Closing stock includes the journal up to here
+        } else {
+            Inventory inventory = Inventory.getInstance();
+            if (inventory.getReservations().getActiveCount() > 0) {
+                System.out.println("⚠️  " + inventory.getReservations().getActiveCount() + " open reservation(s): held units show as missing");
+            }
+            closing = inventory.getAllProducts();
+        }
+        Result result = reconcile(Path.of(journal), opening, closing, journalEnd, countedCash);
+        result.printSummary();
+        result.writeReport(report);
+        System.out.println("Report written: " + report);
+    }
+}
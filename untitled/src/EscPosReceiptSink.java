@@ -0,0 +1,24 @@
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * ESC/POS receipt sink: wraps each receipt in thermal printer commands
+ * (initialize, text, feed, partial cut) for a printer reachable as a byte channel.
+ */
+public class EscPosReceiptSink extends ChannelReceiptSink {
+    private static final byte[] INIT = {0x1B, 0x40};                      // ESC @  initialize printer
+    private static final byte[] FEED_AND_CUT = {0x1B, 0x64, 0x04,         // ESC d 4  feed 4 lines
+            0x1D, 0x56, 0x01};                                            // GS V 1   partial cut
+
+    public EscPosReceiptSink(WritableByteChannel printer) {
+        super(printer);
+    }
+
+    @Override
+    public void write(char[] text, int length) throws IOException {
+        writeRaw(INIT);
+        writeBytes(text, length);
+        writeRaw(FEED_AND_CUT);
+        flush();  // Each receipt is printed immediately
+    }
+}
@@ -0,0 +1,37 @@
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash product store: one Product object per SKU in a ConcurrentHashMap (default store)
+ */
+public class HashProductStore implements ProductStore {
+    private final Map<String, Product> productMap = new ConcurrentHashMap<>();
+
+    @Override
+    public Product get(String productId) {
+        return productMap.get(productId);
+    }
+
+    @Override
+    public Product put(Product product) {
+        productMap.put(product.getProductId(), product);
+        return product;
+    }
+
+    @Override
+    public Product putIfAbsent(Product product) {
+        Product existing = productMap.putIfAbsent(product.getProductId(), product);
+        return existing != null ? existing : product;
+    }
+
+    @Override
+    public Collection<Product> values() {
+        return productMap.values();
+    }
+
+    @Override
+    public int size() {
+        return productMap.size();
+    }
+}
@@ -1,26 +1,174 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Inventory management class: Singleton pattern, centrally manages product stock
+ * Thread-safe: shared by every checkout lane, stock is guarded per SKU (no global lock)
  */
 public class Inventory {
     // Singleton instance (ensure globally unique)
     private static Inventory instance;
-    // Store products: key = product ID, value = Product object
-    private final Map<String, Product> productMap;
+    // Store products: key = product ID, value = Product object (hash or columnar backing store)
+    private final ProductStore productStore;
+    // Memory-mapped catalog snapshot, products are loaded from it on first lookup (null if none)
+    private final CatalogSnapshot snapshot;
+    // Set once every snapshot product has been loaded into the product store
+    private volatile boolean snapshotFullyLoaded;
+    // Current catalog prices (immutable, replaced as a whole by price changes)
+    private volatile CatalogVersion catalog = CatalogVersion.initial();
+    // Serializes building / publishing catalog versions (never taken by lanes)
+    private final Object catalogLock = new Object();
+    // Background thread building new catalog versions from price delta files (created on first use)
+    private ExecutorService priceLoader;
+    // Write-ahead journal of committed transactions (null if disabled)
+    private final TransactionJournal journal;
+    // Archive of issued receipts for reprint, audit and returns (null if disabled)
+    private final ReceiptArchive archive;
+    private final LongAdder archiveFailures = new LongAdder();
+    // Journal positions of receipts journaled but not archived yet (guarded by itself); the archive covers up to the first
+    private final TreeSet<Long> unarchived = new TreeSet<>();
+    // Stock change events for UI, alerts and analytics (ring buffer, never blocks a lane)
+    private final InventoryEventBus events = new InventoryEventBus(Integer.getInteger("pos.events.capacity", 65536));
+    // Stock held by scanned but unpaid sale lines (released on cancel or TTL expiry)
+    private final ReservationLedger reservations = ReservationLedger.fromSystemProperties(events);
+    // Rolling sales / return figures and top sellers (null if disabled)
+    private final SalesAnalytics analytics = SalesAnalytics.fromSystemProperties();
+    // Multi-buy / mix-and-match / threshold promotions applied by the checkout carts
+    private final PromotionEngine promotions = PromotionEngine.fromSystemProperties();
+    // Prefix / fuzzy product search, built on first use and kept current by addProduct
+    private volatile ProductSearchIndex searchIndex;
+    // Central side of lane-local stock replicas (-Dpos.replica=true), created by the first replica lane
+    private StockReplicaHub replicaHub;
 
     // Private constructor (prevent external instantiation)
     private Inventory() {
-        productMap = new HashMap<>();
-        // Initialize test products (in real projects, load from DB)
-        initTestProducts();
+        productStore = createStore();
+        // Load the catalog snapshot if present, otherwise initialize test products
+        snapshot = openSnapshot();
+        if (snapshot == null) {
+            initTestProducts();
+        }
+        // Rebuild today's stock by replaying the journal on top of the opening stock
+        journal = openJournal();
+        archive = openArchive();
+        if (analytics != null) {
+            analytics.subscribeTo(events);
+        }
+    }
+
+    // Backing store selected by -Dpos.store ("hash" = default, "columnar" = compact primitive store,
+    // "sharded" = SKUs partitioned over InventoryShard processes, see -Dpos.shards)
+    private static ProductStore createStore() {
+        String store = System.getProperty("pos.store", "hash");
+        if ("sharded".equalsIgnoreCase(store)) {
+            return ShardedProductStore.fromSystemProperties();
+        }
+        return "columnar".equalsIgnoreCase(store) ? new ColumnarProductStore() : new HashProductStore();
+    }
+
+    // Catalog snapshot location (-Dpos.catalog, default "pos-catalog.snapshot")
+    public static String catalogPath() {
+        return System.getProperty("pos.catalog", "pos-catalog.snapshot");
     }
 
-    // Get all products (for inventory query panel)
+    // Memory-map the catalog snapshot if it exists
+    private CatalogSnapshot openSnapshot() {
+        Path path = Path.of(catalogPath());
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return CatalogSnapshot.open(path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open catalog snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    // Open the configured journal and replay its stock deltas
+    private TransactionJournal openJournal() {
+        try {
+            TransactionJournal opened = TransactionJournal.openConfigured();
+            if (opened != null) {
+                // Stock in the snapshot already includes the journal up to its recorded position
+                // (sharded: the shards own the stock, each rebuilds it from its own snapshot and journal)
+                if (!(productStore instanceof ShardedProductStore)) {
+                    opened.replay(snapshot == null ? 0 : snapshot.getJournalPosition(), this::applyJournalDelta);
+                }
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        opened.close();
+                    } catch (IOException e) {
+                        System.err.println("Failed to close journal: " + e.getMessage());
+                    }
+                }));
+            }
+            return opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open transaction journal: " + e.getMessage(), e);
+        }
+    }
+
+    // Open the configured receipt archive, catch it up with the journal (closed on shutdown)
+    private ReceiptArchive openArchive() {
+        try {
+            ReceiptArchive opened = ReceiptArchive.openConfigured();
+            if (opened != null) {
+                if (journal != null) {
+                    long restored = opened.catchUp(journal);
+                    if (restored > 0) {
+                        System.err.println("Receipt archive: " + restored + " receipts restored from the journal");
+                    }
+                }
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        opened.close();
+                    } catch (IOException e) {
+                        System.err.println("Failed to close receipt archive: " + e.getMessage());
+                    }
+                }));
+            }
+            return opened;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open receipt archive: " + e.getMessage(), e);
+        }
+    }
+
+    // Apply one replayed stock delta (products unknown to the catalog are skipped)
+    private void applyJournalDelta(String productId, int stockDelta) {
+        Product product = getProductById(productId);
+        if (product == null) {
+            System.err.println("Journal replay: unknown product " + productId + ", delta skipped");
+            return;
+        }
+        product.updateStock(stockDelta);
+    }
+
+    // Get all products at current prices (for inventory query panel), loads the remaining snapshot products first
     public Collection<Product> getAllProducts() {
-        return productMap.values();
+        if (snapshot != null && !snapshotFullyLoaded) {
+            snapshot.forEach(productStore::putIfAbsent);
+            snapshotFullyLoaded = true;
+        }
+        CatalogVersion current = catalog;
+        if (current.getRepricedCount() == 0) {
+            return productStore.values();
+        }
+        List<Product> products = new ArrayList<>(productStore.size());
+        for (Product stored : productStore.values()) {
+            products.add(current.resolve(stored.getProductId(), stored));
+        }
+        return products;
     }
 
     // Singleton getter
@@ -31,20 +179,347 @@ public class Inventory {
         return instance;
     }
 
-    // Initialize test products
+    // Initialize test products (kept if already stored, e.g. on shards shared with other lanes)
     private void initTestProducts() {
-        productMap.put("P001", new Product("P001", "Coca-Cola", 3.5, 100));
-        productMap.put("P002", new Product("P002", "Chips", 5.0, 80));
-        productMap.put("P003", new Product("P003", "Notebook", 15.9, 50));
+        productStore.putIfAbsent(new Product("P001", "Coca-Cola", Money.of(3, 50), 100));
+        productStore.putIfAbsent(new Product("P002", "Chips", Money.of(5, 0), 80));
+        productStore.putIfAbsent(new Product("P003", "Notebook", Money.of(15, 90), 50));
     }
 
-    // Query product by ID
+    // Query product by ID (current prices)
     public Product getProductById(String productId) {
-        return productMap.get(productId);
+        return catalog.resolve(productId, getStoredProduct(productId));
+    }
+
+    // Query product by ID, priced as in the given catalog version
+    public Product getProductById(String productId, CatalogVersion version) {
+        return version.resolve(productId, getStoredProduct(productId));
+    }
+
+    // Current catalog prices; a transaction keeps the version it started with
+    public CatalogVersion getCatalogVersion() {
+        return catalog;
+    }
+
+    /**
+     * Apply a price delta file in the background: the next catalog version is built on the
+     * price loader thread and swapped in when complete. Lanes keep running meanwhile; carts
+     * already scanning stay on their version. Changes are in memory until the next snapshot.
+     */
+    public CompletableFuture<CatalogVersion> reloadPrices(Path deltaFile) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return applyPrices(CatalogVersion.readPriceDelta(deltaFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read price delta " + deltaFile + ": " + e.getMessage(), e);
+            }
+        }, priceLoader());
+    }
+
+    // Publish a new catalog version with the given prices (product ID -> price); unknown products are skipped
+    public CatalogVersion applyPrices(Map<String, Long> prices) {
+        CatalogVersion next;
+        synchronized (catalogLock) {
+            next = catalog.apply(prices, this::getStoredProduct);
+            catalog = next;
+        }
+        // Displays showing these products re-read their prices (never blocks; a large delta may overrun slow subscribers)
+        for (String productId : prices.keySet()) {
+            Product product = next.getRepriced(productId);  // Null: unknown product, skipped
+            if (product != null) {
+                events.publish(InventoryEvent.Type.REPRICED, productId, 0, product.getStockQuantity());
+            }
+        }
+        return next;
+    }
+
+    private synchronized ExecutorService priceLoader() {
+        if (priceLoader == null) {
+            priceLoader = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "catalog-price-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return priceLoader;
+    }
+
+    // Product as stored (stored price), loaded from the snapshot on first lookup
+    private Product getStoredProduct(String productId) {
+        Product product = productStore.get(productId);
+        if (product == null && snapshot != null && !snapshotFullyLoaded) {
+            // First lookup of this SKU: decode it from the mapped snapshot (only one instance wins)
+            Product loaded = snapshot.find(productId);
+            if (loaded != null) {
+                product = productStore.putIfAbsent(loaded);
+            }
+        }
+        return product;
+    }
+
+    // Hold stock for a scanned sale line until payment (throws IllegalArgumentException if not available)
+    public ReservationLedger.Reservation reserve(Product product, int quantity) {
+        return reservations.reserve(product, quantity);
+    }
+
+    public ReservationLedger getReservations() {
+        return reservations;
+    }
+
+    // Whether new checkout lanes keep a local stock replica (-Dpos.replica=true)
+    public static boolean replicasEnabled() {
+        return Boolean.parseBoolean(System.getProperty("pos.replica", "false"));
+    }
+
+    // Hub merging the lanes' stock replicas into the stored stock
+    public synchronized StockReplicaHub getReplicaHub() {
+        if (replicaHub == null) {
+            replicaHub = StockReplicaHub.fromSystemProperties(this::getStoredProduct);
+        }
+        return replicaHub;
+    }
+
+    // Stock change event stream (subscribe for UI refresh, alerts, analytics)
+    public InventoryEventBus getEvents() {
+        return events;
     }
 
-    // Add new product to inventory
+    // Add new product to inventory (replacing a product also drops its price change: the new price wins)
     public void addProduct(Product product) {
-        productMap.put(product.getProductId(), product);
+        Product stored;
+        synchronized (catalogLock) {
+            stored = productStore.put(product);
+            catalog = catalog.without(stored.getProductId());
+        }
+        ProductSearchIndex index = searchIndex;
+        if (index != null) {
+            index.add(stored);
+        }
+        events.publish(InventoryEvent.Type.ADDED, stored.getProductId(), stored.getStockQuantity(), stored.getStockQuantity());
+    }
+
+    /**
+     * Add many products at once (catalog import); same result as addProduct for each in order, with
+     * one store call for the batch (the columnar store sizes its hash table once), one catalog
+     * version and one search index merge.
+     */
+    public void addProducts(Collection<Product> products) {
+        synchronized (catalogLock) {
+            productStore.putAll(products);
+            catalog = catalog.without(products);
+        }
+        // The stored instances, as addProduct uses: the store may keep its own copy with its own stock
+        List<Product> stored = new ArrayList<>(products.size());
+        for (Product product : products) {
+            Product current = productStore.get(product.getProductId());
+            if (current != null) {  // Skip IDs the store no longer has
+                stored.add(current);
+            }
+        }
+        ProductSearchIndex index = searchIndex;
+        if (index != null) {
+            index.addAll(stored);
+        }
+        for (Product product : stored) {
+            int stock = product.getStockQuantity();
+            events.publish(InventoryEvent.Type.ADDED, product.getProductId(), stock, stock);
+        }
+    }
+
+    // Search products by ID / name prefix, then fuzzy (typos), best matches first
+    public List<Product> searchProducts(String query, int limit) {
+        return getSearchIndex().search(query, limit);
+    }
+
+    /**
+     * Search index over all products. The first call builds it (loads the whole catalog); the index
+     * is published before the bulk load, so products added meanwhile are not missed.
+     */
+    public ProductSearchIndex getSearchIndex() {
+        ProductSearchIndex index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = new ProductSearchIndex(this::getProductById);
+                    searchIndex = index;
+                    index.addAll(getAllProducts());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Apply the stock changes of one transaction (sale: quantity positive; return: quantity negative).
+     * Each SKU is updated with its own atomic counter. Sale lines holding an active reservation
+     * already took their units at scan time and only convert it; other sale lines (no reservation,
+     * or it expired) are deducted now. Deductions run first and are rolled back if any of them fails
+     * (out of stock, or a store failure such as an unreachable shard), so a cart is committed either
+     * completely or not at all; the original failure is rethrown.
+     * Additions (returns) cannot fail on stock and run last. Subscribers are notified by
+     * recordTransaction, once the transaction is journaled (see rollbackStockChanges).
+     */
+    public void commitStockChanges(List<ShoppingItem> items) {
+        // 1. Deduct sold quantities (may fail on insufficient stock)
+        int applied = 0;
+        try {
+            for (ShoppingItem item : items) {
+                if (item.getQuantity() > 0) {
+                    ReservationLedger.Reservation reservation = item.getReservation();
+                    if (reservation == null || !reservations.convert(reservation)) {
+                        deductStock(item.getProduct(), item.getQuantity());
+                    }
+                }
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            // Roll back deductions already applied by this transaction (converted reservations are held again)
+            for (int i = 0; i < applied; i++) {
+                ShoppingItem item = items.get(i);
+                if (item.getQuantity() > 0) {
+                    try {
+                        restoreSale(item);
+                    } catch (RuntimeException rollback) {
+                        // Keep undoing the other lines; this one's units stay deducted
+                        e.addSuppressed(rollback);
+                        System.err.println("Stock rollback of " + item.getProduct().getProductId() + " x" + item.getQuantity() + " failed: " + rollback.getMessage());
+                    }
+                }
+            }
+            throw e;
+        }
+
+        // 2. Add returned quantities back to stock
+        for (ShoppingItem item : items) {
+            if (item.getQuantity() < 0) {
+                item.getProduct().updateStock(-item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Undo committed stock changes whose transaction could not be journaled (the sale did not
+     * happen): sold units go back (reservations are held again, so the cart stays payable) and
+     * returned units are taken out again. A line that cannot be undone is logged and skipped.
+     */
+    public void rollbackStockChanges(List<ShoppingItem> items) {
+        for (ShoppingItem item : items) {
+            try {
+                if (item.getQuantity() > 0) {
+                    restoreSale(item);
+                } else if (item.getQuantity() < 0) {
+                    item.getProduct().updateStock(item.getQuantity());
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Stock rollback of " + item.getProduct().getProductId() + " x" + item.getQuantity() + " failed: " + e.getMessage());
+            }
+        }
+    }
+
+    // Give a committed sale line's units back (a converted reservation is held again)
+    private void restoreSale(ShoppingItem item) {
+        ReservationLedger.Reservation reservation = item.getReservation();
+        if (reservation != null && reservation.isConverted()) {
+            reservations.restore(reservation);
+        } else {
+            item.getProduct().updateStock(item.getQuantity());
+        }
+    }
+
+    /**
+     * Write an end-of-day snapshot of the catalog and stock levels.
+     * Run while lanes are closed (no open reservations, their units would be saved as sold):
+     * the snapshot records the journal position it covers,
+     * so the next startup replays only transactions committed after it.
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        StockReplicaHub hub;
+        synchronized (this) {
+            hub = replicaHub;
+        }
+        if (hub != null) {
+            hub.syncNow();  // Lane replicas' sales not merged yet would be missing from the stock
+        }
+        long journalPosition = journal == null ? 0 : journal.getAppendedPosition();
+        CatalogSnapshot.write(path, getAllProducts(), journalPosition);
+    }
+
+    // Record a committed transaction in the journal (returns once durable under the configured fsync policy;
+    // throws if it cannot be written, before anything else sees the transaction), then notify subscribers
+    // and record it in the receipt archive and sales figures
+    public void recordTransaction(Receipt receipt) {
+        long position = -1;  // Start of the receipt's journal record
+        if (journal != null) {
+            long end;
+            synchronized (unarchived) {
+                position = journal.getAppendedPosition();
+                end = journal.appendReceipt(receipt);
+                if (archive != null) {
+                    unarchived.add(position);
+                }
+            }
+            journal.awaitDurable(end);  // Outside the lock: lanes committing together share one fsync
+        }
+        // Notify subscribers (after the whole cart is committed and journaled, never blocks)
+        for (ShoppingItem item : receipt.getItems()) {
+            Product product = item.getProduct();
+            if (item.getQuantity() != 0) {
+                events.publish(item.getQuantity() > 0 ? InventoryEvent.Type.SOLD : InventoryEvent.Type.RETURNED,
+                        product.getProductId(), -item.getQuantity(), product.getStockQuantity());
+            }
+        }
+        if (archive != null) {
+            try {
+                archive.append(receipt);
+                if (position >= 0) {
+                    archive.setJournalPosition(archivedJournalPosition(position));
+                }
+            } catch (RuntimeException e) {
+                // The sale is committed and journaled: the archive is only an index, caught up on the next start
+                archiveFailures.increment();
+                System.err.println("Receipt archive: " + e.getMessage());
+            }
+        }
+        if (analytics != null) {
+            analytics.record(receipt);
+        }
+    }
+
+    // Journal offset below which every receipt is archived, once the receipt at position is (a failed one holds it back)
+    private long archivedJournalPosition(long position) {
+        synchronized (unarchived) {
+            unarchived.remove(position);
+            return unarchived.isEmpty() ? journal.getAppendedPosition() : unarchived.first();
+        }
+    }
+
+    // Receipts committed but not archived since startup (archive write failures)
+    public long getArchiveFailureCount() {
+        return archiveFailures.sum();
+    }
+
+    // Past receipts by ID, product or time (null if the archive is disabled)
+    public ReceiptArchive getReceiptArchive() {
+        return archive;
+    }
+
+    // Sales figures per hour, product and top sellers (null if analytics are disabled)
+    public SalesAnalytics getSalesAnalytics() {
+        return analytics;
+    }
+
+    // Promotions priced into every cart
+    public PromotionEngine getPromotions() {
+        return promotions;
+    }
+
+    // Deduct stock of one product, reporting which product ran out
+    private void deductStock(Product product, int quantity) {
+        try {
+            product.updateStock(-quantity);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Product \u300c" + product.getProductName() + "\u300d out of stock, current stock: " + product.getStockQuantity());
+        }
     }
-}
\ No newline at end of file
+}
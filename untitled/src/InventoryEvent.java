@@ -0,0 +1,67 @@
+/**
+ * Inventory event class: one stock or price change published on the InventoryEventBus.
+ * SOLD / RETURNED carry the committed quantities (analytics); RESERVED / RELEASED / EXPIRED track
+ * holds; REPRICED tells displays to re-read the price from the current catalog version. stockAfter is always the available stock, so consumers showing stock should use it.
+ * Instances are preallocated and reused (ring slots and one per subscriber), so listeners must
+ * copy any value they want to keep after onEvent returns.
+ */
+public class InventoryEvent {
+    public enum Type {
+        SOLD,       // Sale committed (delta negative)
+        RETURNED,   // Return committed (delta positive)
+        RESERVED,   // Units held for a scanned line (delta negative)
+        RELEASED,   // Held units given back on void / cancel (delta positive)
+        EXPIRED,    // Held units given back by the reservation TTL (delta positive)
+        ADDED,      // Product added to the catalog (delta = opening stock)
+        REPRICED    // Price changed by a new catalog version (delta 0)
+    }
+
+    private long sequence;
+    private Type type;
+    private String productId;
+    private int delta;        // Units involved, signed (SOLD of a reserved line repeats the RESERVED units)
+    private int stockAfter;   // Available stock right after the change (may be stale by the time it is read)
+    private long timestamp;   // System.currentTimeMillis() at publication
+
+    void set(Type type, String productId, int delta, int stockAfter, long timestamp) {
+        this.type = type;
+        this.productId = productId;
+        this.delta = delta;
+        this.stockAfter = stockAfter;
+        this.timestamp = timestamp;
+    }
+
+    void copyFrom(InventoryEvent other, long sequence) {
+        set(other.type, other.productId, other.delta, other.stockAfter, other.timestamp);
+        this.sequence = sequence;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getDelta() {
+        return delta;
+    }
+
+    public int getStockAfter() {
+        return stockAfter;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + productId + " " + (delta > 0 ? "+" : "") + delta + " -> " + stockAfter;
+    }
+}
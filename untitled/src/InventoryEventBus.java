@@ -0,0 +1,189 @@
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Inventory event bus class: stock change events in a preallocated ring buffer, fanned out to any
+ * number of independent subscribers (UI refresh, low-stock alerts, analytics).
+ *
+ * Publishing never blocks and allocates nothing: a lane claims a sequence with one atomic
+ * increment and fills the preallocated slot. Each subscriber runs on its own daemon thread with
+ * its own read position and receives events in batches (endOfBatch on the last one available).
+ * A subscriber that falls more than one ring behind is not waited for; it skips ahead and is
+ * told how many events it missed (onOverrun), so it can resynchronize from Inventory instead.
+ * This is the backpressure contract: a slow subscriber loses events, never a checkout lane's time.
+ */
+public class InventoryEventBus {
+    private static final int DEFAULT_MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Ring slot: the event plus the sequence it holds (-1 while being written)
+    private static final class Slot {
+        private final InventoryEvent event = new InventoryEvent();
+        private volatile long sequence = -1;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();  // Next sequence to claim
+    private volatile int subscriberCount;
+
+    // capacity is rounded up to a power of two
+    public InventoryEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+    }
+
+    // Publish one stock change (no-op while nobody is subscribed)
+    public void publish(InventoryEvent.Type type, String productId, int delta, int stockAfter) {
+        if (subscriberCount == 0) {
+            return;
+        }
+        long sequence = cursor.getAndIncrement();
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.sequence = -1;           // Readers lapping onto this slot see it as in progress
+        VarHandle.storeStoreFence();  // ...before any field of the new event becomes visible
+        slot.event.set(type, productId, delta, stockAfter, System.currentTimeMillis());
+        slot.sequence = sequence;     // Publish (release)
+    }
+
+    // Subscribe with the default batch size; events published from now on are delivered
+    public Subscription subscribe(String name, InventoryEventListener listener) {
+        return subscribe(name, listener, DEFAULT_MAX_BATCH);
+    }
+
+    public synchronized Subscription subscribe(String name, InventoryEventListener listener, int maxBatch) {
+        Subscription subscription = new Subscription(name, listener, maxBatch, cursor.get());
+        subscriberCount++;
+        subscription.thread.start();
+        return subscription;
+    }
+
+    private synchronized void unsubscribed() {
+        subscriberCount--;
+    }
+
+    // Total events published so far
+    public long getPublishedCount() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * One subscriber: its read position, batch buffer and delivery thread.
+     */
+    public final class Subscription {
+        private final InventoryEventListener listener;
+        private final InventoryEvent[] batch;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile long next;  // Next sequence to deliver
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder missed = new LongAdder();
+
+        private Subscription(String name, InventoryEventListener listener, int maxBatch, long start) {
+            this.listener = listener;
+            this.batch = new InventoryEvent[Math.max(1, maxBatch)];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = new InventoryEvent();
+            }
+            this.next = start;
+            this.thread = new Thread(this::run, "inventory-events-" + name);
+            thread.setDaemon(true);
+        }
+
+        // Stop delivery (the listener gets no more calls once the current batch is done)
+        public void close() {
+            if (running) {
+                running = false;
+                LockSupport.unpark(thread);
+                unsubscribed();
+            }
+        }
+
+        // Events published but not yet delivered
+        public long getLag() {
+            return Math.max(0, cursor.get() - next);
+        }
+
+        public long getDeliveredCount() {
+            return delivered.sum();
+        }
+
+        public long getMissedCount() {
+            return missed.sum();
+        }
+
+        private void run() {
+            while (running) {
+                int count = fillBatch();
+                if (count == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    try {
+                        listener.onEvent(batch[i], i == count - 1);
+                    } catch (RuntimeException e) {
+                        System.err.println(thread.getName() + ": listener failed: " + e.getMessage());
+                    }
+                }
+                delivered.add(count);
+            }
+        }
+
+        // Copy the next available events into the batch buffer, return how many
+        private int fillBatch() {
+            long position = next;
+            long claimed = cursor.get();
+            if (claimed - position > slots.length) {
+                position = skip(position, claimed);
+            }
+            int count = 0;
+            while (count < batch.length && position < claimed) {
+                Slot slot = slots[(int) (position & mask)];
+                long sequence = slot.sequence;
+                if (sequence < position) {
+                    break;  // Claimed but not written yet (or being rewritten): deliver what we have
+                }
+                if (sequence == position) {
+                    batch[count].copyFrom(slot.event, position);
+                    VarHandle.acquireFence();  // Field reads complete before the re-check
+                    if (slot.sequence == position) {
+                        count++;
+                        position++;
+                        continue;
+                    }
+                }
+                // Slot already reused by a later lap: this subscriber was overrun
+                if (count > 0) {
+                    break;  // Deliver the events before the gap first
+                }
+                position = skip(position, cursor.get());
+            }
+            next = position;
+            return count;
+        }
+
+        // Jump to half a ring behind the writers and report the missed events
+        private long skip(long position, long claimed) {
+            long resume = Math.max(position + 1, claimed - slots.length / 2);
+            missed.add(resume - position);
+            try {
+                listener.onOverrun(resume - position);
+            } catch (RuntimeException e) {
+                System.err.println(thread.getName() + ": overrun handler failed: " + e.getMessage());
+            }
+            return resume;
+        }
+    }
+}
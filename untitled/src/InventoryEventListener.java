@@ -0,0 +1,13 @@
+/**
+ * Inventory event listener interface: subscriber of the InventoryEventBus.
+ * Called on the subscriber's own thread, in sequence order, in batches of events that were
+ * already published; endOfBatch marks the last event currently available (flush / repaint there).
+ */
+public interface InventoryEventListener {
+    // Handle one event (the event object is reused, copy what you keep)
+    void onEvent(InventoryEvent event, boolean endOfBatch);
+
+    // The subscriber fell more than one ring behind and missed events: resynchronize from Inventory
+    default void onOverrun(long missedEvents) {
+    }
+}
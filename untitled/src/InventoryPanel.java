@@ -1,45 +1,168 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Inventory panel: displays all product IDs, names, prices, and stock quantities
+ * Virtualized JTable over InventoryTableModel: only visible rows are rendered, stock and price
+ * changes from the inventory event stream repaint the visible rows, and filtering / sorting run off the EDT.
  */
 public class InventoryPanel extends JPanel {
+    private static final int FILTER_DELAY_MILLIS = 250;  // Rebuild the view once typing pauses
+
     private final Inventory inventory = Inventory.getInstance(); // Singleton inventory
+    private final InventoryTableModel tableModel = new InventoryTableModel(inventory::getCatalogVersion);
+    private final JTable table = new JTable(tableModel);
+    private final JTextField filterField = new JTextField(20);
+    private final JLabel statusLabel = new JLabel(" ");
+
+    // View state (EDT only)
+    private int sortColumn = -1;       // -1 = store order
+    private boolean ascending = true;
+    private int viewGeneration;        // Results of older background builds are dropped
+
+    // Coalescing of event-driven updates (set by the event thread, cleared on the EDT)
+    private final AtomicBoolean repaintPending = new AtomicBoolean();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
 
     public InventoryPanel() {
         initUI();
+        inventory.getEvents().subscribe("inventory-panel", new InventoryEventListener() {
+            private boolean productsAdded;  // Event thread only
+
+            @Override
+            public void onEvent(InventoryEvent event, boolean endOfBatch) {
+                productsAdded |= event.getType() == InventoryEvent.Type.ADDED;
+                if (endOfBatch) {
+                    if (productsAdded) {
+                        requestRebuild();
+                        productsAdded = false;
+                    }
+                    requestRepaint();
+                }
+            }
+
+            @Override
+            public void onOverrun(long missedEvents) {
+                requestRebuild();  // May have missed added products
+            }
+        });
+        rebuildView();
     }
 
     private void initUI() {
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(15, 15, 15, 15));
 
-        // Title
+        // Title and filter
+        JPanel topPanel = new JPanel(new BorderLayout(10, 10));
         JLabel titleLabel = new JLabel("Product Inventory List", SwingConstants.CENTER);
         titleLabel.setFont(new Font("Arial", Font.BOLD, 16));
-        add(titleLabel, BorderLayout.NORTH);
-
-        // Inventory table (simple text area)
-        JTextArea inventoryTextArea = new JTextArea();
-        inventoryTextArea.setEditable(false);
-        inventoryTextArea.setFont(new Font("Monaco", Font.PLAIN, 12));
-        JScrollPane scroll = new JScrollPane(inventoryTextArea);
-        add(scroll, BorderLayout.CENTER);
-
-        // Build inventory text
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-10s %-15s %-12s %-12s%n", "ID", "Name", "Price (CNY)", "Stock"));
-        sb.append("------------------------------------------------\n");
-
-        // Iterate all products
-        for (Product product : inventory.getAllProducts()) {
-            sb.append(String.format("%-10s %-15s %-12.2f %-12d%n",
-                    product.getProductId(),
-                    product.getProductName(),
-                    product.getPrice(),
-                    product.getStockQuantity()));
+        topPanel.add(titleLabel, BorderLayout.NORTH);
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Filter (ID or name):"));
+        filterPanel.add(filterField);
+        topPanel.add(filterPanel, BorderLayout.SOUTH);
+        add(topPanel, BorderLayout.NORTH);
+
+        // Inventory table (virtualized: fixed row height, no row sorter, model reads live values)
+        table.setFont(new Font("Monaco", Font.PLAIN, 12));
+        table.setRowHeight(20);
+        table.setFillsViewportHeight(true);
+        table.setAutoCreateRowSorter(false);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.getTableHeader().setToolTipText("Click to sort, click again to reverse");
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        add(statusLabel, BorderLayout.SOUTH);
+
+        // Sort by clicking a column header
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = table.columnAtPoint(e.getPoint());
+                if (column < 0) {
+                    return;
+                }
+                ascending = column != sortColumn || !ascending;
+                sortColumn = column;
+                rebuildView();
+            }
+        });
+
+        // Filter as you type (debounced)
+        Timer filterTimer = new Timer(FILTER_DELAY_MILLIS, e -> rebuildView());
+        filterTimer.setRepeats(false);
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                filterTimer.restart();
+            }
+        });
+    }
+
+    // Filter and sort on a background thread, then swap the view in (EDT)
+    private void rebuildView() {
+        int generation = ++viewGeneration;
+        String filter = filterField.getText();
+        int column = sortColumn;
+        boolean order = ascending;
+        statusLabel.setText("Loading...");
+        new SwingWorker<Product[], Void>() {
+            @Override
+            protected Product[] doInBackground() {
+                return InventoryTableModel.buildView(inventory.getAllProducts(), filter, column, order);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != viewGeneration) {
+                    return;  // A newer filter / sort is already running
+                }
+                try {
+                    Product[] rows = get();
+                    tableModel.setRows(rows);
+                    statusLabel.setText(rows.length + " products" + (filter.isBlank() ? "" : " matching \"" + filter.trim() + "\"")
+                            + (column < 0 ? "" : ", sorted by " + tableModel.getColumnName(column) + (order ? " ↑" : " ↓")));
+                } catch (Exception e) {
+                    statusLabel.setText("Failed to load inventory: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                rebuildPending.set(false);
+                rebuildView();
+            });
+        }
+    }
+
+    // Repaint the rows on screen (cells read live stock and current prices, nothing else needs updating)
+    private void requestRepaint() {
+        if (repaintPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                repaintPending.set(false);
+                Rectangle visible = table.getVisibleRect();
+                int first = table.rowAtPoint(visible.getLocation());
+                int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+                tableModel.rowsChanged(Math.max(first, 0), last < 0 ? tableModel.getRowCount() - 1 : last);
+            });
         }
-        inventoryTextArea.setText(sb.toString());
     }
-}
\ No newline at end of file
+}
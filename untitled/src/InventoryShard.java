@@ -0,0 +1,537 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inventory shard class: one process owning a partition of the SKUs (see ShardRing) and their
+ * stock, served over plain-text HTTP on localhost to ShardedProductStore clients.
+ *
+ * Stock changes are atomic per SKU (check and update under the SKU's slot monitor), so carts
+ * spanning several shards commit without any cross-shard lock: each line is applied on its own
+ * shard and a failed line is compensated by the client (Inventory.commitStockChanges).
+ * When a new ring is installed, SKUs the shard no longer owns are handed over to their new owner:
+ * the slot is marked moved (requests for it are redirected), copied in batches, then dropped.
+ * A SKU this shard does not own under its ring is never served here, even before it is handed
+ * over, so only one shard takes writes for it. If a batch cannot be handed over, its SKUs stay
+ * here (kept in the snapshot) until the same ring is posted again, which resumes the handover.
+ *
+ * With a snapshot file, every change (stock delta, stored product, handed-over SKU) is written to
+ * the shard's own TransactionJournal (snapshot file + ".journal", fsync per -Dpos.journal.sync)
+ * and durable before it is acknowledged. The snapshot records the journal position it covers, so
+ * a shard killed or crashed restarts from its last snapshot plus the journal after it.
+ *
+ * API (product line: id TAB name TAB price(minor units) TAB stock):
+ *   GET  /product?id=P001                product line; 404 unknown, 421 not owner (body: ring), 503 retry
+ *   POST /stock?id=P001&delta=-2         atomic stock change, replies new stock; 409 not enough stock
+ *   GET  /products                       all product lines        GET /size   product count
+ *   POST /products[?ifAbsent=true]       store product lines (body), replies the stored lines; 421 if any is not owned
+ *   GET  /ring                           current ring (404 if none yet)
+ *   POST /ring[?receiving=true]          install a newer ring (body) and hand over moved SKUs;
+ *                                        the current ring again resumes an unfinished handover
+ *   POST /ring/done                      migration into this shard finished
+ *   POST /snapshot                       write the snapshot now
+ *
+ * Usage: java InventoryShard &lt;port&gt; [snapshot file] [--join host:port,...]
+ *   (snapshot is saved on shutdown and POST /snapshot, changes in between are journaled;
+ *    --join adds the shard to a running cluster and rebalances)
+ */
+public class InventoryShard {
+    private static final int MIGRATION_BATCH = 1000;
+
+    static {
+        // Small replies with Nagle on wait for the client's delayed ACK (~40 ms per request)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    // One SKU: the product (its stock counter) and whether it has been handed to another shard
+    private static final class Slot {
+        final Product product;
+        boolean moved;  // Guarded by this
+
+        Slot(Product product) {
+            this.product = product;
+        }
+    }
+
+    private final String self;  // host:port as listed in the ring
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+    private volatile ShardRing ring;         // null until the first ring is installed
+    private volatile boolean receiving;      // SKUs are being handed to this shard: unknown SKUs may still arrive
+    private final Path snapshotPath;         // null = in memory only
+    private final TransactionJournal journal;  // Changes since the snapshot (null = in memory only)
+    // Read-locked by stock changes, write-locked while a snapshot copies the stock (stores and
+    // handovers are excluded by the shard's monitor), so the snapshot matches its journal position
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    public InventoryShard(int port, Path snapshotPath) throws IOException {
+        this.snapshotPath = snapshotPath;
+        this.executor = CheckoutService.newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 256);
+        this.self = "127.0.0.1:" + server.getAddress().getPort();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+        if (snapshotPath == null) {
+            journal = null;
+            return;
+        }
+        long journalPosition = 0;
+        if (Files.exists(snapshotPath)) {
+            CatalogSnapshot snapshot = CatalogSnapshot.open(snapshotPath);
+            snapshot.forEach(product -> slots.put(product.getProductId(), new Slot(product)));
+            journalPosition = snapshot.getJournalPosition();
+        }
+        if (Files.exists(ringPath())) {
+            ring = ShardRing.parse(Files.readString(ringPath()));
+        }
+        journal = TransactionJournal.open(Path.of(snapshotPath + ".journal"));
+        long end = journal.replayStore(journalPosition, new TransactionJournal.StoreConsumer() {
+            @Override
+            public void accept(String productId, int stockDelta) {
+                Slot slot = slots.get(productId);
+                if (slot == null) {
+                    System.err.println("Inventory shard journal: unknown product " + productId + ", delta skipped");
+                    return;
+                }
+                slot.product.updateStock(stockDelta);
+            }
+
+            @Override
+            public void product(Product product, boolean ifAbsent) {
+                if (ifAbsent) {
+                    slots.putIfAbsent(product.getProductId(), new Slot(product));
+                } else {
+                    slots.put(product.getProductId(), new Slot(product));
+                }
+            }
+
+            @Override
+            public void remove(String productId) {
+                slots.remove(productId);
+            }
+        });
+        if (end > journalPosition) {
+            System.err.println("Inventory shard: " + (end - journalPosition) + " journal bytes after the snapshot replayed");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java InventoryShard <port> [snapshot file] [--join host:port,...]");
+            return;
+        }
+        int joinArg = Arrays.asList(args).indexOf("--join");
+        Path snapshot = args.length > 1 && joinArg != 1 ? Path.of(args[1]) : null;
+        InventoryShard shard = new InventoryShard(Integer.parseInt(args[0]), snapshot);
+        shard.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(shard::stop, "inventory-shard-shutdown"));
+        if (joinArg >= 0) {
+            // New shard in a running cluster: take over its share of the SKUs (resumes an unfinished join)
+            ShardRing joined = new ShardedProductStore(Arrays.asList(args[joinArg + 1].split(","))).addShard(shard.self);
+            System.out.println("✅ Joined ring epoch " + joined.getEpoch() + ": " + String.join(",", joined.getShards()));
+        }
+        System.out.println("✅ Inventory shard " + shard.self + " serving " + shard.servedCount() + " products");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Stop serving, save the snapshot and close the journal
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            saveSnapshot();
+        } catch (IOException e) {
+            System.err.println("Failed to save shard snapshot: " + e.getMessage());
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close shard journal: " + e.getMessage());
+            }
+        }
+    }
+
+    public String getAddress() {
+        return self;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = CheckoutService.parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+            switch (method + " " + path) {
+                case "GET /product":
+                    product(exchange, query.get("id"));
+                    break;
+                case "POST /stock":
+                    stock(exchange, query.get("id"), Integer.parseInt(query.get("delta")));
+                    break;
+                case "GET /products":
+                    CheckoutService.reply(exchange, 200, allLines());
+                    break;
+                case "GET /size":
+                    CheckoutService.reply(exchange, 200, servedCount() + "\n");
+                    break;
+                case "POST /products":
+                    store(exchange, body(exchange), "true".equals(query.get("ifAbsent")));
+                    break;
+                case "GET /ring":
+                    ShardRing current = ring;
+                    CheckoutService.reply(exchange, current == null ? 404 : 200, current == null ? "No ring\n" : current + "\n");
+                    break;
+                case "POST /ring":
+                    CheckoutService.reply(exchange, 200, installRing(ShardRing.parse(body(exchange)), "true".equals(query.get("receiving"))));
+                    break;
+                case "POST /ring/done":
+                    receiving = false;
+                    CheckoutService.reply(exchange, 200, "ok\n");
+                    break;
+                case "POST /snapshot":
+                    saveSnapshot();
+                    CheckoutService.reply(exchange, 200, slots.size() + "\n");
+                    break;
+                default:
+                    CheckoutService.reply(exchange, 404, "Unknown path\n");
+            }
+        } catch (IllegalArgumentException e) {
+            CheckoutService.reply(exchange, 400, e.getMessage() + "\n");
+        } catch (RuntimeException e) {
+            CheckoutService.reply(exchange, 500, "System error: " + e.getMessage() + "\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void product(HttpExchange exchange, String productId) throws IOException {
+        Slot slot = slots.get(productId);
+        while (slot != null && isMoved(slot)) {
+            Slot current = slots.get(productId);
+            slot = current == slot ? null : current;  // Handed over (not here) or replaced (look again)
+        }
+        if (slot == null || !owns(productId)) {
+            notHere(exchange, productId);
+            return;
+        }
+        CheckoutService.reply(exchange, 200, line(new StringBuilder(), slot.product).toString());
+    }
+
+    private void stock(HttpExchange exchange, String productId, int delta) throws IOException {
+        while (true) {
+            Slot slot = slots.get(productId);
+            if (slot == null) {
+                notHere(exchange, productId);
+                return;
+            }
+            int stock = Integer.MIN_VALUE;  // Stays MIN_VALUE if the slot was moved, replaced or is not owned
+            String conflict = null;
+            long journaled = -1;
+            snapshotLock.readLock().lock();
+            try {
+                synchronized (slot) {
+                    if (!slot.moved && owns(productId)) {  // Ring checked under the monitor the handover freezes
+                        try {
+                            slot.product.updateStock(delta);
+                            stock = slot.product.getStockQuantity();
+                        } catch (IllegalArgumentException e) {
+                            conflict = e.getMessage();
+                        }
+                        if (stock != Integer.MIN_VALUE && journal != null) {
+                            try {
+                                journaled = journal.appendStock(productId, delta);
+                            } catch (RuntimeException e) {
+                                slot.product.updateStock(-delta);  // Not journaled: not applied either
+                                throw e;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                snapshotLock.readLock().unlock();
+            }
+            if (journaled >= 0) {
+                journal.awaitDurable(journaled);  // Outside the monitor: concurrent changes share the fsync
+            }
+            if (conflict != null) {
+                CheckoutService.reply(exchange, 409, conflict + "\n");
+                return;
+            }
+            if (stock != Integer.MIN_VALUE) {
+                CheckoutService.reply(exchange, 200, stock + "\n");
+                return;
+            }
+            if (slots.get(productId) == slot || !owns(productId)) {  // Not ours (any more); a replaced slot is looked up again
+                notHere(exchange, productId);
+                return;
+            }
+        }
+    }
+
+    // Whether this shard owns the SKU under its ring (everything, before the first ring)
+    private boolean owns(String productId) {
+        ShardRing current = ring;
+        return current == null || current.ownerOf(productId).equals(self);
+    }
+
+    private static boolean isMoved(Slot slot) {
+        synchronized (slot) {
+            return slot.moved;
+        }
+    }
+
+    // SKU not served here: redirect (not the owner), retry (still arriving) or unknown
+    private void notHere(HttpExchange exchange, String productId) throws IOException {
+        ShardRing current = ring;
+        if (current != null && !current.ownerOf(productId).equals(self)) {
+            CheckoutService.reply(exchange, 421, current + "\n");
+        } else if (receiving) {
+            CheckoutService.reply(exchange, 503, "Product is being moved to this shard, retry\n");
+        } else {
+            CheckoutService.reply(exchange, 404, "Product ID not found: " + productId + "\n");
+        }
+    }
+
+    // Store product lines (replace, or keep an existing product if ifAbsent); replies the stored lines.
+    // Nothing is stored if a line belongs to another shard (421), so the client can regroup and resend.
+    private void store(HttpExchange exchange, String body, boolean ifAbsent) throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (String text : body.split("\n")) {
+            if (!text.isEmpty()) {
+                products.add(parseLine(text));
+            }
+        }
+        StringBuilder stored = new StringBuilder();
+        ShardRing notOwned = null;
+        long journaled = -1;
+        synchronized (this) {  // No ring change between the ownership check and the stores
+            for (Product product : products) {
+                if (!owns(product.getProductId())) {
+                    notOwned = ring;
+                    break;
+                }
+            }
+            if (notOwned == null) {
+                for (Product product : products) {
+                    journaled = Math.max(journaled, store(stored, product, ifAbsent));
+                }
+            }
+        }
+        if (journaled >= 0) {
+            journal.awaitDurable(journaled);
+        }
+        if (notOwned != null) {
+            CheckoutService.reply(exchange, 421, notOwned + "\n");
+        } else {
+            CheckoutService.reply(exchange, 200, stored.toString());
+        }
+    }
+
+    // Store one product (caller holds this: stores and handovers are serialized); returns its journal position, -1 if none
+    private long store(StringBuilder stored, Product product, boolean ifAbsent) {
+        Slot slot = new Slot(product);
+        Slot existing = slots.get(product.getProductId());
+        long journaled = -1;
+        if (existing == null) {
+            journaled = journal(product, ifAbsent);
+            slots.put(product.getProductId(), slot);
+        } else if (ifAbsent) {
+            slot = existing;
+        } else {
+            synchronized (existing) {  // Journaled between the stock changes of the old slot and those of the new one
+                journaled = journal(product, false);
+                slots.put(product.getProductId(), slot);
+                existing.moved = true;  // Requests holding the old slot go through the map again
+            }
+        }
+        line(stored, slot.product);
+        return journaled;
+    }
+
+    private long journal(Product product, boolean ifAbsent) {
+        return journal == null ? -1 : journal.appendProduct(product, ifAbsent);
+    }
+
+    // Install a newer ring (or take the current one again), then hand every SKU this shard no longer owns to its owner
+    private synchronized String installRing(ShardRing next, boolean receivingMoves) {
+        ShardRing current = ring;
+        if (current != null && next.getEpoch() < current.getEpoch()) {
+            throw new IllegalArgumentException("Ring epoch " + next.getEpoch() + " is older than " + current.getEpoch());
+        }
+        if (current != null && next.getEpoch() == current.getEpoch() && !next.toString().equals(current.toString())) {
+            throw new IllegalArgumentException("Ring epoch " + next.getEpoch() + " is already " + current);
+        }
+        receiving = receivingMoves;
+        ring = next;
+        saveRing(next);
+        Map<String, List<Slot>> batches = new HashMap<>();
+        int moved = 0;
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            String owner = next.ownerOf(entry.getKey());
+            if (owner.equals(self)) {
+                synchronized (entry.getValue()) {
+                    entry.getValue().moved = false;  // Frozen by a handover that failed, and ours again
+                }
+            } else {
+                List<Slot> batch = batches.computeIfAbsent(owner, key -> new ArrayList<>());
+                batch.add(entry.getValue());
+                if (batch.size() == MIGRATION_BATCH) {
+                    moved += handOver(owner, batch);
+                    batch.clear();
+                }
+            }
+        }
+        for (Map.Entry<String, List<Slot>> batch : batches.entrySet()) {
+            moved += handOver(batch.getKey(), batch.getValue());
+        }
+        return moved + "\n";
+    }
+
+    // Freeze a batch of SKUs, copy them to their new owner, then drop them here. The copy keeps a
+    // product the owner already has: a resumed handover may resend a batch that did arrive.
+    private int handOver(String owner, List<Slot> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        StringBuilder lines = new StringBuilder();
+        for (Slot slot : batch) {
+            synchronized (slot) {
+                slot.moved = true;  // From here on requests are redirected to the new owner
+                line(lines, slot.product);
+            }
+        }
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create("http://" + owner + "/products?ifAbsent=true"))
+                    .POST(HttpRequest.BodyPublishers.ofString(lines.toString())).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("status " + response.statusCode() + ": " + response.body().trim());
+            }
+        } catch (IOException e) {
+            // The SKUs stay here, not served (not owned), until the ring is posted again
+            throw new IllegalStateException("Cannot hand SKUs over to " + owner + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while handing SKUs over to " + owner, e);
+        }
+        long journaled = -1;
+        for (Slot slot : batch) {
+            if (journal != null) {
+                journaled = journal.appendRemove(slot.product.getProductId());
+            }
+            slots.remove(slot.product.getProductId(), slot);
+        }
+        if (journaled >= 0) {
+            journal.awaitDurable(journaled);
+        }
+        return batch.size();
+    }
+
+    private String allLines() {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            if (!isMoved(entry.getValue()) && owns(entry.getKey())) {
+                line(lines, entry.getValue().product);
+            }
+        }
+        return lines.toString();
+    }
+
+    // Products served here (SKUs waiting to be handed over are counted by their owner)
+    private int servedCount() {
+        int count = 0;
+        for (String productId : slots.keySet()) {
+            if (owns(productId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static StringBuilder line(StringBuilder text, Product product) {
+        return text.append(product.getProductId()).append('\t').append(product.getProductName()).append('\t')
+                .append(product.getPrice()).append('\t').append(product.getStockQuantity()).append('\n');
+    }
+
+    static Product parseLine(String text) {
+        String[] fields = text.split("\t");
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("Bad product line: " + text);
+        }
+        return new Product(fields[0], fields[1], Long.parseLong(fields[2]), Integer.parseInt(fields[3].trim()));
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Path ringPath() {
+        return Path.of(snapshotPath + ".ring");
+    }
+
+    // Ring survives a restart (written before any SKU is handed over under it)
+    private void saveRing(ShardRing next) {
+        if (snapshotPath == null) {
+            return;
+        }
+        try {
+            Files.writeString(ringPath(), next + "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot save shard ring: " + e.getMessage(), e);
+        }
+    }
+
+    // Snapshot of every product with the journal position it covers (copied under the write lock, written after)
+    private synchronized void saveSnapshot() throws IOException {
+        if (snapshotPath == null) {
+            return;
+        }
+        List<Product> products = new ArrayList<>(slots.size());
+        long journalPosition;
+        snapshotLock.writeLock().lock();
+        try {
+            journalPosition = journal.getAppendedPosition();
+            for (Slot slot : slots.values()) {
+                // Including SKUs not handed over yet: a resumed handover sends them
+                Product product = slot.product;
+                products.add(new Product(product.getProductId(), product.getProductName(), product.getPrice(), product.getStockQuantity()));
+            }
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+        CatalogSnapshot.write(snapshotPath, products, journalPosition);
+    }
+
+    // Query string value for product IDs in URLs
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
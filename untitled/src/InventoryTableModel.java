@@ -0,0 +1,148 @@
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Inventory table model: one row per product of the current view, cells read live from the
+ * Product (no per-row strings are kept), prices from the current catalog version. The view (filter + sort order) is an array of products
+ * computed off the EDT by buildView and swapped in with setRows; JTable only asks for the
+ * visible cells, so a 1M-row view costs one array plus what is on screen.
+ */
+public class InventoryTableModel extends AbstractTableModel {
+    public static final int COLUMN_ID = 0;
+    public static final int COLUMN_NAME = 1;
+    public static final int COLUMN_PRICE = 2;
+    public static final int COLUMN_STOCK = 3;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Price (CNY)", "Stock"};
+
+    private final Supplier<CatalogVersion> catalog;  // Current prices (rows may be copies priced by an older version)
+    private Product[] rows = new Product[0];  // EDT only
+
+    public InventoryTableModel(Supplier<CatalogVersion> catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COLUMN_STOCK ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product product = rows[row];
+        switch (column) {
+            case COLUMN_ID: return product.getProductId();
+            case COLUMN_NAME: return product.getProductName();
+            case COLUMN_PRICE: return Money.format(catalog.get().resolve(product.getProductId(), product).getPrice());
+            case COLUMN_STOCK: return product.getStockQuantity();
+            default: throw new IllegalArgumentException("Unknown column " + column);
+        }
+    }
+
+    // Replace the view (EDT)
+    public void setRows(Product[] rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+
+    // Cells of these rows changed (stock / price), repaint them without rebuilding the view (EDT)
+    public void rowsChanged(int firstRow, int lastRow) {
+        int last = Math.min(lastRow, rows.length - 1);
+        if (firstRow >= 0 && firstRow <= last) {
+            fireTableRowsUpdated(firstRow, last);
+        }
+    }
+
+    /**
+     * Build a view off the EDT: products whose ID or name contains filter (case-insensitive,
+     * empty = all), sorted by column (-1 = store order).
+     */
+    public static Product[] buildView(Iterable<Product> products, String filter, int sortColumn, boolean ascending) {
+        String needle = filter == null ? "" : filter.trim().toLowerCase(Locale.ROOT);
+        Product[] view = new Product[1024];
+        int count = 0;
+        for (Product product : products) {
+            if (!needle.isEmpty() && !contains(product.getProductId(), needle) && !contains(product.getProductName(), needle)) {
+                continue;
+            }
+            if (count == view.length) {
+                view = Arrays.copyOf(view, count * 2);
+            }
+            view[count++] = product;
+        }
+        view = Arrays.copyOf(view, count);
+        if (sortColumn >= 0) {
+            sort(view, sortColumn, ascending);
+        }
+        return view;
+    }
+
+    // Sort key captured once per row: stock and price change while the sort runs,
+    // and columnar products decode their text on every getter call
+    private static final class Keyed {
+        private final Product product;
+        private final long number;
+        private final String text;
+
+        Keyed(Product product, long number, String text) {
+            this.product = product;
+            this.number = number;
+            this.text = text;
+        }
+    }
+
+    private static void sort(Product[] view, int column, boolean ascending) {
+        Keyed[] keyed = new Keyed[view.length];
+        for (int i = 0; i < view.length; i++) {
+            Product product = view[i];
+            switch (column) {
+                case COLUMN_ID: keyed[i] = new Keyed(product, 0, product.getProductId()); break;
+                case COLUMN_NAME: keyed[i] = new Keyed(product, 0, product.getProductName()); break;
+                case COLUMN_PRICE: keyed[i] = new Keyed(product, product.getPrice(), null); break;
+                case COLUMN_STOCK: keyed[i] = new Keyed(product, product.getStockQuantity(), null); break;
+                default: throw new IllegalArgumentException("Unknown column " + column);
+            }
+        }
+        Comparator<Keyed> order;
+        if (column == COLUMN_ID) {
+            order = Comparator.comparing(k -> k.text);
+        } else if (column == COLUMN_NAME) {
+            order = (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(a.text, b.text);
+        } else {
+            order = Comparator.comparingLong(k -> k.number);
+        }
+        Arrays.parallelSort(keyed, ascending ? order : order.reversed());
+        for (int i = 0; i < view.length; i++) {
+            view[i] = keyed[i].product;
+        }
+    }
+
+    // Case-insensitive substring test without lower-casing the whole text
+    private static boolean contains(String text, String lowerNeedle) {
+        int max = text.length() - lowerNeedle.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, lowerNeedle, 0, lowerNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
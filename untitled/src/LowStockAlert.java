@@ -0,0 +1,45 @@
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Low-stock alert: inventory event subscriber that reports a product once when its available
+ * stock drops below the threshold, and again only after it was restocked above it.
+ */
+public class LowStockAlert implements InventoryEventListener {
+    private final int threshold;
+    private final Set<String> belowThreshold = new HashSet<>();  // Subscriber thread only
+
+    public LowStockAlert(int threshold) {
+        this.threshold = threshold;
+    }
+
+    // Subscribe to the inventory events (threshold from -Dpos.lowStock, default 10)
+    public static InventoryEventBus.Subscription install(Inventory inventory) {
+        return inventory.getEvents().subscribe("low-stock", new LowStockAlert(Integer.getInteger("pos.lowStock", 10)));
+    }
+
+    @Override
+    public void onEvent(InventoryEvent event, boolean endOfBatch) {
+        String productId = event.getProductId();
+        if (event.getStockAfter() < threshold) {
+            if (belowThreshold.add(productId)) {
+                alert(productId, event.getStockAfter());
+            }
+        } else {
+            belowThreshold.remove(productId);
+        }
+    }
+
+    @Override
+    public void onOverrun(long missedEvents) {
+        // Missed changes: re-check every product currently flagged on the next events
+        belowThreshold.clear();
+    }
+
+    // Report a product below the threshold (override to route alerts elsewhere)
+    protected void alert(String productId, int stock) {
+        Product product = Inventory.getInstance().getProductById(productId);
+        String name = product == null ? "?" : product.getProductName();
+        System.out.println("⚠️  Low stock: " + productId + " \u300c" + name + "\u300d, " + stock + " left");
+    }
+}
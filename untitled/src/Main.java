@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
@@ -6,10 +8,40 @@ import java.util.Scanner;
 public class Main {
     // Global Scanner (avoid repeated creation)
     private static final Scanner scanner = new Scanner(System.in);
-    // Checkout instance (core business object)
-    private static final Checkout checkout = new Checkout();
+    // Checkout instance (core business object), opened for the interactive mode only
+    private static Checkout checkout;
 
     public static void main(String[] args) {
+        // Headless batch mode: java Main --batch <file> [--out ...]
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            try {
+                BatchReplay.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.out.println("❌ Batch replay failed: " + e.getMessage());
+            }
+            return;
+        }
+        // Multi-lane checkout service on localhost: java Main --serve [port]
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            try {
+                CheckoutService.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException e) {
+                System.out.println("❌ Checkout service failed to start: " + e.getMessage());
+            }
+            return;
+        }
+
+        // End-of-day reconciliation: java Main --reconcile [--cash <counted>] [--closing <snapshot>] [--report <file>]
+        if (args.length > 0 && "--reconcile".equals(args[0])) {
+            try {
+                EndOfDayReconciliation.main(Arrays.copyOfRange(args, 1, args.length));
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("❌ Reconciliation failed: " + e.getMessage());
+            }
+            return;
+        }
+
+        checkout = new Checkout("console");
         System.out.println("======================================");
         System.out.println("        Supermarket POS System - CLI");
         System.out.println("======================================");
@@ -100,7 +132,7 @@ public class Main {
 
                 // Add product to transaction
                 checkout.addItem(productId, quantity);
-                System.out.println("✅ Product added successfully! Current total amount: " + checkout.calculateTotalAmount() + " CNY");
+                System.out.println("✅ Product added successfully! Current total amount: " + Money.format(checkout.calculateTotalAmount()) + " CNY");
 
             } catch (NumberFormatException e) {
                 System.out.println("❌ Quantity input error! Please enter a valid number");
@@ -110,19 +142,19 @@ public class Main {
         }
 
         // Calculate total amount
-        double totalAmount = checkout.calculateTotalAmount();
-        System.out.println("\n📊 Total amount this transaction: " + totalAmount + " CNY");
+        long totalAmount = checkout.calculateTotalAmount();
+        System.out.println("\n📊 Total amount this transaction: " + Money.format(totalAmount) + " CNY");
 
         // Enter payment amount
-        double cashAmount;
+        long cashAmount;
         while (true) {
             try {
                 System.out.print("Please enter payment amount (cash): ");
-                cashAmount = Double.parseDouble(scanner.nextLine().trim());
+                cashAmount = Money.parse(scanner.nextLine());
                 if (cashAmount >= totalAmount) {
                     break;
                 } else {
-                    System.out.println("❌ Insufficient payment! Amount due: " + totalAmount + " CNY, please re-enter");
+                    System.out.println("❌ Insufficient payment! Amount due: " + Money.format(totalAmount) + " CNY, please re-enter");
                 }
             } catch (NumberFormatException e) {
                 System.out.println("❌ Amount input error! Please enter a valid number");
@@ -132,7 +164,7 @@ public class Main {
         // Handle payment and generate receipt
         System.out.println("\n💳 Payment successful! Printing receipt...");
         Receipt saleReceipt = checkout.processPayment(cashAmount);
-        saleReceipt.printReceipt();
+        checkout.printReceipt(saleReceipt);
         System.out.println("===== Sale completed =====");
     }
 
@@ -151,7 +183,7 @@ public class Main {
 
                 // Finish adding return items
                 if ("0".equals(productId)) {
-                    double totalRefund = checkout.calculateTotalAmount();
+                    long totalRefund = checkout.calculateTotalAmount();
                     if (totalRefund >= 0) {
                         System.out.println("⚠️  No return items added, returning to main menu");
                         checkout.cancelTransaction();
@@ -170,8 +202,8 @@ public class Main {
 
                 // Add return item (negative quantity means return)
                 checkout.addItem(productId, -quantity);
-                double currentRefund = Math.abs(checkout.calculateTotalAmount());
-                System.out.println("✅ Return item added successfully! Current refund amount: " + currentRefund + " CNY");
+                long currentRefund = Math.abs(checkout.calculateTotalAmount());
+                System.out.println("✅ Return item added successfully! Current refund amount: " + Money.format(currentRefund) + " CNY");
 
             } catch (NumberFormatException e) {
                 System.out.println("❌ Quantity input error! Please enter a valid number");
@@ -181,8 +213,8 @@ public class Main {
         }
 
         // Calculate refund amount
-        double totalRefund = Math.abs(checkout.calculateTotalAmount());
-        System.out.println("\n📊 Refund amount this time: " + totalRefund + " CNY");
+        long totalRefund = Math.abs(checkout.calculateTotalAmount());
+        System.out.println("\n📊 Refund amount this time: " + Money.format(totalRefund) + " CNY");
 
         // Confirm return
         System.out.print("Confirm return? (Y/N): ");
@@ -191,7 +223,7 @@ public class Main {
             // Handle return and generate receipt
             System.out.println("\n🔄 Processing return... Printing receipt...");
             Receipt returnReceipt = checkout.processReturn();
-            returnReceipt.printReceipt();
+            checkout.printReceipt(returnReceipt);
             System.out.println("===== Return completed =====");
         } else {
             System.out.println("❌ Return cancelled");
@@ -217,5 +249,6 @@ public class Main {
         System.out.println("            Have a nice day!");
         System.out.println("======================================");
         scanner.close(); // Close Scanner
+        checkout.close();
     }
 }
\ No newline at end of file
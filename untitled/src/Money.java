@@ -0,0 +1,144 @@
+import java.math.RoundingMode;
+
+/**
+ * Money class: fixed-point amounts as long minor units (1 CNY = 100 fen).
+ * All arithmetic is exact integer arithmetic (overflow throws ArithmeticException),
+ * rounding only happens where a RoundingMode is given, and nothing is allocated
+ * except by the String-producing methods.
+ */
+public final class Money {
+    public static final int SCALE = 100;       // Minor units per major unit
+    public static final int FRACTION_DIGITS = 2;
+
+    private Money() {
+    }
+
+    // Amount from major and minor parts, e.g. of(3, 50) = 3.50 CNY
+    public static long of(long major, int minor) {
+        return Math.addExact(Math.multiplyExact(major, SCALE), major < 0 ? -minor : minor);
+    }
+
+    // Line amount: unit price x quantity (exact)
+    public static long times(long unitPrice, int quantity) {
+        return Math.multiplyExact(unitPrice, quantity);
+    }
+
+    // amount x numerator / denominator with explicit rounding (e.g. discounts, tax rates)
+    public static long multiply(long amount, long numerator, long denominator, RoundingMode mode) {
+        return divide(Math.multiplyExact(amount, numerator), denominator, mode);
+    }
+
+    // Integer division with explicit rounding mode
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;  // Sign of the exact result
+        long twiceRemainder = Math.abs(remainder) * 2;
+        long absDivisor = Math.abs(divisor);
+        boolean awayFromZero;
+        switch (mode) {
+            case UP:
+                awayFromZero = true;
+                break;
+            case DOWN:
+                awayFromZero = false;
+                break;
+            case CEILING:
+                awayFromZero = sign > 0;
+                break;
+            case FLOOR:
+                awayFromZero = sign < 0;
+                break;
+            case HALF_UP:
+                awayFromZero = twiceRemainder >= absDivisor;
+                break;
+            case HALF_DOWN:
+                awayFromZero = twiceRemainder > absDivisor;
+                break;
+            case HALF_EVEN:
+                awayFromZero = twiceRemainder > absDivisor || (twiceRemainder == absDivisor && (quotient & 1) != 0);
+                break;
+            default:  // UNNECESSARY
+                throw new ArithmeticException("Rounding necessary: " + dividend + " / " + divisor);
+        }
+        return awayFromZero ? quotient + sign : quotient;
+    }
+
+    // Parse "12", "12.5", "-3.45"; more than 2 decimals must be exact zeros (e.g. "1.500")
+    public static long parse(String text) {
+        return parse(text, RoundingMode.UNNECESSARY);
+    }
+
+    // Parse a decimal amount, rounding extra decimals with the given mode
+    public static long parse(String text, RoundingMode mode) {
+        String s = text.trim();
+        int i = 0;
+        boolean negative = false;
+        if (!s.isEmpty() && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            i++;
+        }
+        long value = 0;
+        long extraNumerator = 0;  // Digits beyond 2 decimals
+        long extraDenominator = 1;
+        int fractionDigits = -1;  // -1 = no decimal point yet
+        int digits = 0;
+        for (; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                digits++;
+                if (fractionDigits < 0 || fractionDigits < FRACTION_DIGITS) {
+                    value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                    if (fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if (extraDenominator < 1_000_000_000_000_000L) {
+                    extraNumerator = extraNumerator * 10 + (c - '0');
+                    extraDenominator *= 10;
+                }
+            } else {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        for (int f = Math.max(fractionDigits, 0); f < FRACTION_DIGITS; f++) {
+            value = Math.multiplyExact(value, 10);
+        }
+        if (extraNumerator != 0) {
+            // value + extra/denominator, rounded (sign applied so FLOOR/CEILING round the right way)
+            long signed = negative ? -value : value;
+            try {
+                return signed + divide(negative ? -extraNumerator : extraNumerator, extraDenominator, mode);
+            } catch (ArithmeticException e) {
+                throw new NumberFormatException("Amount has more than " + FRACTION_DIGITS + " decimals: " + text);
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    // Format as "12.50" (negative as "-12.50")
+    public static String format(long amount) {
+        return appendTo(new StringBuilder(24), amount).toString();
+    }
+
+    // Append "12.50" to a reusable builder (no intermediate String)
+    public static StringBuilder appendTo(StringBuilder sb, long amount) {
+        if (amount < 0) {
+            sb.append('-');
+        }
+        long abs = Math.abs(amount);
+        long minor = abs % SCALE;
+        sb.append(abs / SCALE).append('.');
+        if (minor < 10) {
+            sb.append('0');
+        }
+        return sb.append(minor);
+    }
+}
@@ -5,8 +5,8 @@ import java.awt.*;
  * POS GUI main window: integrates all function panels and provides menu navigation
  */
 public class POSGUI extends JFrame {
-    // Core business object
-    private final Checkout checkout = new Checkout();
+    // Core business object (all Checkout calls run on the pipeline's worker thread)
+    private final CheckoutPipeline pipeline = new CheckoutPipeline(new Checkout("gui"));
     // Panels
     private final SalePanel salePanel;
     private final ReturnPanel returnPanel;
@@ -17,10 +17,10 @@ public class POSGUI extends JFrame {
 
     public POSGUI() {
         // Initialize panels
-        salePanel = new SalePanel(checkout, this::showReceiptPreview);
-        returnPanel = new ReturnPanel(checkout, this::showReceiptPreview);
+        salePanel = new SalePanel(pipeline, this::showReceiptPreview);
+        returnPanel = new ReturnPanel(pipeline, this::showReceiptPreview);
         inventoryPanel = new InventoryPanel();
-        receiptPreviewPanel = new ReceiptPreviewPanel();
+        receiptPreviewPanel = new ReceiptPreviewPanel(() -> switchPanel(salePanel));
 
         // Window config
         setTitle("Supermarket POS - GUI");
@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+/**
+ * PN-counter class: state-based CRDT counter replicated over numbered replicas (lanes).
+ * Every replica only ever grows its own increment and decrement totals; the value is
+ * Σ increments - Σ decrements. Merging takes the entry-wise maximum, which is commutative,
+ * associative and idempotent: replicas that have seen the same updates hold the same value,
+ * in whatever order and however often states were exchanged (convergence after a partition).
+ * Not thread-safe: the owner guards it (see StockReplica, StockReplicaHub).
+ */
+public final class PnCounter {
+    private long[] entries = new long[0];  // [2r] = increments of replica r, [2r + 1] = decrements
+    private long value;                     // Cached Σ increments - Σ decrements
+
+    // Add amount (≥ 0) to the increments of a replica
+    public void increment(int replica, long amount) {
+        grow(replica);
+        entries[2 * replica] += amount;
+        value += amount;
+    }
+
+    // Add amount (≥ 0) to the decrements of a replica
+    public void decrement(int replica, long amount) {
+        grow(replica);
+        entries[2 * replica + 1] += amount;
+        value -= amount;
+    }
+
+    public long value() {
+        return value;
+    }
+
+    // Entry-wise maximum with another state; true if this state changed
+    public boolean merge(PnCounter other) {
+        if (other.entries.length > entries.length) {
+            entries = Arrays.copyOf(entries, other.entries.length);
+        }
+        boolean changed = false;
+        for (int i = 0; i < other.entries.length; i++) {
+            long theirs = other.entries[i];
+            if (theirs > entries[i]) {
+                value += (i & 1) == 0 ? theirs - entries[i] : entries[i] - theirs;
+                entries[i] = theirs;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public PnCounter copy() {
+        PnCounter copy = new PnCounter();
+        copy.entries = entries.clone();
+        copy.value = value;
+        return copy;
+    }
+
+    private void grow(int replica) {
+        if (2 * replica + 1 >= entries.length) {
+            entries = Arrays.copyOf(entries, 2 * replica + 2);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return value + " " + Arrays.toString(entries);
+    }
+}
@@ -1,43 +1,92 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Product class: encapsulates core product information
+ * Either a standalone object holding its own fields, or a lightweight view over
+ * one slot of a ColumnarProductStore (store != null, own fields unused).
+ * Price changes never modify a product: a catalog version holds a repriced copy
+ * (withPrice) that shares the stock counter of the original.
  */
 public class Product {
     // Product attributes (encapsulated)
     private String productId;    // Unique product ID
     private String productName;  // Product name
-    private double price;        // Unit price
-    private int stockQuantity;   // Stock quantity
+    private long price;          // Unit price (minor units, see Money)
+    private final AtomicInteger stockQuantity;  // Stock quantity (per-SKU atomic counter, shared by all lanes)
+
+    // Columnar backing store (view mode only)
+    private final ColumnarProductStore store;
+    private final int index;
+    private final boolean repriced;  // Copy with its own price (see withPrice)
 
     // Constructor (initialize product)
-    public Product(String productId, String productName, double price, int stockQuantity) {
+    public Product(String productId, String productName, long price, int stockQuantity) {
         this.productId = productId;
         this.productName = productName;
         this.price = price;
-        this.stockQuantity = stockQuantity;
+        this.stockQuantity = new AtomicInteger(stockQuantity);
+        this.store = null;
+        this.index = -1;
+        this.repriced = false;
+    }
+
+    // Constructor (view over a columnar store slot)
+    Product(ColumnarProductStore store, int index) {
+        this.stockQuantity = null;
+        this.store = store;
+        this.index = index;
+        this.repriced = false;
+    }
+
+    // Constructor (same product at another price, stock shared with the original)
+    private Product(Product original, long price) {
+        this.productId = original.getProductId();
+        this.productName = original.getProductName();
+        this.price = price;
+        this.stockQuantity = original.stockQuantity;
+        this.store = original.store;
+        this.index = original.index;
+        this.repriced = true;
+    }
+
+    // This product at another unit price (stock updates on either are the same stock)
+    public Product withPrice(long newPrice) {
+        return new Product(this, newPrice);
     }
 
     // Getter/Setter methods
     public String getProductId() {
-        return productId;
+        return store == null || repriced ? productId : store.getProductId(index);
     }
 
     public String getProductName() {
-        return productName;
+        return store == null || repriced ? productName : store.getProductName(index);
     }
 
-    public double getPrice() {
-        return price;
+    // Unit price in minor units (fen)
+    public long getPrice() {
+        return store == null || repriced ? price : store.getPrice(index);
     }
 
     public int getStockQuantity() {
-        return stockQuantity;
+        return store == null ? stockQuantity.get() : store.getStock(index);
     }
 
     // Update stock (increase/decrease)
+    // Check and update happen in one CAS loop, so two lanes can never both pass the check and oversell
     public void updateStock(int quantity) {
-        if (this.stockQuantity + quantity < 0) {
-            throw new IllegalArgumentException("Not enough stock to perform operation");
+        if (store != null) {
+            store.updateStock(index, quantity);
+            return;
+        }
+        while (true) {
+            int current = stockQuantity.get();
+            if (current + quantity < 0) {
+                throw new IllegalArgumentException("Not enough stock to perform operation");
+            }
+            if (stockQuantity.compareAndSet(current, current + quantity)) {
+                return;
+            }
         }
-        this.stockQuantity += quantity;
     }
 }
\ No newline at end of file
@@ -0,0 +1,636 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Product search index: case-insensitive prefix search over product IDs and name words, plus
+ * trigram fuzzy matching for typos, returning the top-k products.
+ *
+ * Prefix: a sorted term dictionary that stores no strings. The base part is two primitive arrays
+ * (ordinals sorted by ID, ordinal << 8 | word offset sorted by the name from that word on),
+ * searched by binary search against the products' own text. Products added later go to small
+ * sorted delta sets, merged into the base in one linear pass once they reach a quarter of it.
+ * Fuzzy: posting lists of product ordinals per trigram. Candidates come from the rarest trigrams
+ * of the query (a match sharing half the trigrams must contain one of them), within a fixed
+ * scan budget, and are ranked by trigram overlap.
+ * Adding a product ID again replaces it: with the same name the entry is updated in place,
+ * otherwise the old ordinal is retired (skipped by searches, dropped from the dictionary by the
+ * next merge) and the product indexed anew. Once a quarter of the ordinals are retired the index
+ * is rebuilt from the live products, so re-importing a catalog does not grow it.
+ *
+ * Thread-safe: adds take the write lock, searches the read lock.
+ */
+public class ProductSearchIndex {
+    private static final int MAX_WORD_OFFSET = 255;       // Words starting later in a name are not prefix-indexed
+    private static final int MIN_DELTA_MERGE = 4096;
+    private static final int FUZZY_SCAN_BUDGET = 8192;    // Posting entries read per fuzzy query
+    private static final int FUZZY_CANDIDATES = 64;       // Best-overlap candidates that get an exact score
+    private static final double FUZZY_MIN_SCORE = 0.2;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Function<String, Product> current;  // Resolves results to the live product instance
+
+    // Products by ordinal; the live ordinal of each ID, retired ones keep their text for the sorted arrays
+    private Product[] products = new Product[1024];
+    private int count;
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final BitSet retired = new BitSet();
+    private int retiredCount;
+
+    // Prefix dictionary: sorted base arrays + sorted deltas of recent terms
+    private int[] idOrder = new int[0];
+    private long[] wordOrder = new long[0];
+    private final TreeSet<Term> idDelta = new TreeSet<>();
+    private final TreeSet<Term> wordDelta = new TreeSet<>();
+
+    // Trigram -> ascending product ordinals (open addressing, key 0 = free)
+    private long[] gramKeys = new long[1 << 12];
+    private IntList[] gramLists = new IntList[1 << 12];
+    private int gramCount;
+
+    // One dictionary entry: lower-case text from offset on (deltas and bulk loads only)
+    private static final class Term implements Comparable<Term> {
+        private final String text;
+        private final int offset;
+        private final long head;  // Chars 0-3 and 4-7, packed: most comparisons end here
+        private final long head2;
+        private final long key;   // ID: ordinal; word: ordinal << 8 | offset
+
+        Term(String text, int offset, long key) {
+            this.text = text;
+            this.offset = offset;
+            this.head = head(text, offset);
+            this.head2 = head(text, offset + 4);
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Term other) {
+            int c = Long.compareUnsigned(head, other.head);
+            if (c == 0) {
+                c = Long.compareUnsigned(head2, other.head2);
+            }
+            if (c == 0) {
+                c = compareTail(text, offset + 8, other.text, other.offset + 8);
+            }
+            return c != 0 ? c : Long.compare(key, other.key);
+        }
+    }
+
+    // Growable int array (posting list)
+    private static final class IntList {
+        private static final IntList EMPTY = new IntList();
+
+        private int[] data = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+    }
+
+    public ProductSearchIndex(Function<String, Product> current) {
+        this.current = current;
+    }
+
+    // Index one product (incremental)
+    public void add(Product product) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = append(product);
+            if (ordinal >= 0) {
+                addTerms(ordinal, idDelta, wordDelta);
+            }
+            if (idDelta.size() + wordDelta.size() >= Math.max(MIN_DELTA_MERGE, (idOrder.length + wordOrder.length) / 4)) {
+                merge(idDelta.toArray(new Term[0]), wordDelta.toArray(new Term[0]));
+            }
+            compactIfMostlyRetired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Index many products at once (one sort instead of incremental merges)
+    public void addAll(Collection<Product> batch) {
+        lock.writeLock().lock();
+        try {
+            bulkAdd(batch);
+            compactIfMostlyRetired();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void bulkAdd(Collection<Product> batch) {
+        List<Term> ids = new ArrayList<>(idDelta);
+        List<Term> words = new ArrayList<>(wordDelta);
+        for (Product product : batch) {
+            int ordinal = append(product);
+            if (ordinal >= 0) {
+                addTerms(ordinal, ids, words);
+            }
+        }
+        Term[] sortedIds = ids.toArray(new Term[0]);
+        Term[] sortedWords = words.toArray(new Term[0]);
+        Arrays.parallelSort(sortedIds);
+        Arrays.parallelSort(sortedWords);
+        merge(sortedIds, sortedWords);
+    }
+
+    // Rebuild from the live products once retired ordinals are a quarter of the index (posting lists keep them until then)
+    private void compactIfMostlyRetired() {
+        if (retiredCount < Math.max(MIN_DELTA_MERGE, count / 4)) {
+            return;
+        }
+        List<Product> live = new ArrayList<>(count - retiredCount);
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            if (!retired.get(ordinal)) {
+                live.add(products[ordinal]);
+            }
+        }
+        products = new Product[Math.max(1024, live.size() * 2)];
+        count = 0;
+        ordinals.clear();
+        retired.clear();
+        retiredCount = 0;
+        idOrder = new int[0];
+        wordOrder = new long[0];
+        idDelta.clear();
+        wordDelta.clear();
+        gramKeys = new long[1 << 12];
+        gramLists = new IntList[1 << 12];
+        gramCount = 0;
+        bulkAdd(live);
+    }
+
+    // Number of products indexed (one per ID)
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - retiredCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Top matches for what the cashier typed: exact ID, then ID prefix, then name-word prefix,
+     * then fuzzy (trigram) matches to fill up (none after an exact ID). Duplicate IDs are
+     * collapsed to the live product.
+     */
+    public List<Product> search(String query, int limit) {
+        String prefix = lower(query.trim());
+        Map<String, Product> results = new LinkedHashMap<>();
+        if (prefix.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            List<Integer> matches = new ArrayList<>();
+            boolean exactId = prefixIds(prefix, limit * 2, matches);
+            prefixWords(prefix, limit * 2, matches);
+            for (int ordinal : matches) {
+                collect(results, ordinal, limit);
+            }
+            if (results.size() < limit && !exactId && prefix.length() >= 2) {  // A full ID needs no typo suggestions
+                for (int ordinal : fuzzy(prefix, limit * 2)) {
+                    collect(results, ordinal, limit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    private void collect(Map<String, Product> results, int ordinal, int limit) {
+        if (results.size() >= limit) {
+            return;
+        }
+        String productId = products[ordinal].getProductId();
+        if (!results.containsKey(productId)) {
+            Product live = current.apply(productId);
+            if (live != null) {
+                results.put(productId, live);
+            }
+        }
+    }
+
+    // ---- Prefix dictionary ----
+
+    // Returns whether prefix is a complete ID
+    private boolean prefixIds(String prefix, int limit, List<Integer> out) {
+        int[] order = idOrder;
+        int low = 0;
+        int high = order.length;
+        while (low < high) {  // First ID >= prefix
+            int mid = (low + high) >>> 1;
+            if (compareLower(products[order[mid]].getProductId(), 0, prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        List<Integer> found = new ArrayList<>();
+        for (int i = low; i < order.length && found.size() < limit; i++) {
+            if (!startsWith(products[order[i]].getProductId(), 0, prefix)) {
+                break;
+            }
+            if (!retired.get(order[i])) {
+                found.add(order[i]);
+            }
+        }
+        for (Term term : range(idDelta, prefix)) {
+            if (found.size() >= limit) {
+                break;
+            }
+            if (!retired.get((int) term.key)) {
+                found.add((int) term.key);
+            }
+        }
+        // Exact ID first
+        found.sort((a, b) -> Integer.compare(products[a].getProductId().length(), products[b].getProductId().length()));
+        out.addAll(found);
+        return !found.isEmpty() && products[found.get(0)].getProductId().length() == prefix.length();
+    }
+
+    private void prefixWords(String prefix, int limit, List<Integer> out) {
+        long[] order = wordOrder;
+        int low = 0;
+        int high = order.length;
+        while (low < high) {  // First name suffix >= prefix
+            int mid = (low + high) >>> 1;
+            if (compareLower(products[(int) (order[mid] >>> 8)].getProductName(), (int) (order[mid] & 0xFF), prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int added = 0;
+        for (int i = low; i < order.length && added < limit; i++) {
+            int ordinal = (int) (order[i] >>> 8);
+            if (!startsWith(products[ordinal].getProductName(), (int) (order[i] & 0xFF), prefix)) {
+                break;
+            }
+            if (!retired.get(ordinal)) {
+                out.add(ordinal);
+                added++;
+            }
+        }
+        for (Term term : range(wordDelta, prefix)) {
+            if (added >= limit) {
+                break;
+            }
+            int ordinal = (int) (term.key >>> 8);
+            if (!retired.get(ordinal)) {
+                out.add(ordinal);
+                added++;
+            }
+        }
+    }
+
+    // Delta terms starting with prefix
+    private static Collection<Term> range(TreeSet<Term> terms, String prefix) {
+        return terms.subSet(new Term(prefix, 0, Long.MIN_VALUE), new Term(prefix + Character.MAX_VALUE, 0, Long.MIN_VALUE));
+    }
+
+    // New ordinal for the product (its terms still to be added), or -1 if it replaced its entry in place
+    private int append(Product product) {
+        Integer existing = ordinals.get(product.getProductId());
+        if (existing != null) {
+            if (products[existing].getProductName().equals(product.getProductName())) {
+                products[existing] = product;  // Same text: same place in the sorted arrays and posting lists
+                return -1;
+            }
+            retired.set(existing);
+            retiredCount++;
+        }
+        if (count == products.length) {
+            products = Arrays.copyOf(products, count * 2);
+        }
+        int ordinal = count++;
+        products[ordinal] = product;
+        ordinals.put(product.getProductId(), ordinal);
+        addGrams(product.getProductId(), ordinal);
+        addGrams(product.getProductName(), ordinal);
+        return ordinal;
+    }
+
+    // The ID and every word start of the name (offset <= 255)
+    private void addTerms(int ordinal, Collection<Term> ids, Collection<Term> words) {
+        Product product = products[ordinal];
+        ids.add(new Term(lower(product.getProductId()), 0, ordinal));
+        String name = lower(product.getProductName());
+        for (int offset = 0; offset < name.length() && offset <= MAX_WORD_OFFSET; offset++) {
+            boolean wordStart = Character.isLetterOrDigit(name.charAt(offset))
+                    && (offset == 0 || !Character.isLetterOrDigit(name.charAt(offset - 1)));
+            if (wordStart) {
+                words.add(new Term(name, offset, (long) ordinal << 8 | offset));
+            }
+        }
+    }
+
+    // Merge sorted new terms into the base arrays (one linear pass each, dropping retired ordinals), then empty the deltas
+    private void merge(Term[] ids, Term[] words) {
+        int[] oldIds = idOrder;
+        int[] newIds = new int[oldIds.length + ids.length];
+        int i = 0;
+        int t = 0;
+        int n = 0;
+        while (i < oldIds.length || t < ids.length) {
+            boolean takeOld = t == ids.length || (i < oldIds.length
+                    && compareEntry(products[oldIds[i]].getProductId(), 0, oldIds[i], ids[t]) <= 0);
+            int ordinal = takeOld ? oldIds[i++] : (int) ids[t++].key;
+            if (!retired.get(ordinal)) {
+                newIds[n++] = ordinal;
+            }
+        }
+        long[] oldWords = wordOrder;
+        long[] newWords = new long[oldWords.length + words.length];
+        int w = 0;
+        i = 0;
+        t = 0;
+        while (i < oldWords.length || t < words.length) {
+            boolean takeOld = t == words.length || (i < oldWords.length
+                    && compareEntry(products[(int) (oldWords[i] >>> 8)].getProductName(), (int) (oldWords[i] & 0xFF), oldWords[i], words[t]) <= 0);
+            long entry = takeOld ? oldWords[i++] : words[t++].key;
+            if (!retired.get((int) (entry >>> 8))) {
+                newWords[w++] = entry;
+            }
+        }
+        idOrder = n == newIds.length ? newIds : Arrays.copyOf(newIds, n);
+        wordOrder = w == newWords.length ? newWords : Arrays.copyOf(newWords, w);
+        idDelta.clear();
+        wordDelta.clear();
+    }
+
+    // Base entry (original-case text) against a term, same order as Term.compareTo
+    private static int compareEntry(String text, int offset, long key, Term term) {
+        int c = Long.compareUnsigned(head(text, offset), term.head);
+        if (c == 0) {
+            c = Long.compareUnsigned(head(text, offset + 4), term.head2);
+        }
+        if (c == 0) {
+            c = compareTail(text, offset + 8, term.text, term.offset + 8);
+        }
+        return c != 0 ? c : Long.compare(key, term.key);
+    }
+
+    // ---- Fuzzy (trigrams) ----
+
+    // Trigrams of " text " (padded so short words and word starts count), lower case
+    private void addGrams(String text, int ordinal) {
+        for (int i = -1; i < text.length() - 1; i++) {
+            IntList list = postings(gram(text, i), true);
+            if (list.size == 0 || list.data[list.size - 1] != ordinal) {  // Repeated trigram / shared by name and ID
+                list.add(ordinal);
+            }
+        }
+    }
+
+    private List<Integer> fuzzy(String query, int limit) {
+        long[] queryGrams = trigrams(query);
+        int total = queryGrams.length;
+        IntList[] lists = new IntList[total];
+        for (int g = 0; g < total; g++) {
+            lists[g] = postings(queryGrams[g], false);
+        }
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+        int minShared = Math.max(1, (total + 1) / 2);
+        int rare = total - minShared + 1;  // Every match contains at least one of the rarest trigrams
+
+        // Scan budget: only ordinals below bound, so that the rare lists fit the budget
+        int bound = count;
+        if (entriesBelow(lists, rare, bound) > FUZZY_SCAN_BUDGET) {
+            int low = 0;
+            while (low < bound) {
+                int mid = (low + bound + 1) >>> 1;
+                if (entriesBelow(lists, rare, mid) <= FUZZY_SCAN_BUDGET) {
+                    low = mid;
+                } else {
+                    bound = mid - 1;
+                }
+            }
+        }
+
+        // Merge the rare lists; look up each candidate in the common lists (galloping)
+        int[] positions = new int[total];
+        PriorityQueue<long[]> best = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        while (true) {
+            int min = bound;
+            for (int l = 0; l < rare; l++) {
+                if (positions[l] < lists[l].size) {
+                    min = Math.min(min, lists[l].data[positions[l]]);
+                }
+            }
+            if (min == bound) {
+                break;
+            }
+            int shared = 0;
+            for (int l = 0; l < total; l++) {
+                IntList list = lists[l];
+                int position = l < rare ? positions[l] : seek(list, positions[l], min);
+                if (position < list.size && list.data[position] == min) {
+                    shared++;
+                    position++;
+                }
+                positions[l] = position;
+            }
+            if (shared >= minShared && !retired.get(min) && (best.size() < FUZZY_CANDIDATES || shared > best.peek()[0])) {
+                best.add(new long[] {shared, min});
+                if (best.size() > FUZZY_CANDIDATES) {
+                    best.poll();
+                }
+            }
+        }
+
+        // Exact trigram similarity of the candidates against ID and name
+        List<double[]> scored = new ArrayList<>();
+        for (long[] candidate : best) {
+            int ordinal = (int) candidate[1];
+            Product product = products[ordinal];
+            double score = Math.max(similarity(queryGrams, product.getProductId()), similarity(queryGrams, product.getProductName()));
+            if (score >= FUZZY_MIN_SCORE) {
+                scored.add(new double[] {score, ordinal});
+            }
+        }
+        scored.sort((a, b) -> a[0] != b[0] ? Double.compare(b[0], a[0]) : Double.compare(a[1], b[1]));
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < scored.size() && i < limit; i++) {
+            result.add((int) scored.get(i)[1]);
+        }
+        return result;
+    }
+
+    private static int entriesBelow(IntList[] lists, int listCount, int bound) {
+        int entries = 0;
+        for (int l = 0; l < listCount; l++) {
+            entries += seek(lists[l], 0, bound);
+        }
+        return entries;
+    }
+
+    // First position >= from whose ordinal is >= target (exponential, then binary search)
+    private static int seek(IntList list, int from, int target) {
+        int step = 1;
+        int high = from;
+        while (high < list.size && list.data[high] < target) {
+            from = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, list.size);
+        while (from < high) {
+            int mid = (from + high) >>> 1;
+            if (list.data[mid] < target) {
+                from = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return from;
+    }
+
+    // Jaccard similarity of trigram sets
+    private static double similarity(long[] queryGrams, String text) {
+        long[] textGrams = trigrams(text);
+        int shared = 0;
+        for (long gram : queryGrams) {
+            if (Arrays.binarySearch(textGrams, gram) >= 0) {
+                shared++;
+            }
+        }
+        return (double) shared / (queryGrams.length + textGrams.length - shared);
+    }
+
+    // Distinct sorted trigrams of a (short) text
+    private static long[] trigrams(String text) {
+        long[] result = new long[text.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = gram(text, i - 1);
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    // Lower-case trigram starting at index (-1 .. length - 2) of " text "
+    private static long gram(String text, int index) {
+        return (long) padded(text, index) << 32 | (long) padded(text, index + 1) << 16 | padded(text, index + 2);
+    }
+
+    private static char padded(String text, int index) {
+        return index < 0 || index >= text.length() ? ' ' : Character.toLowerCase(text.charAt(index));
+    }
+
+    // Posting list of a trigram (EMPTY if absent and not created)
+    private IntList postings(long gram, boolean create) {
+        int mask = gramKeys.length - 1;
+        int slot = (int) (gram ^ gram >>> 29) * 0x9E3779B9 & mask;
+        while (gramKeys[slot] != 0) {
+            if (gramKeys[slot] == gram) {
+                return gramLists[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (!create) {
+            return IntList.EMPTY;
+        }
+        IntList list = new IntList();
+        gramKeys[slot] = gram;
+        gramLists[slot] = list;
+        if (++gramCount * 2 > gramKeys.length) {
+            growGrams();
+        }
+        return list;
+    }
+
+    private void growGrams() {
+        long[] oldKeys = gramKeys;
+        IntList[] oldLists = gramLists;
+        gramKeys = new long[oldKeys.length * 2];
+        gramLists = new IntList[oldKeys.length * 2];
+        int mask = gramKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = (int) (oldKeys[i] ^ oldKeys[i] >>> 29) * 0x9E3779B9 & mask;
+                while (gramKeys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                gramKeys[slot] = oldKeys[i];
+                gramLists[slot] = oldLists[i];
+            }
+        }
+    }
+
+    // ---- Text helpers (char-wise lower case, same order as String.compareTo on lower(text)) ----
+
+    private static String lower(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    // 4 lower-case chars from offset, 0 past the end (shorter sorts first)
+    private static long head(String text, int offset) {
+        long head = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            head = head << 16 | (i < text.length() ? Character.toLowerCase(text.charAt(i)) : 0);
+        }
+        return head;
+    }
+
+    private static int compareTail(String a, int aOffset, String b, int bOffset) {
+        int aLength = Math.max(0, a.length() - aOffset);
+        int bLength = Math.max(0, b.length() - bOffset);
+        for (int i = 0; i < Math.min(aLength, bLength); i++) {
+            int c = Character.toLowerCase(a.charAt(aOffset + i)) - Character.toLowerCase(b.charAt(bOffset + i));
+            if (c != 0) {
+                return c;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static int compareLower(String text, int offset, String lowerPrefix) {
+        int length = Math.min(text.length() - offset, lowerPrefix.length());
+        for (int i = 0; i < length; i++) {
+            int c = Character.toLowerCase(text.charAt(offset + i)) - lowerPrefix.charAt(i);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return (text.length() - offset) - lowerPrefix.length();
+    }
+
+    private static boolean startsWith(String text, int offset, String lowerPrefix) {
+        if (text.length() - offset < lowerPrefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < lowerPrefix.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != lowerPrefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,29 @@
+import java.util.Collection;
+
+/**
+ * Product store interface: backing storage of Inventory (product ID -> Product)
+ * Implementations must be safe for concurrent readers and writers.
+ */
+public interface ProductStore {
+    // Query product by ID (null if not stored)
+    Product get(String productId);
+
+    // Store a product, replacing any product with the same ID; returns the stored instance
+    Product put(Product product);
+
+    // Store a product only if its ID is not present; returns the instance now stored
+    Product putIfAbsent(Product product);
+
+    // Store many products (bulk load, later products win); stores override it to size their tables once
+    default void putAll(Collection<Product> products) {
+        for (Product product : products) {
+            put(product);
+        }
+    }
+
+    // All stored products
+    Collection<Product> values();
+
+    // Number of stored products
+    int size();
+}
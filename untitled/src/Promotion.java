@@ -0,0 +1,230 @@
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Promotion class: one pricing rule, its scope (SKUs, categories or the whole cart) and the time
+ * window in which it is active.
+ *
+ * Kinds:
+ *   BUNDLE     every groupSize units from the scope cost a fixed price (multi-buy "3 for 9.00",
+ *              mix-and-match "any 2 drinks for 6.00"), or the `free` cheapest units of every group
+ *              cost nothing ("3 for 2"). Units are grouped from the most expensive down.
+ *   THRESHOLD  once the scope's subtotal reaches a minimum: a fixed amount or a percentage off.
+ * Only sale units count (returns are refunded at the shelf price). The per-cart State is updated
+ * with the change of one cart line, so re-pricing a rule never looks at the rest of the cart.
+ */
+public final class Promotion {
+    public enum Kind { BUNDLE, THRESHOLD }
+
+    private final String id;
+    private final Kind kind;
+    private final Set<String> skus;        // Product IDs in scope
+    private final Set<String> categories;  // Categories in scope (see PromotionPlan.Categories)
+    private final boolean wholeCart;       // No SKU / category given: every product is in scope
+    private final int groupSize;           // BUNDLE: units per group
+    private final long amount;             // BUNDLE: group price; THRESHOLD: amount off (minor units)
+    private final int free;                // BUNDLE: free units per group (instead of a group price)
+    private final long minimum;            // THRESHOLD: subtotal that triggers the discount
+    private final int percent;             // THRESHOLD: percentage off (instead of an amount)
+    private final Window window;
+    private final String description;
+
+    private Promotion(String id, Kind kind, Set<String> skus, Set<String> categories, int groupSize, long amount,
+                      int free, long minimum, int percent, Window window) {
+        this.id = id;
+        this.kind = kind;
+        this.skus = Set.copyOf(skus);
+        this.categories = Set.copyOf(categories);
+        this.wholeCart = skus.isEmpty() && categories.isEmpty();
+        this.groupSize = groupSize;
+        this.amount = amount;
+        this.free = free;
+        this.minimum = minimum;
+        this.percent = percent;
+        this.window = window == null ? Window.ALWAYS : window;
+        this.description = describe();
+    }
+
+    // Multi-buy / mix-and-match: every groupSize units from the scope for groupPrice
+    public static Promotion bundle(String id, Set<String> skus, Set<String> categories, int groupSize, long groupPrice, Window window) {
+        if (groupSize < 1 || groupPrice < 0) {
+            throw new IllegalArgumentException("Promotion " + id + ": invalid bundle " + groupSize + " for " + Money.format(groupPrice));
+        }
+        return new Promotion(id, Kind.BUNDLE, skus, categories, groupSize, groupPrice, 0, 0, 0, window);
+    }
+
+    // "Buy groupSize, pay groupSize - free": the cheapest units of every group are free
+    public static Promotion bundleFree(String id, Set<String> skus, Set<String> categories, int groupSize, int free, Window window) {
+        if (free < 1 || free >= groupSize) {
+            throw new IllegalArgumentException("Promotion " + id + ": invalid bundle " + groupSize + " with " + free + " free");
+        }
+        return new Promotion(id, Kind.BUNDLE, skus, categories, groupSize, 0, free, 0, 0, window);
+    }
+
+    // Threshold discount: amountOff (or percent of the subtotal, if percent > 0) once the subtotal reaches minimum
+    public static Promotion threshold(String id, Set<String> skus, Set<String> categories, long minimum, long amountOff,
+                                      int percent, Window window) {
+        if (minimum < 0 || amountOff < 0 || percent < 0 || percent > 100 || (amountOff == 0) == (percent == 0)) {
+            throw new IllegalArgumentException("Promotion " + id + ": a threshold needs either an amount or a percentage off");
+        }
+        return new Promotion(id, Kind.THRESHOLD, skus, categories, 0, amountOff, 0, minimum, percent, window);
+    }
+
+    private String describe() {
+        if (kind == Kind.BUNDLE) {
+            return free > 0 ? groupSize + " for " + (groupSize - free) : groupSize + " for " + Money.format(amount);
+        }
+        return (percent > 0 ? percent + "% off" : Money.format(amount) + " off") + " from " + Money.format(minimum);
+    }
+
+    public String getId() { return id; }
+    public Kind getKind() { return kind; }
+    public Set<String> getSkus() { return skus; }
+    public Set<String> getCategories() { return categories; }
+    public boolean isWholeCart() { return wholeCart; }
+    public Window getWindow() { return window; }
+    public String getDescription() { return description; }
+
+    // Per-cart state of this rule
+    State newState() {
+        return new State();
+    }
+
+    /**
+     * Units and subtotal of the scope in one cart, and the resulting discount. Bundles also keep
+     * units per unit price (few distinct prices per scope), so the discount is O(distinct prices).
+     */
+    final class State {
+        private int units;
+        private long subtotal;
+        private long discount;
+        private TreeMap<Long, Integer> unitsByPrice;  // Price (descending) -> units, bundles only
+
+        // A cart line of the scope changed from oldUnits to newUnits (sale units, >= 0)
+        void update(long unitPrice, int oldUnits, int newUnits) {
+            int delta = newUnits - oldUnits;
+            if (delta == 0) {
+                return;
+            }
+            units += delta;
+            subtotal += Money.times(unitPrice, delta);
+            if (kind == Kind.BUNDLE) {
+                if (unitsByPrice == null) {
+                    unitsByPrice = new TreeMap<>((a, b) -> Long.compare(b, a));
+                }
+                unitsByPrice.merge(unitPrice, delta, (a, b) -> a + b == 0 ? null : a + b);
+                discount = bundleDiscount();
+            } else {
+                discount = thresholdDiscount();
+            }
+        }
+
+        long getDiscount() {
+            return discount;
+        }
+
+        Promotion getPromotion() {
+            return Promotion.this;
+        }
+
+        private long bundleDiscount() {
+            int grouped = units / groupSize * groupSize;
+            if (grouped == 0) {
+                return 0;
+            }
+            long regular = 0;
+            long freeAmount = 0;
+            int position = 0;  // Units before this price level (most expensive first)
+            for (var level : unitsByPrice.entrySet()) {
+                if (position >= grouped) {
+                    break;
+                }
+                int end = Math.min(position + level.getValue(), grouped);
+                if (free > 0) {
+                    freeAmount += Money.times(level.getKey(), freeUnitsBefore(end) - freeUnitsBefore(position));
+                } else {
+                    regular += Money.times(level.getKey(), end - position);
+                }
+                position = end;
+            }
+            return free > 0 ? freeAmount : Math.max(0, regular - Money.times(amount, grouped / groupSize));
+        }
+
+        // Free units among the first n grouped units (the last `free` units of every group)
+        private int freeUnitsBefore(int n) {
+            return n / groupSize * free + Math.max(0, n % groupSize - (groupSize - free));
+        }
+
+        private long thresholdDiscount() {
+            if (units <= 0 || subtotal < minimum) {
+                return 0;
+            }
+            return percent > 0 ? Money.multiply(subtotal, percent, 100, RoundingMode.HALF_UP) : Math.min(amount, subtotal);
+        }
+    }
+
+    /**
+     * Time window: active between from and to (epoch millis, either open) and, if daily hours are
+     * given, only between startTime and endTime of every day (local time, may wrap past midnight).
+     */
+    public static final class Window {
+        public static final Window ALWAYS = new Window(Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+
+        private final long from;
+        private final long to;
+        private final LocalTime startTime;
+        private final LocalTime endTime;
+
+        public Window(long from, long to, LocalTime startTime, LocalTime endTime) {
+            if (from >= to || (startTime == null) != (endTime == null) || (startTime != null && startTime.equals(endTime))) {
+                throw new IllegalArgumentException("Empty promotion window");
+            }
+            this.from = from;
+            this.to = to;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public boolean isActive(long epochMillis, ZoneId zone) {
+            if (epochMillis < from || epochMillis >= to) {
+                return false;
+            }
+            if (startTime == null) {
+                return true;
+            }
+            LocalTime time = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalTime();
+            return startTime.isBefore(endTime)
+                    ? !time.isBefore(startTime) && time.isBefore(endTime)
+                    : !time.isBefore(startTime) || time.isBefore(endTime);
+        }
+
+        // First instant after epochMillis at which isActive may change (Long.MAX_VALUE = never)
+        public long nextChange(long epochMillis, ZoneId zone) {
+            long next = Long.MAX_VALUE;
+            if (epochMillis < from) {
+                next = from;
+            } else if (epochMillis < to) {
+                next = to;
+            }
+            if (startTime != null && epochMillis < to) {
+                ZonedDateTime now = Instant.ofEpochMilli(epochMillis).atZone(zone);
+                next = Math.min(next, Math.min(nextDaily(now, startTime), nextDaily(now, endTime)));
+            }
+            return next;
+        }
+
+        private static long nextDaily(ZonedDateTime now, LocalTime time) {
+            ZonedDateTime candidate = LocalDateTime.of(now.toLocalDate(), time).atZone(now.getZone());
+            if (!candidate.isAfter(now)) {
+                candidate = LocalDateTime.of(now.toLocalDate().plusDays(1), time).atZone(now.getZone());
+            }
+            return candidate.toInstant().toEpochMilli();
+        }
+    }
+}
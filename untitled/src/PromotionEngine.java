@@ -0,0 +1,208 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Promotion engine class: holds the configured promotions and hands out the compiled plan of the
+ * ones active now. The plan is recompiled only when a rule's time window opens or closes, or when
+ * the promotions are replaced; reading the current plan is a volatile read and a time check.
+ *
+ * File format (-Dpos.promotions, default "pos-promotions.txt"; one entry per line, '#' comment):
+ *   category drinks P001 P004 DRK*          category members: product IDs or ID prefixes
+ *   bundle COLA3 sku=P001 qty=3 price=9.00  multi-buy: 3 for 9.00
+ *   bundle DRINKS category=drinks qty=3 free=1 hours=17:00-19:00   mix-and-match 3 for 2, happy hour
+ *   threshold OFF50 min=50.00 off=5.00 from=2026-11-01 to=2026-11-12   whole cart, 5.00 off from 50.00
+ *   threshold SNACK10 category=snacks min=20.00 percent=10
+ * sku= and category= take comma-separated lists; from/to are dates or date-times (to is exclusive).
+ */
+public class PromotionEngine {
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Path file;  // null = promotions set in code
+    private List<Promotion> promotions = List.of();              // Guarded by this
+    private PromotionPlan.Categories categories = new PromotionPlan.Categories();  // Guarded by this
+    private volatile PromotionPlan plan = PromotionPlan.empty();
+
+    public PromotionEngine() {
+        this(null);
+    }
+
+    private PromotionEngine(Path file) {
+        this.file = file;
+    }
+
+    // Engine for -Dpos.promotions ("none" = no promotions; a missing file = no promotions yet)
+    public static PromotionEngine fromSystemProperties() {
+        String path = System.getProperty("pos.promotions", "pos-promotions.txt");
+        if ("none".equalsIgnoreCase(path)) {
+            return new PromotionEngine();
+        }
+        PromotionEngine engine = new PromotionEngine(Path.of(path));
+        try {
+            engine.reload();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read promotions: " + e.getMessage(), e);
+        }
+        return engine;
+    }
+
+    // Plan of the promotions active now (carts keep the plan of their transaction)
+    public PromotionPlan plan() {
+        PromotionPlan current = plan;
+        long now = System.currentTimeMillis();
+        return current.isValidAt(now) ? current : recompile(now);
+    }
+
+    private synchronized PromotionPlan recompile(long now) {
+        PromotionPlan current = plan;
+        if (!current.isValidAt(now)) {
+            current = new PromotionPlan(promotions, categories, now, zone);
+            plan = current;
+        }
+        return current;
+    }
+
+    // Replace all promotions (takes effect for transactions started afterwards)
+    public synchronized void setPromotions(List<Promotion> promotions, PromotionPlan.Categories categories) {
+        Set<String> ids = new HashSet<>();
+        for (Promotion promotion : promotions) {
+            if (!ids.add(promotion.getId())) {
+                throw new IllegalArgumentException("Duplicate promotion ID: " + promotion.getId());
+            }
+        }
+        this.promotions = List.copyOf(promotions);
+        this.categories = categories;
+        this.plan = new PromotionPlan(this.promotions, categories, System.currentTimeMillis(), zone);
+    }
+
+    // Configured promotions, active or not
+    public synchronized List<Promotion> getPromotions() {
+        return promotions;
+    }
+
+    // Read the promotions file again (no file = no promotions)
+    public void reload() throws IOException {
+        if (file == null) {
+            return;
+        }
+        if (!Files.exists(file)) {
+            setPromotions(List.of(), new PromotionPlan.Categories());
+            return;
+        }
+        List<Promotion> parsed = new ArrayList<>();
+        PromotionPlan.Categories parsedCategories = new PromotionPlan.Categories();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            String[] tokens = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+            try {
+                if (tokens[0].equals("category")) {
+                    for (int i = 2; i < tokens.length; i++) {
+                        parsedCategories.add(tokens[1], tokens[i]);
+                    }
+                } else {
+                    parsed.add(parse(tokens));
+                }
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new IllegalArgumentException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        setPromotions(parsed, parsedCategories);
+    }
+
+    private Promotion parse(String[] tokens) {
+        String kind = tokens[0];
+        String id = tokens[1];
+        Map<String, String> options = new HashMap<>();
+        for (int i = 2; i < tokens.length; i++) {
+            int equals = tokens[i].indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected key=value: " + tokens[i]);
+            }
+            options.put(tokens[i].substring(0, equals), tokens[i].substring(equals + 1));
+        }
+        Set<String> skus = list(options.remove("sku"));
+        Set<String> categoryNames = list(options.remove("category"));
+        Promotion.Window window = window(options.remove("from"), options.remove("to"), options.remove("hours"));
+        Promotion promotion;
+        if (kind.equals("bundle")) {
+            int quantity = Integer.parseInt(required(options, "qty"));
+            promotion = options.containsKey("free")
+                    ? Promotion.bundleFree(id, skus, categoryNames, quantity, Integer.parseInt(options.remove("free")), window)
+                    : Promotion.bundle(id, skus, categoryNames, quantity, Money.parse(required(options, "price")), window);
+        } else if (kind.equals("threshold")) {
+            long minimum = Money.parse(required(options, "min"));
+            String off = options.remove("off");
+            String percent = options.remove("percent");
+            promotion = Promotion.threshold(id, skus, categoryNames, minimum, off == null ? 0 : Money.parse(off),
+                    percent == null ? 0 : Integer.parseInt(percent), window);
+        } else {
+            throw new IllegalArgumentException("Unknown promotion kind: " + kind);
+        }
+        if (!options.isEmpty()) {
+            throw new IllegalArgumentException("Unknown option(s): " + options.keySet());
+        }
+        return promotion;
+    }
+
+    private static String required(Map<String, String> options, String key) {
+        String value = options.remove(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key + "=");
+        }
+        return value;
+    }
+
+    private static Set<String> list(String value) {
+        Set<String> values = new HashSet<>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (!item.isEmpty()) {
+                    values.add(item);
+                }
+            }
+        }
+        return values;
+    }
+
+    private Promotion.Window window(String from, String to, String hours) {
+        if (from == null && to == null && hours == null) {
+            return Promotion.Window.ALWAYS;
+        }
+        LocalTime start = null;
+        LocalTime end = null;
+        if (hours != null) {
+            String[] range = hours.split("-");
+            if (range.length != 2) {
+                throw new IllegalArgumentException("Expected hours=HH:mm-HH:mm: " + hours);
+            }
+            start = time(range[0]);
+            end = time(range[1]);
+        }
+        return new Promotion.Window(from == null ? Long.MIN_VALUE : instant(from), to == null ? Long.MAX_VALUE : instant(to), start, end);
+    }
+
+    private static LocalTime time(String text) {
+        return text.contains(":") ? LocalTime.parse(text.length() == 4 ? "0" + text : text) : LocalTime.of(Integer.parseInt(text), 0);
+    }
+
+    private long instant(String text) {
+        LocalDateTime dateTime = text.contains("T") ? LocalDateTime.parse(text) : LocalDate.parse(text).atStartOfDay();
+        return dateTime.atZone(zone).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,149 @@
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Promotion plan class: the promotions active at one point in time, compiled into indexes so a
+ * scan only touches the rules of its SKU: SKU -> rules, category -> rules, and the whole-cart
+ * rules. The rules of a SKU (its own, its categories', whole-cart) are merged once per plan and
+ * cached, so a scan costs one hash lookup. Rules are numbered 0..size-1; carts keep their rule
+ * states by that number. A plan is immutable and valid until the next window change of any rule.
+ */
+public final class PromotionPlan {
+    private static final int[] NONE = new int[0];
+
+    private final Promotion[] rules;  // Active rules, plan order = configuration order
+    private final Map<String, int[]> bySku = new HashMap<>();
+    private final Map<String, int[]> byCategory = new HashMap<>();
+    private final int[] wholeCart;
+    private final Categories categories;
+    private final Map<String, int[]> resolved = new ConcurrentHashMap<>();  // SKU -> merged rules
+    private final long validFrom;
+    private final long validUntil;
+
+    // Compile the promotions active at epochMillis
+    PromotionPlan(List<Promotion> promotions, Categories categories, long epochMillis, ZoneId zone) {
+        List<Promotion> active = new ArrayList<>();
+        long until = Long.MAX_VALUE;
+        for (Promotion promotion : promotions) {
+            if (promotion.getWindow().isActive(epochMillis, zone)) {
+                active.add(promotion);
+            }
+            until = Math.min(until, promotion.getWindow().nextChange(epochMillis, zone));
+        }
+        this.rules = active.toArray(new Promotion[0]);
+        this.categories = categories;
+        this.validFrom = epochMillis;
+        this.validUntil = until;
+
+        Map<String, List<Integer>> skuRules = new HashMap<>();
+        Map<String, List<Integer>> categoryRules = new HashMap<>();
+        List<Integer> wholeCartRules = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) {
+            if (rules[i].isWholeCart()) {
+                wholeCartRules.add(i);
+            }
+            for (String sku : rules[i].getSkus()) {
+                skuRules.computeIfAbsent(sku, key -> new ArrayList<>()).add(i);
+            }
+            for (String category : rules[i].getCategories()) {
+                categoryRules.computeIfAbsent(category, key -> new ArrayList<>()).add(i);
+            }
+        }
+        skuRules.forEach((sku, list) -> bySku.put(sku, toArray(list)));
+        categoryRules.forEach((category, list) -> byCategory.put(category, toArray(list)));
+        this.wholeCart = toArray(wholeCartRules);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // Plan without promotions
+    static PromotionPlan empty() {
+        return new PromotionPlan(List.of(), new Categories(), 0, ZoneId.systemDefault());
+    }
+
+    public boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    public int size() {
+        return rules.length;
+    }
+
+    public Promotion get(int rule) {
+        return rules[rule];
+    }
+
+    // Whether this plan still describes the active promotions at epochMillis
+    public boolean isValidAt(long epochMillis) {
+        return epochMillis >= validFrom && epochMillis < validUntil;
+    }
+
+    // Numbers of the rules a product takes part in (ascending; shared array, do not modify)
+    public int[] rulesFor(String productId) {
+        int[] merged = resolved.get(productId);
+        if (merged == null) {
+            merged = resolved.computeIfAbsent(productId, this::merge);
+        }
+        return merged;
+    }
+
+    private int[] merge(String productId) {
+        if (rules.length == 0) {
+            return NONE;
+        }
+        int[] own = bySku.getOrDefault(productId, NONE);
+        int[] merged = Arrays.copyOf(own, own.length + wholeCart.length);
+        System.arraycopy(wholeCart, 0, merged, own.length, wholeCart.length);
+        for (String category : categories.of(productId)) {
+            int[] categoryRules = byCategory.getOrDefault(category, NONE);
+            int length = merged.length;
+            merged = Arrays.copyOf(merged, length + categoryRules.length);
+            System.arraycopy(categoryRules, 0, merged, length, categoryRules.length);
+        }
+        return merged.length == 0 ? NONE : Arrays.stream(merged).sorted().distinct().toArray();
+    }
+
+    /**
+     * Category membership of products: explicit product IDs or ID prefixes ("DRK*").
+     * Products carry no category, so categories are defined with the promotions.
+     */
+    public static final class Categories {
+        private final Map<String, Set<String>> members = new HashMap<>();  // Product ID -> categories
+        private final List<String[]> prefixes = new ArrayList<>();         // {prefix, category}
+
+        // Add a product ID, or all IDs starting with a prefix (pattern ending in '*'), to a category
+        public Categories add(String category, String pattern) {
+            if (pattern.endsWith("*")) {
+                prefixes.add(new String[] {pattern.substring(0, pattern.length() - 1), category});
+            } else {
+                members.computeIfAbsent(pattern, key -> new HashSet<>()).add(category);
+            }
+            return this;
+        }
+
+        // Categories of a product (empty if none)
+        public Set<String> of(String productId) {
+            Set<String> explicit = members.get(productId);
+            if (prefixes.isEmpty()) {
+                return explicit == null ? Collections.emptySet() : explicit;
+            }
+            Set<String> all = explicit == null ? new HashSet<>() : new HashSet<>(explicit);
+            for (String[] prefix : prefixes) {
+                if (productId.startsWith(prefix[0])) {
+                    all.add(prefix[1]);
+                }
+            }
+            return all;
+        }
+    }
+}
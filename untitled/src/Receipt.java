@@ -1,4 +1,5 @@
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -6,60 +7,84 @@ import java.util.List;
  * Receipt class: generates sale/return receipts
  */
 public class Receipt {
-    private String receiptId;          // Unique receipt ID
+    // Shared console output for printReceipt
+    private static final ReceiptSink CONSOLE = new ConsoleReceiptSink();
+    // Receipt ID generator shared by all lanes of this process (pluggable)
+    private static volatile ReceiptIdGenerator idGenerator = SnowflakeIdGenerator.fromSystemProperties();
+
+    private long receiptNumber;        // Unique, time-ordered receipt number
+    private String receiptId;          // Receipt number as fixed-width sortable string
     private List<ShoppingItem> items;  // Item list
-    private double totalAmount;        // Total amount (sale = positive, return = negative)
+    private List<Discount> discounts;  // Promotion discounts (empty if none)
+    private long totalAmount;          // Total amount in minor units (sale = positive, return = negative)
     private Date transactionTime;      // Transaction time
     private String transactionType;    // Transaction type (SALE or RETURN)
 
     // Constructor (build receipt)
     public Receipt(List<ShoppingItem> items, String transactionType) {
-        this.receiptId = generateReceiptId();
-        this.items = items;
+        this(items, transactionType, List.of());
+    }
+
+    // Receipt with the promotion discounts of its cart
+    public Receipt(List<ShoppingItem> items, String transactionType, List<Discount> discounts) {
+        this.receiptNumber = idGenerator.nextId();
+        this.receiptId = ReceiptIdGenerator.format(receiptNumber);
+        this.items = new ArrayList<>(items);  // Copy: the cart is cleared after the receipt is issued
+        this.discounts = List.copyOf(discounts);
         this.transactionType = transactionType;
         this.transactionTime = new Date();
         this.totalAmount = calculateTotalAmount();
     }
 
-    // Generate unique receipt ID (timestamp + random number)
-    private String generateReceiptId() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddHHmmss");
-        String timeStr = sdf.format(new Date());
-        int randomNum = (int) (Math.random() * 1000);
-        return timeStr + String.format("%03d", randomNum);
+    // Restore an issued receipt (receipt archive): keeps its number and time
+    Receipt(long receiptNumber, List<ShoppingItem> items, List<Discount> discounts, String transactionType, Date transactionTime) {
+        this.receiptNumber = receiptNumber;
+        this.receiptId = ReceiptIdGenerator.format(receiptNumber);
+        this.items = items;
+        this.discounts = discounts;
+        this.transactionType = transactionType;
+        this.transactionTime = transactionTime;
+        this.totalAmount = calculateTotalAmount();
     }
 
-    // Calculate total amount
-    private double calculateTotalAmount() {
-        return items.stream().mapToDouble(ShoppingItem::calculateItemTotal).sum();
+    // Replace the receipt ID generator (e.g. per-node lane ID, tests)
+    public static void setIdGenerator(ReceiptIdGenerator generator) {
+        idGenerator = generator;
+    }
+
+    // Calculate total amount (lines at shelf price minus discounts)
+    private long calculateTotalAmount() {
+        long total = 0;
+        for (ShoppingItem item : items) {
+            total += item.calculateItemTotal();
+        }
+        return total - getDiscountAmount();
+    }
+
+    // Sum of all discounts
+    public long getDiscountAmount() {
+        long amount = 0;
+        for (Discount discount : discounts) {
+            amount += discount.getAmount();
+        }
+        return amount;
     }
 
     // Getters for GUI usage
     public List<ShoppingItem> getItems() { return items; }
+    public List<Discount> getDiscounts() { return discounts; }
     public String getTransactionType() { return transactionType; }
     public Date getTransactionTime() { return transactionTime; }
     public String getReceiptId() { return receiptId; }
-    public double getTotalAmount() { return totalAmount; }
+    public long getReceiptNumber() { return receiptNumber; }
+    public long getTotalAmount() { return totalAmount; }
 
     // Print receipt to console (could export to PDF in real project)
     public void printReceipt() {
-        System.out.println("======================================");
-        System.out.println("        Supermarket POS - Receipt");
-        System.out.println("======================================");
-        System.out.println("Receipt ID: " + receiptId);
-        System.out.println("Type: " + (transactionType.equals("SALE") ? "Sale" : "Return"));
-        System.out.println("Time: " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(transactionTime));
-        System.out.println("--------------------------------------");
-        System.out.printf("%-10s %-10s %-6s %-6s%n", "ID", "Name", "Price", "Qty");
-        System.out.println("--------------------------------------");
-        for (ShoppingItem item : items) {
-            Product p = item.getProduct();
-            System.out.printf("%-10s %-10s %-6.2f %-6d%n",
-                    p.getProductId(), p.getProductName(), p.getPrice(), item.getQuantity());
+        try {
+            ReceiptRenderer.defaultRenderer().render(this, CONSOLE);
+        } catch (IOException e) {
+            System.err.println("Failed to print receipt " + receiptId + ": " + e.getMessage());
         }
-        System.out.println("--------------------------------------");
-        System.out.println("Total: " + String.format("%.2f", totalAmount) + " CNY");
-        System.out.println("======================================");
-        System.out.println("Thank you for shopping!");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,797 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Receipt archive class: every issued receipt, kept on disk for reprint, audit and returns.
+ *
+ * Receipts are appended to the active segment file; when it reaches the segment size it is sealed:
+ * a sorted index file is written next to it and both are memory-mapped read-only. Lookups binary
+ * search the mapped indexes, so only the segment table and the active segment's index live on
+ * the heap, however many receipts are archived. With a retention period, sealed segments whose
+ * newest receipt is older than it are deleted on open and on each roll-over (disk use stays
+ * bounded at about the retention period plus one segment).
+ *
+ * Segment file: header magic(int) version(int) firstSequence(int) lastSequence(int), then records
+ *   [int payloadLength][int crc32][payload] (same framing as the transaction journal)
+ *   payload: number(long) type(byte) time(long) total(long) lineCount(int)
+ *            then per line: productId(short len + UTF-8) name(short len + UTF-8) price(long) quantity(int)
+ *            then, only if discounted: discountCount(int), per discount: promotionId description amount(long)
+ * Index file: header magic version firstSequence lastSequence segmentLength(long) count(int) skuCount(int)
+ *             minNumber maxNumber minTime maxTime (longs), then three sections of (long key, int record offset)
+ *             sorted by key, then offset: by receipt number, by time, by product ID hash
+ * Journal position file: magic version position(long) - the journal offset below which every
+ *   receipt is archived, saved (temp file + atomic move) after each force of the active segment
+ * The archive is not fsynced per receipt (the journal is the durable record); the active segment
+ * is forced on roll-over, sync and close, a torn tail is cut off on open, and catchUp re-archives
+ * the journal's receipts lost with an unsynced tail, reading the journal from the saved position.
+ */
+public class ReceiptArchive implements AutoCloseable {
+    private static final int SEGMENT_MAGIC = 0x504F5352;  // "POSR"
+    private static final int INDEX_MAGIC = 0x504F5349;    // "POSI"
+    private static final int POSITION_MAGIC = 0x504F534A; // "POSJ"
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int INDEX_HEADER_SIZE = 64;
+    private static final int RECORD_HEADER_SIZE = 8;      // length + crc
+    private static final int ENTRY_SIZE = 12;             // key + record offset
+    private static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    private static final byte TYPE_SALE = 1;
+    private static final byte TYPE_RETURN = 2;
+    // Index sections
+    private static final int BY_NUMBER = 0;
+    private static final int BY_TIME = 1;
+    private static final int BY_PRODUCT = 2;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long retentionMillis;  // 0 = keep every receipt
+    // Sealed segments, ascending sequence (array replaced as a whole, read without locking)
+    private volatile Sealed[] sealed = new Sealed[0];
+
+    // Active segment and its in-heap index (guarded by this)
+    private FileChannel active;
+    private int activeSequence;
+    private long activeSize;  // Record bytes after the header
+    private Section[] activeSections = newSections();
+    private final Map<Long, Integer> activeByNumber = new HashMap<>();
+    private final Map<String, List<Integer>> activeByProduct = new HashMap<>();
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);  // Reusable encode buffer
+    private final CRC32 crc = new CRC32();
+    // Journal offset below which every receipt is archived: as reported, and as saved with the last force
+    private long journalPosition;
+    private long savedJournalPosition;
+
+    // Growable list of (key, record offset) index entries
+    private static final class Section {
+        private long[] keys = new long[1024];
+        private int[] offsets = new int[1024];
+        private int size;
+
+        void add(long key, int offset) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            keys[size] = key;
+            offsets[size++] = offset;
+        }
+    }
+
+    // One sealed segment: mapped records + mapped index
+    private static final class Sealed {
+        private final Path path;
+        private final MappedByteBuffer records;
+        private final MappedByteBuffer index;
+        private final int count;
+        private final int skuCount;
+        private final long minNumber;
+        private final long maxNumber;
+        private final long minTime;
+        private final long maxTime;
+
+        Sealed(Path path, MappedByteBuffer records, MappedByteBuffer index) {
+            this.path = path;
+            this.records = records;
+            this.index = index;
+            this.count = index.getInt(24);
+            this.skuCount = index.getInt(28);
+            this.minNumber = index.getLong(32);
+            this.maxNumber = index.getLong(40);
+            this.minTime = index.getLong(48);
+            this.maxTime = index.getLong(56);
+        }
+
+        int size(int section) {
+            return section == BY_PRODUCT ? skuCount : count;
+        }
+
+        long key(int section, int i) {
+            return index.getLong(position(section, i));
+        }
+
+        int offset(int section, int i) {
+            return index.getInt(position(section, i) + 8);
+        }
+
+        private int position(int section, int i) {
+            return INDEX_HEADER_SIZE + (section * count + i) * ENTRY_SIZE;
+        }
+
+        // First entry of a section with key >= target
+        int lowerBound(int section, long target) {
+            int low = 0;
+            int high = size(section);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (key(section, mid) < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    public ReceiptArchive(Path directory, long segmentBytes) throws IOException {
+        this(directory, segmentBytes, 0);
+    }
+
+    // Archive that deletes sealed segments older than retentionMillis (0 = keep everything)
+    public ReceiptArchive(Path directory, long segmentBytes, long retentionMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = Math.min(Math.max(segmentBytes, 4096), Integer.MAX_VALUE - 4096);  // Offsets are ints
+        this.retentionMillis = Math.max(retentionMillis, 0);
+        Files.createDirectories(directory);
+        open();
+        int expired = expireSegments();
+        if (expired > 0) {
+            System.err.println("Receipt archive: " + expired + " segments past retention removed");
+        }
+    }
+
+    /**
+     * Open the archive configured by system properties:
+     * pos.archive = directory (default "pos-receipts", "off" disables the archive)
+     * pos.archive.segmentMB = segment size before roll-over (default 64)
+     * pos.archive.retentionDays = delete sealed segments whose receipts are all older (default 0 = keep all)
+     */
+    public static ReceiptArchive openConfigured() throws IOException {
+        String path = System.getProperty("pos.archive", "pos-receipts");
+        if ("off".equalsIgnoreCase(path)) {
+            return null;
+        }
+        return new ReceiptArchive(Path.of(path), Long.getLong("pos.archive.segmentMB", DEFAULT_SEGMENT_BYTES >> 20) << 20,
+                Long.getLong("pos.archive.retentionDays", 0) * 24 * 60 * 60 * 1000);
+    }
+
+    // ---- Append ----
+
+    // Archive one issued receipt (rolls over to a new segment when the active one is full)
+    public synchronized void append(Receipt receipt) {
+        ByteBuffer payload = encode(receipt);
+        int recordSize = RECORD_HEADER_SIZE + payload.remaining();
+        List<String> productIds = new ArrayList<>();
+        for (ShoppingItem item : receipt.getItems()) {
+            productIds.add(item.getProduct().getProductId());
+        }
+        try {
+            if (activeSections[BY_NUMBER].size > 0 && activeSize + recordSize > segmentBytes) {
+                sealActive();
+                createActive(activeSequence + 1);
+                expireSegments();
+            }
+            crc.reset();
+            crc.update(payload.array(), 0, payload.remaining());
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            header.putInt(payload.remaining()).putInt((int) crc.getValue()).flip();
+            writeFully(active, SEGMENT_HEADER_SIZE + activeSize, header, payload);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot archive receipt " + receipt.getReceiptId() + ": " + e.getMessage(), e);
+        }
+        indexActive(receipt.getReceiptNumber(), receipt.getTransactionTime().getTime(), (int) activeSize, productIds);
+        activeSize += recordSize;
+    }
+
+    /**
+     * Archive the journal's receipts missing here (lost in a crash or a failed append); returns how many.
+     * Reads the journal from the saved position on (from the start if that lies beyond its end, i.e.
+     * it belongs to another journal), then saves the journal's end as covered.
+     */
+    public synchronized long catchUp(TransactionJournal journal) throws IOException {
+        long before = getReceiptCount();
+        long from = savedJournalPosition <= journal.getAppendedPosition() ? savedJournalPosition : 0;
+        long cutoff = retentionCutoff();
+        long end = journal.replayReceipts(from, receipt -> {
+            if (receipt.getTransactionTime().getTime() >= cutoff && find(receipt.getReceiptNumber()) == null) {  // Not expired
+                append(receipt);
+            }
+        });
+        journalPosition = end;
+        sync();
+        return getReceiptCount() - before;
+    }
+
+    /**
+     * Report that every receipt journaled below this offset is archived (called by the journal's
+     * writer; out-of-order reports are ignored). Saved with the next roll-over, sync or close.
+     */
+    public synchronized void setJournalPosition(long position) {
+        journalPosition = Math.max(journalPosition, position);
+    }
+
+    // Journal offset the archive covers on disk (catchUp starts here)
+    public synchronized long getSavedJournalPosition() {
+        return savedJournalPosition;
+    }
+
+    private ByteBuffer encode(Receipt receipt) {
+        ByteBuffer buf = scratch;
+        while (true) {
+            try {
+                buf.clear();
+                buf.putLong(receipt.getReceiptNumber());
+                buf.put("RETURN".equals(receipt.getTransactionType()) ? TYPE_RETURN : TYPE_SALE);
+                buf.putLong(receipt.getTransactionTime().getTime());
+                buf.putLong(receipt.getTotalAmount());
+                buf.putInt(receipt.getItems().size());
+                for (ShoppingItem item : receipt.getItems()) {
+                    Product product = item.getProduct();
+                    putString(buf, product.getProductId());
+                    putString(buf, product.getProductName());
+                    buf.putLong(product.getPrice());
+                    buf.putInt(item.getQuantity());
+                }
+                if (!receipt.getDiscounts().isEmpty()) {  // Optional trailer: records without one have no discounts
+                    buf.putInt(receipt.getDiscounts().size());
+                    for (Discount discount : receipt.getDiscounts()) {
+                        putString(buf, discount.getPromotionId());
+                        putString(buf, discount.getDescription());
+                        buf.putLong(discount.getAmount());
+                    }
+                }
+                buf.flip();
+                return buf;
+            } catch (java.nio.BufferOverflowException e) {
+                // Very large cart: grow the scratch buffer and retry
+                scratch = buf = ByteBuffer.allocate(buf.capacity() * 2);
+            }
+        }
+    }
+
+    private void indexActive(long number, long time, int offset, List<String> productIds) {
+        activeSections[BY_NUMBER].add(number, offset);
+        activeSections[BY_TIME].add(time, offset);
+        activeByNumber.put(number, offset);
+        for (String productId : productIds) {
+            List<Integer> offsets = activeByProduct.computeIfAbsent(productId, id -> new ArrayList<>());
+            if (offsets.isEmpty() || offsets.get(offsets.size() - 1) != offset) {  // Once per receipt
+                offsets.add(offset);
+                activeSections[BY_PRODUCT].add(productHash(productId), offset);
+            }
+        }
+    }
+
+    // ---- Lookup ----
+
+    // Receipt by its number (null if not archived)
+    public Receipt find(long receiptNumber) {
+        synchronized (this) {
+            Integer offset = activeByNumber.get(receiptNumber);
+            if (offset != null) {
+                return decode(readActive(offset));
+            }
+        }
+        Sealed[] segments = sealed;
+        for (int s = segments.length - 1; s >= 0; s--) {
+            Sealed segment = segments[s];
+            if (receiptNumber < segment.minNumber || receiptNumber > segment.maxNumber) {
+                continue;
+            }
+            int i = segment.lowerBound(BY_NUMBER, receiptNumber);
+            if (i < segment.count && segment.key(BY_NUMBER, i) == receiptNumber) {
+                return decode(record(segment, segment.offset(BY_NUMBER, i)));
+            }
+        }
+        return null;
+    }
+
+    // Receipt by its printed ID (null if not archived or not a receipt ID)
+    public Receipt find(String receiptId) {
+        try {
+            return find(Long.parseLong(receiptId.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Most recent receipts containing a product, newest first
+    public List<Receipt> findByProduct(String productId, int limit) {
+        List<Receipt> result = new ArrayList<>();
+        synchronized (this) {
+            List<Integer> offsets = activeByProduct.getOrDefault(productId, List.of());
+            for (int i = offsets.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(decode(readActive(offsets.get(i))));
+            }
+        }
+        long hash = productHash(productId);
+        Sealed[] segments = sealed;
+        for (int s = segments.length - 1; s >= 0 && result.size() < limit; s--) {
+            Sealed segment = segments[s];
+            int first = segment.lowerBound(BY_PRODUCT, hash);
+            int last = hash == Long.MAX_VALUE ? segment.skuCount : segment.lowerBound(BY_PRODUCT, hash + 1);
+            for (int i = last - 1; i >= first && result.size() < limit; i--) {  // Offsets ascend within one hash
+                Receipt receipt = decode(record(segment, segment.offset(BY_PRODUCT, i)));
+                if (containsProduct(receipt, productId)) {  // Hash collisions
+                    result.add(receipt);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Receipts issued in [fromMillis, toMillis), oldest first
+    public List<Receipt> findByTime(long fromMillis, long toMillis, int limit) {
+        List<Receipt> result = new ArrayList<>();
+        for (Sealed segment : sealed) {
+            if (segment.maxTime < fromMillis || segment.minTime >= toMillis) {
+                continue;
+            }
+            for (int i = segment.lowerBound(BY_TIME, fromMillis); i < segment.count && result.size() < limit; i++) {
+                if (segment.key(BY_TIME, i) >= toMillis) {
+                    break;
+                }
+                result.add(decode(record(segment, segment.offset(BY_TIME, i))));
+            }
+        }
+        synchronized (this) {
+            Section times = activeSections[BY_TIME];  // Append order
+            for (int i = 0; i < times.size && result.size() < limit; i++) {
+                if (times.keys[i] >= fromMillis && times.keys[i] < toMillis) {
+                    result.add(decode(readActive(times.offsets[i])));
+                }
+            }
+        }
+        result.sort(Comparator.comparing(Receipt::getTransactionTime));
+        return result;
+    }
+
+    public synchronized long getReceiptCount() {
+        long count = activeSections[BY_NUMBER].size;
+        for (Sealed segment : sealed) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    // Receipts issued before this are past retention (Long.MIN_VALUE: none)
+    private long retentionCutoff() {
+        return retentionMillis == 0 ? Long.MIN_VALUE : System.currentTimeMillis() - retentionMillis;
+    }
+
+    // Delete the sealed segments past retention; returns how many (lookups that already read the
+    // segment table keep their mapping, which outlives the deleted file)
+    private synchronized int expireSegments() throws IOException {
+        if (retentionMillis == 0) {
+            return 0;
+        }
+        long cutoff = retentionCutoff();
+        Sealed[] segments = sealed;
+        List<Sealed> kept = new ArrayList<>(segments.length);
+        for (Sealed segment : segments) {
+            if (segment.maxTime >= cutoff) {
+                kept.add(segment);
+            }
+        }
+        if (kept.size() == segments.length) {
+            return 0;
+        }
+        sealed = kept.toArray(new Sealed[0]);
+        for (Sealed segment : segments) {
+            if (!kept.contains(segment)) {
+                deleteSegment(segment.path);  // Index first: a crash in between leaves a segment that is re-indexed and expired again
+            }
+        }
+        return segments.length - kept.size();
+    }
+
+    // Sealed segments + the active one
+    public int getSegmentCount() {
+        return sealed.length + 1;
+    }
+
+    private static boolean containsProduct(Receipt receipt, String productId) {
+        for (ShoppingItem item : receipt.getItems()) {
+            if (item.getProduct().getProductId().equals(productId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Payload of a sealed record (a view on the mapping, nothing copied)
+    private static ByteBuffer record(Sealed segment, int offset) {
+        int position = SEGMENT_HEADER_SIZE + offset;
+        return segment.records.slice(position + RECORD_HEADER_SIZE, segment.records.getInt(position));
+    }
+
+    // Payload of an active record (caller holds the lock)
+    private ByteBuffer readActive(int offset) {
+        try {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            readFully(active, length, SEGMENT_HEADER_SIZE + offset);
+            ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+            readFully(active, payload, SEGMENT_HEADER_SIZE + offset + RECORD_HEADER_SIZE);
+            return payload.flip();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read archived receipt: " + e.getMessage(), e);
+        }
+    }
+
+    private static Receipt decode(ByteBuffer payload) {
+        long number = payload.getLong();
+        String type = payload.get() == TYPE_RETURN ? "RETURN" : "SALE";
+        long time = payload.getLong();
+        payload.getLong();  // total (recomputed from the lines and discounts)
+        int lines = payload.getInt();
+        List<ShoppingItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            String productId = getString(payload);
+            String name = getString(payload);
+            long price = payload.getLong();
+            int quantity = payload.getInt();
+            items.add(new ShoppingItem(new Product(productId, name, price, 0), quantity));  // Product as sold
+        }
+        List<Discount> discounts = new ArrayList<>();
+        if (payload.hasRemaining()) {
+            int count = payload.getInt();
+            for (int i = 0; i < count; i++) {
+                discounts.add(new Discount(getString(payload), getString(payload), payload.getLong()));
+            }
+        }
+        return new Receipt(number, items, discounts, type, new Date(time));
+    }
+
+    // ---- Segments: open, seal ----
+
+    private Path segmentPath(int sequence) {
+        return directory.resolve(String.format("receipts-%08d.seg", sequence));
+    }
+
+    private static Path indexPath(Path segment) {
+        String name = segment.getFileName().toString();
+        return segment.resolveSibling(name.substring(0, name.length() - 4) + ".idx");
+    }
+
+    // Load sealed segments and resume the active segment (the newest one without an index)
+    private void open() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().matches("receipts-\\d{8}\\.seg")).sorted().toList();
+        }
+        List<Sealed> loaded = new ArrayList<>();
+        int last = 0;  // Sequence of the newest segment
+        for (int f = 0; f < files.size(); f++) {
+            Path path = files.get(f);
+            int[] sequences = readSegmentHeader(path);
+            if (sequences == null) {
+                deleteSegment(path);  // Crashed while creating it: no records yet
+                continue;
+            }
+            last = sequences[1];
+            Sealed segment = openSealed(path, sequences);
+            if (segment != null) {
+                loaded.add(segment);
+            } else if (f == files.size() - 1) {
+                resumeActive(path, sequences[0]);
+            } else {
+                loaded.add(rebuildIndex(path, sequences));  // Crashed before its index was written
+            }
+        }
+        sealed = loaded.toArray(new Sealed[0]);
+        if (active == null) {
+            createActive(last + 1);
+        }
+        savedJournalPosition = journalPosition = readJournalPosition();
+    }
+
+    private Path journalPositionPath() {
+        return directory.resolve("journal.position");
+    }
+
+    // Saved journal position (0 if none: catch up from the start)
+    private long readJournalPosition() throws IOException {
+        Path path = journalPositionPath();
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        return buf.remaining() == 16 && buf.getInt(0) == POSITION_MAGIC && buf.getInt(4) == VERSION ? buf.getLong(8) : 0;
+    }
+
+    // Save the journal position covered by what was just forced (temp file + atomic move)
+    private void saveJournalPosition(long position) throws IOException {
+        if (position == savedJournalPosition) {
+            return;
+        }
+        Path path = journalPositionPath();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, 0, ByteBuffer.allocate(16).putInt(POSITION_MAGIC).putInt(VERSION).putLong(position).flip());
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        savedJournalPosition = position;
+    }
+
+    private static int[] readSegmentHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+            if (channel.read(header, 0) < SEGMENT_HEADER_SIZE || header.getInt(0) != SEGMENT_MAGIC || header.getInt(4) != VERSION) {
+                return null;
+            }
+            return new int[] {header.getInt(8), header.getInt(12)};
+        }
+    }
+
+    // Map a segment with a valid index that matches it (null if there is none)
+    private static Sealed openSealed(Path path, int[] sequences) throws IOException {
+        Path indexPath = indexPath(path);
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        MappedByteBuffer index = map(indexPath);
+        MappedByteBuffer records = map(path);
+        boolean valid = index.capacity() >= INDEX_HEADER_SIZE && index.getInt(0) == INDEX_MAGIC && index.getInt(4) == VERSION
+                && index.getInt(8) == sequences[0] && index.getInt(12) == sequences[1] && index.getLong(16) == records.capacity();
+        return valid ? new Sealed(path, records, index) : null;
+    }
+
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private void createActive(int sequence) throws IOException {
+        active = FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(active, 0, segmentHeader(sequence, sequence));
+        activeSequence = sequence;
+        activeSize = 0;
+    }
+
+    private static ByteBuffer segmentHeader(int firstSequence, int lastSequence) {
+        return ByteBuffer.allocate(SEGMENT_HEADER_SIZE).putInt(SEGMENT_MAGIC).putInt(VERSION)
+                .putInt(firstSequence).putInt(lastSequence).flip();
+    }
+
+    // Reopen the last segment for appending: index its valid records, cut off a torn tail
+    private void resumeActive(Path path, int sequence) throws IOException {
+        active = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeSequence = sequence;
+        activeSize = scanRecords(active, (offset, number, time, productIds) -> indexActive(number, time, offset, productIds));
+        active.truncate(SEGMENT_HEADER_SIZE + activeSize);
+    }
+
+    // Index a segment that has no (valid) index file by scanning its records
+    private static Sealed rebuildIndex(Path path, int[] sequences) throws IOException {
+        Section[] sections = newSections();
+        long end;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            end = scanRecords(channel, (offset, number, time, productIds) -> {
+                sections[BY_NUMBER].add(number, offset);
+                sections[BY_TIME].add(time, offset);
+                for (String productId : productIds) {
+                    sections[BY_PRODUCT].add(productHash(productId), offset);
+                }
+            });
+            channel.truncate(SEGMENT_HEADER_SIZE + end);
+            channel.force(true);
+        }
+        writeIndex(path, sequences[0], sequences[1], SEGMENT_HEADER_SIZE + end, sections);
+        return openSealed(path, sequences);
+    }
+
+    private interface RecordVisitor {
+        void accept(int offset, long number, long time, List<String> productIds);
+    }
+
+    // Visit every valid record of a segment, return the record bytes up to the first torn one
+    private static long scanRecords(FileChannel channel, RecordVisitor visitor) throws IOException {
+        long size = channel.size() - SEGMENT_HEADER_SIZE;
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        CRC32 check = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, SEGMENT_HEADER_SIZE + position);
+            int length = header.getInt(0);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, SEGMENT_HEADER_SIZE + position + RECORD_HEADER_SIZE);
+            check.reset();
+            check.update(payload.array(), 0, length);
+            if ((int) check.getValue() != header.getInt(4)) {
+                break;  // Torn write from a crash: everything after it is ignored
+            }
+            Receipt receipt = decode(payload.flip());
+            List<String> productIds = new ArrayList<>();
+            for (ShoppingItem item : receipt.getItems()) {
+                productIds.add(item.getProduct().getProductId());
+            }
+            visitor.accept((int) position, receipt.getReceiptNumber(), receipt.getTransactionTime().getTime(), productIds);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    // Seal the active segment: force it, write its index from the in-heap one, publish it
+    private void sealActive() throws IOException {
+        long covered = journalPosition;
+        active.force(true);
+        active.close();
+        saveJournalPosition(covered);
+        Path path = segmentPath(activeSequence);
+        writeIndex(path, activeSequence, activeSequence, SEGMENT_HEADER_SIZE + activeSize, activeSections);
+        Sealed[] segments = Arrays.copyOf(sealed, sealed.length + 1);
+        segments[segments.length - 1] = openSealed(path, new int[] {activeSequence, activeSequence});
+        sealed = segments;
+        activeSections = newSections();
+        activeByNumber.clear();
+        activeByProduct.clear();
+    }
+
+    private static Section[] newSections() {
+        return new Section[] {new Section(), new Section(), new Section()};
+    }
+
+    // Sort the three sections and write the index file (temp file + atomic move)
+    private static void writeIndex(Path segment, int firstSequence, int lastSequence, long segmentLength,
+                                   Section[] sections) throws IOException {
+        long[][][] sorted = new long[sections.length][][];
+        for (int s = 0; s < sections.length; s++) {
+            sorted[s] = sortedEntries(sections[s]);
+        }
+        long[][] byNumber = sorted[BY_NUMBER];
+        long[][] byTime = sorted[BY_TIME];
+        int count = byNumber.length;
+
+        Path path = indexPath(segment);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(uncloseable(channel), 1 << 16));
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(firstSequence);
+            out.writeInt(lastSequence);
+            out.writeLong(segmentLength);
+            out.writeInt(count);
+            out.writeInt(sorted[BY_PRODUCT].length);
+            out.writeLong(count == 0 ? 0 : byNumber[0][0]);
+            out.writeLong(count == 0 ? 0 : byNumber[count - 1][0]);
+            out.writeLong(count == 0 ? 0 : byTime[0][0]);
+            out.writeLong(count == 0 ? 0 : byTime[count - 1][0]);
+            for (long[][] section : sorted) {
+                for (long[] entry : section) {
+                    out.writeLong(entry[0]);
+                    out.writeInt((int) entry[1]);
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // (key, offset) pairs sorted by key, then offset
+    private static long[][] sortedEntries(Section section) {
+        long[][] entries = new long[section.size][];
+        for (int i = 0; i < section.size; i++) {
+            entries[i] = new long[] {section.keys[i], section.offsets[i]};
+        }
+        Arrays.parallelSort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        return entries;
+    }
+
+    private static void deleteSegment(Path path) throws IOException {
+        Files.deleteIfExists(indexPath(path));
+        Files.deleteIfExists(path);
+    }
+
+    // Force the active segment to disk
+    public synchronized void sync() throws IOException {
+        long covered = journalPosition;
+        active.force(false);
+        saveJournalPosition(covered);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        long covered = journalPosition;
+        active.force(true);
+        active.close();
+        saveJournalPosition(covered);
+    }
+
+    // ---- Helpers ----
+
+    // Stable 64-bit product ID hash (FNV-1a over the chars)
+    private static long productHash(String productId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < productId.length(); i++) {
+            h = (h ^ productId.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    // Positional write of the buffers, one after the other
+    private static void writeFully(FileChannel channel, long position, ByteBuffer... buffers) throws IOException {
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Stream over the channel's current position that leaves the channel open
+    private static OutputStream uncloseable(FileChannel channel) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buf = ByteBuffer.wrap(b, off, len);
+                while (buf.hasRemaining()) {
+                    channel.write(buf);
+                }
+            }
+        };
+    }
+}
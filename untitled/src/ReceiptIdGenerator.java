@@ -0,0 +1,18 @@
+/**
+ * Receipt ID generator interface: produces unique, time-ordered receipt numbers
+ * Implementations must be safe to call from many checkout lanes at once.
+ */
+public interface ReceiptIdGenerator {
+    // Next receipt number (strictly increasing per generator)
+    long nextId();
+
+    // Fixed-width decimal form of a receipt number, so string order equals numeric order
+    static String format(long receiptNumber) {
+        String digits = Long.toString(receiptNumber);
+        StringBuilder sb = new StringBuilder(19);
+        for (int i = digits.length(); i < 19; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+}
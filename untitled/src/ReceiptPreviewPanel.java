@@ -3,6 +3,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.print.PrinterException;
+import java.io.IOException;
 
 /**
  * Receipt preview panel: shows receipt for sale/return, supports printing & back navigation
@@ -10,8 +11,11 @@ import java.awt.print.PrinterException;
 public class ReceiptPreviewPanel extends JPanel {
     private JTextArea receiptTextArea;
     private Receipt currentReceipt;
+    private ReceiptSink textAreaSink;  // Renders into receiptTextArea
+    private final Runnable onBack;     // Back to the sale panel (same pipeline and Checkout)
 
-    public ReceiptPreviewPanel() {
+    public ReceiptPreviewPanel(Runnable onBack) {
+        this.onBack = onBack;
         initUI();
     }
 
@@ -28,6 +32,7 @@ public class ReceiptPreviewPanel extends JPanel {
         receiptTextArea = new JTextArea();
         receiptTextArea.setEditable(false);
         receiptTextArea.setFont(new Font("Monaco", Font.PLAIN, 14));
+        textAreaSink = new TextAreaReceiptSink(receiptTextArea);
         JScrollPane scroll = new JScrollPane(receiptTextArea);
         add(scroll, BorderLayout.CENTER);
 
@@ -38,13 +43,7 @@ public class ReceiptPreviewPanel extends JPanel {
         btnPanel.add(printBtn);
 
         JButton backBtn = new JButton("Back");
-        backBtn.addActionListener(e -> {
-            JFrame frame = (JFrame) SwingUtilities.getWindowAncestor(ReceiptPreviewPanel.this);
-            frame.getContentPane().remove(ReceiptPreviewPanel.this);
-            frame.add(new SalePanel(new Checkout(), r -> {}));
-            frame.revalidate();
-            frame.repaint();
-        });
+        backBtn.addActionListener(e -> onBack.run());
         btnPanel.add(backBtn);
         add(btnPanel, BorderLayout.SOUTH);
     }
@@ -54,26 +53,11 @@ public class ReceiptPreviewPanel extends JPanel {
      */
     public void setReceipt(Receipt receipt) {
         this.currentReceipt = receipt;
-        StringBuilder sb = new StringBuilder();
-        sb.append("======================================\n");
-        sb.append("        Supermarket POS - Receipt\n");
-        sb.append("======================================\n");
-        sb.append("Receipt ID: ").append(receipt.getReceiptId()).append("\n");
-        sb.append("Type: ").append(receipt.getTransactionType().equals("SALE") ? "Sale" : "Return").append("\n");
-        sb.append("Time: ").append(new java.text.SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(receipt.getTransactionTime())).append("\n");
-        sb.append("--------------------------------------\n");
-        sb.append(String.format("%-10s %-10s %-6s %-6s%n", "ID", "Name", "Price", "Qty"));
-        sb.append("--------------------------------------\n");
-        for (ShoppingItem item : receipt.getItems()) {
-            Product p = item.getProduct();
-            sb.append(String.format("%-10s %-10s %-6.2f %-6d%n",
-                    p.getProductId(), p.getProductName(), p.getPrice(), item.getQuantity()));
+        try {
+            ReceiptRenderer.defaultRenderer().render(receipt, textAreaSink);
+        } catch (IOException e) {
+            receiptTextArea.setText("Cannot render receipt: " + e.getMessage());
         }
-        sb.append("--------------------------------------\n");
-        sb.append("Total: ").append(String.format("%.2f", receipt.getTotalAmount())).append(" CNY\n");
-        sb.append("======================================\n");
-        sb.append("Thank you for shopping!\n");
-        receiptTextArea.setText(sb.toString());
     }
 
     /**
@@ -0,0 +1,365 @@
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Receipt renderer class: compiles a receipt layout template once, then renders receipts
+ * into a reusable char buffer and hands it to a ReceiptSink (console, text area, file, printer).
+ * No format strings are parsed per line; a renderer is not thread-safe (use one per thread).
+ *
+ * Template syntax:
+ *   {field}        field value           {field:-10}  left-aligned, padded to 10
+ *   {field:6}      right-aligned to 6    {#items} ... {/items}  repeated for every receipt line
+ *   {#discounts} ... {/discounts}        repeated for every promotion discount (absent if none)
+ *   Receipt fields: receiptId, type, time, total
+ *   Line fields (inside items): id, name, price, qty, subtotal
+ *   Discount fields (inside discounts): promotion, description, amount
+ */
+public class ReceiptRenderer {
+    // Same layout as the original console / preview receipt
+    public static final String DEFAULT_TEMPLATE =
+            "======================================\n"
+            + "        Supermarket POS - Receipt\n"
+            + "======================================\n"
+            + "Receipt ID: {receiptId}\n"
+            + "Type: {type}\n"
+            + "Time: {time}\n"
+            + "--------------------------------------\n"
+            + "ID         Name       Price  Qty   \n"
+            + "--------------------------------------\n"
+            + "{#items}{id:-10} {name:-10} {price:-6} {qty:-6}\n{/items}"
+            + "--------------------------------------\n"
+            + "{#discounts}Promo {description:-20} -{amount}\n{/discounts}"
+            + "Total: {total} CNY\n"
+            + "======================================\n"
+            + "Thank you for shopping!\n";
+
+    // Compiled op codes
+    private static final int OP_LITERAL = 0;
+    private static final int OP_RECEIPT_ID = 1;
+    private static final int OP_TYPE = 2;
+    private static final int OP_TIME = 3;
+    private static final int OP_TOTAL = 4;
+    private static final int OP_ITEMS_START = 5;
+    private static final int OP_ITEMS_END = 6;
+    private static final int OP_ITEM_ID = 7;
+    private static final int OP_ITEM_NAME = 8;
+    private static final int OP_ITEM_PRICE = 9;
+    private static final int OP_ITEM_QTY = 10;
+    private static final int OP_ITEM_SUBTOTAL = 11;
+    private static final int OP_DISCOUNTS_START = 12;
+    private static final int OP_DISCOUNTS_END = 13;
+    private static final int OP_DISCOUNT_PROMOTION = 14;
+    private static final int OP_DISCOUNT_DESCRIPTION = 15;
+    private static final int OP_DISCOUNT_AMOUNT = 16;
+
+    private static final ThreadLocal<ReceiptRenderer> DEFAULT = ThreadLocal.withInitial(() -> new ReceiptRenderer(DEFAULT_TEMPLATE));
+
+    // Compiled template: ops[i] with argument args[i] (literal index or field width)
+    private final int[] ops;
+    private final int[] args;
+    private final char[][] literals;
+
+    // Reusable output buffer
+    private char[] buffer = new char[2048];
+    private int length;
+    private final StringBuilder scratch = new StringBuilder(32);  // For numbers/text before padding
+
+    // Cached time zone offset for the current hour
+    private final ZoneRules zoneRules = ZoneId.systemDefault().getRules();
+    private long offsetValidFrom = Long.MAX_VALUE;
+    private long offsetValidTo = Long.MIN_VALUE;
+    private long offsetMillis;
+
+    public ReceiptRenderer(String template) {
+        List<Integer> opList = new ArrayList<>();
+        List<Integer> argList = new ArrayList<>();
+        List<char[]> literalList = new ArrayList<>();
+        int block = 0;  // Open block: 0, OP_ITEMS_START or OP_DISCOUNTS_START
+        int pos = 0;
+        while (pos < template.length()) {
+            int open = template.indexOf('{', pos);
+            if (open < 0) {
+                open = template.length();
+            }
+            if (open > pos) {
+                opList.add(OP_LITERAL);
+                argList.add(literalList.size());
+                literalList.add(template.substring(pos, open).toCharArray());
+            }
+            if (open == template.length()) {
+                break;
+            }
+            int close = template.indexOf('}', open);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at " + open);
+            }
+            String placeholder = template.substring(open + 1, close);
+            String field = placeholder;
+            int width = 0;
+            int colon = placeholder.indexOf(':');
+            if (colon >= 0) {
+                field = placeholder.substring(0, colon);
+                width = Integer.parseInt(placeholder.substring(colon + 1));  // Negative = left-aligned
+            }
+            int op = opCode(field);
+            if (op == OP_ITEMS_START || op == OP_DISCOUNTS_START) {
+                if (block != 0) {
+                    throw new IllegalArgumentException("Nested block: " + field);
+                }
+                block = op;
+            } else if (op == OP_ITEMS_END || op == OP_DISCOUNTS_END) {
+                if (block != op - 1) {
+                    throw new IllegalArgumentException("Unbalanced block end: " + field);
+                }
+                block = 0;
+            } else if (op >= OP_ITEM_ID && op <= OP_ITEM_SUBTOTAL && block != OP_ITEMS_START) {
+                throw new IllegalArgumentException("Line field outside {#items}: " + field);
+            } else if (op >= OP_DISCOUNT_PROMOTION && block != OP_DISCOUNTS_START) {
+                throw new IllegalArgumentException("Discount field outside {#discounts}: " + field);
+            }
+            opList.add(op);
+            argList.add(width);
+            pos = close + 1;
+        }
+        if (block != 0) {
+            throw new IllegalArgumentException(block == OP_ITEMS_START ? "Missing {/items}" : "Missing {/discounts}");
+        }
+        ops = opList.stream().mapToInt(Integer::intValue).toArray();
+        args = argList.stream().mapToInt(Integer::intValue).toArray();
+        literals = literalList.toArray(new char[0][]);
+    }
+
+    // Renderer with the default layout for the calling thread
+    public static ReceiptRenderer defaultRenderer() {
+        return DEFAULT.get();
+    }
+
+    private static int opCode(String field) {
+        switch (field) {
+            case "receiptId": return OP_RECEIPT_ID;
+            case "type": return OP_TYPE;
+            case "time": return OP_TIME;
+            case "total": return OP_TOTAL;
+            case "#items": return OP_ITEMS_START;
+            case "/items": return OP_ITEMS_END;
+            case "id": return OP_ITEM_ID;
+            case "name": return OP_ITEM_NAME;
+            case "price": return OP_ITEM_PRICE;
+            case "qty": return OP_ITEM_QTY;
+            case "subtotal": return OP_ITEM_SUBTOTAL;
+            case "#discounts": return OP_DISCOUNTS_START;
+            case "/discounts": return OP_DISCOUNTS_END;
+            case "promotion": return OP_DISCOUNT_PROMOTION;
+            case "description": return OP_DISCOUNT_DESCRIPTION;
+            case "amount": return OP_DISCOUNT_AMOUNT;
+            default: throw new IllegalArgumentException("Unknown receipt field: " + field);
+        }
+    }
+
+    // Render and pass the text to a sink
+    public void render(Receipt receipt, ReceiptSink sink) throws IOException {
+        render(receipt);
+        sink.write(buffer, length);
+    }
+
+    // Render into the internal buffer, return the number of chars (see getBuffer)
+    public int render(Receipt receipt) {
+        length = 0;
+        List<ShoppingItem> items = receipt.getItems();
+        int itemsStart = -1;
+        int itemIndex = 0;
+        ShoppingItem item = null;
+        List<Discount> discounts = receipt.getDiscounts();
+        int discountsStart = -1;
+        int discountIndex = 0;
+        Discount discount = null;
+        for (int pc = 0; pc < ops.length; pc++) {
+            int width = args[pc];
+            switch (ops[pc]) {
+                case OP_LITERAL:
+                    appendChars(literals[args[pc]]);
+                    break;
+                case OP_RECEIPT_ID:
+                    appendPadded(receipt.getReceiptId(), width);
+                    break;
+                case OP_TYPE:
+                    appendPadded("SALE".equals(receipt.getTransactionType()) ? "Sale" : "Return", width);
+                    break;
+                case OP_TIME:
+                    scratch.setLength(0);
+                    appendTime(receipt.getTransactionTime().getTime());
+                    appendPadded(scratch, width);
+                    break;
+                case OP_TOTAL:
+                    scratch.setLength(0);
+                    appendPadded(Money.appendTo(scratch, receipt.getTotalAmount()), width);
+                    break;
+                case OP_ITEMS_START:
+                    if (items.isEmpty()) {
+                        pc = skipTo(pc, OP_ITEMS_END);
+                    } else {
+                        itemsStart = pc;
+                        itemIndex = 0;
+                        item = items.get(0);
+                    }
+                    break;
+                case OP_ITEMS_END:
+                    if (++itemIndex < items.size()) {
+                        item = items.get(itemIndex);
+                        pc = itemsStart;  // Loop body again for the next line
+                    }
+                    break;
+                case OP_ITEM_ID:
+                    appendPadded(item.getProduct().getProductId(), width);
+                    break;
+                case OP_ITEM_NAME:
+                    appendPadded(item.getProduct().getProductName(), width);
+                    break;
+                case OP_ITEM_PRICE:
+                    scratch.setLength(0);
+                    appendPadded(Money.appendTo(scratch, item.getProduct().getPrice()), width);
+                    break;
+                case OP_ITEM_QTY:
+                    scratch.setLength(0);
+                    appendPadded(scratch.append(item.getQuantity()), width);
+                    break;
+                case OP_ITEM_SUBTOTAL:
+                    scratch.setLength(0);
+                    appendPadded(Money.appendTo(scratch, item.calculateItemTotal()), width);
+                    break;
+                case OP_DISCOUNTS_START:
+                    if (discounts.isEmpty()) {
+                        pc = skipTo(pc, OP_DISCOUNTS_END);
+                    } else {
+                        discountsStart = pc;
+                        discountIndex = 0;
+                        discount = discounts.get(0);
+                    }
+                    break;
+                case OP_DISCOUNTS_END:
+                    if (++discountIndex < discounts.size()) {
+                        discount = discounts.get(discountIndex);
+                        pc = discountsStart;
+                    }
+                    break;
+                case OP_DISCOUNT_PROMOTION:
+                    appendPadded(discount.getPromotionId(), width);
+                    break;
+                case OP_DISCOUNT_DESCRIPTION:
+                    appendPadded(discount.getDescription(), width);
+                    break;
+                case OP_DISCOUNT_AMOUNT:
+                    scratch.setLength(0);
+                    appendPadded(Money.appendTo(scratch, discount.getAmount()), width);
+                    break;
+                default:
+                    throw new IllegalStateException("Bad op " + ops[pc]);
+            }
+        }
+        return length;
+    }
+
+    // Rendered text of the last render call (valid up to the returned length)
+    public char[] getBuffer() {
+        return buffer;
+    }
+
+    // Render to a String (for callers that need one, e.g. Swing)
+    public String renderToString(Receipt receipt) {
+        return new String(buffer, 0, render(receipt));
+    }
+
+    private int skipTo(int pc, int endOp) {
+        while (ops[pc] != endOp) {
+            pc++;
+        }
+        return pc;
+    }
+
+    private void appendChars(char[] chars) {
+        ensureCapacity(chars.length);
+        System.arraycopy(chars, 0, buffer, length, chars.length);
+        length += chars.length;
+    }
+
+    // Append with padding: width < 0 = left-aligned, width > 0 = right-aligned (like %-10s / %10s)
+    private void appendPadded(CharSequence text, int width) {
+        int textLength = text.length();
+        int pad = Math.max(0, Math.abs(width) - textLength);
+        ensureCapacity(textLength + pad);
+        if (width > 0) {
+            appendSpaces(pad);
+        }
+        for (int i = 0; i < textLength; i++) {
+            buffer[length++] = text.charAt(i);
+        }
+        if (width < 0) {
+            appendSpaces(pad);
+        }
+    }
+
+    private void appendSpaces(int count) {
+        Arrays.fill(buffer, length, length + count, ' ');
+        length += count;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    // "yyyy-MM-dd HH:mm:ss" in the system time zone, without a formatter
+    private void appendTime(long epochMillis) {
+        if (epochMillis < offsetValidFrom || epochMillis >= offsetValidTo) {
+            // Cache the offset for this hour, bounded by the surrounding zone transitions
+            Instant instant = Instant.ofEpochMilli(epochMillis);
+            offsetMillis = zoneRules.getOffset(instant).getTotalSeconds() * 1000L;
+            offsetValidFrom = Math.floorDiv(epochMillis, 3_600_000L) * 3_600_000L;
+            offsetValidTo = offsetValidFrom + 3_600_000L;
+            ZoneOffsetTransition previous = zoneRules.previousTransition(instant);
+            if (previous != null) {
+                offsetValidFrom = Math.max(offsetValidFrom, previous.toEpochSecond() * 1000L);
+            }
+            ZoneOffsetTransition next = zoneRules.nextTransition(instant);
+            if (next != null) {
+                offsetValidTo = Math.min(offsetValidTo, next.toEpochSecond() * 1000L);
+            }
+        }
+        long localSeconds = Math.floorDiv(epochMillis + offsetMillis, 1000L);
+        long days = Math.floorDiv(localSeconds, 86_400L);
+        int secondOfDay = (int) Math.floorMod(localSeconds, 86_400L);
+
+        // Civil date from days since 1970-01-01 (H. Hinnant's algorithm)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        scratch.append(year).append('-');
+        appendTwoDigits(month);
+        scratch.append('-');
+        appendTwoDigits(day);
+        scratch.append(' ');
+        appendTwoDigits(secondOfDay / 3600);
+        scratch.append(':');
+        appendTwoDigits(secondOfDay / 60 % 60);
+        scratch.append(':');
+        appendTwoDigits(secondOfDay % 60);
+    }
+
+    private void appendTwoDigits(int value) {
+        scratch.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
@@ -0,0 +1,14 @@
+import java.io.IOException;
+
+/**
+ * Receipt sink interface: destination of rendered receipt text (see ReceiptRenderer)
+ * The char buffer is owned by the renderer and reused: sinks must copy what they keep.
+ */
+public interface ReceiptSink {
+    // Write one rendered receipt: text[0, length)
+    void write(char[] text, int length) throws IOException;
+
+    // Flush buffered output (default: nothing buffered)
+    default void flush() throws IOException {
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reservation ledger class: holds stock for scanned sale lines between scan and payment.
+ * Reserving takes the units out of the product's available stock immediately (same atomic counter
+ * as a sale), paying converts the reservation into the sale, and voiding, cancelling or the TTL
+ * running out gives the units back. Expiry is driven by a TimerWheel, so each reservation costs
+ * O(1) to create, refresh and release, however many are outstanding.
+ * Reservations are not journaled: after a restart the journal replay restores committed stock only.
+ */
+public class ReservationLedger {
+    // Reservation states
+    private static final int ACTIVE = 0;
+    private static final int CONVERTED = 1;  // Paid: the held units became the sale deduction
+    private static final int RELEASED = 2;   // Voided / cancelled: units returned
+    private static final int EXPIRED = 3;    // TTL ran out: units returned
+
+    private final TimerWheel wheel;
+    private final long ttlMillis;
+    private final InventoryEventBus events;  // Hold / release notifications (null = none)
+
+    // Statistics
+    private final LongAdder active = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    /**
+     * One reservation of a product quantity (owned by one cart line).
+     * State changes are guarded by the reservation's monitor (one lane plus the timer thread).
+     */
+    public final class Reservation extends TimerWheel.Entry {
+        private final Product product;
+        private int quantity;   // Units currently held
+        private int state;
+        private long expiresAt; // System.nanoTime() deadline
+
+        private Reservation(Product product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        public synchronized int getQuantity() {
+            return state == ACTIVE ? quantity : 0;
+        }
+
+        public synchronized boolean isActive() {
+            return state == ACTIVE;
+        }
+
+        synchronized boolean isConverted() {
+            return state == CONVERTED;
+        }
+
+        // Timer thread: give the units back unless the reservation was refreshed or settled meanwhile
+        @Override
+        protected void expire() {
+            synchronized (this) {
+                if (state != ACTIVE || System.nanoTime() - expiresAt < 0) {
+                    return;
+                }
+                state = EXPIRED;
+                product.updateStock(quantity);
+                publish(InventoryEvent.Type.EXPIRED, product, quantity);
+            }
+            active.decrement();
+            expired.increment();
+        }
+    }
+
+    public ReservationLedger(long ttlMillis) {
+        this(ttlMillis, null);
+    }
+
+    public ReservationLedger(long ttlMillis, InventoryEventBus events) {
+        this.ttlMillis = ttlMillis;
+        this.events = events;
+        // 100 ms ticks, 1024 slots: one turn of the wheel covers ~100 s
+        this.wheel = new TimerWheel("reservation-expiry", 100, 1024);
+    }
+
+    // TTL from -Dpos.reservation.ttl (seconds, default 300)
+    public static ReservationLedger fromSystemProperties(InventoryEventBus events) {
+        return new ReservationLedger(Long.getLong("pos.reservation.ttl", 300) * 1000L, events);
+    }
+
+    // Hold quantity units of a product (throws IllegalArgumentException if not enough stock is available)
+    public Reservation reserve(Product product, int quantity) {
+        take(product, quantity);
+        publish(InventoryEvent.Type.RESERVED, product, -quantity);
+        Reservation reservation = new Reservation(product, quantity);
+        synchronized (reservation) {
+            touch(reservation);
+        }
+        active.increment();
+        return reservation;
+    }
+
+    /**
+     * Change the held quantity (line quantity changed) and refresh the TTL.
+     * An expired reservation is taken again in full. On insufficient stock the reservation is unchanged.
+     */
+    public void resize(Reservation reservation, int quantity) {
+        boolean revived = false;
+        synchronized (reservation) {
+            if (reservation.state == CONVERTED || reservation.state == RELEASED) {
+                throw new IllegalStateException("Reservation already settled");
+            }
+            int held = reservation.state == ACTIVE ? reservation.quantity : 0;
+            int delta = quantity - held;
+            if (delta > 0) {
+                take(reservation.product, delta);
+                publish(InventoryEvent.Type.RESERVED, reservation.product, -delta);
+            } else if (delta < 0) {
+                reservation.product.updateStock(-delta);
+                publish(InventoryEvent.Type.RELEASED, reservation.product, -delta);
+            }
+            if (reservation.state == EXPIRED) {
+                reservation.state = ACTIVE;
+                revived = true;
+            }
+            reservation.quantity = quantity;
+            touch(reservation);
+        }
+        if (revived) {
+            active.increment();
+            expired.decrement();
+        }
+    }
+
+    // Payment: the held units become the sale; false if the reservation expired (deduct normally)
+    public boolean convert(Reservation reservation) {
+        synchronized (reservation) {
+            if (reservation.state != ACTIVE) {
+                return false;
+            }
+            reservation.state = CONVERTED;
+        }
+        wheel.cancel(reservation);
+        active.decrement();
+        return true;
+    }
+
+    // Undo convert when the rest of the transaction failed: hold the units again with a fresh TTL
+    public void restore(Reservation reservation) {
+        synchronized (reservation) {
+            if (reservation.state != CONVERTED) {
+                return;
+            }
+            reservation.state = ACTIVE;
+            touch(reservation);
+        }
+        active.increment();
+    }
+
+    // Void / cancel: give the held units back
+    public void release(Reservation reservation) {
+        synchronized (reservation) {
+            if (reservation.state != ACTIVE) {
+                return;
+            }
+            reservation.state = RELEASED;
+            reservation.product.updateStock(reservation.quantity);
+            publish(InventoryEvent.Type.RELEASED, reservation.product, reservation.quantity);
+        }
+        wheel.cancel(reservation);
+        active.decrement();
+    }
+
+    // Number of reservations currently holding stock
+    public long getActiveCount() {
+        return active.sum();
+    }
+
+    // Number of reservations released by the TTL so far
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    // (Re)start the TTL; caller holds the reservation's monitor
+    private void touch(Reservation reservation) {
+        reservation.expiresAt = System.nanoTime() + ttlMillis * 1_000_000L;
+        wheel.schedule(reservation, ttlMillis);
+    }
+
+    private void publish(InventoryEvent.Type type, Product product, int delta) {
+        if (events != null) {
+            events.publish(type, product.getProductId(), delta, product.getStockQuantity());
+        }
+    }
+
+    // Take units out of available stock, reporting which product ran out
+    private static void take(Product product, int quantity) {
+        try {
+            product.updateStock(-quantity);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Product \u300c" + product.getProductName() + "\u300d out of stock, current stock: " + product.getStockQuantity());
+        }
+    }
+}
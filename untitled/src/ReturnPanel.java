@@ -6,9 +6,10 @@ import java.util.function.Consumer;
 
 /**
  * Return panel: input product ID & quantity, confirm return, show refund amount
+ * Checkout work runs on the CheckoutPipeline worker (see SalePanel).
  */
 public class ReturnPanel extends JPanel {
-    private final Checkout checkout;
+    private final CheckoutPipeline pipeline;
     private final Consumer<Receipt> receiptCallback;
 
     // Components
@@ -16,11 +17,13 @@ public class ReturnPanel extends JPanel {
     private JTextField quantityField;
     private JTextArea returnTextArea;
     private JLabel refundLabel;
+    private JLabel statusLabel;  // Inline status (replaces message dialogs)
 
-    public ReturnPanel(Checkout checkout, Consumer<Receipt> receiptCallback) {
-        this.checkout = checkout;
+    public ReturnPanel(CheckoutPipeline pipeline, Consumer<Receipt> receiptCallback) {
+        this.pipeline = pipeline;
         this.receiptCallback = receiptCallback;
         initUI();
+        pipeline.addView(this::updateReturnDisplay);
     }
 
     private void initUI() {
@@ -40,7 +43,9 @@ public class ReturnPanel extends JPanel {
         inputPanel.add(quantityField);
 
         JButton addBtn = new JButton("Add");
-        addBtn.addActionListener(new AddReturnItemListener());
+        AddReturnItemListener addListener = new AddReturnItemListener();
+        addBtn.addActionListener(addListener);
+        productIdField.addActionListener(addListener); // Enter / scanner suffix adds the item
         inputPanel.add(addBtn);
         add(inputPanel, BorderLayout.NORTH);
 
@@ -67,7 +72,12 @@ public class ReturnPanel extends JPanel {
         JButton resetBtn = new JButton("Reset");
         resetBtn.addActionListener(e -> resetReturn());
         refundPanel.add(resetBtn);
-        add(refundPanel, BorderLayout.SOUTH);
+
+        statusLabel = new JLabel(" ");
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 10));
+        bottomPanel.add(refundPanel, BorderLayout.CENTER);
+        bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+        add(bottomPanel, BorderLayout.SOUTH);
     }
 
     /**
@@ -78,30 +88,26 @@ public class ReturnPanel extends JPanel {
         public void actionPerformed(ActionEvent e) {
             try {
                 String productId = productIdField.getText().trim();
-                int quantity = Integer.parseInt(quantityField.getText().trim());
+                int quantity = SalePanel.parseQuantity(quantityField);
 
                 // Validation
-                if (productId.isEmpty()) {
-                    JOptionPane.showMessageDialog(ReturnPanel.this, "Product ID cannot be empty!", "Input Error", JOptionPane.ERROR_MESSAGE);
+                if (productId.isEmpty() || productId.equals(productIdField.getClientProperty("hint"))) {
+                    pipeline.showStatus("Product ID cannot be empty!", true);
                     return;
                 }
                 if (quantity <= 0) {
-                    JOptionPane.showMessageDialog(ReturnPanel.this, "Quantity must be a positive integer!", "Input Error", JOptionPane.ERROR_MESSAGE);
+                    pipeline.showStatus("Quantity must be a positive integer!", true);
                     return;
                 }
 
-                // Business logic: add return item (negative quantity)
-                checkout.addItem(productId, -quantity);
-                updateReturnDisplay();
-                JOptionPane.showMessageDialog(ReturnPanel.this, "Return item added!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                // Business logic: queue the return item (negative quantity)
+                pipeline.scan(productId, -quantity);
 
-                // Clear fields
+                // Clear product ID for the next scan
                 productIdField.setText("");
-                quantityField.setText("");
+                productIdField.requestFocusInWindow();
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(ReturnPanel.this, "Quantity format error! Please enter an integer", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (IllegalArgumentException ex) {
-                JOptionPane.showMessageDialog(ReturnPanel.this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                pipeline.showStatus("Quantity format error! Please enter an integer", true);
             }
         }
     }
@@ -112,51 +118,41 @@ public class ReturnPanel extends JPanel {
     private class ConfirmReturnListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            try {
-                double totalRefund = Math.abs(checkout.calculateTotalAmount());
-                if (totalRefund <= 0) {
-                    JOptionPane.showMessageDialog(ReturnPanel.this, "No return items added!", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+            long totalRefund = Math.abs(pipeline.getLatest().getTotalAmount());
+            if (totalRefund <= 0) {
+                pipeline.showStatus("No return items added!", true);
+                return;
+            }
 
-                // Confirm dialog
-                int confirm = JOptionPane.showConfirmDialog(ReturnPanel.this,
-                        "Confirm return? Refund: " + totalRefund + " CNY", "Confirm", JOptionPane.YES_NO_OPTION);
-                if (confirm != JOptionPane.YES_OPTION) return;
+            // Confirm dialog (a decision, not a notification)
+            int confirm = JOptionPane.showConfirmDialog(ReturnPanel.this,
+                    "Confirm return? Refund: " + Money.format(totalRefund) + " CNY", "Confirm", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) return;
 
-                // Process return
-                Receipt receipt = checkout.processReturn();
-                JOptionPane.showMessageDialog(ReturnPanel.this, "Return successful! Showing receipt.", "Success", JOptionPane.INFORMATION_MESSAGE);
+            // Process return (stock commit + journal off the EDT)
+            pipeline.processReturn(receipt -> {
                 receiptCallback.accept(receipt);
-                resetReturn();
-            } catch (IllegalArgumentException ex) {
-                JOptionPane.showMessageDialog(ReturnPanel.this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+                productIdField.setText("");
+                quantityField.setText("");
+            });
         }
     }
 
     /**
-     * Update list and refund amount
+     * Update list and refund amount (EDT, at most once per frame)
      */
-    private void updateReturnDisplay() {
-        double totalRefund = Math.abs(checkout.calculateTotalAmount());
-        refundLabel.setText(totalRefund + " CNY");
-
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-10s %-10s %-6s %-8s %-8s%n", "ID", "Name", "Price", "Qty", "Subtotal"));
-        sb.append("----------------------------------------\n");
-        sb.append(String.format("%-10s %-10s %-6s %-8s %-8.2f%n", "---", "Total", "---", "---", totalRefund));
-        returnTextArea.setText(sb.toString());
+    private void updateReturnDisplay(CheckoutPipeline.CartView view) {
+        refundLabel.setText(Money.format(Math.abs(view.getTotalAmount())) + " CNY");
+        returnTextArea.setText(view.getCartText());
+        SalePanel.showStatus(statusLabel, view);
     }
 
     /**
      * Reset return transaction
      */
     private void resetReturn() {
-        checkout.cancelTransaction();
-        returnTextArea.setText("");
-        refundLabel.setText("0.00 CNY");
+        pipeline.cancel();
         productIdField.setText("");
         quantityField.setText("");
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,25 @@
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
 import java.util.function.Consumer;
 
 /**
  * Sale panel: input product ID & quantity, add items, pay, show total amount
+ * Checkout work runs on the CheckoutPipeline worker; this panel only queues input and renders
+ * the latest cart view (scanner: type or scan the ID and press Enter, quantity defaults to 1).
  */
 public class SalePanel extends JPanel {
-    private final Checkout checkout;
+    private static final int SEARCH_DELAY_MILLIS = 100;  // Scanner input (ID + Enter) finishes before a search starts
+    private static final int SUGGESTION_COUNT = 8;
+
+    private final CheckoutPipeline pipeline;
     private final Consumer<Receipt> receiptCallback; // Receipt callback (for preview)
 
     // Components
@@ -17,11 +28,20 @@ public class SalePanel extends JPanel {
     private JTextArea cartTextArea;    // Cart display area
     private JLabel totalAmountLabel;   // Total amount label
     private JTextField cashField;      // Cash input
+    private JLabel statusLabel;        // Inline status (replaces message dialogs)
+
+    // Search as you type: suggestions under the product ID field (EDT only)
+    private final DefaultListModel<Product> suggestions = new DefaultListModel<>();
+    private final JList<Product> suggestionList = new JList<>(suggestions);
+    private final JPopupMenu suggestionPopup = new JPopupMenu();
+    private Timer searchTimer;
+    private int searchGeneration;  // Results of older searches are dropped
 
-    public SalePanel(Checkout checkout, Consumer<Receipt> receiptCallback) {
-        this.checkout = checkout;
+    public SalePanel(CheckoutPipeline pipeline, Consumer<Receipt> receiptCallback) {
+        this.pipeline = pipeline;
         this.receiptCallback = receiptCallback;
         initUI(); // Initialize UI
+        pipeline.addView(this::updateCartDisplay);
     }
 
     /**
@@ -39,13 +59,16 @@ public class SalePanel extends JPanel {
 
         inputPanel.add(new JLabel("Quantity:", SwingConstants.CENTER));
         quantityField = new JTextField();
-        quantityField.setText("Enter positive integer");
+        setHintText(quantityField, "1");
         inputPanel.add(quantityField);
 
         JButton addBtn = new JButton("Add Item");
-        addBtn.addActionListener(new AddItemListener());
+        AddItemListener addItemListener = new AddItemListener();
+        addBtn.addActionListener(addItemListener);
+        productIdField.addActionListener(addItemListener); // Enter / scanner suffix adds the item
         inputPanel.add(addBtn);
         add(inputPanel, BorderLayout.NORTH);
+        initSuggestions(addItemListener);
 
         // 2. Middle: cart display
         cartTextArea = new JTextArea();
@@ -74,42 +97,173 @@ public class SalePanel extends JPanel {
         JButton resetBtn = new JButton("Reset");
         resetBtn.addActionListener(e -> resetTransaction());
         payPanel.add(resetBtn);
-        add(payPanel, BorderLayout.SOUTH);
+
+        statusLabel = new JLabel(" ");
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 10));
+        bottomPanel.add(payPanel, BorderLayout.CENTER);
+        bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+        add(bottomPanel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Search-as-you-type popup: the product index is queried off the EDT once typing pauses;
+     * Up / Down pick a suggestion, Enter or a click adds it, Escape closes the list.
+     */
+    private void initSuggestions(ActionListener addItemListener) {
+        suggestionList.setFocusable(false);
+        suggestionList.setFont(new Font("Monaco", Font.PLAIN, 12));
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean selected, boolean focused) {
+                Product product = (Product) value;
+                String text = String.format("%-10s %-20s %10s CNY  stock %d", product.getProductId(), product.getProductName(),
+                        Money.format(product.getPrice()), product.getStockQuantity());
+                return super.getListCellRendererComponent(list, text, index, selected, focused);
+            }
+        });
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = suggestionList.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    suggestionList.setSelectedIndex(index);
+                    addItemListener.actionPerformed(new ActionEvent(suggestionList, ActionEvent.ACTION_PERFORMED, "add"));
+                }
+            }
+        });
+        suggestionPopup.setFocusable(false);
+        suggestionPopup.add(new JScrollPane(suggestionList));
+
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> searchProducts());
+        searchTimer.setRepeats(false);
+        productIdField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
+        InputMap keys = productIdField.getInputMap(JComponent.WHEN_FOCUSED);
+        ActionMap actions = productIdField.getActionMap();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "suggestion-next");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "suggestion-previous");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "suggestion-close");
+        actions.put("suggestion-next", moveSelection(1));
+        actions.put("suggestion-previous", moveSelection(-1));
+        actions.put("suggestion-close", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hideSuggestions();
+            }
+        });
+    }
+
+    private Action moveSelection(int step) {
+        return new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!suggestionPopup.isVisible() || suggestions.isEmpty()) {
+                    return;
+                }
+                int index = Math.floorMod(suggestionList.getSelectedIndex() + step, suggestions.size());
+                suggestionList.setSelectedIndex(index);
+                suggestionList.ensureIndexIsVisible(index);
+            }
+        };
+    }
+
+    // Query the search index on a background thread, show the result if the text is unchanged
+    private void searchProducts() {
+        int generation = ++searchGeneration;
+        String query = productIdField.getText().trim();
+        if (query.isEmpty() || !productIdField.isShowing()) {
+            hideSuggestions();
+            return;
+        }
+        new SwingWorker<List<Product>, Void>() {
+            @Override
+            protected List<Product> doInBackground() {
+                return Inventory.getInstance().searchProducts(query, SUGGESTION_COUNT);
+            }
+
+            @Override
+            protected void done() {
+                if (generation != searchGeneration || !productIdField.isShowing()) {
+                    return;  // Typed on, or the ID was already added
+                }
+                try {
+                    showSuggestions(get());
+                } catch (Exception e) {
+                    hideSuggestions();
+                }
+            }
+        }.execute();
+    }
+
+    private void showSuggestions(List<Product> found) {
+        suggestions.clear();
+        if (found.isEmpty()) {
+            hideSuggestions();
+            return;
+        }
+        for (Product product : found) {
+            suggestions.addElement(product);
+        }
+        suggestionList.clearSelection();
+        suggestionList.setVisibleRowCount(found.size());
+        suggestionPopup.setPopupSize(Math.max(productIdField.getWidth() * 3, 360), suggestionPopup.getPreferredSize().height);
+        suggestionPopup.show(productIdField, 0, productIdField.getHeight());
+        productIdField.requestFocusInWindow();
+    }
+
+    private void hideSuggestions() {
+        searchTimer.stop();
+        searchGeneration++;
+        suggestionPopup.setVisible(false);
     }
 
     /**
-     * Listener for "Add Item" button
+     * Listener for "Add Item" button (and Enter in the product ID field)
      */
     private class AddItemListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
             try {
-                // Retrieve input
-                String productId = productIdField.getText().trim();
-                int quantity = Integer.parseInt(quantityField.getText().trim());
+                // Retrieve input (a picked suggestion replaces the typed text)
+                Product picked = suggestionPopup.isVisible() ? suggestionList.getSelectedValue() : null;
+                String productId = picked != null ? picked.getProductId() : productIdField.getText().trim();
+                hideSuggestions();
+                int quantity = parseQuantity(quantityField);
 
                 // Validate input
                 if (productId.isEmpty()) {
-                    JOptionPane.showMessageDialog(SalePanel.this, "Product ID cannot be empty!", "Input Error", JOptionPane.ERROR_MESSAGE);
+                    pipeline.showStatus("Product ID cannot be empty!", true);
                     return;
                 }
                 if (quantity <= 0) {
-                    JOptionPane.showMessageDialog(SalePanel.this, "Quantity must be a positive integer!", "Input Error", JOptionPane.ERROR_MESSAGE);
+                    pipeline.showStatus("Quantity must be a positive integer!", true);
                     return;
                 }
 
-                // Business logic: add item
-                checkout.addItem(productId, quantity);
-                updateCartDisplay(); // Refresh cart display
-                JOptionPane.showMessageDialog(SalePanel.this, "Item added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+                // Business logic: queue the scan (applied on the checkout worker)
+                pipeline.scan(productId, quantity);
 
-                // Clear input fields
+                // Clear product ID for the next scan
                 productIdField.setText("");
-                quantityField.setText("");
+                productIdField.requestFocusInWindow();
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(SalePanel.this, "Quantity format error! Please enter an integer", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (IllegalArgumentException ex) {
-                JOptionPane.showMessageDialog(SalePanel.this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                pipeline.showStatus("Quantity format error! Please enter an integer", true);
             }
         }
     }
@@ -121,61 +275,62 @@ public class SalePanel extends JPanel {
         @Override
         public void actionPerformed(ActionEvent e) {
             try {
-                double total = checkout.calculateTotalAmount();
-                if (total <= 0) {
-                    JOptionPane.showMessageDialog(SalePanel.this, "Cart is empty, cannot pay!", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-
-                // Retrieve payment amount
-                double cash = Double.parseDouble(cashField.getText().trim());
-                if (cash < total) {
-                    JOptionPane.showMessageDialog(SalePanel.this, "Insufficient payment! Due: " + total + " CNY", "Error", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
+                // Retrieve payment amount (checked against the total on the worker)
+                long cash = Money.parse(cashField.getText());
 
-                // Business logic: process payment
-                Receipt receipt = checkout.processPayment(cash);
-                JOptionPane.showMessageDialog(SalePanel.this, "Payment successful! Showing receipt.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                receiptCallback.accept(receipt); // Show receipt preview via callback
-                resetTransaction(); // Reset transaction
+                // Business logic: process payment (stock commit + journal off the EDT)
+                pipeline.pay(cash, receipt -> {
+                    receiptCallback.accept(receipt); // Show receipt preview via callback
+                    clearInputs();
+                });
             } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(SalePanel.this, "Payment amount format error! Please enter a number", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (IllegalArgumentException ex) {
-                JOptionPane.showMessageDialog(SalePanel.this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                pipeline.showStatus("Payment amount format error! Please enter a number", true);
             }
         }
     }
 
     /**
-     * Update cart display area and total amount
+     * Update cart display area and total amount (EDT, at most once per frame)
      */
-    private void updateCartDisplay() {
-        double total = checkout.calculateTotalAmount();
-        totalAmountLabel.setText(total + " CNY");
-
-        // Build cart text
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-10s %-10s %-6s %-6s %-8s%n", "Product ID", "Name", "Price", "Qty", "Subtotal"));
-        sb.append("----------------------------------------\n");
-
-        // For simplicity, we only show the total here
-        sb.append(String.format("%-10s %-10s %-6s %-6s %-8.2f%n", "---", "Total", "---", "---", total));
-        cartTextArea.setText(sb.toString());
+    private void updateCartDisplay(CheckoutPipeline.CartView view) {
+        totalAmountLabel.setText(Money.format(view.getTotalAmount()) + " CNY");
+        cartTextArea.setText(view.getCartText());
+        showStatus(statusLabel, view);
     }
 
     /**
      * Reset current transaction
      */
     private void resetTransaction() {
-        checkout.cancelTransaction();
-        cartTextArea.setText("");
-        totalAmountLabel.setText("0.00 CNY");
+        pipeline.cancel();
+        clearInputs();
+    }
+
+    private void clearInputs() {
         productIdField.setText("");
         quantityField.setText("");
         cashField.setText("");
     }
 
+    /**
+     * Utility: quantity from a field, 1 if left empty (or showing its hint)
+     */
+    static int parseQuantity(JTextField field) {
+        String text = field.getText().trim();
+        if (text.isEmpty() || text.equals(field.getClientProperty("hint"))) {
+            return 1;
+        }
+        return Integer.parseInt(text);
+    }
+
+    /**
+     * Utility: show the status line of a cart view
+     */
+    static void showStatus(JLabel label, CheckoutPipeline.CartView view) {
+        label.setText(view.getStatus().isEmpty() ? " " : view.getStatus());
+        label.setForeground(view.isError() ? Color.RED : new Color(0, 128, 0));
+    }
+
     /**
      * Utility: add placeholder text to JTextField
      */
@@ -0,0 +1,384 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sales analytics class: rolling sales / return figures per hour, store-wide and per SKU, plus
+ * top sellers, without ever scanning receipts.
+ *
+ * Committed receipts are counted into the bucket of their hour (ring of the last N hours, older
+ * buckets are reused): store totals in striped LongAdders (every lane adds to them), per-SKU
+ * counters in one small atomic array each (one cache line, rarely contended), so a lane pays
+ * a few counter increments per line. Top sellers come from a Space-Saving sketch per hour, fed by
+ * the inventory event bus (SOLD events) on its own subscriber thread, off the checkout path; the
+ * sketch only nominates and bounds candidates, their figures are read from the exact counters.
+ * Every query touches at most one bucket per hour of the window: O(buckets), O(buckets x topK)
+ * for top sellers.
+ */
+public class SalesAnalytics implements InventoryEventListener {
+    public static final long HOUR_MILLIS = 3_600_000L;
+
+    private final AtomicReferenceArray<Bucket> buckets;
+    private final int topK;
+
+    // Counter slots, per SKU (long[] updated atomically) and store-wide (LongAdder[]); amounts in minor units
+    private static final int UNITS_SOLD = 0;
+    private static final int REVENUE = 1;
+    private static final int UNITS_RETURNED = 2;
+    private static final int REFUNDS = 3;
+    private static final int COUNTERS = 4;
+    private static final VarHandle COUNTER = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // One hour of sales: store totals, per-SKU counters and the top-seller sketch
+    private static final class Bucket {
+        private final long hour;  // Epoch hour (millis / HOUR_MILLIS)
+        private final LongAdder sales = new LongAdder();
+        private final LongAdder returns = new LongAdder();
+        private final LongAdder[] totals = new LongAdder[COUNTERS];  // Every lane adds here: striped
+        private final Map<String, long[]> products = new ConcurrentHashMap<>();  // Lanes rarely hit the same SKU at once
+        private final TopSketch topSellers;
+
+        private Bucket(long hour, int topK) {
+            this.hour = hour;
+            for (int i = 0; i < COUNTERS; i++) {
+                totals[i] = new LongAdder();
+            }
+            this.topSellers = new TopSketch(topK);
+        }
+    }
+
+    public SalesAnalytics(int hours, int topK) {
+        if (hours <= 0 || topK <= 0) {
+            throw new IllegalArgumentException("Analytics hours and topK must be positive");
+        }
+        this.buckets = new AtomicReferenceArray<>(hours);
+        this.topK = topK;
+    }
+
+    // Analytics configured by -Dpos.analytics.hours (default 48) and -Dpos.analytics.topK (default 256),
+    // null if -Dpos.analytics=off
+    public static SalesAnalytics fromSystemProperties() {
+        if ("off".equalsIgnoreCase(System.getProperty("pos.analytics"))) {
+            return null;
+        }
+        return new SalesAnalytics(Integer.getInteger("pos.analytics.hours", 48), Integer.getInteger("pos.analytics.topK", 256));
+    }
+
+    // Feed the top-seller sketches from the inventory events
+    public InventoryEventBus.Subscription subscribeTo(InventoryEventBus events) {
+        return events.subscribe("sales-analytics", this);
+    }
+
+    // Count one committed receipt (checkout path: a few counter increments per line)
+    public void record(Receipt receipt) {
+        Bucket bucket = bucket(receipt.getTransactionTime().getTime() / HOUR_MILLIS, true);
+        if (bucket == null) {
+            return;  // Older than the retained hours
+        }
+        ("RETURN".equals(receipt.getTransactionType()) ? bucket.returns : bucket.sales).increment();
+        for (ShoppingItem item : receipt.getItems()) {
+            String productId = item.getProduct().getProductId();
+            long[] counters = bucket.products.get(productId);
+            if (counters == null) {
+                counters = bucket.products.computeIfAbsent(productId, id -> new long[COUNTERS]);
+            }
+            int quantity = item.getQuantity();
+            long amount = item.calculateItemTotal();
+            if (quantity > 0) {
+                count(bucket, counters, UNITS_SOLD, quantity);
+                count(bucket, counters, REVENUE, amount);
+            } else if (quantity < 0) {
+                count(bucket, counters, UNITS_RETURNED, -quantity);
+                count(bucket, counters, REFUNDS, -amount);
+            }
+        }
+        long discount = receipt.getDiscountAmount();
+        if (discount != 0) {
+            bucket.totals[REVENUE].add(-discount);  // Store revenue is net of promotions; per-SKU revenue is at shelf price
+        }
+    }
+
+    private static void count(Bucket bucket, long[] counters, int slot, long value) {
+        COUNTER.getAndAdd(counters, slot, value);
+        bucket.totals[slot].add(value);
+    }
+
+    @Override
+    public void onEvent(InventoryEvent event, boolean endOfBatch) {
+        if (event.getType() == InventoryEvent.Type.SOLD) {
+            Bucket bucket = bucket(event.getTimestamp() / HOUR_MILLIS, true);
+            if (bucket != null) {
+                bucket.topSellers.add(event.getProductId(), -event.getDelta());
+            }
+        }
+    }
+
+    @Override
+    public void onOverrun(long missedEvents) {
+        // Missed SOLD events only leave the sketches less complete, the counters stay exact
+    }
+
+    // Store-wide figures for [fromMillis, toMillis), whole hours
+    public Figures getTotals(long fromMillis, long toMillis) {
+        Figures figures = new Figures(null, fromMillis / HOUR_MILLIS * HOUR_MILLIS);
+        for (Bucket bucket : buckets(fromMillis, toMillis)) {
+            figures.add(bucket.totals);
+            figures.sales += bucket.sales.sum();
+            figures.returns += bucket.returns.sum();
+        }
+        return figures;
+    }
+
+    // Figures of one product for [fromMillis, toMillis), whole hours
+    public Figures getProductTotals(String productId, long fromMillis, long toMillis) {
+        Figures figures = new Figures(productId, fromMillis / HOUR_MILLIS * HOUR_MILLIS);
+        for (Bucket bucket : buckets(fromMillis, toMillis)) {
+            figures.add(bucket.products.get(productId));
+        }
+        return figures;
+    }
+
+    // Hour-by-hour figures of one product (null = store-wide), oldest first, retained hours without sales included
+    public List<Figures> getHourly(String productId, long fromMillis, long toMillis) {
+        List<Figures> hours = new ArrayList<>();
+        long first = Math.max(fromMillis / HOUR_MILLIS, (toMillis - 1) / HOUR_MILLIS - buckets.length() + 1);
+        for (long hour = first; hour * HOUR_MILLIS < toMillis; hour++) {
+            long start = hour * HOUR_MILLIS;
+            hours.add(productId == null ? getTotals(start, start + HOUR_MILLIS)
+                    : getProductTotals(productId, start, start + HOUR_MILLIS));
+        }
+        return hours;
+    }
+
+    /**
+     * Best-selling products by units for [fromMillis, toMillis), best first, with exact figures.
+     * The hourly sketches bound what any product can have sold (its held count, or the smallest
+     * held count if the sketch is full and does not hold it), so candidates are resolved against
+     * the exact counters in order of that bound until no remaining one can make the ranking.
+     * Assumes the sketches saw every SOLD event (no overrun), otherwise the ranking is approximate.
+     */
+    public List<Figures> getTopSellers(int count, long fromMillis, long toMillis) {
+        List<Bucket> window = buckets(fromMillis, toMillis);
+        Map<String, long[]> bounds = new HashMap<>();  // Units above the unheld minimum, per candidate
+        long unheld = 0;  // Upper bound on what a product no sketch holds can have sold
+        for (Bucket bucket : window) {
+            TopSketch.Snapshot sketch = bucket.topSellers.snapshot();
+            unheld += sketch.floor;
+            for (int i = 0; i < sketch.ids.length; i++) {
+                bounds.computeIfAbsent(sketch.ids[i], id -> new long[1])[0] += sketch.counts[i] - sketch.floor;
+            }
+        }
+        List<Map.Entry<String, long[]>> candidates = new ArrayList<>(bounds.entrySet());
+        candidates.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        long start = fromMillis / HOUR_MILLIS * HOUR_MILLIS;
+        List<Figures> ranked = new ArrayList<>(count + 1);
+        for (Map.Entry<String, long[]> candidate : candidates) {
+            if (ranked.size() == count && ranked.get(count - 1).unitsSold >= unheld + candidate.getValue()[0]) {
+                break;  // No remaining candidate can sell more than the last one ranked
+            }
+            Figures figures = new Figures(candidate.getKey(), start);
+            for (Bucket bucket : window) {
+                figures.add(bucket.products.get(figures.productId));
+            }
+            int position = ranked.size();
+            while (position > 0 && ranks(figures, ranked.get(position - 1))) {
+                position--;
+            }
+            if (position < count) {
+                ranked.add(position, figures);
+                if (ranked.size() > count) {
+                    ranked.remove(count);
+                }
+            }
+        }
+        return ranked;
+    }
+
+    // More units first, then product ID
+    private static boolean ranks(Figures a, Figures b) {
+        return a.unitsSold != b.unitsSold ? a.unitsSold > b.unitsSold : a.productId.compareTo(b.productId) < 0;
+    }
+
+    public int getRetainedHours() {
+        return buckets.length();
+    }
+
+    // Buckets of the retained hours overlapping [fromMillis, toMillis)
+    private List<Bucket> buckets(long fromMillis, long toMillis) {
+        List<Bucket> window = new ArrayList<>();
+        long first = Math.max(fromMillis / HOUR_MILLIS, (toMillis - 1) / HOUR_MILLIS - buckets.length() + 1);
+        for (long hour = first; hour * HOUR_MILLIS < toMillis; hour++) {
+            Bucket bucket = bucket(hour, false);
+            if (bucket != null) {
+                window.add(bucket);
+            }
+        }
+        return window;
+    }
+
+    // Bucket of an epoch hour; create = start it if that ring slot still holds an older hour
+    private Bucket bucket(long hour, boolean create) {
+        int index = (int) Math.floorMod(hour, (long) buckets.length());
+        while (true) {
+            Bucket bucket = buckets.get(index);
+            if (bucket != null && bucket.hour == hour) {
+                return bucket;
+            }
+            if (!create || (bucket != null && bucket.hour > hour)) {
+                return null;  // Not recorded, or already overwritten by a newer hour
+            }
+            if (buckets.compareAndSet(index, bucket, new Bucket(hour, topK))) {
+                return buckets.get(index);
+            }
+        }
+    }
+
+    /**
+     * Figures of a product (or the whole store, productId null) over a time window.
+     * Amounts in minor units (see Money); sales / returns are transaction counts (store-wide only).
+     */
+    public static final class Figures {
+        private final String productId;
+        private final long fromMillis;
+        private long sales;
+        private long returns;
+        private long unitsSold;
+        private long revenue;
+        private long unitsReturned;
+        private long refunds;
+
+        private Figures(String productId, long fromMillis) {
+            this.productId = productId;
+            this.fromMillis = fromMillis;
+        }
+
+        private void add(long[] counters) {
+            if (counters != null) {
+                unitsSold += (long) COUNTER.getOpaque(counters, UNITS_SOLD);
+                revenue += (long) COUNTER.getOpaque(counters, REVENUE);
+                unitsReturned += (long) COUNTER.getOpaque(counters, UNITS_RETURNED);
+                refunds += (long) COUNTER.getOpaque(counters, REFUNDS);
+            }
+        }
+
+        private void add(LongAdder[] totals) {
+            unitsSold += totals[UNITS_SOLD].sum();
+            revenue += totals[REVENUE].sum();
+            unitsReturned += totals[UNITS_RETURNED].sum();
+            refunds += totals[REFUNDS].sum();
+        }
+
+        public String getProductId() { return productId; }
+        public long getFromMillis() { return fromMillis; }
+        public long getSales() { return sales; }
+        public long getReturns() { return returns; }
+        public long getUnitsSold() { return unitsSold; }
+        public long getRevenue() { return revenue; }
+        public long getUnitsReturned() { return unitsReturned; }
+        public long getRefunds() { return refunds; }
+
+        // Returned units per unit sold (0 if nothing was sold)
+        public double getReturnRate() {
+            return unitsSold == 0 ? 0 : (double) unitsReturned / unitsSold;
+        }
+    }
+
+    /**
+     * Space-Saving top-K sketch: the K products with the largest counts, held in an indexed min-heap.
+     * A product not held replaces the smallest one and inherits its count (a known overestimate).
+     */
+    static final class TopSketch {
+        private final String[] ids;
+        private final long[] counts;
+        private final Map<String, Integer> positions = new HashMap<>();
+        private int size;
+
+        TopSketch(int capacity) {
+            ids = new String[capacity];
+            counts = new long[capacity];
+        }
+
+        synchronized void add(String productId, long units) {
+            Integer position = positions.get(productId);
+            if (position != null) {
+                counts[position] += units;
+                siftDown(position);
+            } else if (size < ids.length) {
+                ids[size] = productId;
+                counts[size] = units;
+                positions.put(productId, size);
+                siftUp(size++);
+            } else {
+                positions.remove(ids[0]);  // Evict the smallest, its count becomes the newcomer's error
+                ids[0] = productId;
+                counts[0] += units;
+                positions.put(productId, 0);
+                siftDown(0);
+            }
+        }
+
+        // Copy of the held products and counts; floor = smallest count if full (bound for those not held)
+        synchronized Snapshot snapshot() {
+            return new Snapshot(Arrays.copyOf(ids, size), Arrays.copyOf(counts, size), size == ids.length ? counts[0] : 0);
+        }
+
+        static final class Snapshot {
+            final String[] ids;
+            final long[] counts;
+            final long floor;
+
+            Snapshot(String[] ids, long[] counts, long floor) {
+                this.ids = ids;
+                this.counts = counts;
+                this.floor = floor;
+            }
+        }
+
+        private void siftUp(int position) {
+            while (position > 0) {
+                int parent = (position - 1) / 2;
+                if (counts[parent] <= counts[position]) {
+                    return;
+                }
+                swap(parent, position);
+                position = parent;
+            }
+        }
+
+        private void siftDown(int position) {
+            while (true) {
+                int smallest = position;
+                int left = 2 * position + 1;
+                if (left < size && counts[left] < counts[smallest]) {
+                    smallest = left;
+                }
+                if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+                    smallest = left + 1;
+                }
+                if (smallest == position) {
+                    return;
+                }
+                swap(position, smallest);
+                position = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            String id = ids[a];
+            ids[a] = ids[b];
+            ids[b] = id;
+            long count = counts[a];
+            counts[a] = counts[b];
+            counts[b] = count;
+            positions.put(ids[a], a);
+            positions.put(ids[b], b);
+        }
+    }
+}
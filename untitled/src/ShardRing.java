@@ -0,0 +1,106 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shard ring class: consistent hashing of product IDs onto inventory shards (host:port).
+ * Every shard owns VIRTUAL_NODES points on a 64-bit ring; a SKU belongs to the first point at or
+ * after its hash. Adding a shard moves only the SKUs that fall on the new shard's points (about
+ * 1/N of them), all other SKUs stay where they are. Rings are immutable and numbered (epoch), so
+ * shards and clients can tell which of two rings is newer.
+ *
+ * Text form: "epoch host:port,host:port,..."
+ */
+public final class ShardRing {
+    private static final int VIRTUAL_NODES = 160;
+
+    private final long epoch;
+    private final List<String> shards;
+    private final long[] points;   // Sorted ring points
+    private final int[] owners;    // Shard index of each point
+
+    public ShardRing(long epoch, List<String> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("A shard ring needs at least one shard");
+        }
+        this.epoch = epoch;
+        List<String> addresses = new ArrayList<>();
+        for (String shard : shards) {
+            addresses.add(normalize(shard));
+        }
+        this.shards = List.copyOf(addresses);
+        long[][] entries = new long[shards.size() * VIRTUAL_NODES][];
+        for (int s = 0; s < this.shards.size(); s++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                entries[s * VIRTUAL_NODES + v] = new long[] {hash(this.shards.get(s) + "#" + v), s};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+        points = new long[entries.length];
+        owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    // Parse the text form
+    public static ShardRing parse(String text) {
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Expected 'epoch host:port,...': " + text);
+        }
+        return new ShardRing(Long.parseLong(parts[0]), Arrays.asList(parts[1].split(",")));
+    }
+
+    // Next ring with one more shard
+    public ShardRing withShard(String address) {
+        if (shards.contains(normalize(address))) {
+            throw new IllegalArgumentException("Shard already in the ring: " + address);
+        }
+        List<String> next = new ArrayList<>(shards);
+        next.add(address);
+        return new ShardRing(epoch + 1, next);
+    }
+
+    // Shard (host:port) owning a product ID
+    public String ownerOf(String productId) {
+        int i = Arrays.binarySearch(points, hash(productId));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return shards.get(owners[i == points.length ? 0 : i]);
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    @Override
+    public String toString() {
+        return epoch + " " + String.join(",", shards);
+    }
+
+    // Shards name themselves by loopback IP (InventoryShard binds to it)
+    static String normalize(String address) {
+        String trimmed = address.trim();
+        return trimmed.startsWith("localhost:") ? "127.0.0.1" + trimmed.substring("localhost".length()) : trimmed;
+    }
+
+    // 64-bit FNV-1a with a final avalanche (ring positions must be spread evenly)
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
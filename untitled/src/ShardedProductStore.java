@@ -0,0 +1,305 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sharded product store: client-side router over InventoryShard processes (-Dpos.store=sharded,
+ * -Dpos.shards=host:port,...). Each product ID is sent to the shard owning it on the ShardRing;
+ * stock lives only on that shard, so products returned here forward every stock change to it.
+ *
+ * The ring is read from the shards (the listed ones are seeds; a fresh cluster gets epoch 1 with
+ * exactly them). A shard answering 421 has a newer ring: the client takes it and retries, so
+ * clients follow a rebalance without being told. 503 (SKU still moving) is retried for up to 10 s.
+ * A lookup is one round trip and returns the current stock; getStockQuantity of a product
+ * returns its stock as of its last lookup or stock change.
+ */
+public class ShardedProductStore implements ProductStore {
+    private static final int MAX_REDIRECTS = 16;          // Newer rings followed by one request
+    private static final long RETRY_MILLIS = 5;
+    private static final long MAX_WAIT_MILLIS = 10_000;   // How long a SKU may stay in transit
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2)).build();
+    private volatile ShardRing ring;
+
+    public ShardedProductStore(List<String> seeds) {
+        this.ring = discoverRing(seeds);
+    }
+
+    // Store for -Dpos.shards (comma-separated host:port list)
+    public static ShardedProductStore fromSystemProperties() {
+        String shards = System.getProperty("pos.shards");
+        if (shards == null || shards.isBlank()) {
+            throw new IllegalStateException("pos.store=sharded needs -Dpos.shards=host:port,...");
+        }
+        return new ShardedProductStore(Arrays.asList(shards.split(",")));
+    }
+
+    // Newest ring known to any seed; a cluster without a ring gets one made of the seeds
+    private ShardRing discoverRing(List<String> seeds) {
+        ShardRing newest = newestRing(seeds);
+        if (newest != null) {
+            return newest;
+        }
+        ShardRing initial = new ShardRing(1, seeds);
+        for (String shard : seeds) {
+            HttpResponse<String> response = send(shard, "POST", "/ring", initial.toString());
+            if (response.statusCode() != 200) {
+                return newestRing(seeds);  // Another client bootstrapped the cluster first
+            }
+        }
+        return initial;
+    }
+
+    private ShardRing newestRing(List<String> shards) {
+        ShardRing newest = null;
+        for (String shard : shards) {
+            HttpResponse<String> response = send(shard, "GET", "/ring", null);
+            if (response.statusCode() == 200) {
+                ShardRing candidate = ShardRing.parse(response.body());
+                if (newest == null || candidate.getEpoch() > newest.getEpoch()) {
+                    newest = candidate;
+                }
+            }
+        }
+        return newest;
+    }
+
+    public ShardRing getRing() {
+        return ring;
+    }
+
+    /**
+     * Add a shard and rebalance: the new shard takes the next ring first (and answers "retry" for
+     * SKUs still on their way), then every old shard installs it and hands over the SKUs it lost.
+     * Lanes keep running; a SKU is only unavailable while its batch is in transit.
+     * If a step fails, calling addShard again for the same shard resumes the rebalance: the ring
+     * that already has the shard is posted again and the old shards hand over what they still hold.
+     */
+    public synchronized ShardRing addShard(String address) {
+        List<String> shards = new ArrayList<>(ring.getShards());
+        if (!shards.contains(ShardRing.normalize(address))) {
+            shards.add(address);  // Asked too, in case an earlier attempt got its ring there
+        }
+        ShardRing current = newestRing(shards);
+        ShardRing base = current == null ? ring : current;
+        ShardRing next = base.getShards().contains(ShardRing.normalize(address)) ? base : base.withShard(address);
+        expectOk(send(address, "POST", "/ring?receiving=true", next.toString()), address);
+        for (String shard : next.getShards()) {
+            if (!shard.equals(ShardRing.normalize(address))) {
+                expectOk(send(shard, "POST", "/ring", next.toString()), shard);
+            }
+        }
+        expectOk(send(address, "POST", "/ring/done", ""), address);
+        ring = next;
+        return next;
+    }
+
+    @Override
+    public Product get(String productId) {
+        HttpResponse<String> response = route(productId, "GET", "/product?id=" + InventoryShard.encode(productId), null);
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        return remote(productId, response);
+    }
+
+    @Override
+    public Product put(Product product) {
+        return store(product, false);
+    }
+
+    @Override
+    public Product putIfAbsent(Product product) {
+        return store(product, true);
+    }
+
+    private Product store(Product product, boolean ifAbsent) {
+        String line = InventoryShard.line(new StringBuilder(), product).toString();
+        return remote(product.getProductId(), route(product.getProductId(), "POST", "/products?ifAbsent=" + ifAbsent, line));
+    }
+
+    // Store many products with one request per shard (bulk load); batches redirected by a newer
+    // ring (421) are regrouped under it and resent, like single requests in route
+    @Override
+    public void putAll(Collection<Product> products) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        int redirects = 0;
+        Collection<Product> pending = products;
+        while (!pending.isEmpty()) {
+            if (redirects > MAX_REDIRECTS || System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("No shard stores " + pending.size() + " products (ring epoch " + ring.getEpoch() + ")");
+            }
+            ShardRing current = ring;
+            Map<String, List<Product>> batches = new HashMap<>();
+            for (Product product : pending) {
+                batches.computeIfAbsent(current.ownerOf(product.getProductId()), key -> new ArrayList<>()).add(product);
+            }
+            List<Product> retry = new ArrayList<>();
+            boolean redirected = false;
+            for (Map.Entry<String, List<Product>> batch : batches.entrySet()) {
+                StringBuilder lines = new StringBuilder();
+                for (Product product : batch.getValue()) {
+                    InventoryShard.line(lines, product);
+                }
+                HttpResponse<String> response = send(batch.getKey(), "POST", "/products", lines.toString());
+                if (response.statusCode() == 421) {
+                    redirected = true;
+                    adopt(ShardRing.parse(response.body()));
+                    retry.addAll(batch.getValue());
+                } else if (response.statusCode() == 503) {
+                    retry.addAll(batch.getValue());
+                } else {
+                    expectOk(response, batch.getKey());
+                }
+            }
+            if (redirected) {
+                redirects++;
+            } else if (!retry.isEmpty()) {
+                sleep();
+            }
+            pending = retry;
+        }
+    }
+
+    @Override
+    public Collection<Product> values() {
+        List<Product> products = new ArrayList<>();
+        for (String shard : ring.getShards()) {
+            HttpResponse<String> response = expectOk(send(shard, "GET", "/products", null), shard);
+            for (String line : response.body().split("\n")) {
+                if (!line.isEmpty()) {
+                    products.add(new RemoteProduct(this, InventoryShard.parseLine(line)));
+                }
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (String shard : ring.getShards()) {
+            size += Integer.parseInt(expectOk(send(shard, "GET", "/size", null), shard).body().trim());
+        }
+        return size;
+    }
+
+    // Atomic stock change on the owning shard; returns the new stock
+    int updateStock(String productId, int delta) {
+        HttpResponse<String> response = route(productId, "POST", "/stock?id=" + InventoryShard.encode(productId) + "&delta=" + delta, null);
+        if (response.statusCode() == 409) {
+            throw new IllegalArgumentException(response.body().trim());
+        }
+        if (response.statusCode() == 404) {
+            throw new IllegalArgumentException("Product ID not found: " + productId);
+        }
+        return Integer.parseInt(expectOk(response, ring.ownerOf(productId)).body().trim());
+    }
+
+    private Product remote(String productId, HttpResponse<String> response) {
+        return new RemoteProduct(this, InventoryShard.parseLine(expectOk(response, ring.ownerOf(productId)).body().trim()));
+    }
+
+    // Send to the SKU's owner, following newer rings (421) and retrying SKUs in transit (503)
+    private HttpResponse<String> route(String productId, String method, String path, String body) {
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MILLIS;
+        int redirects = 0;
+        while (redirects <= MAX_REDIRECTS && System.currentTimeMillis() < deadline) {
+            ShardRing current = ring;
+            HttpResponse<String> response = send(current.ownerOf(productId), method, path, body);
+            if (response.statusCode() == 421) {
+                redirects++;
+                adopt(ShardRing.parse(response.body()));
+            } else if (response.statusCode() == 503) {
+                sleep();
+            } else {
+                return response;
+            }
+        }
+        throw new IllegalStateException("No shard serves product " + productId + " (ring epoch " + ring.getEpoch() + ")");
+    }
+
+    private synchronized void adopt(ShardRing newer) {
+        if (newer.getEpoch() > ring.getEpoch()) {
+            ring = newer;
+        }
+    }
+
+    private HttpResponse<String> send(String shard, String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://" + shard + path)).timeout(Duration.ofSeconds(30));
+        request.method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        try {
+            return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            throw new IllegalStateException("Inventory shard " + shard + " unreachable: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling inventory shard " + shard, e);
+        }
+    }
+
+    private static HttpResponse<String> expectOk(HttpResponse<String> response, String shard) {
+        if (response.statusCode() == 400) {
+            throw new IllegalArgumentException(response.body().trim());
+        }
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Inventory shard " + shard + ": status " + response.statusCode() + ": " + response.body().trim());
+        }
+        return response;
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shard", e);
+        }
+    }
+
+    /**
+     * Product whose stock lives on its shard: updateStock is an atomic check-and-update there.
+     */
+    static final class RemoteProduct extends Product {
+        private final ShardedProductStore store;
+        private volatile int lastKnownStock;
+
+        RemoteProduct(ShardedProductStore store, Product fields) {
+            this(store, fields, fields.getPrice());
+        }
+
+        private RemoteProduct(ShardedProductStore store, Product fields, long price) {
+            super(fields.getProductId(), fields.getProductName(), price, 0);
+            this.store = store;
+            this.lastKnownStock = fields.getStockQuantity();
+        }
+
+        // Stock as of the last lookup or stock change of this product
+        @Override
+        public int getStockQuantity() {
+            return lastKnownStock;
+        }
+
+        @Override
+        public void updateStock(int quantity) {
+            lastKnownStock = store.updateStock(getProductId(), quantity);
+        }
+
+        @Override
+        public Product withPrice(long newPrice) {
+            RemoteProduct repriced = new RemoteProduct(store, this, newPrice);
+            repriced.lastKnownStock = lastKnownStock;
+            return repriced;
+        }
+    }
+}
@@ -4,6 +4,8 @@
 public class ShoppingItem {
     private Product product;  // Associated product
     private int quantity;     // Quantity (positive = purchase, negative = return)
+    private int lineIndex;    // Position in the owning Cart (maintained by Cart)
+    private ReservationLedger.Reservation reservation;  // Stock held for this sale line (null if none)
 
     public ShoppingItem(Product product, int quantity) {
         this.product = product;
@@ -19,8 +21,29 @@ public class ShoppingItem {
         return quantity;
     }
 
+    // Merge more quantity into this line (used by Cart, no new object per scan)
+    void addQuantity(int delta) {
+        this.quantity += delta;
+    }
+
+    int getLineIndex() {
+        return lineIndex;
+    }
+
+    void setLineIndex(int lineIndex) {
+        this.lineIndex = lineIndex;
+    }
+
+    ReservationLedger.Reservation getReservation() {
+        return reservation;
+    }
+
+    void setReservation(ReservationLedger.Reservation reservation) {
+        this.reservation = reservation;
+    }
+
     // Calculate subtotal for this item (unit price × quantity)
-    public double calculateItemTotal() {
-        return product.getPrice() * quantity;
+    public long calculateItemTotal() {
+        return Money.times(product.getPrice(), quantity);  // Exact minor units
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style receipt ID generator: lock-free, monotonic, time-ordered 63-bit IDs
+ *   [41 bits: milliseconds since 2025-01-01 UTC][10 bits: lane/node ID][12 bits: sequence]
+ * Up to 4096 IDs per millisecond per lane; when a millisecond is exhausted (or the clock
+ * steps backwards) the sequence carries into the timestamp field, so IDs never repeat or decrease.
+ * Lanes with different lane IDs can never collide.
+ */
+public class SnowflakeIdGenerator implements ReceiptIdGenerator {
+    public static final long EPOCH_MILLIS = 1735689600000L;  // 2025-01-01T00:00:00Z
+    private static final int LANE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_LANE_ID = (1 << LANE_BITS) - 1;
+
+    private final long laneBits;
+    // Packed (timestamp << SEQUENCE_BITS | sequence) of the last issued ID
+    private final AtomicLong lastState = new AtomicLong();
+
+    public SnowflakeIdGenerator(int laneId) {
+        if (laneId < 0 || laneId > MAX_LANE_ID) {
+            throw new IllegalArgumentException("Lane ID must be between 0 and " + MAX_LANE_ID + ": " + laneId);
+        }
+        this.laneBits = (long) laneId << SEQUENCE_BITS;
+    }
+
+    // Generator for this node, lane ID from -Dpos.lane (default 0)
+    public static SnowflakeIdGenerator fromSystemProperties() {
+        return new SnowflakeIdGenerator(Integer.getInteger("pos.lane", 0));
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long previous = lastState.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // New millisecond: restart sequence; same (or earlier) millisecond: next sequence
+            long next = now > previous ? now : previous + 1;
+            if (lastState.compareAndSet(previous, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << (LANE_BITS + SEQUENCE_BITS)) | laneBits | sequence;
+            }
+        }
+    }
+
+    // Decode helpers
+    public static long timestampMillis(long id) {
+        return (id >>> (LANE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int laneId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_LANE_ID);
+    }
+}
@@ -0,0 +1,231 @@
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stock replica class: one lane's local copy of the stock of the SKUs it has scanned.
+ *
+ * Stock of a SKU is held as a PN-counter: the lane adds its own sales and returns to its own
+ * counter entries, and reads base + (merged lane updates - those already in base), where base is
+ * the central stock at the last rebase. Scans, reservations and payments therefore never leave the
+ * lane: a read or an update is one uncontended monitor. The hub's sync thread pushes changed
+ * counters in batches to the central inventory, rebases on the result, and gossips changes to peer
+ * lanes, so every replica converges to the central stock once updates stop.
+ *
+ * While disconnected (setConnected(false), or the central store failing) the lane keeps selling
+ * the SKUs it holds against its last known stock; changes accumulate in the counters and are merged
+ * when the link is back. SKUs the lane has never scanned need the central inventory.
+ */
+public class StockReplica {
+    private static final int REFRESH_BATCH = 64;  // Rebases of unchanged SKUs per sync round
+
+    // One SKU: local counter plus the central view it is based on (guarded by the entry's monitor)
+    private static final class Entry {
+        final String productId;
+        final StockReplicaHub.Entry central;
+        final PnCounter state = new PnCounter();  // Lane updates known here (own and merged)
+        volatile Product stored;                  // Catalog data as of the last rebase
+        int base;             // Central stock at the last rebase
+        long seen;            // Lane updates included in base (counter value)
+        long pulledSequence;  // Central sequence at the last rebase (sync thread only)
+        long pulledAt;        // Time of the last rebase (sync thread only)
+
+        Entry(StockReplicaHub.Snapshot snapshot) {
+            this.productId = snapshot.entry.productId;
+            this.central = snapshot.entry;
+            rebase(snapshot);
+        }
+
+        synchronized int stock() {
+            return (int) (base + state.value() - seen);
+        }
+
+        synchronized PnCounter copyState() {
+            return state.copy();
+        }
+
+        synchronized boolean merge(PnCounter other) {
+            return state.merge(other);
+        }
+
+        synchronized void rebase(StockReplicaHub.Snapshot snapshot) {
+            state.merge(snapshot.state);
+            stored = snapshot.product;
+            base = snapshot.stock;
+            seen = snapshot.settled;
+            pulledSequence = snapshot.sequence;
+            pulledAt = System.currentTimeMillis();
+        }
+    }
+
+    private final StockReplicaHub hub;
+    private final String laneName;
+    private final int replica;  // This lane's entries in every PnCounter
+    private final long refreshMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> unsent = ConcurrentHashMap.newKeySet();      // Changed since the last push
+    private final Set<String> ungossiped = ConcurrentHashMap.newKeySet();  // Changed since the last gossip
+    private volatile boolean connected = true;
+    private volatile long lastSyncMillis = System.currentTimeMillis();
+    private final LongAdder failedSyncs = new LongAdder();
+
+    StockReplica(StockReplicaHub hub, String laneName, int replica, long refreshMillis) {
+        this.hub = hub;
+        this.laneName = laneName;
+        this.replica = replica;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * Product priced as in the given catalog version, with its stock kept in this replica
+     * (null if unknown). The first lookup of a SKU fetches it from the central inventory.
+     */
+    public Product getProductById(String productId, CatalogVersion catalog) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            if (!connected) {
+                throw new IllegalStateException("Lane " + laneName + " is disconnected and holds no stock of product " + productId);
+            }
+            StockReplicaHub.Snapshot snapshot = hub.snapshot(productId);
+            if (snapshot == null) {
+                return null;
+            }
+            entry = entries.computeIfAbsent(productId, id -> new Entry(snapshot));
+        }
+        Product priced = catalog.resolve(productId, entry.stored);
+        return new ReplicaProduct(this, entry, priced.getProductName(), priced.getPrice());
+    }
+
+    // Local stock change; the check and the update are one step, as on the shared counter
+    private void update(Entry entry, int quantity) {
+        synchronized (entry) {
+            if (entry.stock() + quantity < 0) {
+                throw new IllegalArgumentException("Not enough stock to perform operation");
+            }
+            if (quantity >= 0) {
+                entry.state.increment(replica, quantity);
+            } else {
+                entry.state.decrement(replica, -quantity);
+            }
+        }
+        unsent.add(entry.productId);
+        ungossiped.add(entry.productId);
+    }
+
+    /**
+     * Sync thread: push changed counters to the central inventory and rebase on the result, then
+     * rebase SKUs other lanes changed and a batch of the oldest ones (stock changed centrally).
+     * A failure leaves the unsent changes queued for the next round.
+     */
+    void sync() {
+        if (!connected) {
+            return;
+        }
+        try {
+            for (String productId : unsent) {
+                unsent.remove(productId);
+                Entry entry = entries.get(productId);
+                try {
+                    entry.rebase(hub.sync(entry.central, entry.copyState()));
+                } catch (RuntimeException e) {
+                    unsent.add(productId);
+                    throw e;
+                }
+            }
+            long now = System.currentTimeMillis();
+            int refreshed = 0;
+            for (Entry entry : entries.values()) {
+                boolean stale = now - entry.pulledAt >= refreshMillis && refreshed < REFRESH_BATCH;
+                if (entry.central.sequence != entry.pulledSequence || stale) {
+                    entry.rebase(hub.sync(entry.central, null));
+                    refreshed += stale ? 1 : 0;
+                }
+            }
+            lastSyncMillis = now;
+        } catch (IllegalStateException e) {
+            failedSyncs.increment();  // Central store unreachable: retried next round
+        }
+    }
+
+    // Sync thread: send the counters changed since the last gossip to a peer lane
+    void gossipTo(StockReplica peer) {
+        if (!connected || !peer.connected || peer == this) {
+            return;
+        }
+        for (String productId : ungossiped) {
+            ungossiped.remove(productId);
+            peer.receive(productId, entries.get(productId).copyState());
+        }
+    }
+
+    // Counter state from a peer: merged if this lane holds the SKU, then passed on
+    private void receive(String productId, PnCounter state) {
+        Entry entry = entries.get(productId);
+        if (entry != null && entry.merge(state)) {
+            unsent.add(productId);
+            ungossiped.add(productId);
+        }
+    }
+
+    // Cut (false) or restore (true) this lane's link to the central inventory and its peers
+    public void setConnected(boolean connected) {
+        this.connected = connected;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    // Stop syncing after pushing the last changes (lane closed)
+    public void close() {
+        hub.close(this);
+    }
+
+    public String getLaneName() {
+        return laneName;
+    }
+
+    // SKUs with local changes the central inventory has not merged yet
+    public int getUnsentCount() {
+        return unsent.size();
+    }
+
+    // Time of the last complete sync with the central inventory
+    public long getLastSyncMillis() {
+        return lastSyncMillis;
+    }
+
+    public long getFailedSyncCount() {
+        return failedSyncs.sum();
+    }
+
+    /**
+     * Product whose stock is this lane's replica of it.
+     */
+    static final class ReplicaProduct extends Product {
+        private final StockReplica replica;
+        private final Entry entry;
+
+        private ReplicaProduct(StockReplica replica, Entry entry, String productName, long price) {
+            super(entry.productId, productName, price, 0);
+            this.replica = replica;
+            this.entry = entry;
+        }
+
+        @Override
+        public int getStockQuantity() {
+            return entry.stock();
+        }
+
+        @Override
+        public void updateStock(int quantity) {
+            replica.update(entry, quantity);
+        }
+
+        @Override
+        public Product withPrice(long newPrice) {
+            return new ReplicaProduct(replica, entry, getProductName(), newPrice);
+        }
+    }
+}
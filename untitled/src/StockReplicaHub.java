@@ -0,0 +1,204 @@
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Stock replica hub class: central side of the lane-local stock replicas (-Dpos.replica=true).
+ *
+ * Each SKU any lane has touched has a central PN-counter holding every lane update seen so far
+ * (merged) and the part of it already applied to the stored stock (settled). A lane pushes the
+ * counters it changed, the hub merges them and applies the net difference to the stored product
+ * (the per-SKU atomic counter, or its shard), and the lane rebases on the result: stock as stored
+ * now, plus the lane updates the store has not seen yet. A dedicated daemon thread runs these
+ * sync rounds for every open replica and lets each replica gossip its changes to one peer.
+ *
+ * Lanes selling through a partition can together sell more than was in stock. The hub applies
+ * what is there and counts the rest as oversold units (see getOversoldUnits); stock never goes
+ * negative. Usage: -Dpos.replica=true [-Dpos.replica.syncMillis=50] [-Dpos.replica.refreshMillis=1000]
+ */
+public class StockReplicaHub {
+    private static final int MAX_TAKE_ATTEMPTS = 16;  // Lookups of one SKU while settling a sale
+
+    /**
+     * Central state of one SKU; all fields are guarded by the entry's monitor except sequence.
+     */
+    static final class Entry {
+        final String productId;
+        final PnCounter state = new PnCounter();  // Every lane update seen (merged)
+        long settled;                             // state value already applied to the stored stock
+        volatile long sequence;                   // Hub sequence of the last change of state
+
+        Entry(String productId) {
+            this.productId = productId;
+        }
+    }
+
+    /**
+     * Consistent view of one SKU for a lane: stored stock, which includes exactly `settled` of the
+     * lane updates, and the merged lane state at that moment.
+     */
+    static final class Snapshot {
+        final Entry entry;
+        final Product product;
+        final int stock;
+        final long settled;
+        final PnCounter state;
+        final long sequence;
+
+        Snapshot(Entry entry, Product product, int stock, long settled, PnCounter state, long sequence) {
+            this.entry = entry;
+            this.product = product;
+            this.stock = stock;
+            this.settled = settled;
+            this.state = state;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Function<String, Product> lookup;   // Stored product by ID (null if unknown)
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<StockReplica> replicas = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder oversold = new LongAdder();
+    private final long syncMillis;
+    private final long refreshMillis;
+    private Thread syncer;     // Started by the first replica
+    private int gossipRound;   // Guarded by this
+
+    public StockReplicaHub(Function<String, Product> lookup, long syncMillis, long refreshMillis) {
+        this.lookup = lookup;
+        this.syncMillis = syncMillis;
+        this.refreshMillis = refreshMillis;
+    }
+
+    // Sync period from -Dpos.replica.syncMillis (default 50), full rebase from -Dpos.replica.refreshMillis (default 1000)
+    public static StockReplicaHub fromSystemProperties(Function<String, Product> lookup) {
+        return new StockReplicaHub(lookup, Long.getLong("pos.replica.syncMillis", 50), Long.getLong("pos.replica.refreshMillis", 1000));
+    }
+
+    // Lane-local replica for one lane (each call is a new replica with its own counter entries)
+    public StockReplica open(String laneName) {
+        StockReplica replica = new StockReplica(this, laneName, nextReplica.getAndIncrement(), refreshMillis);
+        replicas.add(replica);
+        startSyncer();
+        return replica;
+    }
+
+    // Push the replica's last changes and stop syncing it (its counter entries stay in the merged state)
+    void close(StockReplica replica) {
+        synchronized (this) {
+            replica.sync();
+            replicas.remove(replica);
+        }
+    }
+
+    // Current central view of a SKU (null if the product is unknown)
+    Snapshot snapshot(String productId) {
+        Entry entry = entries.get(productId);
+        if (entry == null) {
+            if (lookup.apply(productId) == null) {
+                return null;
+            }
+            entry = entries.computeIfAbsent(productId, Entry::new);
+        }
+        return sync(entry, null);
+    }
+
+    // Merge a lane's counter of one SKU, apply it to the stored stock and return the new central view
+    Snapshot sync(Entry entry, PnCounter laneState) {
+        synchronized (entry) {
+            if (laneState != null && entry.state.merge(laneState)) {
+                entry.sequence = sequence.incrementAndGet();
+            }
+            settle(entry);
+            Product product = lookup.apply(entry.productId);
+            return new Snapshot(entry, product, product.getStockQuantity(), entry.settled, entry.state.copy(), entry.sequence);
+        }
+    }
+
+    /**
+     * Apply the lane updates not yet in the stored stock; caller holds the entry's monitor.
+     * Sales are taken as far as stock allows (the remainder is oversold). `settled` advances with
+     * every applied step, so a store failure halfway (shard unreachable) is resumed, not repeated.
+     */
+    private void settle(Entry entry) {
+        long delta = entry.state.value() - entry.settled;
+        if (delta == 0) {
+            return;
+        }
+        Product product = lookup.apply(entry.productId);
+        if (delta > 0) {
+            product.updateStock((int) delta);
+            entry.settled += delta;
+            return;
+        }
+        long missing = -delta;
+        for (int attempt = 0; missing > 0 && attempt < MAX_TAKE_ATTEMPTS; ) {
+            int take = (int) Math.min(missing, product.getStockQuantity());
+            if (take <= 0) {
+                break;
+            }
+            try {
+                product.updateStock(-take);
+                entry.settled -= take;
+                missing -= take;
+            } catch (IllegalArgumentException e) {
+                product = lookup.apply(entry.productId);  // Sold meanwhile by a lane without a replica
+                attempt++;
+            }
+        }
+        if (missing > 0) {
+            oversold.add(missing);
+            entry.settled -= missing;
+        }
+    }
+
+    // One sync round: every replica pushes and rebases, then gossips its changes to one peer
+    public synchronized void syncNow() {
+        for (StockReplica replica : replicas) {
+            replica.sync();
+        }
+        int count = replicas.size();
+        if (count > 1) {
+            int offset = 1 + gossipRound++ % (count - 1);  // A different peer every round
+            for (int i = 0; i < count; i++) {
+                replicas.get(i).gossipTo(replicas.get((i + offset) % count));
+            }
+        }
+    }
+
+    // Lane units sold beyond the stock there was (lanes selling through a partition)
+    public long getOversoldUnits() {
+        return oversold.sum();
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    private synchronized void startSyncer() {
+        if (syncer != null) {
+            return;
+        }
+        syncer = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(syncMillis);
+                    syncNow();
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    System.err.println("Stock replica sync failed: " + e.getMessage());
+                }
+            }
+        }, "stock-replica-sync");
+        syncer.setDaemon(true);
+        syncer.start();
+    }
+}
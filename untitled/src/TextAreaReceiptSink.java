@@ -0,0 +1,18 @@
+import javax.swing.*;
+
+/**
+ * Text area receipt sink: shows the rendered receipt in a Swing text area (call on the EDT)
+ */
+public class TextAreaReceiptSink implements ReceiptSink {
+    private final JTextArea textArea;
+
+    public TextAreaReceiptSink(JTextArea textArea) {
+        this.textArea = textArea;
+    }
+
+    @Override
+    public void write(char[] text, int length) {
+        textArea.setText(new String(text, 0, length));
+        textArea.setCaretPosition(0);
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer wheel class: hashed timing wheel for large numbers of short-lived timeouts.
+ * Entries are intrusive list nodes (no allocation per schedule), scheduling and cancelling are O(1),
+ * and one daemon ticker thread expires due entries once per tick. Deadlines longer than one turn
+ * of the wheel stay in their slot until the tick they are due.
+ * Expiry runs on the ticker thread, outside the slot lock; an entry rescheduled while it is being
+ * expired is expired anyway, so Entry.expire must re-check its own deadline.
+ */
+public class TimerWheel {
+    /**
+     * Schedulable entry (subclass it): linked into one wheel slot while scheduled.
+     */
+    public abstract static class Entry {
+        private Entry prev;
+        private Entry next;
+        private volatile Slot slot;  // Slot the entry is linked into (null = not scheduled)
+        private long deadlineTick;
+
+        // Called on the ticker thread once the deadline has passed
+        protected abstract void expire();
+
+        public boolean isScheduled() {
+            return slot != null;
+        }
+    }
+
+    // One wheel slot: doubly linked list of entries, guarded by its own monitor
+    private static final class Slot {
+        private Entry head;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private volatile long currentTick;  // Last tick processed by the ticker thread
+    private final Thread ticker;
+
+    // slotCount is rounded up to a power of two
+    public TimerWheel(String name, long tickMillis, int slotCount) {
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.ticker = new Thread(this::run, name);
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Schedule (or reschedule) an entry to expire after delayMillis, rounded up to whole ticks
+    public void schedule(Entry entry, long delayMillis) {
+        cancel(entry);
+        long elapsed = System.nanoTime() - startNanos;
+        long deadline = (elapsed + TimeUnit.MILLISECONDS.toNanos(delayMillis) + tickNanos - 1) / tickNanos;
+        deadline = Math.max(deadline, currentTick + 1);  // Never into a slot the ticker already passed
+        Slot slot = slots[(int) (deadline & mask)];
+        synchronized (slot) {
+            entry.deadlineTick = deadline;
+            entry.prev = null;
+            entry.next = slot.head;
+            if (slot.head != null) {
+                slot.head.prev = entry;
+            }
+            slot.head = entry;
+            entry.slot = slot;
+        }
+    }
+
+    // Remove an entry from the wheel (no-op if not scheduled)
+    public void cancel(Entry entry) {
+        Slot slot = entry.slot;
+        if (slot == null) {
+            return;
+        }
+        synchronized (slot) {
+            if (entry.slot == slot) {  // Not expired or moved meanwhile
+                unlink(slot, entry);
+            }
+        }
+    }
+
+    private static void unlink(Slot slot, Entry entry) {
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            slot.head = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        entry.slot = null;
+    }
+
+    // Ticker loop: process every tick up to now, then sleep until the next one
+    private void run() {
+        List<Entry> due = new ArrayList<>();
+        while (true) {
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            while (currentTick < nowTick) {
+                long tick = currentTick + 1;
+                Slot slot = slots[(int) (tick & mask)];
+                synchronized (slot) {
+                    Entry entry = slot.head;
+                    while (entry != null) {
+                        Entry next = entry.next;
+                        if (entry.deadlineTick <= tick) {
+                            unlink(slot, entry);
+                            due.add(entry);
+                        }
+                        entry = next;
+                    }
+                }
+                currentTick = tick;
+                for (Entry entry : due) {
+                    try {
+                        entry.expire();
+                    } catch (RuntimeException e) {
+                        System.err.println("Timer entry failed: " + e.getMessage());
+                    }
+                }
+                due.clear();
+            }
+            LockSupport.parkNanos(startNanos + (currentTick + 1) * tickNanos - System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Transaction journal class: append-only, memory-mapped write-ahead log of committed receipts
+ * and their stock deltas. Inventory replays it on startup to rebuild the day's stock.
+ * Inventory shards keep one too, of their own stock changes and stored products (store records).
+ *
+ * Record layout: [int payloadLength][int crc32][payload]
+ * Payload: type(byte) time(long) receiptId(short len + UTF-8) total(long, minor units) lineCount(int)
+ *          then per line: productId(short len + UTF-8) stockDelta(int)
+ *          then receipt details: per line name(short len + UTF-8) price(long), discountCount(int),
+ *          per discount promotionId description amount(long) (absent in records of older versions)
+ * Store records: STOCK productId stockDelta(int) | PRODUCT productId name price(long) stock(int)
+ *          ifAbsent(byte) | REMOVE productId
+ * A zero length marks the end of the journal (the mapped tail is zero-filled). Stock replay reads
+ * only the deltas; the details let the receipt archive recover receipts lost in a crash.
+ */
+public class TransactionJournal implements AutoCloseable {
+    // Fsync policy: when appended records are forced to disk
+    public enum SyncMode {
+        PER_TRANSACTION,  // Every commit waits until it is durable (concurrent commits share one fsync)
+        INTERVAL,         // Background fsync every N milliseconds
+        EVERY_N_RECORDS   // Fsync after every N appended records
+    }
+
+    // Callback used by replay: one stock delta of one committed transaction
+    public interface DeltaConsumer {
+        void accept(String productId, int stockDelta);
+    }
+
+    // Callback used by replayStore: the store records in order (receipt lines arrive as stock deltas)
+    public interface StoreConsumer extends DeltaConsumer {
+        void product(Product product, boolean ifAbsent);
+
+        void remove(String productId);
+    }
+
+    private static final int MAP_CHUNK_SIZE = 16 * 1024 * 1024;  // Size of each mapped region
+    static final int HEADER_SIZE = 8;                             // length + crc (shared with EndOfDayReconciliation)
+    static final byte TYPE_SALE = 1;
+    static final byte TYPE_RETURN = 2;
+    static final byte TYPE_STOCK = 3;
+    static final byte TYPE_PRODUCT = 4;
+    static final byte TYPE_REMOVE = 5;
+
+    private final FileChannel channel;
+    private final SyncMode syncMode;
+    private final int syncParameter;  // Milliseconds (INTERVAL) or record count (EVERY_N_RECORDS)
+    private final ScheduledExecutorService syncTimer;
+
+    // Append state (guarded by this)
+    private volatile MappedByteBuffer mapped;  // Current mapped region
+    private long mappedStart;         // File offset of current mapped region
+    private ByteBuffer scratch = ByteBuffer.allocate(4096);  // Reusable encode buffer
+    private final CRC32 crc = new CRC32();
+    private int unsyncedRecords;
+
+    // Durability state
+    private volatile long appendedPosition;  // File offset after the last appended record
+    private long durablePosition;            // File offset known to be on disk (guarded by syncLock)
+    private final Object syncLock = new Object();
+    private final LongAdder syncFailures = new LongAdder();  // Failed background fsyncs (INTERVAL)
+
+    public TransactionJournal(Path path, SyncMode syncMode, int syncParameter) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.syncMode = syncMode;
+        this.syncParameter = Math.max(1, syncParameter);
+        // Find the end of existing records and map the region for appending
+        this.appendedPosition = scanEnd();
+        this.durablePosition = appendedPosition;
+        mapRegion(appendedPosition);
+
+        if (syncMode == SyncMode.INTERVAL) {
+            syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "journal-sync");
+                t.setDaemon(true);
+                return t;
+            });
+            syncTimer.scheduleAtFixedRate(this::backgroundSync, this.syncParameter, this.syncParameter, TimeUnit.MILLISECONDS);
+        } else {
+            syncTimer = null;
+        }
+    }
+
+    /**
+     * Open the journal configured by system properties:
+     * pos.journal = file path (default "pos-transactions.journal", "off" disables the journal)
+     * pos.journal.sync = "transaction" (default), "interval:<ms>" or "records:<n>"
+     */
+    public static TransactionJournal openConfigured() throws IOException {
+        String path = System.getProperty("pos.journal", "pos-transactions.journal");
+        if ("off".equalsIgnoreCase(path)) {
+            return null;
+        }
+        return open(Path.of(path));
+    }
+
+    // Journal at the given path with the fsync policy of -Dpos.journal.sync
+    public static TransactionJournal open(Path path) throws IOException {
+        String sync = System.getProperty("pos.journal.sync", "transaction").trim().toLowerCase();
+        if (sync.startsWith("interval:")) {
+            return new TransactionJournal(path, SyncMode.INTERVAL, Integer.parseInt(sync.substring(9)));
+        } else if (sync.startsWith("records:")) {
+            return new TransactionJournal(path, SyncMode.EVERY_N_RECORDS, Integer.parseInt(sync.substring(8)));
+        }
+        return new TransactionJournal(path, SyncMode.PER_TRANSACTION, 1);
+    }
+
+    /**
+     * Append one committed transaction. Under PER_TRANSACTION, returns only once the record is durable;
+     * lanes committing at the same time are group-committed by a single fsync.
+     */
+    public void append(Receipt receipt) {
+        awaitDurable(appendReceipt(receipt));
+    }
+
+    // Write a receipt record without waiting for it (the caller calls awaitDurable with the returned position)
+    public long appendReceipt(Receipt receipt) {
+        return write(buf -> encode(buf, receipt, receipt.getItems()));
+    }
+
+    /**
+     * Store records of an inventory shard. They are written (visible to replay after a crash of the
+     * process, not of the machine) but not waited for: the caller applies the change, then calls
+     * awaitDurable with the returned position before acknowledging it.
+     */
+    public long appendStock(String productId, int stockDelta) {
+        return write(buf -> {
+            buf.put(TYPE_STOCK);
+            putString(buf, productId);
+            buf.putInt(stockDelta);
+        });
+    }
+
+    public long appendProduct(Product product, boolean ifAbsent) {
+        return write(buf -> {
+            buf.put(TYPE_PRODUCT);
+            putString(buf, product.getProductId());
+            putString(buf, product.getProductName());
+            buf.putLong(product.getPrice());
+            buf.putInt(product.getStockQuantity());
+            buf.put((byte) (ifAbsent ? 1 : 0));
+        });
+    }
+
+    public long appendRemove(String productId) {
+        return write(buf -> {
+            buf.put(TYPE_REMOVE);
+            putString(buf, productId);
+        });
+    }
+
+    // Return once records up to position are durable under the fsync policy (PER_TRANSACTION: group-committed fsync)
+    public void awaitDurable(long position) {
+        if (syncMode == SyncMode.PER_TRANSACTION) {
+            syncTo(position);
+        }
+    }
+
+    // Encode and copy one record into the mapped region, return the end offset
+    private synchronized long write(Consumer<ByteBuffer> encoder) {
+        ByteBuffer buf = encode(encoder);
+        int recordSize = HEADER_SIZE + buf.remaining();
+        // Keep one zero int after the record as end marker
+        if (appendedPosition + recordSize + 4 > mappedStart + MAP_CHUNK_SIZE) {
+            mapped.force();  // Old region must be durable before moving on
+            mapRegion(appendedPosition);
+        }
+        crc.reset();
+        crc.update(buf.array(), 0, buf.remaining());
+        int offset = (int) (appendedPosition - mappedStart);
+        mapped.putInt(offset + 4, (int) crc.getValue());
+        mapped.put(offset + HEADER_SIZE, buf.array(), 0, buf.remaining());
+        // Length is written last, so a torn record is never seen as complete
+        mapped.putInt(offset, buf.remaining());
+        appendedPosition += recordSize;
+
+        if (syncMode == SyncMode.EVERY_N_RECORDS && ++unsyncedRecords >= syncParameter) {
+            unsyncedRecords = 0;
+            mapped.force();
+            synchronized (syncLock) {
+                durablePosition = Math.max(durablePosition, appendedPosition);
+            }
+        }
+        return appendedPosition;
+    }
+
+    private ByteBuffer encode(Consumer<ByteBuffer> encoder) {
+        ByteBuffer buf = scratch;
+        buf.clear();
+        while (true) {
+            try {
+                encoder.accept(buf);
+                buf.flip();
+                return buf;
+            } catch (java.nio.BufferOverflowException e) {
+                // Record larger than the buffer (very large cart): grow it and retry
+                scratch = buf = ByteBuffer.allocate(buf.capacity() * 2);
+            }
+        }
+    }
+
+    private static void encode(ByteBuffer buf, Receipt receipt, List<ShoppingItem> items) {
+        buf.put("RETURN".equals(receipt.getTransactionType()) ? TYPE_RETURN : TYPE_SALE);
+        buf.putLong(receipt.getTransactionTime().getTime());
+        putString(buf, receipt.getReceiptId());
+        buf.putLong(receipt.getTotalAmount());
+        buf.putInt(items.size());
+        for (ShoppingItem item : items) {
+            putString(buf, item.getProduct().getProductId());
+            buf.putInt(-item.getQuantity());  // Stock delta: sale decreases, return increases
+        }
+        for (ShoppingItem item : items) {
+            putString(buf, item.getProduct().getProductName());
+            buf.putLong(item.getProduct().getPrice());
+        }
+        buf.putInt(receipt.getDiscounts().size());
+        for (Discount discount : receipt.getDiscounts()) {
+            putString(buf, discount.getPromotionId());
+            putString(buf, discount.getDescription());
+            buf.putLong(discount.getAmount());
+        }
+    }
+
+    private static void putString(ByteBuffer buf, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buf.putShort((short) bytes.length);
+        buf.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Force everything appended so far; concurrent callers wait for one shared fsync
+    private void syncTo(long position) {
+        synchronized (syncLock) {
+            if (durablePosition >= position) {
+                return;  // Another lane's fsync already covered this record
+            }
+            long target = appendedPosition;
+            forceCurrentRegion();
+            durablePosition = target;
+        }
+    }
+
+    // File offset after the last appended record
+    public long getAppendedPosition() {
+        return appendedPosition;
+    }
+
+    // Force all appended records to disk (also used by the INTERVAL timer)
+    public void sync() {
+        syncTo(appendedPosition);
+    }
+
+    // INTERVAL timer task: a failure is counted and logged, never thrown (that would cancel all later runs)
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (RuntimeException e) {
+            syncFailures.increment();
+            System.err.println("Journal sync failed (retried in " + syncParameter + " ms): " + e.getMessage());
+        }
+    }
+
+    // Background fsyncs that failed so far (records appended meanwhile may not be durable yet)
+    public long getSyncFailureCount() {
+        return syncFailures.sum();
+    }
+
+    // Not synchronized: lanes keep appending while the fsync runs (older regions were forced on roll-over)
+    private void forceCurrentRegion() {
+        mapped.force();
+    }
+
+    private void mapRegion(long start) {
+        try {
+            mappedStart = start;
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, start, MAP_CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot map journal region: " + e.getMessage(), e);
+        }
+    }
+
+    // Walk existing records to find where the valid journal ends
+    private long scanEnd() throws IOException {
+        return replay(null);
+    }
+
+    /**
+     * Replay every valid record, passing its stock deltas to the consumer (null = only scan).
+     * Stops at the end marker or at the first torn/corrupt record. Returns the end offset.
+     */
+    public long replay(DeltaConsumer consumer) throws IOException {
+        return replay(0, consumer);
+    }
+
+    // Replay starting at a record boundary (e.g. the position covered by a catalog snapshot)
+    public long replay(long fromPosition, DeltaConsumer consumer) throws IOException {
+        return scan(fromPosition, consumer == null ? null : payload -> {
+            byte type = payload.get();
+            if (type == TYPE_STOCK) {
+                consumer.accept(getString(payload), payload.getInt());
+            } else if (type == TYPE_SALE || type == TYPE_RETURN) {
+                readDeltas(payload, consumer);
+            }
+        });
+    }
+
+    // Replay a shard's store records from a record boundary (the position covered by its snapshot)
+    public long replayStore(long fromPosition, StoreConsumer consumer) throws IOException {
+        return scan(fromPosition, payload -> {
+            byte type = payload.get();
+            if (type == TYPE_STOCK) {
+                consumer.accept(getString(payload), payload.getInt());
+            } else if (type == TYPE_PRODUCT) {
+                Product product = new Product(getString(payload), getString(payload), payload.getLong(), payload.getInt());
+                consumer.product(product, payload.get() != 0);
+            } else if (type == TYPE_REMOVE) {
+                consumer.remove(getString(payload));
+            } else {
+                readDeltas(payload, consumer);
+            }
+        });
+    }
+
+    // Stock deltas of a receipt record, after its type byte
+    private static void readDeltas(ByteBuffer payload, DeltaConsumer consumer) {
+        payload.getLong();  // time
+        getString(payload); // receipt ID
+        payload.getLong();  // total
+        int lines = payload.getInt();
+        for (int i = 0; i < lines; i++) {
+            String productId = getString(payload);
+            consumer.accept(productId, payload.getInt());
+        }
+    }
+
+    /**
+     * Rebuild the receipt of every valid record from a record boundary on, oldest first (receipt
+     * archive catch-up from the position it covers). Records without receipt details (older
+     * versions) are skipped. Returns the end offset.
+     */
+    public long replayReceipts(long fromPosition, Consumer<Receipt> consumer) throws IOException {
+        return scan(fromPosition, payload -> {
+            byte recordType = payload.get();
+            if (recordType != TYPE_SALE && recordType != TYPE_RETURN) {
+                return;  // Store record (shard journal)
+            }
+            String type = recordType == TYPE_RETURN ? "RETURN" : "SALE";
+            long time = payload.getLong();
+            long receiptNumber = Long.parseLong(getString(payload));
+            payload.getLong();  // total (recomputed from the lines and discounts)
+            int lines = payload.getInt();
+            String[] productIds = new String[lines];
+            int[] quantities = new int[lines];
+            for (int i = 0; i < lines; i++) {
+                productIds[i] = getString(payload);
+                quantities[i] = -payload.getInt();
+            }
+            if (!payload.hasRemaining()) {
+                return;
+            }
+            List<ShoppingItem> items = new ArrayList<>(lines);
+            for (int i = 0; i < lines; i++) {
+                String name = getString(payload);
+                items.add(new ShoppingItem(new Product(productIds[i], name, payload.getLong(), 0), quantities[i]));  // Product as sold
+            }
+            int count = payload.getInt();
+            List<Discount> discounts = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                discounts.add(new Discount(getString(payload), getString(payload), payload.getLong()));
+            }
+            consumer.accept(new Receipt(receiptNumber, items, discounts, type, new Date(time)));
+        });
+    }
+
+    // Walk the valid records from a record boundary (visitor null = only find the end)
+    private long scan(long fromPosition, Consumer<ByteBuffer> visitor) throws IOException {
+        long size = channel.size();
+        long position = fromPosition;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 check = new CRC32();
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            channel.read(header, position);
+            header.flip();
+            int length = header.getInt();
+            int expectedCrc = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            channel.read(payload, position + HEADER_SIZE);
+            check.reset();
+            check.update(payload.array(), 0, length);
+            if ((int) check.getValue() != expectedCrc) {
+                break;  // Torn write from a crash: everything after it is ignored
+            }
+            if (visitor != null) {
+                payload.flip();
+                visitor.accept(payload);
+            }
+            position += HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncTimer != null) {
+            syncTimer.shutdown();
+        }
+        sync();
+        channel.close();
+    }
+}
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchReplayTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void transactionFailingOnEndDoesNotSkipTheNextOne() throws IOException {
+        int p002 = stock("P002");
+        int p003 = stock("P003");
+        BatchReplay replay = replay(
+                "SALE 1.00", "P001,2", "END",  // Insufficient payment: fails on END
+                "SALE", "P002,1", "END",
+                "SALE", "P003,1", "END");
+
+        assertEquals(2, replay.getTransactions());
+        assertEquals(1, replay.getErrors());
+        assertEquals(p002 - 1, stock("P002"));
+        assertEquals(p003 - 1, stock("P003"));
+    }
+
+    @Test
+    void rejectedLineSkipsTheRestOfItsTransaction() throws IOException {
+        int p001 = stock("P001");
+        int p002 = stock("P002");
+        BatchReplay replay = replay(
+                "SALE", "P001,1", "NOPE,1", "P001,1", "END",  // Unknown product: whole transaction discarded
+                "# comment", "",
+                "SALE", "P002 2", "END");
+
+        assertEquals(1, replay.getTransactions());
+        assertEquals(1, replay.getErrors());
+        assertEquals(p001, stock("P001"));
+        assertEquals(p002 - 2, stock("P002"));
+    }
+
+    @Test
+    void malformedHeadersAndUnterminatedTransactionsAreCounted() throws IOException {
+        int p003 = stock("P003");
+        BatchReplay replay = replay(
+                "REFUND", "P003,x", "END",  // Bad header, then its lines and END are unexpected too
+                "RETURN", "P003,1", "END",
+                "SALE", "P003,1");          // No END
+
+        assertEquals(1, replay.getTransactions());
+        assertEquals(4, replay.getErrors());
+        assertEquals(p003 + 1, stock("P003"));
+    }
+
+    private BatchReplay replay(String... lines) throws IOException {
+        Path input = Files.write(directory.resolve("transactions.txt"), String.join("\n", lines).getBytes());
+        try (BatchReplay replay = new BatchReplay(null)) {
+            replay.run(input);
+            return replay;  // Counters stay readable after close
+        }
+    }
+
+    private static int stock(String productId) {
+        return Inventory.getInstance().getProductById(productId).getStockQuantity();
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CartTest {
+    private final Product cola = new Product("P001", "Cola", Money.of(3, 50), 100);
+    private final Product chips = new Product("P002", "Chips", Money.of(5, 0), 100);
+    private final Product bread = new Product("P003", "Bread", Money.of(8, 20), 100);
+
+    @Test
+    void repeatedScansMergeIntoOneLine() {
+        Cart cart = new Cart();
+        cart.add("P001", cola, 1);
+        cart.add("P002", chips, 2);
+        ShoppingItem line = cart.getLine("P001");
+        cart.add("P001", cola, 3);
+
+        assertEquals(2, cart.getItems().size());
+        assertSame(line, cart.getLine("P001"));
+        assertEquals(4, line.getQuantity());
+        assertEquals(Money.of(24, 0), cart.getTotalAmount());  // 4 x 3.50 + 2 x 5.00
+    }
+
+    @Test
+    void voidMovesTheLastLineIntoTheGap() {
+        Cart cart = new Cart();
+        cart.add("P001", cola, 1);
+        cart.add("P002", chips, 1);
+        cart.add("P003", bread, 2);
+
+        ShoppingItem voided = cart.voidLine("P001");
+        assertEquals("P001", voided.getProduct().getProductId());
+        assertNull(cart.voidLine("P001"));
+        assertEquals(List.of("P003", "P002"), ids(cart));
+        assertEquals(Money.of(21, 40), cart.getTotalAmount());  // 5.00 + 2 x 8.20
+
+        cart.add("P001", cola, 1);  // A new line again, appended
+        assertEquals(List.of("P003", "P002", "P001"), ids(cart));
+        assertSame(cart.getItems().get(1), cart.getLine("P002"));
+        assertEquals(Money.of(24, 90), cart.getTotalAmount());
+    }
+
+    @Test
+    void returnLinesRunTheTotalNegative() {
+        Cart cart = new Cart();
+        cart.add("P002", chips, -2);
+        cart.add("P001", cola, -1);
+        assertEquals(-Money.of(13, 50), cart.getTotalAmount());
+        cart.add("P002", chips, 2);  // Line back to zero
+        assertEquals(-Money.of(3, 50), cart.getTotalAmount());
+        cart.clear();
+        assertTrue(cart.isEmpty());
+        assertEquals(0, cart.getTotalAmount());
+    }
+
+    @Test
+    void discountsFollowLineChanges() {
+        PromotionEngine promotions = new PromotionEngine();
+        promotions.setPromotions(List.of(Promotion.bundle("3FOR2", Set.of("P001"), Set.of(), 3, Money.of(7, 0), null)),
+                new PromotionPlan.Categories());
+        Cart cart = new Cart(promotions);
+        cart.add("P001", cola, 2);
+        assertEquals(0, cart.getDiscountAmount());
+        cart.add("P001", cola, 1);
+        assertEquals(Money.of(3, 50), cart.getDiscountAmount());
+        assertEquals(Money.of(7, 0), cart.getTotalAmount());
+        assertEquals(Money.of(10, 50), cart.getGrossAmount());
+        assertEquals("3FOR2", cart.getDiscounts().get(0).getPromotionId());
+
+        cart.voidLine("P001");
+        assertEquals(0, cart.getDiscountAmount());
+        assertEquals(List.of(), cart.getDiscounts());
+        assertEquals(0, cart.getTotalAmount());
+    }
+
+    private static List<String> ids(Cart cart) {
+        return cart.getItems().stream().map(item -> item.getProduct().getProductId()).toList();
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogCsvTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void quotedFieldsSurviveARoundTrip() throws IOException {
+        List<Product> products = List.of(
+                new Product("P001", "Cola, 330ml", Money.of(3, 50), 100),
+                new Product("P002", "12\" Pizza \"Margherita\"", Money.of(12, 0), 0),
+                new Product("P003", " padded ", Money.of(0, 5), 7),
+                new Product("#P004", "Comment-like ID", Money.of(1, 0), 1),
+                new Product("P005", "青岛啤酒", Money.of(6, 80), 24));
+        Path file = directory.resolve("catalog.csv");
+        assertEquals(products.size(), CatalogCsv.write(products, file));
+
+        List<Product> read = read(file);
+        assertEquals(products.size(), read.size());
+        for (int i = 0; i < products.size(); i++) {
+            assertProduct(products.get(i), read.get(i));
+        }
+    }
+
+    @Test
+    void lineBreaksInNamesAreWrittenAsSpaces() throws IOException {
+        Path file = directory.resolve("catalog.csv");
+        CatalogCsv.write(List.of(new Product("P001", "Two\nlines", 100, 1)), file);
+        assertEquals("Two lines", read(file).get(0).getProductName());
+    }
+
+    @Test
+    void headerCommentsBlankLinesAndCrLfAreAccepted() throws IOException {
+        List<Product> read = read(write(
+                CatalogCsv.HEADER + "\r\n# seasonal\r\n\r\nP001,Cola,3.5,100\r\nP002,\"Chips, salted\",5.00,80\r\nP003,Pen,1.500,3"));
+        assertEquals(3, read.size());
+        assertProduct(new Product("P001", "Cola", Money.of(3, 50), 100), read.get(0));
+        assertProduct(new Product("P002", "Chips, salted", Money.of(5, 0), 80), read.get(1));
+        assertProduct(new Product("P003", "Pen", Money.of(1, 50), 3), read.get(2));
+    }
+
+    @Test
+    void malformedLinesReportTheirByteOffset() throws IOException {
+        assertMalformed("P001,Cola,3.50,100\nP002,\"Chips,5.00,80\n", "at byte 19: Unterminated quoted field");
+        assertMalformed("P001,Cola,,100\n", "Missing price");
+        assertMalformed("P001,Cola,3.505,100\n", "More than 2 decimals");
+        assertMalformed("P001,Cola,-3.50,100\n", "Invalid price");
+        assertMalformed("P001,Cola,3.50,1.5\n", "Invalid stock");
+        assertMalformed("P001,Cola,3.50,99999999999\n", "Stock out of range");
+        assertMalformed("P001,Cola,3.50\n", "Expected productId,name,price,stock");
+        assertMalformed("P001,Cola,3.50,100,extra\n", "Expected productId,name,price,stock");
+        assertMalformed(",Cola,3.50,100\n", "Empty product ID");
+    }
+
+    private void assertMalformed(String content, String message) throws IOException {
+        Path file = write(content);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> read(file));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(directory.resolve("input.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Product> read(Path file) throws IOException {
+        List<Product> products = new ArrayList<>();
+        CatalogCsv.read(file, products::addAll);
+        return products;
+    }
+
+    private static void assertProduct(Product expected, Product actual) {
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getProductName(), actual.getProductName());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getStockQuantity(), actual.getStockQuantity());
+    }
+}
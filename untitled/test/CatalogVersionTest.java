@@ -0,0 +1,89 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogVersionTest {
+    private final Product cola = new Product("P001", "Cola", Money.of(3, 50), 10);
+    private final Product chips = new Product("P002", "Chips", Money.of(5, 0), 10);
+    private final Map<String, Product> store = Map.of("P001", cola, "P002", chips);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void olderVersionsKeepTheirPrices() {
+        CatalogVersion initial = CatalogVersion.initial();
+        CatalogVersion first = initial.apply(Map.of("P001", Money.of(3, 80), "P999", Money.of(1, 0)), store::get);
+        CatalogVersion second = first.apply(Map.of("P002", Money.of(4, 50)), store::get);
+
+        assertEquals(1, first.getNumber());
+        assertEquals(1, first.getLastChangeCount());
+        assertEquals(1, first.getLastSkipped());  // Unknown product
+        assertEquals(2, second.getRepricedCount());
+        assertSame(cola, initial.resolve("P001", cola));
+        assertEquals(Money.of(3, 80), first.resolve("P001", cola).getPrice());
+        assertSame(chips, first.resolve("P002", chips));  // A transaction on the first version keeps this price
+        assertEquals(Money.of(4, 50), second.resolve("P002", chips).getPrice());
+        assertEquals(Money.of(3, 80), second.resolve("P001", cola).getPrice());
+        assertNull(second.resolve("P001", null));  // Removed from the store
+    }
+
+    @Test
+    void repricedCopiesShareTheStoredStock() {
+        CatalogVersion version = CatalogVersion.initial().apply(Map.of("P001", Money.of(3, 80)), store::get);
+        Product repriced = version.resolve("P001", cola);
+        repriced.updateStock(-3);
+        assertEquals(7, cola.getStockQuantity());
+        cola.updateStock(1);
+        assertEquals(8, repriced.getStockQuantity());
+
+        CatalogVersion replaced = version.without(List.of(cola, chips));
+        assertEquals(0, replaced.getRepricedCount());
+        assertEquals(version.getNumber() + 1, replaced.getNumber());
+        assertSame(replaced, replaced.without("P001"));  // Nothing left to drop: same version
+    }
+
+    @Test
+    void priceDeltaFilesParseStrictly() throws IOException {
+        Path delta = Files.writeString(directory.resolve("prices.csv"), "# Monday\nP001, 3.80\n\nP002,4.5  # promo\nP001,3.90\n");
+        assertEquals(Map.of("P001", Money.of(3, 90), "P002", Money.of(4, 50)), CatalogVersion.readPriceDelta(delta));
+
+        for (String invalid : new String[] {"P001\n", ",3.80\n", "P001,-1.00\n", "P001,abc\n"}) {
+            Path file = Files.writeString(directory.resolve("invalid.csv"), "P002,1.00\n" + invalid);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CatalogVersion.readPriceDelta(file), invalid);
+            assertTrue(e.getMessage().contains("invalid.csv:2:"), e.getMessage());
+        }
+    }
+
+    @Test
+    void reloadPricesSwapsTheInventoryVersion() throws Exception {
+        Inventory inventory = Inventory.getInstance();
+        inventory.addProduct(new Product("T801", "Reloaded", Money.of(1, 0), 5));
+        CatalogVersion before = inventory.getCatalogVersion();
+        Path delta = Files.writeString(directory.resolve("reload.csv"), "T801,1.25\n");
+
+        CatalogVersion after = inventory.reloadPrices(delta).get(5, TimeUnit.SECONDS);
+        assertSame(after, inventory.getCatalogVersion());
+        assertEquals(before.getNumber() + 1, after.getNumber());
+        assertEquals(Money.of(1, 25), inventory.getProductById("T801", after).getPrice());
+        assertEquals(Money.of(1, 0), inventory.getProductById("T801", before).getPrice());
+
+        Path missing = directory.resolve("missing.csv");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> inventory.reloadPrices(missing).get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause().getMessage().contains("missing.csv"));
+        assertSame(after, inventory.getCatalogVersion());
+    }
+}
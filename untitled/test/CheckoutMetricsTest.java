@@ -0,0 +1,72 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckoutMetricsTest {
+    @Test
+    void bucketsStayWithinTheirRelativeError() {
+        for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE / 3}) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= value, value + " above its bucket");
+            assertTrue(highest - value <= value / 16, value + " off by more than 6.25%");
+            assertEquals(index, LatencyHistogram.index(highest));
+            assertEquals(index + 1, LatencyHistogram.index(highest + 1));
+        }
+    }
+
+    @Test
+    void percentilesComeFromMergedSnapshots() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 1; i <= 990; i++) {
+            fast.record(i * 1_000L);  // 1..990 us
+        }
+        for (int i = 1; i <= 10; i++) {
+            slow.record(i * 1_000_000L);  // 1..10 ms
+        }
+        slow.record(-5);  // Clock went backwards: counts as 0
+
+        LatencyHistogram.Snapshot merged = LatencyHistogram.Snapshot.empty().add(fast.snapshot()).add(slow.snapshot());
+        assertEquals(1001, merged.getCount());
+        assertEquals(10_000_000L, merged.getMax());
+        assertWithin(500_000, merged.getPercentile(0.50));
+        assertWithin(990_000, merged.getPercentile(0.99));
+        assertWithin(9_000_000, merged.getPercentile(0.999));
+        assertEquals(10_000_000L, merged.getPercentile(1.0));  // Capped at the exact maximum
+        assertEquals(0, LatencyHistogram.Snapshot.empty().getPercentile(0.99));
+    }
+
+    @Test
+    void lanesAreSummedWhenRead() {
+        CheckoutMetricsMXBean all = CheckoutMetrics.all();
+        long scans = all.getScans();
+        long commits = all.getCommits();
+        long outOfStock = all.getOutOfStockRejections();
+
+        CheckoutMetrics.Lane first = CheckoutMetrics.lane("metrics-test-1");
+        CheckoutMetrics.Lane second = CheckoutMetrics.lane("metrics-test-2");
+        assertSame(first, CheckoutMetrics.lane("metrics-test-1"));
+        long start = System.nanoTime();
+        first.record(CheckoutMetrics.Stage.SCAN, start);
+        first.record(CheckoutMetrics.Stage.SCAN, start);
+        second.record(CheckoutMetrics.Stage.SCAN, start);
+        second.record(CheckoutMetrics.Stage.PAYMENT, start);
+        second.failed(CheckoutMetrics.Stage.PAYMENT);
+        first.outOfStock();
+
+        assertEquals(scans + 3, all.getScans());  // The view is live: new lanes are included
+        assertEquals(commits + 1, all.getCommits());
+        assertEquals(outOfStock + 1, all.getOutOfStockRejections());
+        CheckoutMetrics.StageStatistics payment = all.getStages().get(CheckoutMetrics.Stage.PAYMENT.ordinal());
+        assertEquals("PAYMENT", payment.getStage());
+        assertTrue(payment.getFailures() >= 1);
+        assertTrue(CheckoutMetrics.report().contains("metrics-test-2"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16, actual + " not within 6.25% above " + expected);
+    }
+}
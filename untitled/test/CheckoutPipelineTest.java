@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckoutPipelineTest {
+    @Test
+    void storeFailureIsShownAndLaterScansStillRefresh() throws InterruptedException {
+        CheckoutPipeline pipeline = new CheckoutPipeline(new Checkout("pipeline-test") {
+            @Override
+            public void addItem(String productId, int quantity) {
+                if (productId.equals("DOWN")) {
+                    throw new IllegalStateException("Stock store unreachable");
+                }
+                super.addItem(productId, quantity);
+            }
+        });
+        BlockingQueue<CheckoutPipeline.CartView> views = new ArrayBlockingQueue<>(100);
+        pipeline.addView(views::add);
+        views.clear();
+
+        pipeline.scan("DOWN", 1);
+        CheckoutPipeline.CartView failed = awaitStatus(views, "Stock store unreachable");
+        assertTrue(failed.isError());
+
+        pipeline.scan("P001", 1);
+        CheckoutPipeline.CartView added = awaitStatus(views, "Added P001 x1");
+        assertFalse(added.isError());
+        assertEquals(1, added.getLineCount());
+
+        pipeline.pay(0, receipt -> { });
+        assertTrue(awaitStatus(views, "Insufficient payment").isError());
+        pipeline.cancel();
+        assertEquals(0, awaitStatus(views, "Transaction cancelled").getLineCount());
+    }
+
+    @Test
+    void statusSetOnTheEdtKeepsTheCart() throws InterruptedException {
+        CheckoutPipeline pipeline = new CheckoutPipeline(new Checkout("pipeline-status-test"));
+        BlockingQueue<CheckoutPipeline.CartView> views = new ArrayBlockingQueue<>(100);
+        pipeline.addView(views::add);
+        views.clear();
+
+        pipeline.scan("P001", 2);
+        CheckoutPipeline.CartView added = awaitStatus(views, "Added P001 x2");
+        Product product = Inventory.getInstance().getProductById("P001");
+        ShoppingItem line = new ShoppingItem(product, 2);
+        assertTrue(added.getCartText().contains(String.format("%-10s %-10s %-8s %-6d %-8s%n", product.getProductId(),
+                product.getProductName(), Money.format(product.getPrice()), 2, Money.format(line.calculateItemTotal()))));
+
+        pipeline.showStatus("Quantity must be a positive integer!", true);
+        CheckoutPipeline.CartView invalid = awaitStatus(views, "Quantity must be");
+        assertTrue(invalid.isError());
+        assertEquals(1, invalid.getLineCount());
+        assertEquals(added.getCartText(), invalid.getCartText());
+        assertEquals(added.getTotalAmount(), invalid.getTotalAmount());
+
+        pipeline.cancel();
+        assertEquals(0, awaitStatus(views, "Transaction cancelled").getLineCount());
+    }
+
+    private static CheckoutPipeline.CartView awaitStatus(BlockingQueue<CheckoutPipeline.CartView> views, String status)
+            throws InterruptedException {
+        while (true) {
+            CheckoutPipeline.CartView view = views.poll(5, TimeUnit.SECONDS);
+            assertNotNull(view, "no view with status " + status);
+            if (view.getStatus() != null && view.getStatus().startsWith(status)) {
+                return view;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CheckoutServiceTest {
+    @Test
+    void catalogFilesStayInsideTheCatalogDirectory() {
+        Path directory = Path.of(System.getProperty("pos.service.catalogDir", "catalog-files")).toAbsolutePath().normalize();
+        assertEquals(directory.resolve("prices.csv"), CheckoutService.catalogFile(Map.of("file", "prices.csv")));
+        assertEquals(directory.resolve("2026/catalog.csv"), CheckoutService.catalogFile(Map.of("file", "2026/./catalog.csv")));
+
+        for (String name : new String[] {"../pos.journal", "exports/../../pos.journal", "..", "/etc/passwd", "", "."}) {
+            assertThrows(IllegalArgumentException.class, () -> CheckoutService.catalogFile(Map.of("file", name)), name);
+        }
+    }
+}
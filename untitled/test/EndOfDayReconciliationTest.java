@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndOfDayReconciliationTest {
+    @TempDir
+    Path directory;
+
+    private long receiptNumber = 8_000_000;
+
+    @Test
+    void balancedDayChecksStockAndCash() throws IOException {
+        Path journal = directory.resolve("day.journal");
+        CatalogSnapshot opening = day(journal);
+
+        EndOfDayReconciliation.Result result = EndOfDayReconciliation.reconcile(journal, opening,
+                List.of(product("A", 8), product("B", 4)), Long.MAX_VALUE, Money.of(7, 0));
+        assertEquals(3, result.getTransactionCount());  // The receipt before the snapshot is yesterday's
+        assertEquals(2, result.getSalesCount());
+        assertEquals(1, result.getReturnsCount());
+        assertEquals(Money.of(8, 0), result.getRevenue());
+        assertEquals(Money.of(1, 0), result.getRefunds());
+        assertEquals(Money.of(7, 0), result.getExpectedCash());
+        assertEquals(2, result.getProductsChecked());
+        assertEquals(List.of(), result.getDiscrepancies());
+        assertTrue(result.isBalanced());
+    }
+
+    @Test
+    void stockAndCashDifferencesAreReported() throws IOException {
+        Path journal = directory.resolve("day.journal");
+        CatalogSnapshot opening = day(journal);
+
+        EndOfDayReconciliation.Result result = EndOfDayReconciliation.reconcile(journal, opening,
+                List.of(product("A", 8), product("B", 3)), Long.MAX_VALUE, Money.of(6, 50));
+        assertEquals(1, result.getDiscrepancies().size());
+        EndOfDayReconciliation.Discrepancy shrink = result.getDiscrepancies().get(0);
+        assertEquals("B", shrink.getProductId());
+        assertEquals(5, shrink.getOpening());
+        assertEquals(1, shrink.getSold());
+        assertEquals(4, shrink.getExpected());
+        assertEquals(-1, shrink.getDifference());
+        assertEquals(-Money.of(0, 50), result.getCashDifference());
+        assertFalse(result.isBalanced());
+
+        Path report = directory.resolve("report.csv");
+        result.writeReport(report);
+        assertTrue(Files.readString(report).contains("\nB,5,1,0,4,3,-1,\n"));
+    }
+
+    @Test
+    void corruptRecordEndsTheDay() throws IOException {
+        Path journal = directory.resolve("day.journal");
+        CatalogSnapshot opening = day(journal);
+        long lastRecord;
+        try (TransactionJournal log = new TransactionJournal(journal, TransactionJournal.SyncMode.PER_TRANSACTION, 1)) {
+            lastRecord = log.getAppendedPosition();
+            log.append(receipt("SALE", line("A", 2)));
+        }
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), lastRecord + TransactionJournal.HEADER_SIZE + 3);
+        }
+
+        EndOfDayReconciliation.Result result = EndOfDayReconciliation.reconcile(journal, opening,
+                List.of(product("A", 8), product("B", 4)), Long.MAX_VALUE, EndOfDayReconciliation.NOT_COUNTED);
+        assertEquals(lastRecord, result.getCorruptAt());
+        assertEquals(3, result.getTransactionCount());  // The day up to the corrupt record still balances
+        assertEquals(List.of(), result.getDiscrepancies());
+        assertFalse(result.isBalanced());
+    }
+
+    // Opening stock A=10, B=5 after one earlier sale, then: A x3 + B x1, A x1 returned, nothing else
+    private CatalogSnapshot day(Path journal) throws IOException {
+        Path snapshot = directory.resolve("opening.snapshot");
+        try (TransactionJournal log = new TransactionJournal(journal, TransactionJournal.SyncMode.PER_TRANSACTION, 1)) {
+            log.append(receipt("SALE", line("A", 4)));
+            CatalogSnapshot.write(snapshot, List.of(product("A", 10), product("B", 5)), log.getAppendedPosition());
+            log.append(receipt("SALE", line("A", 3)));
+            log.append(receipt("SALE", line("B", 1)));
+            log.append(receipt("RETURN", line("A", -1)));
+        }
+        return CatalogSnapshot.open(snapshot);
+    }
+
+    private Receipt receipt(String type, ShoppingItem line) {
+        return new Receipt(receiptNumber++, List.of(line), List.of(), type, new Date());
+    }
+
+    private static ShoppingItem line(String productId, int quantity) {
+        return new ShoppingItem(product(productId, 100), quantity);
+    }
+
+    // A sells at 1.00, B at 5.00
+    private static Product product(String productId, int stock) {
+        return new Product(productId, "Item " + productId, "A".equals(productId) ? Money.of(1, 0) : Money.of(5, 0), stock);
+    }
+}
@@ -0,0 +1,177 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryShardTest {
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void killedShardKeepsEveryAcknowledgedChange() throws Exception {
+        int port = freePort();
+        String address = "127.0.0.1:" + port;
+        Path snapshot = directory.resolve("shard.snapshot");
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), "InventoryShard", String.valueOf(port), snapshot.toString())
+                .redirectOutput(new File(directory.resolve("shard.out").toString()))
+                .redirectErrorStream(true)
+                .start();
+        try {
+            awaitPort(port);
+            ShardedProductStore store = new ShardedProductStore(List.of(address));
+            List<Product> products = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                products.add(new Product("K" + i, "Kept " + i, 100, 10));
+            }
+            store.putAll(products);
+            store.get("K1").updateStock(-3);
+            store.put(new Product("K2", "Replaced", 250, 50));
+            store.get("K2").updateStock(-1);
+            store.putIfAbsent(new Product("K3", "Ignored", 1, 1));
+        } finally {
+            process.destroyForcibly();  // SIGKILL: no shutdown hook, no snapshot
+            assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+        }
+
+        for (int restart = 0; restart < 2; restart++) {  // From the journal, then from the snapshot written on stop
+            InventoryShard shard = new InventoryShard(port, snapshot);
+            shard.start();
+            try {
+                ShardedProductStore store = new ShardedProductStore(List.of(address));
+                assertEquals(1, store.getRing().getEpoch());
+                assertEquals(100, store.size());
+                assertEquals(7, store.get("K1").getStockQuantity());
+                assertEquals("Replaced", store.get("K2").getProductName());
+                assertEquals(49, store.get("K2").getStockQuantity());
+                assertEquals("Kept 3", store.get("K3").getProductName());
+                assertEquals(10, store.get("K99").getStockQuantity());
+            } finally {
+                shard.stop();
+            }
+        }
+    }
+
+    @Test
+    void staleClientPutAllFollowsTheNewRing() throws Exception {
+        List<InventoryShard> shards = startShards(3);
+        try {
+            ShardedProductStore stale = new ShardedProductStore(List.of(shards.get(0).getAddress(), shards.get(1).getAddress()));
+            ShardedProductStore admin = new ShardedProductStore(List.of(shards.get(0).getAddress(), shards.get(1).getAddress()));
+            admin.addShard(shards.get(2).getAddress());
+
+            stale.putAll(products(3000));  // Batches for SKUs the third shard owns now are redirected (421)
+            assertEquals(2, stale.getRing().getEpoch());
+            assertEquals(3000, admin.size());
+            assertTrue(servedCount(shards.get(2)) > 0);
+            assertEquals(50, admin.get("P7").getStockQuantity());
+        } finally {
+            shards.forEach(InventoryShard::stop);
+        }
+    }
+
+    @Test
+    void interruptedHandoverResumesWhenTheShardIsAddedAgain() throws Exception {
+        List<InventoryShard> shards = startShards(3);
+        InventoryShard joining = shards.get(2);
+        String address = joining.getAddress();
+        try {
+            ShardedProductStore store = new ShardedProductStore(List.of(shards.get(0).getAddress(), shards.get(1).getAddress()));
+            List<Product> products = products(3000);
+            store.putAll(products);
+
+            // The first shard installs the new ring, then cannot reach the joining shard to hand over
+            ShardRing next = store.getRing().withShard(address);
+            assertEquals(200, post(address, "/ring?receiving=true", next.toString()).statusCode());
+            joining.stop();
+            assertEquals(500, post(shards.get(0).getAddress(), "/ring", next.toString()).statusCode());
+            String moving = null;
+            for (Product product : products) {
+                String id = product.getProductId();
+                if (next.ownerOf(id).equals(address) && store.getRing().ownerOf(id).equals(shards.get(0).getAddress())) {
+                    moving = id;
+                    break;
+                }
+            }
+            HttpResponse<String> redirected = post(shards.get(0).getAddress(), "/stock?id=" + moving + "&delta=-1", "");
+            assertEquals(421, redirected.statusCode());  // No longer served by the old owner, nor lost
+
+            joining = new InventoryShard(Integer.parseInt(address.substring(address.lastIndexOf(':') + 1)), null);
+            joining.start();
+            shards.set(2, joining);
+            assertEquals(2, store.addShard(address).getEpoch());  // Same ring: the handover is resumed
+            assertEquals(3000, servedCount(shards.get(0)) + servedCount(shards.get(1)) + servedCount(joining));
+            assertEquals(3000, store.size());
+            assertEquals(50, store.get(moving).getStockQuantity());
+            store.get(moving).updateStock(-2);
+            assertEquals(48, store.get(moving).getStockQuantity());
+            assertEquals(2, store.addShard(address).getEpoch());
+        } finally {
+            shards.forEach(InventoryShard::stop);
+        }
+    }
+
+    private static List<InventoryShard> startShards(int count) throws IOException {
+        List<InventoryShard> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            InventoryShard shard = new InventoryShard(0, null);
+            shard.start();
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+    private static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            products.add(new Product("P" + i, "Item " + i, 100, 50));
+        }
+        return products;
+    }
+
+    // SKUs the shard answers for (GET /size)
+    private static int servedCount(InventoryShard shard) throws Exception {
+        HttpResponse<String> response = HTTP.send(HttpRequest.newBuilder(URI.create("http://" + shard.getAddress() + "/size")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return Integer.parseInt(response.body().trim());
+    }
+
+    private static HttpResponse<String> post(String address, String path, String body) throws Exception {
+        return HTTP.send(HttpRequest.newBuilder(URI.create("http://" + address + path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitPort(int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; attempt++) {
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(50);
+            }
+        }
+        throw new IllegalStateException("Shard on port " + port + " did not start");
+    }
+}
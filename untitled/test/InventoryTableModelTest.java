@@ -0,0 +1,36 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InventoryTableModelTest {
+    @Test
+    void pricesFollowTheCurrentCatalogVersion() throws InterruptedException {
+        Inventory inventory = Inventory.getInstance();
+        inventory.addProduct(new Product("T901", "Repriced", Money.of(2, 0), 5));
+        InventoryTableModel model = new InventoryTableModel(inventory::getCatalogVersion);
+        model.setRows(InventoryTableModel.buildView(inventory.getAllProducts(), "T901", -1, true));
+        assertEquals(1, model.getRowCount());
+        assertEquals(Money.format(Money.of(2, 0)), model.getValueAt(0, InventoryTableModel.COLUMN_PRICE));
+
+        BlockingQueue<String> repriced = new ArrayBlockingQueue<>(100);
+        InventoryEventBus.Subscription subscription = inventory.getEvents().subscribe("table-model-test", (event, endOfBatch) -> {
+            if (event.getType() == InventoryEvent.Type.REPRICED) {
+                repriced.add(event.getProductId() + "@" + event.getStockAfter());
+            }
+        });
+        try {
+            inventory.applyPrices(Map.of("T901", Money.of(2, 50), "UNKNOWN", Money.of(1, 0)));
+            assertEquals(Money.format(Money.of(2, 50)), model.getValueAt(0, InventoryTableModel.COLUMN_PRICE));  // Same row object
+            assertEquals("T901@5", repriced.poll(5, TimeUnit.SECONDS));
+            assertEquals(List.of(), List.copyOf(repriced));  // Unknown products are skipped
+        } finally {
+            subscription.close();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InventoryTest {
+    @Test
+    void cartFailingOnAnUnreachableStoreIsRolledBack() {
+        Product first = new Product("S001", "First shard", 100, 10);
+        Product second = new Product("S002", "Second shard", 100, 10);
+        Product down = new UnreachableProduct("S003");
+        List<ShoppingItem> items = List.of(new ShoppingItem(first, 2), new ShoppingItem(second, 3), new ShoppingItem(down, 1));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> Inventory.getInstance().commitStockChanges(items));
+        assertEquals("Inventory shard 127.0.0.1:1 unreachable", failure.getMessage());
+        assertEquals(10, first.getStockQuantity());
+        assertEquals(10, second.getStockQuantity());
+    }
+
+    @Test
+    void failedRollbackKeepsUndoingTheOtherLines() {
+        Product sold = new Product("S004", "Sold", 100, 10);
+        FlakyProduct flaky = new FlakyProduct("S005");
+        List<ShoppingItem> items = List.of(new ShoppingItem(sold, 1), new ShoppingItem(flaky, 1), new ShoppingItem(new Product("S006", "Last", 100, 0), 1));
+
+        IllegalArgumentException failure = assertThrows(IllegalArgumentException.class,
+                () -> Inventory.getInstance().commitStockChanges(items));
+        assertEquals(10, sold.getStockQuantity());
+        assertEquals(1, failure.getSuppressed().length);
+        assertSame(FlakyProduct.ROLLBACK_FAILURE, failure.getSuppressed()[0]);
+    }
+
+    @Test
+    void rolledBackCartIsDeductedOnceWhenPaidAgain() {
+        Inventory inventory = Inventory.getInstance();
+        Product reserved = new Product("J001", "Reserved", 100, 10);
+        Product unreserved = new Product("J002", "Unreserved", 100, 10);
+        Product returned = new Product("J003", "Returned", 100, 10);
+        ShoppingItem reservedLine = new ShoppingItem(reserved, 2);
+        reservedLine.setReservation(inventory.reserve(reserved, 2));
+        List<ShoppingItem> items = List.of(reservedLine, new ShoppingItem(unreserved, 3), new ShoppingItem(returned, -1));
+
+        inventory.commitStockChanges(items);
+        assertEquals(8, reserved.getStockQuantity());
+        assertEquals(7, unreserved.getStockQuantity());
+        assertEquals(11, returned.getStockQuantity());
+
+        inventory.rollbackStockChanges(items);  // Journal append failed
+        assertEquals(8, reserved.getStockQuantity());  // Held again for the cart, not given away
+        assertTrue(reservedLine.getReservation().isActive());
+        assertEquals(10, unreserved.getStockQuantity());
+        assertEquals(10, returned.getStockQuantity());
+
+        inventory.commitStockChanges(items);  // Paid again
+        assertEquals(8, reserved.getStockQuantity());
+        assertEquals(7, unreserved.getStockQuantity());
+        assertEquals(11, returned.getStockQuantity());
+    }
+
+    @Test
+    void concurrentLanesNeverOversellAndCartsCommitAllOrNothing() throws InterruptedException {
+        Inventory inventory = Inventory.getInstance();
+        Product scarce = new Product("C001", "Scarce", 100, 1000);
+        Product plenty = new Product("C002", "Plenty", 100, 1_000_000);
+        int lanes = 8;
+        int cartsPerLane = 500;
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int lane = 0; lane < lanes; lane++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < cartsPerLane; i++) {
+                    // Plenty first: a failing scarce line must give its unit back
+                    List<ShoppingItem> cart = List.of(new ShoppingItem(plenty, 1), new ShoppingItem(scarce, 1));
+                    try {
+                        inventory.commitStockChanges(cart);
+                        sold.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1000, sold.get());
+        assertEquals(lanes * cartsPerLane - 1000, rejected.get());
+        assertEquals(0, scarce.getStockQuantity());
+        assertEquals(1_000_000 - 1000, plenty.getStockQuantity());
+    }
+
+    @Test
+    void addedEventsCarryTheStoredProducts() throws InterruptedException {
+        Inventory inventory = Inventory.getInstance();
+        BlockingQueue<String> added = new ArrayBlockingQueue<>(100);
+        InventoryEventBus.Subscription subscription = inventory.getEvents().subscribe("added-test", (event, endOfBatch) -> {
+            if (event.getType() == InventoryEvent.Type.ADDED && event.getProductId().startsWith("A9")) {
+                added.add(event.getProductId() + "=" + event.getStockAfter());
+            }
+        });
+        try {
+            // The same ID twice in one import: the last row is stored, both events show it
+            inventory.addProducts(List.of(new Product("A901", "First row", 100, 5), new Product("A902", "Other", 100, 7),
+                    new Product("A901", "Second row", 100, 9)));
+            List<String> events = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                events.add(added.poll(5, TimeUnit.SECONDS));
+            }
+            assertEquals(List.of("A901=9", "A902=7", "A901=9"), events);
+            assertEquals(9, inventory.getProductById("A901").getStockQuantity());
+        } finally {
+            subscription.close();
+        }
+    }
+
+    // Product whose stock lives on a shard that cannot be reached
+    private static final class UnreachableProduct extends Product {
+        UnreachableProduct(String productId) {
+            super(productId, "Unreachable", 100, 10);
+        }
+
+        @Override
+        public void updateStock(int quantity) {
+            throw new IllegalStateException("Inventory shard 127.0.0.1:1 unreachable");
+        }
+    }
+
+    // Deduction succeeds, the shard goes away before the rollback
+    private static final class FlakyProduct extends Product {
+        static final IllegalStateException ROLLBACK_FAILURE = new IllegalStateException("Inventory shard 127.0.0.1:2 unreachable");
+
+        FlakyProduct(String productId) {
+            super(productId, "Flaky", 100, 10);
+        }
+
+        @Override
+        public void updateStock(int quantity) {
+            if (quantity > 0) {
+                throw ROLLBACK_FAILURE;
+            }
+            super.updateStock(quantity);
+        }
+    }
+}
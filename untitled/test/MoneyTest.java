@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+    @Test
+    void amountsParseAndFormatExactly() {
+        assertEquals(350, Money.of(3, 50));
+        assertEquals(-350, Money.of(-3, 50));
+        assertEquals(1200, Money.parse("12"));
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(-345, Money.parse("-3.45"));
+        assertEquals(150, Money.parse("+1.500"));
+        assertEquals("12.50", Money.format(1250));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-3.45", Money.format(-345));
+        assertEquals("prefix 1.07", Money.appendTo(new StringBuilder("prefix "), 107).toString());
+
+        long sum = 0;
+        for (int i = 0; i < 10; i++) {
+            sum += Money.parse("0.10");
+        }
+        assertEquals(Money.of(1, 0), sum);  // No binary floating-point drift
+    }
+
+    @Test
+    void extraDecimalsNeedARoundingMode() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("1.005"));
+        assertEquals(101, Money.parse("1.005", RoundingMode.HALF_UP));
+        assertEquals(100, Money.parse("1.005", RoundingMode.HALF_EVEN));
+        assertEquals(-101, Money.parse("-1.005", RoundingMode.HALF_UP));
+        assertEquals(-101, Money.parse("-1.001", RoundingMode.FLOOR));
+        assertEquals(-100, Money.parse("-1.001", RoundingMode.CEILING));
+        for (String invalid : new String[] {"", "-", "1.2.3", "1,50", "abc"}) {
+            assertThrows(NumberFormatException.class, () -> Money.parse(invalid), invalid);
+        }
+    }
+
+    @Test
+    void divisionRoundsAsRequested() {
+        assertEquals(3, Money.divide(10, 3, RoundingMode.HALF_UP));
+        assertEquals(4, Money.divide(7, 2, RoundingMode.HALF_UP));
+        assertEquals(4, Money.divide(7, 2, RoundingMode.HALF_EVEN));
+        assertEquals(2, Money.divide(5, 2, RoundingMode.HALF_EVEN));
+        assertEquals(-3, Money.divide(-5, 2, RoundingMode.HALF_UP));
+        assertEquals(-2, Money.divide(-5, 2, RoundingMode.HALF_DOWN));
+        assertEquals(-3, Money.divide(-5, 2, RoundingMode.FLOOR));
+        assertEquals(4, Money.divide(7, 2, RoundingMode.UP));
+        assertEquals(3, Money.divide(7, 2, RoundingMode.DOWN));
+        assertEquals(5, Money.divide(10, 2, RoundingMode.UNNECESSARY));
+        assertThrows(ArithmeticException.class, () -> Money.divide(7, 2, RoundingMode.UNNECESSARY));
+        assertEquals(117, Money.multiply(1000, 7, 60, RoundingMode.HALF_UP));  // 10.00 x 7/60 = 1.1666..
+    }
+
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        assertEquals(Money.of(7, 0), Money.times(350, 2));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE / 2, 3));
+        assertThrows(ArithmeticException.class, () -> Money.of(Long.MAX_VALUE / 10, 0));
+        assertThrows(ArithmeticException.class, () -> Money.parse("99999999999999999999"));
+    }
+}
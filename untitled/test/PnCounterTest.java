@@ -0,0 +1,63 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PnCounterTest {
+    @Test
+    void valueIsIncrementsMinusDecrementsOfAllReplicas() {
+        PnCounter counter = new PnCounter();
+        counter.increment(0, 5);
+        counter.decrement(0, 2);
+        counter.decrement(3, 4);
+        assertEquals(-1, counter.value());
+    }
+
+    @Test
+    void mergeIsCommutativeAndIdempotent() {
+        PnCounter a = new PnCounter();
+        PnCounter b = new PnCounter();
+        a.decrement(0, 8);
+        b.decrement(1, 7);
+        b.increment(1, 1);
+
+        PnCounter ab = a.copy();
+        assertTrue(ab.merge(b));
+        PnCounter ba = b.copy();
+        assertTrue(ba.merge(a));
+        assertEquals(-14, ab.value());
+        assertEquals(ab.value(), ba.value());
+
+        assertFalse(ab.merge(b));  // Nothing new
+        assertFalse(ab.merge(ba));
+        assertEquals(-14, ab.value());
+    }
+
+    @Test
+    void mergeKeepsTheLatestStateOfEachReplica() {
+        PnCounter lane = new PnCounter();
+        lane.decrement(2, 3);
+        PnCounter older = lane.copy();
+        lane.decrement(2, 2);
+
+        PnCounter central = new PnCounter();
+        central.merge(lane);
+        assertFalse(central.merge(older));  // A stale copy arriving late changes nothing
+        assertEquals(-5, central.value());
+
+        lane.increment(2, 1);  // Return on the lane
+        assertTrue(central.merge(lane));
+        assertEquals(-4, central.value());
+    }
+
+    @Test
+    void copyIsIndependent() {
+        PnCounter counter = new PnCounter();
+        counter.increment(0, 1);
+        PnCounter copy = counter.copy();
+        counter.increment(0, 1);
+        assertEquals(1, copy.value());
+        assertEquals(2, counter.value());
+    }
+}
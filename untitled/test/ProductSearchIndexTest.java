@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+    private final Map<String, Product> store = new HashMap<>();
+    private final ProductSearchIndex index = new ProductSearchIndex(store::get);
+
+    @Test
+    void exactIdComesFirstThenPrefixAndNameMatches() {
+        add(new Product("P001", "Cola", 350, 10));
+        add(new Product("P0010", "Cola Zero", 380, 10));
+        add(new Product("P002", "Orange juice", 420, 10));
+
+        assertEquals(List.of("P001", "P0010"), ids(index.search("p001", 10)));
+        assertEquals(List.of("P001", "P0010"), ids(index.search("col", 10)));
+        assertEquals(List.of("P002"), ids(index.search("juice", 10)));
+        assertEquals(List.of("P002"), ids(index.search("orange juise", 10)));  // Typo: fuzzy
+    }
+
+    @Test
+    void renamedProductIsFoundOnlyByItsNewName() {
+        add(new Product("P001", "Cola", 350, 10));
+        add(new Product("P001", "Lemonade", 350, 10));
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("cola", 10).isEmpty());
+        assertEquals(List.of("P001"), ids(index.search("lemon", 10)));
+        assertEquals(List.of("P001"), ids(index.search("lemonde", 10)));
+        assertEquals(List.of("P001"), ids(index.search("p00", 10)));
+    }
+
+    @Test
+    void reimportedCatalogDoesNotGrowTheIndexOrCrowdOutResults() {
+        List<Product> catalog = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            catalog.add(new Product(String.format("C%04d", i), "Item " + i, 100, 1));
+        }
+        for (int import_ = 0; import_ < 3; import_++) {
+            List<Product> renamed = new ArrayList<>();
+            for (Product product : catalog) {
+                renamed.add(new Product(product.getProductId(), product.getProductName() + " v" + import_, 100, 1));
+            }
+            catalog.forEach(product -> store.put(product.getProductId(), product));
+            index.addAll(catalog);  // Original names
+            index.addAll(renamed);  // Renamed: the previous ordinals are retired
+            renamed.forEach(product -> store.put(product.getProductId(), product));
+            assertEquals(5000, index.size());
+        }
+
+        assertEquals(List.of("C0010", "C0011", "C0012", "C0013"), ids(index.search("c001", 4)));
+        assertTrue(index.search("v0", 10).isEmpty());
+        assertEquals(10, index.search("v2", 10).size());
+    }
+
+    private void add(Product product) {
+        store.put(product.getProductId(), product);
+        index.add(product);
+    }
+
+    private static List<String> ids(List<Product> products) {
+        List<String> ids = new ArrayList<>();
+        for (Product product : products) {
+            ids.add(product.getProductId());
+        }
+        return ids;
+    }
+}
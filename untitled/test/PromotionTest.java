@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromotionTest {
+    private static final ZoneId UTC = ZoneOffset.UTC;
+
+    @Test
+    void bundlePricesEveryFullGroup() {
+        Promotion.State state = Promotion.bundle("B", Set.of("P001"), Set.of(), 3, Money.of(9, 0), null).newState();
+        state.update(Money.of(3, 50), 0, 2);
+        assertEquals(0, state.getDiscount());
+        state.update(Money.of(3, 50), 2, 5);
+        assertEquals(Money.of(1, 50), state.getDiscount());  // 10.50 - 9.00, two units left over
+        state.update(Money.of(3, 50), 5, 6);
+        assertEquals(Money.of(3, 0), state.getDiscount());
+        state.update(Money.of(3, 50), 6, 1);
+        assertEquals(0, state.getDiscount());
+    }
+
+    @Test
+    void mixAndMatchGroupsTheMostExpensiveUnits() {
+        Promotion.State state = Promotion.bundle("M", Set.of(), Set.of("drinks"), 3, Money.of(6, 0), null).newState();
+        state.update(Money.of(1, 0), 0, 2);
+        state.update(Money.of(5, 0), 0, 2);
+        assertEquals(Money.of(5, 0), state.getDiscount());  // 5.00 + 5.00 + 1.00 for 6.00
+    }
+
+    @Test
+    void bundleFreeGivesTheCheapestUnitsOfEachGroup() {
+        Promotion.State state = Promotion.bundleFree("F", Set.of(), Set.of("snacks"), 3, 1, null).newState();
+        state.update(Money.of(5, 0), 0, 1);
+        state.update(Money.of(3, 0), 0, 1);
+        assertEquals(0, state.getDiscount());
+        state.update(Money.of(1, 0), 0, 1);
+        assertEquals(Money.of(1, 0), state.getDiscount());
+        state.update(Money.of(2, 0), 0, 3);  // 5 3 2 | 2 2 1: 2.00 and 1.00 free
+        assertEquals(Money.of(3, 0), state.getDiscount());
+    }
+
+    @Test
+    void thresholdAppliesFromTheMinimum() {
+        Promotion.State amount = Promotion.threshold("T", Set.of(), Set.of(), Money.of(50, 0), Money.of(5, 0), 0, null).newState();
+        amount.update(Money.of(49, 99), 0, 1);
+        assertEquals(0, amount.getDiscount());
+        amount.update(Money.of(0, 1), 0, 1);
+        assertEquals(Money.of(5, 0), amount.getDiscount());
+
+        Promotion.State percent = Promotion.threshold("P", Set.of(), Set.of(), Money.of(10, 0), 0, 10, null).newState();
+        percent.update(Money.of(55, 55), 0, 1);
+        assertEquals(Money.of(5, 56), percent.getDiscount());  // 10% of 55.55, half up
+
+        Promotion.State capped = Promotion.threshold("C", Set.of(), Set.of(), 0, Money.of(10, 0), 0, null).newState();
+        capped.update(Money.of(3, 50), 0, 1);
+        assertEquals(Money.of(3, 50), capped.getDiscount());  // Never more than the subtotal
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Promotion.bundleFree("F", Set.of(), Set.of(), 3, 3, null));
+        assertThrows(IllegalArgumentException.class, () -> Promotion.bundle("B", Set.of(), Set.of(), 0, 100, null));
+        assertThrows(IllegalArgumentException.class, () -> Promotion.threshold("T", Set.of(), Set.of(), 100, 100, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> new Promotion.Window(10, 10, null, null));
+    }
+
+    @Test
+    void windowHonoursDatesAndDailyHoursAcrossMidnight() {
+        long from = millis(2026, 3, 1, 0, 0);
+        long to = millis(2026, 4, 1, 0, 0);
+        Promotion.Window window = new Promotion.Window(from, to, LocalTime.of(22, 0), LocalTime.of(2, 0));
+
+        assertFalse(window.isActive(millis(2026, 2, 28, 23, 0), UTC));  // Before the date range
+        assertTrue(window.isActive(millis(2026, 3, 10, 23, 0), UTC));
+        assertTrue(window.isActive(millis(2026, 3, 11, 1, 59), UTC));
+        assertFalse(window.isActive(millis(2026, 3, 11, 2, 0), UTC));
+        assertFalse(window.isActive(millis(2026, 3, 11, 12, 0), UTC));
+        assertFalse(window.isActive(to, UTC));                          // End is exclusive
+
+        assertEquals(millis(2026, 3, 11, 22, 0), window.nextChange(millis(2026, 3, 11, 12, 0), UTC));
+        assertEquals(millis(2026, 3, 12, 2, 0), window.nextChange(millis(2026, 3, 11, 22, 30), UTC));
+        assertEquals(from, new Promotion.Window(from, to, null, null).nextChange(millis(2026, 2, 1, 0, 0), UTC));
+        assertEquals(Long.MAX_VALUE, Promotion.Window.ALWAYS.nextChange(from, UTC));
+    }
+
+    private static long millis(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,222 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptArchiveTest {
+    private static final int SEGMENT_BYTES = 4096;  // Smallest segment: a few dozen receipts each
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void receiptsAreFoundAfterRestart() throws IOException {
+        List<Receipt> receipts = new ArrayList<>();
+        try (ReceiptArchive archive = new ReceiptArchive(directory, SEGMENT_BYTES)) {
+            for (int i = 0; i < 200; i++) {
+                Receipt receipt = receipt(i);
+                archive.append(receipt);
+                receipts.add(receipt);
+            }
+            assertTrue(archive.getSegmentCount() > 2, "expected sealed segments");
+        }
+
+        try (ReceiptArchive archive = new ReceiptArchive(directory, SEGMENT_BYTES)) {
+            assertEquals(receipts.size(), archive.getReceiptCount());
+            for (Receipt receipt : receipts) {
+                assertSameReceipt(receipt, archive.find(receipt.getReceiptNumber()));
+            }
+            assertSameReceipt(receipts.get(7), archive.find(receipts.get(7).getReceiptId()));
+            assertNull(archive.find(receipts.get(199).getReceiptNumber() + 1));
+
+            List<Receipt> byProduct = archive.findByProduct("A003", 100);
+            assertEquals(20, byProduct.size());  // Receipts 3, 13, ..., 193
+            assertEquals(receipts.get(193).getReceiptNumber(), byProduct.get(0).getReceiptNumber());  // Newest first
+
+            List<Receipt> byTime = archive.findByTime(Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+            assertEquals(receipts.size(), byTime.size());
+
+            Receipt next = receipt(200);  // The active segment is resumed
+            archive.append(next);
+            assertSameReceipt(next, archive.find(next.getReceiptNumber()));
+        }
+    }
+
+    @Test
+    void tornTailIsCutOffOnOpen() throws IOException {
+        Receipt kept = receipt(1);
+        try (ReceiptArchive archive = new ReceiptArchive(directory, SEGMENT_BYTES)) {
+            archive.append(kept);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(p -> p.toString().endsWith(".seg")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+        Files.write(segment, new byte[] {0, 0, 1, 0, 7, 7}, StandardOpenOption.APPEND);  // Half-written record
+
+        try (ReceiptArchive archive = new ReceiptArchive(directory, SEGMENT_BYTES)) {
+            assertEquals(1, archive.getReceiptCount());
+            assertSameReceipt(kept, archive.find(kept.getReceiptNumber()));
+            Receipt next = receipt(2);
+            archive.append(next);
+            assertSameReceipt(next, archive.find(next.getReceiptNumber()));
+        }
+        try (ReceiptArchive archive = new ReceiptArchive(directory, SEGMENT_BYTES)) {
+            assertEquals(2, archive.getReceiptCount());
+        }
+    }
+
+    @Test
+    void receiptsMissingFromTheArchiveAreRestoredFromTheJournal() throws IOException {
+        Path archiveDirectory = directory.resolve("archive");
+        List<Receipt> receipts = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES)) {
+            for (int i = 0; i < 60; i++) {
+                Receipt receipt = i == 5 ? discounted() : receipt(i);
+                journal.append(receipt);
+                if (i < 40) {  // The last 20 never reached the archive (crash, failed append)
+                    archive.append(receipt);
+                }
+                receipts.add(receipt);
+            }
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES)) {
+            long[] delta = new long[1];
+            journal.replay((productId, stockDelta) -> delta[0] += stockDelta);  // Stock replay ignores the details
+            long expected = 0;
+            for (Receipt receipt : receipts) {
+                for (ShoppingItem item : receipt.getItems()) {
+                    expected -= item.getQuantity();
+                }
+            }
+            assertEquals(expected, delta[0]);
+
+            assertEquals(20, archive.catchUp(journal));
+            assertEquals(0, archive.catchUp(journal));
+            assertEquals(receipts.size(), archive.getReceiptCount());
+            for (Receipt receipt : receipts) {
+                assertSameReceipt(receipt, archive.find(receipt.getReceiptNumber()));
+            }
+            Receipt discounted = archive.find(receipts.get(5).getReceiptNumber());
+            assertEquals(1, discounted.getDiscounts().size());
+            assertEquals("3FOR2", discounted.getDiscounts().get(0).getPromotionId());
+        }
+    }
+
+    @Test
+    void catchUpReadsTheJournalFromTheSavedPosition() throws IOException {
+        Path archiveDirectory = directory.resolve("archive");
+        List<Receipt> receipts = new ArrayList<>();
+        long covered;
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES)) {
+            for (int i = 0; i < 60; i++) {
+                Receipt receipt = receipt(i);
+                journal.append(receipt);
+                if (i < 40 && i != 10) {  // Receipt 10 is reported as archived below but is not: catch-up must not look back
+                    archive.append(receipt);
+                }
+                receipts.add(receipt);
+                if (i == 39) {
+                    archive.setJournalPosition(journal.getAppendedPosition());
+                }
+            }
+            covered = archive.getSavedJournalPosition();
+            assertEquals(0, covered);  // Saved only with a force of the archive
+            archive.sync();
+            covered = archive.getSavedJournalPosition();
+            assertTrue(covered > 0 && covered < journal.getAppendedPosition());
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES)) {
+            assertEquals(covered, archive.getSavedJournalPosition());
+            assertEquals(20, archive.catchUp(journal));
+            assertEquals(journal.getAppendedPosition(), archive.getSavedJournalPosition());
+            assertNull(archive.find(receipts.get(10).getReceiptNumber()));
+            assertEquals(0, archive.catchUp(journal));
+        }
+    }
+
+    @Test
+    void segmentsPastRetentionAreDeleted() throws IOException {
+        long day = 24 * 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        Path archiveDirectory = directory.resolve("archive");
+        List<Receipt> old = new ArrayList<>();
+        List<Receipt> recent = new ArrayList<>();
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES, 30 * day)) {
+            for (int i = 0; i < 100; i++) {  // A few segments, 100 days ago
+                Receipt receipt = new Receipt(1_000_000 + i, receipt(i).getItems(), List.of(), "SALE", new Date(now - 100 * day));
+                journal.append(receipt);
+                archive.append(receipt);
+                old.add(receipt);
+            }
+            for (int i = 0; i < 100; i++) {  // Rolling over deletes the old segments
+                Receipt receipt = receipt(i);
+                journal.append(receipt);
+                archive.append(receipt);
+                recent.add(receipt);
+            }
+            assertNull(archive.find(old.get(0).getReceiptNumber()));
+            assertSameReceipt(recent.get(0), archive.find(recent.get(0).getReceiptNumber()));
+        }
+
+        try (TransactionJournal journal = new TransactionJournal(directory.resolve("pos.journal"), TransactionJournal.SyncMode.PER_TRANSACTION, 1);
+             ReceiptArchive archive = new ReceiptArchive(archiveDirectory, SEGMENT_BYTES, 30 * day)) {
+            assertEquals(0, archive.catchUp(journal));  // Expired receipts are not restored from the journal
+            for (Receipt receipt : recent) {
+                assertSameReceipt(receipt, archive.find(receipt.getReceiptNumber()));
+            }
+            long oldKept = archive.getReceiptCount() - recent.size();  // Only those sharing a segment with recent ones
+            assertTrue(oldKept < old.size() / 2, "old receipts kept: " + oldKept);
+            assertEquals(oldKept, archive.findByTime(0, now - 99 * day, 1000).size());
+        }
+    }
+
+    private static Receipt discounted() {
+        Product product = new Product("D001", "Discounted", 300, 1000);
+        return new Receipt(List.of(new ShoppingItem(product, 3)), "SALE", List.of(new Discount("3FOR2", "3 for 2", 300)));
+    }
+
+    // Receipt i sells products A<i % 10> and B<i>
+    private static Receipt receipt(int i) {
+        List<ShoppingItem> items = List.of(
+                new ShoppingItem(new Product(String.format("A%03d", i % 10), "Article " + i % 10, 100 + i, 1000), 1 + i % 3),
+                new ShoppingItem(new Product("B" + i, "Item " + i, 250, 1000), 2));
+        return new Receipt(items, i % 7 == 0 ? "RETURN" : "SALE");
+    }
+
+    private static void assertSameReceipt(Receipt expected, Receipt actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getReceiptNumber(), actual.getReceiptNumber());
+        assertEquals(expected.getTransactionType(), actual.getTransactionType());
+        assertEquals(expected.getTransactionTime(), actual.getTransactionTime());
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+        assertEquals(expected.getItems().size(), actual.getItems().size());
+        for (int i = 0; i < expected.getItems().size(); i++) {
+            ShoppingItem e = expected.getItems().get(i);
+            ShoppingItem a = actual.getItems().get(i);
+            assertEquals(e.getProduct().getProductId(), a.getProduct().getProductId());
+            assertEquals(e.getProduct().getProductName(), a.getProduct().getProductName());
+            assertEquals(e.getProduct().getPrice(), a.getProduct().getPrice());
+            assertEquals(e.getQuantity(), a.getQuantity());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationLedgerTest {
+    @Test
+    void expiredReservationGivesItsUnitsBack() throws InterruptedException {
+        ReservationLedger ledger = new ReservationLedger(200);
+        Product product = new Product("R001", "Reserved", 100, 10);
+        ReservationLedger.Reservation reservation = ledger.reserve(product, 4);
+        assertEquals(6, product.getStockQuantity());
+        assertEquals(1, ledger.getActiveCount());
+
+        awaitExpiry(reservation);
+        assertEquals(10, product.getStockQuantity());
+        assertEquals(0, reservation.getQuantity());
+        assertEquals(0, ledger.getActiveCount());
+        assertEquals(1, ledger.getExpiredCount());
+        assertFalse(ledger.convert(reservation));  // Payment deducts normally instead
+    }
+
+    @Test
+    void resizingAnExpiredReservationTakesItAgain() throws InterruptedException {
+        ReservationLedger ledger = new ReservationLedger(200);
+        Product product = new Product("R002", "Reserved", 100, 10);
+        ReservationLedger.Reservation reservation = ledger.reserve(product, 3);
+        awaitExpiry(reservation);
+
+        ledger.resize(reservation, 5);
+        assertTrue(reservation.isActive());
+        assertEquals(5, product.getStockQuantity());
+        assertEquals(1, ledger.getActiveCount());
+        assertEquals(0, ledger.getExpiredCount());
+        assertTrue(ledger.convert(reservation));
+        assertEquals(5, product.getStockQuantity());
+    }
+
+    @Test
+    void refreshedReservationDoesNotExpire() throws InterruptedException {
+        ReservationLedger ledger = new ReservationLedger(1_000);
+        Product product = new Product("R003", "Reserved", 100, 10);
+        ReservationLedger.Reservation reservation = ledger.reserve(product, 2);
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(400);
+            ledger.resize(reservation, 2);  // Line touched again: TTL restarts
+        }
+        assertTrue(reservation.isActive());
+        assertEquals(8, product.getStockQuantity());
+    }
+
+    @Test
+    void settledReservationsNeverExpire() throws InterruptedException {
+        ReservationLedger ledger = new ReservationLedger(200);
+        Product product = new Product("R004", "Reserved", 100, 10);
+        ReservationLedger.Reservation paid = ledger.reserve(product, 2);
+        ReservationLedger.Reservation voided = ledger.reserve(product, 3);
+        assertTrue(ledger.convert(paid));
+        ledger.release(voided);
+        Thread.sleep(600);
+
+        assertEquals(8, product.getStockQuantity());  // Sale kept, voided units back once
+        assertEquals(0, ledger.getExpiredCount());
+        assertThrows(IllegalStateException.class, () -> ledger.resize(voided, 1));
+    }
+
+    @Test
+    void reservingMoreThanAvailableIsRejected() {
+        ReservationLedger ledger = new ReservationLedger(1_000);
+        Product product = new Product("R005", "Reserved", 100, 1);
+        assertThrows(IllegalArgumentException.class, () -> ledger.reserve(product, 2));
+        assertEquals(1, product.getStockQuantity());
+        assertEquals(0, ledger.getActiveCount());
+    }
+
+    // The timer wheel ticks every 100 ms: allow a few seconds on a loaded machine
+    private static void awaitExpiry(ReservationLedger.Reservation reservation) throws InterruptedException {
+        for (int i = 0; i < 100 && reservation.isActive(); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(reservation.isActive(), "reservation did not expire");
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SalesAnalyticsTest {
+    private static final long HOUR = SalesAnalytics.HOUR_MILLIS;
+
+    private final long thisHour = System.currentTimeMillis() / HOUR * HOUR;
+    private long receiptNumber = 9_000_000;
+
+    @Test
+    void figuresAddUpPerHourAndStoreWide() {
+        SalesAnalytics analytics = new SalesAnalytics(48, 16);
+        analytics.record(receipt("SALE", thisHour - HOUR, line("A", 100, 3), line("B", 500, 1)));
+        analytics.record(receipt("RETURN", thisHour - HOUR, line("A", 100, -1)));
+        analytics.record(receipt("SALE", thisHour, line("A", 100, 2)));
+        analytics.record(receipt("SALE", thisHour - 100 * HOUR, line("A", 100, 50)));  // Older than the retained hours
+
+        SalesAnalytics.Figures totals = analytics.getTotals(thisHour - HOUR, thisHour + HOUR);
+        assertEquals(2, totals.getSales());
+        assertEquals(1, totals.getReturns());
+        assertEquals(6, totals.getUnitsSold());
+        assertEquals(Money.of(10, 0), totals.getRevenue());
+        assertEquals(1, totals.getUnitsReturned());
+        assertEquals(Money.of(1, 0), totals.getRefunds());
+
+        List<SalesAnalytics.Figures> hourly = analytics.getHourly("A", thisHour - HOUR, thisHour + HOUR);
+        assertEquals(2, hourly.size());
+        assertEquals(thisHour - HOUR, hourly.get(0).getFromMillis());
+        assertEquals(3, hourly.get(0).getUnitsSold());
+        assertEquals(1.0 / 3, hourly.get(0).getReturnRate(), 1e-9);
+        assertEquals(2, hourly.get(1).getUnitsSold());
+        assertEquals(0, analytics.getProductTotals("B", thisHour, thisHour + HOUR).getUnitsSold());
+    }
+
+    @Test
+    void topSellersHaveExactFiguresWhenTheSketchOverflows() {
+        SalesAnalytics analytics = new SalesAnalytics(48, 3);  // Sketch holds 3 of the 12 products
+        int[] units = {40, 2, 1, 35, 3, 1, 2, 30, 1, 2, 3, 1};
+        long time = thisHour;
+        for (int round = 0; round < 40; round++) {  // One unit per receipt, products interleaved
+            for (int p = 0; p < units.length; p++) {
+                if (round < units[p]) {
+                    sell(analytics, "S" + p, time++);
+                }
+            }
+        }
+
+        List<String> top = new ArrayList<>();
+        for (SalesAnalytics.Figures figures : analytics.getTopSellers(3, thisHour, thisHour + HOUR)) {
+            top.add(figures.getProductId() + "=" + figures.getUnitsSold());
+        }
+        assertEquals(List.of("S0=40", "S3=35", "S7=30"), top);
+    }
+
+    // Count a sale like the checkout does: the receipt into the counters, its SOLD event into the sketch
+    private void sell(SalesAnalytics analytics, String productId, long time) {
+        analytics.record(receipt("SALE", time, line(productId, 100, 1)));
+        InventoryEvent event = new InventoryEvent();
+        event.set(InventoryEvent.Type.SOLD, productId, -1, 0, time);
+        analytics.onEvent(event, true);
+    }
+
+    private Receipt receipt(String type, long time, ShoppingItem... lines) {
+        return new Receipt(receiptNumber++, List.of(lines), List.of(), type, new Date(time));
+    }
+
+    private static ShoppingItem line(String productId, long price, int quantity) {
+        return new ShoppingItem(new Product(productId, "Item " + productId, price, 1000), quantity);
+    }
+}